@@ -0,0 +1,179 @@
+package com.flightapp.bench;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.adapter.DefaultServerWebExchange;
+import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+
+import com.flightapp.filter.AdmissionControl;
+import com.flightapp.filter.AdmissionFilter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Fare-sale spike: {@value #SEARCH_CLIENTS} clients search back to back against a backend with
+ * {@value #CONNECTIONS} connections while the benchmark threads book. Without admission control every booking
+ * queues behind a hundred searches; with it, searches are capped below the pool size and bookings stay fast.
+ * Read the p0.99 of the sample-time result; {@code searchesServed} and {@code searchesRejected} count the
+ * search load over each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AdmissionBenchmark {
+
+  private static final int CONNECTIONS = 10;
+  private static final Duration SEARCH_TIME = Duration.ofMillis(20);
+  private static final Duration BOOKING_TIME = Duration.ofMillis(2);
+  private static final int SEARCH_CLIENTS = 150;
+  private static final Duration REJECTED_RETRY = Duration.ofMillis(100);
+
+  private static final ServerCodecConfigurer CODECS = ServerCodecConfigurer.create();
+  private static final DefaultWebSessionManager SESSIONS = new DefaultWebSessionManager();
+  private static final AcceptHeaderLocaleContextResolver LOCALES = new AcceptHeaderLocaleContextResolver();
+
+  @Param({"off", "on"})
+  public String admission;
+
+  private final Pool pool = new Pool();
+  private final AtomicLong served = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private WebFilter filter;
+  private Disposable searches;
+
+  /** FIFO connection pool: a request holds a connection for its service time. */
+  static final class Pool {
+    private final ArrayDeque<MonoSink<Void>> waiting = new ArrayDeque<>();
+    private int free = CONNECTIONS;
+
+    Mono<Void> use(Duration serviceTime) {
+      return Mono.<Void>create(this::connect)
+          .then(Mono.delay(serviceTime))
+          .doFinally(signal -> disconnect())
+          .then();
+    }
+
+    private void connect(MonoSink<Void> sink) {
+      synchronized (this) {
+        if (free == 0) {
+          waiting.add(sink);
+          return;
+        }
+        free--;
+      }
+      sink.success();
+    }
+
+    private void disconnect() {
+      MonoSink<Void> next;
+      synchronized (this) {
+        next = waiting.poll();
+        if (next == null) {
+          free++;
+          return;
+        }
+      }
+      next.success();
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class SearchLoad {
+    public long searchesServed;
+    public long searchesRejected;
+    private boolean reporting;
+    private long servedBefore;
+    private long rejectedBefore;
+
+    @Setup(Level.Iteration)
+    public void start(AdmissionBenchmark bench, ThreadParams thread) {
+      // the load is shared and JMH sums the counters over threads: one thread reports it
+      reporting = thread.getThreadIndex() == 0;
+      servedBefore = bench.served.get();
+      rejectedBefore = bench.rejected.get();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop(AdmissionBenchmark bench) {
+      searchesServed = reporting ? bench.served.get() - servedBefore : 0;
+      searchesRejected = reporting ? bench.rejected.get() - rejectedBefore : 0;
+    }
+  }
+
+  /** Like MockServerWebExchange, without building a new set of codecs for every request. */
+  private static ServerWebExchange post(String path) {
+    return new DefaultServerWebExchange(MockServerHttpRequest.post(path).build(), new MockServerHttpResponse(),
+        SESSIONS, CODECS, LOCALES);
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    MockEnvironment env = new MockEnvironment()
+        .withProperty("flight.admission.search.max-limit", "6")
+        .withProperty("flight.admission.search.queue", "20");
+    filter = admission.equals("on")
+        ? new AdmissionFilter(new AdmissionControl(env, new SimpleMeterRegistry(), true, CONNECTIONS,
+            Duration.ofMillis(200), Duration.ofSeconds(1)))
+        : (exchange, chain) -> chain.filter(exchange);
+    searches = Flux.range(0, SEARCH_CLIENTS).flatMap(client -> Mono.defer(() -> {
+      ServerWebExchange exchange = post("/api/flight/search");
+      return filter.filter(exchange, ex -> pool.use(SEARCH_TIME))
+          .then(Mono.defer(() -> {
+            if (exchange.getResponse().getStatusCode() == null) {
+              served.incrementAndGet();
+              return Mono.<Void>empty();
+            }
+            rejected.incrementAndGet();
+            // turned away: comes back sooner than Retry-After asks, so search stays overloaded
+            return Mono.delay(REJECTED_RETRY).then();
+          }));
+    }).repeat(), SEARCH_CLIENTS).subscribe();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    searches.dispose();
+  }
+
+  @Benchmark
+  public Object booking(SearchLoad load) {
+    ServerWebExchange exchange = post("/api/flight/booking/f-1");
+    filter.filter(exchange, ex -> pool.use(BOOKING_TIME)).block();
+    return exchange.getResponse().getStatusCode();
+  }
+}
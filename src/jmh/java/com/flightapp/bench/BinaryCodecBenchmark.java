@@ -0,0 +1,114 @@
+package com.flightapp.bench;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flightapp.dto.BookingHistoryItem;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * The negotiable body formats on typical responses: a search of {@value #FLIGHTS} flights of 180 seats, half
+ * of them sold on alternating seats, and a history page of {@value #BOOKINGS} bookings. Measures the server's
+ * encode and the client's decode of the whole array. The size of the payload encoded or decoded is reported
+ * next to the timings as the {@code payloadBytes} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryCodecBenchmark {
+
+  private static final int FLIGHTS = 50;
+  private static final int BOOKINGS = 50;
+
+  @Param({"json", "smile", "cbor"})
+  public String format;
+
+  private ObjectMapper mapper;
+  private List<AirlineInventory> search;
+  private List<BookingHistoryItem> history;
+  private byte[] searchBytes;
+  private byte[] historyBytes;
+
+  /** Assigned on every call rather than added up, so the counter reads the size of one payload. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class PayloadSize {
+    public long payloadBytes;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    mapper = switch (format) {
+      case "smile" -> SmileMapper.builder().build();
+      case "cbor" -> CBORMapper.builder().build();
+      default -> JsonMapper.builder().build();
+    };
+    List<String> sold = IntStream.range(0, 180).filter(i -> i % 2 == 0).mapToObj(SeatMap::labelOf).toList();
+    search = new ArrayList<>(FLIGHTS);
+    for (int i = 0; i < FLIGHTS; i++) {
+      AirlineInventory flight = Fixtures.flight("f-" + i, 180);
+      flight.getSeatMap().claim(sold);
+      search.add(flight);
+    }
+    LocalDateTime journey = LocalDateTime.of(2030, 1, 1, 6, 30);
+    history = new ArrayList<>(BOOKINGS);
+    for (int i = 0; i < BOOKINGS; i++) {
+      history.add(new BookingHistoryItem("b-" + i, "PNR" + (100000 + i), "Agent", Fixtures.EMAIL, "f-" + i,
+          journey.minusDays(i), Fixtures.seats(0, 1 + i % 4), i % 5 == 0, i % 5 == 0 ? journey.minusDays(40) : null));
+    }
+    searchBytes = mapper.writeValueAsBytes(search);
+    historyBytes = mapper.writeValueAsBytes(history);
+  }
+
+  @Benchmark
+  public byte[] encodeSearch(PayloadSize size) {
+    byte[] encoded = mapper.writeValueAsBytes(search);
+    size.payloadBytes = encoded.length;
+    return encoded;
+  }
+
+  @Benchmark
+  public AirlineInventory[] decodeSearch(PayloadSize size) {
+    size.payloadBytes = searchBytes.length;
+    return mapper.readValue(searchBytes, AirlineInventory[].class);
+  }
+
+  @Benchmark
+  public byte[] encodeHistory(PayloadSize size) {
+    byte[] encoded = mapper.writeValueAsBytes(history);
+    size.payloadBytes = encoded.length;
+    return encoded;
+  }
+
+  @Benchmark
+  public BookingHistoryItem[] decodeHistory(PayloadSize size) {
+    size.payloadBytes = historyBytes.length;
+    return mapper.readValue(historyBytes, BookingHistoryItem[].class);
+  }
+}
@@ -0,0 +1,121 @@
+package com.flightapp.bench;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.model.Booking;
+import com.flightapp.service.BookingMetrics;
+import com.flightapp.service.FlightServiceFixture;
+import com.flightapp.service.FlightServiceImpl;
+import com.flightapp.service.MongoSeatAllocator;
+import com.flightapp.service.SeatAllocator;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@code FlightServiceImpl.book} against in-memory repositories: request validation, the conditional seat
+ * claim, PNR generation and the booking save. {@code bookAndRelease} gives the seats back after each booking
+ * so the flight never fills up; the two reject benchmarks measure the early-exit paths. {@code metrics}
+ * compares the outcome counters switched off with counters in a Prometheus registry, to keep their cost
+ * on the hot path in view.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingBenchmark {
+
+  private static final int SEATS = 450;
+  private static final int REQUESTS = 1024;
+
+  @Param({"1", "4", "9"})
+  public int seatsPerBooking;
+
+  @Param({"off", "prometheus"})
+  public String metrics;
+
+  private FlightServiceImpl service;
+  private SeatAllocator allocator;
+  private StubBookingRepository bookings;
+  private final List<BookingRequest> requests = new ArrayList<>(REQUESTS);
+  private BookingRequest duplicateSeats;
+  private BookingRequest soldOut;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    StubInventoryRepository inventories = new StubInventoryRepository(Duration.ZERO);
+    inventories.save(Fixtures.flight("open", SEATS)).block();
+    var full = Fixtures.flight("full", SEATS);
+    full.getSeatMap().claim(Fixtures.seats(0, SEATS));
+    inventories.save(full).block();
+
+    bookings = new StubBookingRepository();
+    allocator = new MongoSeatAllocator(inventories);
+    service = FlightServiceFixture.on(inventories, bookings)
+        .seatAllocator(allocator)
+        .metrics(metrics.equals("off")
+            ? BookingMetrics.disabled()
+            : new BookingMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)))
+        .build();
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < REQUESTS; i++) {
+      int first = random.nextInt(SEATS - seatsPerBooking);
+      requests.add(request(Fixtures.seats(first, seatsPerBooking)));
+    }
+    List<String> dup = new ArrayList<>(Fixtures.seats(0, seatsPerBooking));
+    dup.set(dup.size() - 1, dup.get(0));
+    duplicateSeats = request(dup);
+    soldOut = request(Fixtures.seats(0, seatsPerBooking));
+  }
+
+  private BookingRequest request(List<String> seats) {
+    BookingRequest req = new BookingRequest();
+    req.setName("Travel Agent");
+    req.setEmail(Fixtures.EMAIL);
+    req.setPassengers(Fixtures.passengers(seats.size()));
+    req.setSeatNumbers(seats);
+    return req;
+  }
+
+  @Benchmark
+  public Booking bookAndRelease() {
+    BookingRequest req = requests.get(next++ & (REQUESTS - 1));
+    Booking booking = service.book("open", req).block();
+    allocator.release("open", req.getSeatNumbers()).block();
+    bookings.store.remove(booking.getPnr());
+    return booking;
+  }
+
+  @Benchmark
+  public Object rejectDuplicateSeats() {
+    return service.book("open", duplicateSeats).onErrorResume(err -> Mono.empty()).block();
+  }
+
+  @Benchmark
+  public Object rejectSoldOut() {
+    return service.book("full", soldOut).onErrorResume(err -> Mono.empty()).block();
+  }
+}
@@ -0,0 +1,117 @@
+package com.flightapp.bench;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flightapp.dto.Itinerary;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.service.ConnectionSearch;
+
+/**
+ * Connection search on a synthetic network of {@value #AIRPORTS} airports, {@value #HUBS} of them hubs, with
+ * {@value #FLIGHTS} flights over two weeks: most routes join a spoke airport to a hub or two hubs, a few join
+ * two spoke airports, so most spoke-to-spoke trips need one or two stops. Each call searches a random pair of
+ * spoke airports over one day and keeps the best 20 trips by duration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectionSearchBenchmark {
+
+  private static final int AIRPORTS = 300;
+  private static final int HUBS = 20;
+  private static final int FLIGHTS = 50_000;
+  private static final int DAYS = 14;
+  private static final LocalDateTime START = LocalDateTime.now().plusDays(7).withHour(0).withMinute(0)
+      .withSecond(0).withNano(0);
+
+  @Param({"0", "1", "2"})
+  public int maxStops;
+
+  @Param({"8", "32"})
+  public int fanOut;
+
+  private ConnectionSearch search;
+
+  @Setup
+  public void setup() {
+    StubInventoryRepository inventories = new StubInventoryRepository(Duration.ZERO);
+    SplittableRandom random = new SplittableRandom(42);
+    List<AirlineInventory> flights = new ArrayList<>(FLIGHTS);
+    for (int i = 0; i < FLIGHTS; i++) {
+      int origin;
+      int destination;
+      double kind = random.nextDouble();
+      do {
+        if (kind < 0.6) { // spoke to hub or back
+          origin = spoke(random);
+          destination = random.nextInt(HUBS);
+          if (random.nextBoolean()) {
+            int swap = origin;
+            origin = destination;
+            destination = swap;
+          }
+        } else if (kind < 0.9) {
+          origin = random.nextInt(HUBS);
+          destination = random.nextInt(HUBS);
+        } else {
+          origin = spoke(random);
+          destination = spoke(random);
+        }
+      } while (origin == destination);
+      AirlineInventory flight = Fixtures.flight("c" + i, 60);
+      flight.setFlightNumber("6E-" + i);
+      flight.setOrigin(code(origin));
+      flight.setDestination(code(destination));
+      flight.setDeparture(START.plusMinutes(random.nextInt(DAYS * 24 * 60)));
+      flight.setArrival(flight.getDeparture().plusMinutes(60 + random.nextInt(240)));
+      flight.setPrice(1500 + random.nextInt(8000));
+      flights.add(flight);
+    }
+    inventories.saveAll(flights).blockLast();
+    search = new ConnectionSearch(inventories, true, Duration.ofMinutes(45), Duration.ofHours(6), fanOut,
+        Runtime.getRuntime().availableProcessors(), Duration.ZERO);
+    search.rebuild().block();
+  }
+
+  private static int spoke(SplittableRandom random) {
+    return HUBS + random.nextInt(AIRPORTS - HUBS);
+  }
+
+  private static String code(int airport) {
+    return String.format("A%03d", airport);
+  }
+
+  @Benchmark
+  public List<Itinerary> search() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int origin = HUBS + random.nextInt(AIRPORTS - HUBS);
+    int destination = HUBS + random.nextInt(AIRPORTS - HUBS - 1);
+    if (destination >= origin) {
+      destination++;
+    }
+    LocalDateTime from = START.plusDays(1 + random.nextInt(DAYS - 3));
+    return search.search(code(origin), code(destination), from, from.plusDays(1), maxStops, 1,
+        ConnectionSearch.Rank.DURATION, 20).collectList().block();
+  }
+}
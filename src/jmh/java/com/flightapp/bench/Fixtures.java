@@ -0,0 +1,67 @@
+package com.flightapp.bench;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.SeatMap;
+
+/** Realistically shaped flights and bookings shared by the benchmarks. */
+final class Fixtures {
+
+  static final String EMAIL = "agent@example.com";
+
+  private Fixtures() {
+  }
+
+  static AirlineInventory flight(String id, int seats) {
+    AirlineInventory flight = new AirlineInventory();
+    flight.setId(id);
+    flight.setAirline("Indigo");
+    flight.setAirlineLogoUrl("https://cdn.example.com/logos/indigo.png");
+    flight.setFlightNumber("6E-" + id);
+    flight.setOrigin("HYD");
+    flight.setDestination("BLR");
+    flight.setDeparture(LocalDateTime.now().plusDays(30).withNano(0));
+    flight.setArrival(flight.getDeparture().plusMinutes(85));
+    flight.setTotalSeats(seats);
+    flight.setPrice(4599.0);
+    flight.setSeatMap(SeatMap.allAvailable(seats));
+    return flight;
+  }
+
+  static List<String> seats(int first, int count) {
+    return IntStream.range(first, first + count).mapToObj(SeatMap::labelOf).toList();
+  }
+
+  static List<Passenger> passengers(int count) {
+    List<Passenger> passengers = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Passenger p = new Passenger();
+      p.setName("Passenger " + i);
+      p.setGender(i % 2 == 0 ? "F" : "M");
+      p.setAge(20 + i);
+      passengers.add(p);
+    }
+    return passengers;
+  }
+
+  static Booking booking(String pnr, String flightId, List<String> seats) {
+    Booking booking = new Booking();
+    booking.setId("65f0c0ffee" + pnr);
+    booking.setPnr(pnr);
+    booking.setFlightId(flightId);
+    booking.setEmail(EMAIL);
+    booking.setName("Travel Agent");
+    booking.setPassengers(passengers(seats.size()));
+    booking.setSeatNumbers(seats);
+    booking.setMealVeg(true);
+    booking.setBookedAt(LocalDateTime.now().withNano(0));
+    booking.setJourneyDate(LocalDateTime.now().plusDays(30).withNano(0));
+    return booking;
+  }
+}
@@ -0,0 +1,105 @@
+package com.flightapp.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.BookingHistoryItem;
+import com.flightapp.model.Booking;
+
+/**
+ * Per-row cost of a history page of 50 rows once the documents have arrived: {@code fullDocumentToMap}
+ * is the old path (whole booking document into {@link Booking}, then a HashMap per row),
+ * {@code projectedDocumentToRecord} reads the projected document straight into {@link BookingHistoryItem}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryMappingBenchmark {
+
+  private static final int ROWS = 50;
+  private static final String[] HISTORY_FIELDS = {
+      "_id", "pnr", "name", "email", "flightId", "journeyDate", "seatNumbers", "canceled", "canceledAt"};
+
+  private MappingMongoConverter converter;
+  private final List<Document> fullDocuments = new ArrayList<>(ROWS);
+  private final List<Document> projectedDocuments = new ArrayList<>(ROWS);
+
+  @Setup(Level.Trial)
+  public void setup() {
+    MongoCustomConversions conversions = new MongoConfig().mongoCustomConversions();
+    MongoMappingContext context = new MongoMappingContext();
+    context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+    context.afterPropertiesSet();
+    converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+    converter.setCustomConversions(conversions);
+    converter.afterPropertiesSet();
+
+    for (int i = 0; i < ROWS; i++) {
+      Booking booking = Fixtures.booking(String.format("P%05d", i), "f-1", Fixtures.seats(i * 4, 4));
+      booking.setId(null);
+      Document full = new Document();
+      converter.write(booking, full);
+      full.put("_id", new ObjectId());
+      fullDocuments.add(full);
+
+      Document projected = new Document();
+      for (String field : HISTORY_FIELDS) {
+        if (full.containsKey(field)) projected.put(field, full.get(field));
+      }
+      projectedDocuments.add(projected);
+    }
+  }
+
+  @Benchmark
+  public List<Map<String, Object>> fullDocumentToMap() {
+    List<Map<String, Object>> rows = new ArrayList<>(ROWS);
+    for (Document doc : fullDocuments) {
+      Booking b = converter.read(Booking.class, doc);
+      Map<String, Object> m = new HashMap<>();
+      m.put("pnr", b.getPnr());
+      m.put("name", b.getName());
+      m.put("email", b.getEmail());
+      m.put("flightId", b.getFlightId());
+      m.put("journeyDate", b.getJourneyDate());
+      m.put("seatNumbers", b.getSeatNumbers());
+      m.put("status", b.isCanceled() ? "CANCELLED" : "ACTIVE");
+      if (b.getCanceledAt() != null) m.put("canceledAt", b.getCanceledAt());
+      rows.add(m);
+    }
+    return rows;
+  }
+
+  @Benchmark
+  public List<BookingHistoryItem> projectedDocumentToRecord() {
+    List<BookingHistoryItem> rows = new ArrayList<>(ROWS);
+    for (Document doc : projectedDocuments) {
+      rows.add(converter.read(BookingHistoryItem.class, doc));
+    }
+    return rows;
+  }
+}
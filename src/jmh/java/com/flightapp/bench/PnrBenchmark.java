@@ -0,0 +1,46 @@
+package com.flightapp.bench;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flightapp.util.PnrGenerator;
+
+/**
+ * PNR generation throughput. {@code sharedSecureRandom} is the previous generator: six draws per code from
+ * one static SecureRandom. Run with {@code -t 1} and {@code -t <cores>} to compare scaling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PnrBenchmark {
+
+  private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+  private static final SecureRandom SHARED = new SecureRandom();
+
+  @Benchmark
+  public String sharedSecureRandom() {
+    StringBuilder sb = new StringBuilder(6);
+    for (int i = 0; i < 6; i++) {
+      sb.append(ALPHABET.charAt(SHARED.nextInt(ALPHABET.length())));
+    }
+    return sb.toString();
+  }
+
+  @Benchmark
+  public String generator() {
+    return PnrGenerator.generate();
+  }
+}
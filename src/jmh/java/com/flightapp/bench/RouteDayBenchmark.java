@@ -0,0 +1,160 @@
+package com.flightapp.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.RouteDaySummary;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.embedded.EmbeddedInventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedRouteDayRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import com.flightapp.service.RouteDaySummaries;
+import com.flightapp.service.SearchCache;
+
+/**
+ * A year of schedules on twelve routes, 16 flights a day on HYD-BLR and 6 on the others, on the embedded
+ * store. Each operation is one HYD-BLR week search or month calendar, walking through the year, read either
+ * from the flight documents of the window or from its route-day summaries. Besides the time, the counters
+ * give what a read costs: {@code documents} and {@code bytes} (stored BSON sizes) divided by {@code reads}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteDayBenchmark {
+
+  private static final List<String> ROUTES = List.of("HYD-BLR", "BLR-HYD", "HYD-DEL", "DEL-HYD", "BLR-DEL",
+      "DEL-BLR", "BOM-DEL", "DEL-BOM", "BOM-BLR", "BLR-BOM", "MAA-HYD", "HYD-MAA");
+
+  @Param({"inventories", "routeDays"})
+  public String source;
+
+  @Param({"week", "month"})
+  public String view;
+
+  private Path dir;
+  private EmbeddedStore store;
+  private EmbeddedInventoryRepository inventories;
+  private EmbeddedRouteDayRepository routeDays;
+  private final Map<String, Integer> storedBytes = new HashMap<>();
+  private LocalDate start;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class ReadCost {
+    public long reads;
+    public long documents;
+    public long bytes;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      reads = 0;
+      documents = 0;
+      bytes = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("routedaybench");
+    store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(), Duration.ofMillis(100),
+        Duration.ofHours(1));
+    store.afterPropertiesSet();
+    inventories = new EmbeddedInventoryRepository(store);
+    routeDays = new EmbeddedRouteDayRepository(store);
+
+    start = LocalDate.now().plusDays(10);
+    List<AirlineInventory> year = new ArrayList<>();
+    for (String route : ROUTES) {
+      int perDay = route.equals("HYD-BLR") ? 16 : 6;
+      for (int day = 0; day < 365; day++) {
+        for (int i = 0; i < perDay; i++) {
+          year.add(flight(route, start.plusDays(day), i));
+        }
+      }
+    }
+    inventories.insertUnordered(year).block();
+    new RouteDaySummaries(routeDays, inventories, SearchCache.disabled(), true, Duration.ZERO)
+        .reconcile(true).block();
+    for (String collection : List.of("inventories", "routeDays")) {
+      store.documents(collection).forEach((id, doc) ->
+          storedBytes.put(id, new RawBsonDocument(doc, new DocumentCodec()).getByteBuffer().remaining()));
+    }
+  }
+
+  private static AirlineInventory flight(String route, LocalDate day, int i) {
+    AirlineInventory inv = new AirlineInventory();
+    inv.setId(new ObjectId().toHexString());
+    inv.setAirline("Indigo");
+    inv.setFlightNumber("IN" + i);
+    inv.setOrigin(route.substring(0, 3));
+    inv.setDestination(route.substring(4));
+    inv.setDeparture(day.atTime(5 + i, 0));
+    inv.setArrival(inv.getDeparture().plusMinutes(90));
+    inv.setTotalSeats(180);
+    inv.setPrice(3000 + 50 * i);
+    inv.setSeatMap(SeatMap.allAvailable(180));
+    return inv;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    store.destroy();
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path f : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(f);
+      }
+    }
+  }
+
+  @Benchmark
+  public long read(ReadCost cost) {
+    int n = cost.next++;
+    LocalDate from = view.equals("week") ? start.plusWeeks(n % 52) : start.plusMonths(n % 12);
+    LocalDate to = view.equals("week") ? from.plusDays(6) : from.plusMonths(1).minusDays(1);
+    List<String> ids = source.equals("inventories")
+        // a second before midnight: the window is exclusive and must take a flight leaving at 00:00
+        ? inventories.findSummaries("HYD", "BLR", from.atStartOfDay().minusSeconds(1),
+            to.plusDays(1).atStartOfDay()).map(FlightSummary::getId).collectList().block()
+        : routeDays.findDays("HYD", "BLR", from, to, view.equals("week"))
+            .map(RouteDaySummary::getId).collectList().block();
+    cost.reads++;
+    cost.documents += ids.size();
+    ids.forEach(id -> cost.bytes += storedBytes.get(id));
+    return ids.size();
+  }
+}
@@ -0,0 +1,90 @@
+package com.flightapp.bench;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+import com.flightapp.service.MongoSeatAllocator;
+import com.flightapp.service.SeatAllocator;
+import com.flightapp.service.SeatInventoryEngine;
+
+/**
+ * Contended single-flight load: 16 threads claim and release random seats on one 400-seat flight.
+ * {@code mongo} pays the simulated round trip on every claim and release, {@code engine} only on first load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class SeatAllocationBenchmark {
+
+  private static final int SEATS = 400;
+
+  @Param({"mongo", "engine"})
+  public String mode;
+
+  @Param({"0", "300"})
+  public int roundTripMicros;
+
+  private SeatAllocator allocator;
+  private SeatInventoryEngine engine;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    StubInventoryRepository inventories = new StubInventoryRepository(Duration.ofNanos(roundTripMicros * 1000L));
+    AirlineInventory flight = new AirlineInventory();
+    flight.setId("hot");
+    flight.setTotalSeats(SEATS);
+    flight.setDeparture(LocalDateTime.now().plusDays(30));
+    flight.setSeatMap(SeatMap.allAvailable(SEATS));
+    inventories.save(flight).block();
+
+    if ("engine".equals(mode)) {
+      engine = new SeatInventoryEngine(inventories, new StubBookingRepository(), new StubSeatHoldRepository(),
+          Duration.ofMillis(200), Duration.ofMinutes(30));
+      engine.afterPropertiesSet();
+      allocator = engine;
+    } else {
+      allocator = new MongoSeatAllocator(inventories);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (engine != null) {
+      engine.destroy();
+    }
+  }
+
+  @Benchmark
+  public boolean claimAndRelease() {
+    List<String> seat = List.of(SeatMap.labelOf(ThreadLocalRandom.current().nextInt(SEATS)));
+    AirlineInventory claimed = allocator.claim("hot", seat, LocalDateTime.now()).block();
+    if (claimed == null) {
+      return false;
+    }
+    return Boolean.TRUE.equals(allocator.release("hot", seat).block());
+  }
+}
@@ -0,0 +1,85 @@
+package com.flightapp.bench;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flightapp.dto.BookingUpdateRequest;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.service.FlightServiceFixture;
+import com.flightapp.service.FlightServiceImpl;
+
+/**
+ * Seat change through {@code updateBooking}: the old/new seat diff in {@code handleSeatChange}, claiming
+ * the added seats, saving the booking and releasing the dropped ones. A 9-seat booking alternates
+ * between two seat sets that differ in {@code changedSeats} seats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeatChangeBenchmark {
+
+  private static final int SEATS = 450;
+  private static final int BOOKED = 9;
+
+  @Param({"1", "4", "9"})
+  public int changedSeats;
+
+  private FlightServiceImpl service;
+  private BookingUpdateRequest toB;
+  private BookingUpdateRequest toA;
+  private boolean onA = true;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    List<String> seatsA = Fixtures.seats(100, BOOKED);
+    List<String> seatsB = new ArrayList<>(seatsA.subList(changedSeats, BOOKED));
+    seatsB.addAll(Fixtures.seats(300, changedSeats));
+
+    StubInventoryRepository inventories = new StubInventoryRepository(Duration.ZERO);
+    AirlineInventory flight = Fixtures.flight("f-1", SEATS);
+    flight.getSeatMap().claim(seatsA);
+    inventories.save(flight).block();
+
+    StubBookingRepository bookings = new StubBookingRepository();
+    Booking booking = Fixtures.booking("PNR001", "f-1", new ArrayList<>(seatsA));
+    bookings.save(booking).block();
+
+    service = FlightServiceFixture.plain(inventories, bookings);
+    toB = request(seatsB);
+    toA = request(seatsA);
+  }
+
+  private static BookingUpdateRequest request(List<String> seats) {
+    BookingUpdateRequest req = new BookingUpdateRequest();
+    req.setEmail(Fixtures.EMAIL);
+    req.setSeatNumbers(seats);
+    req.setPassengers(Fixtures.passengers(seats.size()));
+    return req;
+  }
+
+  @Benchmark
+  public Booking changeSeats() {
+    Booking updated = service.updateBooking("PNR001", onA ? toB : toA).block();
+    onA = !onA;
+    return updated;
+  }
+}
@@ -0,0 +1,172 @@
+package com.flightapp.bench;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.dto.HoldConfirmRequest;
+import com.flightapp.dto.SeatHoldRequest;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.SeatHold;
+import com.flightapp.model.SeatMap;
+import com.flightapp.service.BookingMetrics;
+import com.flightapp.service.FlightServiceFixture;
+import com.flightapp.service.FlightServiceImpl;
+import com.flightapp.service.MongoSeatAllocator;
+import com.flightapp.service.SeatHolds;
+
+/**
+ * Simulated sale: 16 users look at the seat map, pick two of the {@value #HOT_SEATS} front seats that are
+ * shown free, spend {@code formMicros} entering passenger details and book. Without holds the seats are only
+ * claimed after the form, so a user can lose them to someone who picked the same seats meanwhile
+ * ({@code lateConflicts}). With holds they are claimed when picked: a lost race surfaces before the form
+ * ({@code earlyConflicts}) and the seat map shows held seats as taken. Every completed booking is given back
+ * so the front seats stay contested. Conflict rate = conflicts / (conflicts + bookings).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class SeatHoldBenchmark {
+
+  private static final int SEATS = 180;
+  private static final int HOT_SEATS = 48;
+  private static final String FLIGHT = "sale";
+
+  @Param({"off", "on"})
+  public String holds;
+
+  @Param({"200", "2000"})
+  public int formMicros;
+
+  private StubInventoryRepository inventories;
+  private StubBookingRepository bookings;
+  private MongoSeatAllocator allocator;
+  private FlightServiceImpl service;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Outcomes {
+    public long bookings;
+    public long earlyConflicts;
+    public long lateConflicts;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bookings = 0;
+      earlyConflicts = 0;
+      lateConflicts = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    inventories = new StubInventoryRepository(Duration.ZERO);
+    inventories.save(Fixtures.flight(FLIGHT, SEATS)).block();
+    bookings = new StubBookingRepository();
+    allocator = new MongoSeatAllocator(inventories);
+    SeatHolds seatHolds = holds.equals("on")
+        ? new SeatHolds(new StubSeatHoldRepository(), allocator, event -> { }, BookingMetrics.disabled(),
+            Duration.ofMinutes(10), Duration.ofSeconds(1))
+        : SeatHolds.disabled();
+    service = FlightServiceFixture.on(inventories, bookings).seatAllocator(allocator).seatHolds(seatHolds).build();
+  }
+
+  @Benchmark
+  public Booking purchase(Outcomes outcomes) {
+    List<String> seats = pickTwo();
+    if (seats == null) {
+      return null;
+    }
+    Booking booking = holds.equals("on") ? holdThenConfirm(seats, outcomes) : bookAfterForm(seats, outcomes);
+    if (booking != null) {
+      outcomes.bookings++;
+      allocator.release(FLIGHT, booking.getSeatNumbers()).block();
+      bookings.deleteById(booking.getPnr()).block();
+    }
+    return booking;
+  }
+
+  private Booking bookAfterForm(List<String> seats, Outcomes outcomes) {
+    LockSupport.parkNanos(formMicros * 1000L);
+    BookingRequest req = new BookingRequest();
+    req.setName("Travel Agent");
+    req.setEmail(Fixtures.EMAIL);
+    req.setPassengers(Fixtures.passengers(seats.size()));
+    req.setSeatNumbers(seats);
+    try {
+      return service.book(FLIGHT, req).block();
+    } catch (IllegalStateException e) {
+      outcomes.lateConflicts++;
+      return null;
+    }
+  }
+
+  private Booking holdThenConfirm(List<String> seats, Outcomes outcomes) {
+    SeatHoldRequest hold = new SeatHoldRequest();
+    hold.setEmail(Fixtures.EMAIL);
+    hold.setSeatNumbers(seats);
+    SeatHold placed;
+    try {
+      placed = service.holdSeats(FLIGHT, hold).block();
+    } catch (IllegalStateException e) {
+      outcomes.earlyConflicts++;
+      return null;
+    }
+    LockSupport.parkNanos(formMicros * 1000L);
+    HoldConfirmRequest req = new HoldConfirmRequest();
+    req.setName("Travel Agent");
+    req.setEmail(Fixtures.EMAIL);
+    req.setPassengers(Fixtures.passengers(seats.size()));
+    try {
+      return service.confirmHold(placed.getId(), req).block();
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      outcomes.lateConflicts++;
+      return null;
+    }
+  }
+
+  /** Two front seats the seat map currently shows as free, or null when fewer are left. */
+  private List<String> pickTwo() {
+    AirlineInventory flight = inventories.findById(FLIGHT).block();
+    SeatMap view;
+    synchronized (flight) {
+      view = flight.getSeatMap().copy();
+    }
+    List<String> free = new ArrayList<>(HOT_SEATS);
+    for (String seat : Fixtures.seats(0, HOT_SEATS)) {
+      if (view.isAvailable(seat)) {
+        free.add(seat);
+      }
+    }
+    if (free.size() < 2) {
+      return null;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String first = free.remove(random.nextInt(free.size()));
+    return List.of(first, free.get(random.nextInt(free.size())));
+  }
+}
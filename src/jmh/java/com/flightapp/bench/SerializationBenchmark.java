@@ -0,0 +1,72 @@
+package com.flightapp.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.SeatMap;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Jackson serialization of the response bodies at realistic seat counts. Half of each flight is sold, on
+ * alternating seats, so the available-seat list is as long and as fragmented as it gets in practice.
+ * The booking carries one passenger per seat, capped at 9.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+  @Param({"30", "180", "450"})
+  public int seats;
+
+  private final JsonMapper mapper = JsonMapper.builder().build();
+  private AirlineInventory inventory;
+  private FlightSummary summary;
+  private Booking booking;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    inventory = Fixtures.flight("f-1", seats);
+    List<String> sold = IntStream.range(0, seats).filter(i -> i % 2 == 0)
+        .mapToObj(SeatMap::labelOf).toList();
+    inventory.getSeatMap().claim(sold);
+    summary = StubInventoryRepository.summaryOf(inventory);
+    booking = Fixtures.booking("ABC123", "f-1", Fixtures.seats(0, Math.min(seats, 9)));
+  }
+
+  @Benchmark
+  public byte[] inventory() {
+    return mapper.writeValueAsBytes(inventory);
+  }
+
+  @Benchmark
+  public byte[] summary() {
+    return mapper.writeValueAsBytes(summary);
+  }
+
+  @Benchmark
+  public byte[] booking() {
+    return mapper.writeValueAsBytes(booking);
+  }
+}
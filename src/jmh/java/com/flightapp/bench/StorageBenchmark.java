@@ -0,0 +1,163 @@
+package com.flightapp.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.config.MongoIndexes;
+import com.flightapp.dto.BookingHistoryItem;
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.repository.BookingRepository;
+import com.flightapp.repository.BookingRepositoryCustomImpl;
+import com.flightapp.repository.InventoryRepository;
+import com.flightapp.repository.InventoryRepositoryCustomImpl;
+import com.flightapp.repository.embedded.EmbeddedBookingRepository;
+import com.flightapp.repository.embedded.EmbeddedInventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import com.flightapp.service.FlightServiceFixture;
+import com.flightapp.service.FlightServiceImpl;
+import com.flightapp.service.MongoSeatAllocator;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * The same service calls on the embedded store and on Mongo. The mongo runs need a local server
+ * ({@code -Dbench.mongo.uri}, default localhost) and use a scratch {@code flightbench} database that is
+ * dropped first. {@code book} gives the seats back and deletes the booking, so the flight never fills up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+  private static final int SEATS = 450;
+  private static final int TICKETS = 1024;
+
+  @Param({"embedded", "mongo"})
+  public String backend;
+
+  private Path dir;
+  private EmbeddedStore store;
+  private MongoClient client;
+
+  private InventoryRepository inventories;
+  private BookingRepository bookings;
+  private FlightServiceImpl service;
+  private MongoSeatAllocator allocator;
+  private String flightId;
+  private final List<String> pnrs = new ArrayList<>(TICKETS);
+  private final AtomicInteger next = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    MongoCustomConversions conversions = new MongoConfig().mongoCustomConversions();
+    if (backend.equals("embedded")) {
+      dir = Files.createTempDirectory("flightbench");
+      store = new EmbeddedStore(conversions, dir.toString(), Duration.ofMillis(100), Duration.ofMinutes(10));
+      store.afterPropertiesSet();
+      inventories = new EmbeddedInventoryRepository(store);
+      bookings = new EmbeddedBookingRepository(store);
+    } else {
+      client = MongoClients.create(System.getProperty("bench.mongo.uri", "mongodb://localhost:27017"));
+      MongoMappingContext context = new MongoMappingContext();
+      context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+      context.afterPropertiesSet();
+      MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+      converter.setCustomConversions(conversions);
+      converter.afterPropertiesSet();
+      ReactiveMongoTemplate template =
+          new ReactiveMongoTemplate(new SimpleReactiveMongoDatabaseFactory(client, "flightbench"), converter);
+      template.getMongoDatabase().flatMap(db -> Mono.from(db.drop())).block();
+      new MongoIndexes(template).ensure().block();
+      ReactiveMongoRepositoryFactory factory = new ReactiveMongoRepositoryFactory(template);
+      inventories = factory.getRepository(InventoryRepository.class, new InventoryRepositoryCustomImpl(template));
+      bookings = factory.getRepository(BookingRepository.class, new BookingRepositoryCustomImpl(template));
+    }
+    service = FlightServiceFixture.plain(inventories, bookings);
+    allocator = new MongoSeatAllocator(inventories);
+
+    AirlineInventory flight = Fixtures.flight("bench", SEATS);
+    flight.setId(null);
+    flightId = inventories.save(flight).block().getId();
+    for (int i = 0; i < TICKETS; i++) {
+      Booking booking = Fixtures.booking(String.format("T%05d", i), flightId, Fixtures.seats(i % SEATS, 1));
+      booking.setId(null);
+      pnrs.add(bookings.save(booking).block().getPnr());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    if (store != null) {
+      store.destroy();
+      try (Stream<Path> files = Files.walk(dir)) {
+        for (Path f : files.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(f);
+        }
+      }
+    }
+    if (client != null) {
+      client.close();
+    }
+  }
+
+  @Benchmark
+  public Booking book() {
+    int n = next.getAndIncrement();
+    BookingRequest req = new BookingRequest();
+    req.setName("Travel Agent");
+    req.setEmail(Fixtures.EMAIL);
+    req.setPassengers(Fixtures.passengers(2));
+    req.setSeatNumbers(Fixtures.seats(Math.floorMod(n * 2, SEATS - 1), 2));
+    Booking booking = service.book(flightId, req).block();
+    allocator.release(flightId, req.getSeatNumbers()).block();
+    bookings.deleteById(booking.getId()).block();
+    return booking;
+  }
+
+  @Benchmark
+  public Booking ticket() {
+    return bookings.findByPnr(pnrs.get(next.getAndIncrement() & (TICKETS - 1))).block();
+  }
+
+  @Benchmark
+  public List<BookingHistoryItem> historyPage() {
+    return bookings.findHistory(Fixtures.EMAIL, null, null, null, null, 50).collectList().block();
+  }
+}
@@ -0,0 +1,98 @@
+package com.flightapp.bench;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+
+import com.flightapp.dto.BookingHistoryItem;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.model.Booking;
+import com.flightapp.model.OutboxEntry;
+import com.flightapp.repository.BookingRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class StubBookingRepository extends StubCrudRepository<Booking> implements BookingRepository {
+
+  public StubBookingRepository() {
+    super(Booking::getPnr);
+  }
+
+  @Override
+  public Mono<Booking> findByPnr(String pnr) {
+    return Mono.justOrEmpty(store.get(pnr));
+  }
+
+  @Override
+  public Flux<Booking> findByEmail(String email) {
+    return Flux.fromIterable(store.values()).filter(b -> email.equals(b.getEmail()));
+  }
+
+  @Override
+  public Flux<Booking> findByFlightIdAndCanceledFalse(String flightId) {
+    return Flux.fromIterable(store.values()).filter(b -> flightId.equals(b.getFlightId()) && !b.isCanceled());
+  }
+
+  @Override
+  public Flux<Booking> findWithPendingReleases() {
+    return Flux.fromIterable(store.values()).filter(b -> b.getPendingReleases() != null
+        && !b.getPendingReleases().isEmpty());
+  }
+
+  @Override
+  public Flux<Booking> findWithPendingReleases(String flightId) {
+    return findWithPendingReleases().filter(b -> flightId.equals(b.getFlightId()));
+  }
+
+  @Override
+  public Mono<Long> removeReleases(Map<String, ? extends Collection<String>> releaseIdsByBooking) {
+    return Mono.fromCallable(() -> store.values().stream()
+        .filter(b -> b.getPendingReleases() != null && releaseIdsByBooking.containsKey(b.getId()))
+        .filter(b -> b.getPendingReleases()
+            .removeIf(r -> releaseIdsByBooking.get(b.getId()).contains(r.getReleaseId())))
+        .count());
+  }
+
+  @Override
+  public Flux<Booking> findWithPendingEvents(int limit) {
+    Comparator<Booking> oldestEventFirst = Comparator.comparing(
+        b -> b.getOutbox().stream().map(OutboxEntry::getEventId).min(Comparator.naturalOrder()).orElseThrow());
+    return Flux.fromIterable(store.values())
+        .filter(b -> b.getOutbox() != null && !b.getOutbox().isEmpty())
+        .sort(oldestEventFirst)
+        .take(limit);
+  }
+
+  @Override
+  public Mono<Long> removeEvents(Map<String, ? extends Collection<String>> eventIdsByBooking) {
+    return Mono.fromCallable(() -> store.values().stream()
+        .filter(b -> b.getOutbox() != null && eventIdsByBooking.containsKey(b.getId()))
+        .filter(b -> b.getOutbox().removeIf(e -> eventIdsByBooking.get(b.getId()).contains(e.getEventId())))
+        .count());
+  }
+
+  @Override
+  public Flux<BookingHistoryItem> findHistory(String email, Boolean canceled, LocalDateTime from,
+      LocalDateTime to, HistoryCursor after, int limit) {
+    Comparator<BookingHistoryItem> newestFirst = Comparator.comparing(BookingHistoryItem::journeyDate)
+        .thenComparing(BookingHistoryItem::id).reversed();
+    Flux<BookingHistoryItem> rows = Flux.fromIterable(store.values())
+        .filter(b -> email.equalsIgnoreCase(b.getEmail()))
+        .filter(b -> canceled == null || b.isCanceled() == canceled)
+        .filter(b -> from == null || !b.getJourneyDate().isBefore(from))
+        .filter(b -> to == null || b.getJourneyDate().isBefore(to))
+        .map(StubBookingRepository::historyOf)
+        .filter(item -> after == null
+            || newestFirst.compare(item, new BookingHistoryItem(after.id(), null, null, null, null,
+                after.journeyDate(), null, null, null)) > 0)
+        .sort(newestFirst);
+    return limit > 0 ? rows.take(limit) : rows;
+  }
+
+  static BookingHistoryItem historyOf(Booking b) {
+    return new BookingHistoryItem(b.getId() != null ? b.getId() : b.getPnr(), b.getPnr(), b.getName(),
+        b.getEmail(), b.getFlightId(), b.getJourneyDate(), b.getSeatNumbers(), b.isCanceled(), b.getCanceledAt());
+  }
+}
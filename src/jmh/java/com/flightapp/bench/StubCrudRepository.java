@@ -0,0 +1,116 @@
+package com.flightapp.bench;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Map-backed base for the benchmark repositories so benchmarks run without Mongo. Only what the
+ * benchmarks exercise is implemented properly.
+ */
+abstract class StubCrudRepository<T> implements ReactiveCrudRepository<T, String> {
+
+  protected final Map<String, T> store = new ConcurrentHashMap<>();
+  private final Function<T, String> idOf;
+
+  StubCrudRepository(Function<T, String> idOf) {
+    this.idOf = idOf;
+  }
+
+  @Override
+  public <S extends T> Mono<S> save(S entity) {
+    store.put(idOf.apply(entity), entity);
+    return Mono.just(entity);
+  }
+
+  @Override
+  public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+    return Flux.fromIterable(entities).flatMap(this::save);
+  }
+
+  @Override
+  public <S extends T> Flux<S> saveAll(Publisher<S> entityStream) {
+    return Flux.from(entityStream).flatMap(this::save);
+  }
+
+  @Override
+  public Mono<T> findById(String id) {
+    return Mono.justOrEmpty(store.get(id));
+  }
+
+  @Override
+  public Mono<T> findById(Publisher<String> id) {
+    return Mono.from(id).flatMap(this::findById);
+  }
+
+  @Override
+  public Mono<Boolean> existsById(String id) {
+    return Mono.just(store.containsKey(id));
+  }
+
+  @Override
+  public Mono<Boolean> existsById(Publisher<String> id) {
+    return Mono.from(id).flatMap(this::existsById);
+  }
+
+  @Override
+  public Flux<T> findAll() {
+    return Flux.fromIterable(store.values());
+  }
+
+  @Override
+  public Flux<T> findAllById(Iterable<String> ids) {
+    return Flux.fromIterable(ids).flatMap(this::findById);
+  }
+
+  @Override
+  public Flux<T> findAllById(Publisher<String> idStream) {
+    return Flux.from(idStream).flatMap(this::findById);
+  }
+
+  @Override
+  public Mono<Long> count() {
+    return Mono.just((long) store.size());
+  }
+
+  @Override
+  public Mono<Void> deleteById(String id) {
+    return Mono.fromRunnable(() -> store.remove(id));
+  }
+
+  @Override
+  public Mono<Void> deleteById(Publisher<String> id) {
+    return Mono.from(id).flatMap(this::deleteById);
+  }
+
+  @Override
+  public Mono<Void> delete(T entity) {
+    return deleteById(idOf.apply(entity));
+  }
+
+  @Override
+  public Mono<Void> deleteAllById(Iterable<? extends String> ids) {
+    return Flux.fromIterable(ids).flatMap(this::deleteById).then();
+  }
+
+  @Override
+  public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+    return Flux.fromIterable(entities).flatMap(this::delete).then();
+  }
+
+  @Override
+  public Mono<Void> deleteAll(Publisher<? extends T> entityStream) {
+    return Flux.from(entityStream).flatMap(this::delete).then();
+  }
+
+  @Override
+  public Mono<Void> deleteAll() {
+    return Mono.fromRunnable(store::clear);
+  }
+}
@@ -0,0 +1,192 @@
+package com.flightapp.bench;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.TreeMap;
+
+import com.flightapp.dto.FareDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.SearchCursor;
+import com.flightapp.dto.SearchSort;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.InventoryRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory inventory store. Seat updates are applied atomically per flight, like a single-document
+ * Mongo update, and every call can be delayed by a simulated round trip.
+ */
+public class StubInventoryRepository extends StubCrudRepository<AirlineInventory> implements InventoryRepository {
+
+  private final Duration roundTrip;
+
+  public StubInventoryRepository(Duration roundTrip) {
+    super(AirlineInventory::getId);
+    this.roundTrip = roundTrip;
+  }
+
+  private <T> Mono<T> remote(Mono<T> result) {
+    return roundTrip.isZero() ? result : result.delayElement(roundTrip);
+  }
+
+  @Override
+  public Mono<AirlineInventory> findById(String id) {
+    return remote(super.findById(id));
+  }
+
+  @Override
+  public Flux<AirlineInventory> findByOriginAndDestinationAndDepartureBetween(String origin, String destination,
+      LocalDateTime from, LocalDateTime to) {
+    return Flux.fromIterable(store.values())
+        .filter(inv -> inv.getOrigin().equals(origin) && inv.getDestination().equals(destination)
+            && inv.getDeparture().isAfter(from) && inv.getDeparture().isBefore(to));
+  }
+
+  @Override
+  public Flux<FlightSummary> findSummaries(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+    return findByOriginAndDestinationAndDepartureBetween(origin, destination, from, to)
+        .map(StubInventoryRepository::summaryOf);
+  }
+
+  @Override
+  public Flux<FlightSummary> findAllSummaries() {
+    return Flux.fromIterable(store.values())
+        .sort(Comparator.comparing(AirlineInventory::getOrigin).thenComparing(AirlineInventory::getDestination)
+            .thenComparing(AirlineInventory::getDeparture).thenComparing(AirlineInventory::getId))
+        .map(StubInventoryRepository::summaryOf);
+  }
+
+  @Override
+  public Flux<FareDay> findFareDays(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+    return findByOriginAndDestinationAndDepartureBetween(origin, destination, from.minusNanos(1), to)
+        .collectMultimap(inv -> inv.getDeparture().toLocalDate())
+        .flatMapIterable(byDay -> new TreeMap<>(byDay).entrySet())
+        .map(day -> {
+          OptionalDouble open = day.getValue().stream()
+              .filter(inv -> inv.getSeatMap() != null && inv.getSeatMap().availableCount() > 0)
+              .mapToDouble(AirlineInventory::getPrice).min();
+          double min = day.getValue().stream().mapToDouble(AirlineInventory::getPrice).min().orElse(0);
+          return new FareDay(day.getKey(), open.orElse(min), open.isPresent());
+        });
+  }
+
+  static FlightSummary summaryOf(AirlineInventory inv) {
+    FlightSummary s = new FlightSummary();
+    s.setId(inv.getId());
+    s.setAirline(inv.getAirline());
+    s.setFlightNumber(inv.getFlightNumber());
+    s.setOrigin(inv.getOrigin());
+    s.setDestination(inv.getDestination());
+    s.setDeparture(inv.getDeparture());
+    s.setArrival(inv.getArrival());
+    s.setPrice(inv.getPrice());
+    s.setTotalSeats(inv.getTotalSeats());
+    s.setAvailableSeats(inv.getSeatMap() == null ? 0 : inv.getSeatMap().availableCount());
+    return s;
+  }
+
+  @Override
+  public Flux<AirlineInventory> findPage(String origin, String destination, LocalDateTime from, LocalDateTime to,
+      SearchSort sort, SearchCursor after, int limit) {
+    Comparator<AirlineInventory> order = sort == SearchSort.PRICE
+        ? Comparator.comparingDouble(AirlineInventory::getPrice)
+        : Comparator.comparing(AirlineInventory::getDeparture);
+    order = order.thenComparing(AirlineInventory::getId);
+    AirlineInventory last = after == null ? null : store.get(after.id());
+    Comparator<AirlineInventory> finalOrder = order;
+    return findByOriginAndDestinationAndDepartureBetween(origin, destination, from, to)
+        .filter(inv -> last == null || finalOrder.compare(inv, last) > 0)
+        .sort(order)
+        .take(limit);
+  }
+
+  @Override
+  public Flux<FlightSummary> findSummaryPage(String origin, String destination, LocalDateTime from,
+      LocalDateTime to, SearchSort sort, SearchCursor after, int limit) {
+    return findPage(origin, destination, from, to, sort, after, limit).map(StubInventoryRepository::summaryOf);
+  }
+
+  @Override
+  public Mono<AirlineInventory> claimSeats(String flightId, Collection<String> seats, LocalDateTime now) {
+    AirlineInventory inv = store.get(flightId);
+    if (inv == null) {
+      return remote(Mono.empty());
+    }
+    boolean claimed;
+    synchronized (inv) {
+      claimed = inv.getDeparture().isAfter(now) && inv.getSeatMap().claim(seats);
+    }
+    return remote(claimed ? Mono.just(inv) : Mono.empty());
+  }
+
+  @Override
+  public Mono<AirlineInventory> releaseSeatsOnce(String flightId, Collection<String> seats,
+      Collection<String> releaseIds) {
+    AirlineInventory inv = store.get(flightId);
+    if (inv == null) {
+      return remote(Mono.empty());
+    }
+    synchronized (inv) {
+      List<String> recent = inv.getRecentReleases() == null ? new ArrayList<>() : inv.getRecentReleases();
+      if (releaseIds.stream().anyMatch(recent::contains) || seats.stream().anyMatch(inv.getSeatMap()::isAvailable)) {
+        return remote(Mono.empty());
+      }
+      inv.getSeatMap().release(seats);
+      recent.addAll(releaseIds);
+      inv.setRecentReleases(recent);
+      return remote(Mono.just(inv));
+    }
+  }
+
+  @Override
+  public Mono<Boolean> forgetReleases(String flightId, String idsFrom) {
+    AirlineInventory inv = store.get(flightId);
+    if (inv == null || inv.getRecentReleases() == null) {
+      return remote(Mono.just(false));
+    }
+    synchronized (inv) {
+      return remote(Mono.just(inv.getRecentReleases().removeIf(id -> id.compareTo(idsFrom) < 0)));
+    }
+  }
+
+  @Override
+  public Mono<Boolean> releaseSeats(String flightId, Collection<String> seats) {
+    AirlineInventory inv = store.get(flightId);
+    if (inv == null) {
+      return remote(Mono.just(false));
+    }
+    synchronized (inv) {
+      SeatMap before = inv.getSeatMap().copy();
+      inv.getSeatMap().release(seats);
+      return remote(Mono.just(!before.equals(inv.getSeatMap())));
+    }
+  }
+
+  @Override
+  public Mono<Integer> saveSeatMaps(Map<String, SeatMap> seatMapsByFlight) {
+    seatMapsByFlight.forEach((id, map) -> {
+      AirlineInventory inv = store.get(id);
+      if (inv != null) {
+        synchronized (inv) {
+          inv.setSeatMap(map.copy());
+        }
+      }
+    });
+    return remote(Mono.just(seatMapsByFlight.size()));
+  }
+
+  @Override
+  public Mono<Map<Integer, String>> insertUnordered(List<AirlineInventory> flights) {
+    flights.forEach(inv -> store.put(inv.getId(), inv));
+    return remote(Mono.just(Map.of()));
+  }
+}
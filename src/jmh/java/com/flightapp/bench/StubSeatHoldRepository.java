@@ -0,0 +1,75 @@
+package com.flightapp.bench;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import com.flightapp.model.SeatHold;
+import com.flightapp.repository.SeatHoldRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class StubSeatHoldRepository extends StubCrudRepository<SeatHold> implements SeatHoldRepository {
+
+  public StubSeatHoldRepository() {
+    super(SeatHold::getId);
+  }
+
+  @Override
+  public Flux<SeatHold> findByFlightId(String flightId) {
+    return Flux.fromIterable(store.values()).filter(h -> flightId.equals(h.getFlightId()));
+  }
+
+  @Override
+  public Mono<SeatHold> takeLive(String id, LocalDateTime now) {
+    return Mono.fromCallable(() -> {
+      SeatHold[] taken = new SeatHold[1];
+      store.computeIfPresent(id, (key, hold) -> {
+        if (!untaken(hold, now)) {
+          return hold;
+        }
+        taken[0] = hold;
+        return null;
+      });
+      return taken[0];
+    });
+  }
+
+  @Override
+  public Mono<SeatHold> releaseLive(String id, LocalDateTime now) {
+    return mark(id, hold -> untaken(hold, now), hold -> hold.setReleasing(true));
+  }
+
+  private static boolean untaken(SeatHold hold, LocalDateTime now) {
+    return hold.getExpiresAt().isAfter(now) && !hold.isReleasing();
+  }
+
+  @Override
+  public Mono<SeatHold> takeExpired(String id, LocalDateTime now) {
+    return mark(id, hold -> !hold.getExpiresAt().isAfter(now), hold -> hold.setReleasing(true));
+  }
+
+  private Mono<SeatHold> mark(String id, Predicate<SeatHold> matches, Consumer<SeatHold> update) {
+    return Mono.fromCallable(() -> {
+      SeatHold[] marked = new SeatHold[1];
+      store.computeIfPresent(id, (key, hold) -> {
+        if (matches.test(hold)) {
+          update.accept(hold);
+          marked[0] = hold;
+        }
+        return hold;
+      });
+      return marked[0];
+    });
+  }
+
+  @Override
+  public Flux<SeatHold> findExpired(LocalDateTime now, int limit) {
+    return Flux.fromIterable(store.values())
+        .filter(h -> !h.getExpiresAt().isAfter(now))
+        .sort(Comparator.comparing(SeatHold::getExpiresAt))
+        .take(limit);
+  }
+}
@@ -1,13 +1,37 @@
 package com.flightapp;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Schedulers;
+
 @SpringBootApplication
 public class FlightBookingSystemWebFluxApplication {
 
+	private static final String SCHEDULER_METRICS = "flight.scheduler.metrics";
+
 	public static void main(String[] args) {
+		monitorSchedulers();
 		SpringApplication.run(FlightBookingSystemWebFluxApplication.class, args);
 	}
 
+	/**
+	 * Executor gauges and task timers per Reactor scheduler worker, in Micrometer's global registry (which
+	 * Boot's registries join). Only executors created after this call are decorated, so it runs first.
+	 */
+	static void monitorSchedulers() {
+		AtomicInteger executors = new AtomicInteger();
+		Schedulers.addExecutorServiceDecorator(SCHEDULER_METRICS, (scheduler, executor) -> {
+			String name = Scannable.from(scheduler).name();
+			return ExecutorServiceMetrics.monitor(Metrics.globalRegistry, executor, name + "-" + executors.incrementAndGet(),
+					Tag.of("reactor.scheduler", name));
+		});
+	}
+
 }
@@ -0,0 +1,92 @@
+package com.flightapp.config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.boot.http.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.AbstractJacksonEncoder;
+import org.springframework.http.codec.cbor.JacksonCborDecoder;
+import org.springframework.http.codec.cbor.JacksonCborEncoder;
+import org.springframework.http.codec.smile.JacksonSmileDecoder;
+import org.springframework.http.codec.smile.JacksonSmileEncoder;
+import org.springframework.util.MimeType;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Binary bodies for high-volume clients: every endpoint that speaks JSON also answers
+ * {@code Accept: application/x-jackson-smile} and {@code Accept: application/cbor} (and reads such request
+ * bodies), with the same fields and values as the JSON. JSON stays first in the codec list, so it is what a
+ * client gets without an Accept header or with a wildcard one.
+ */
+@Configuration
+public class CodecConfig {
+
+  public static final String SMILE_VALUE = "application/x-jackson-smile";
+  public static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+  public static final MediaType CBOR = MediaType.APPLICATION_CBOR;
+
+  @Bean
+  public CodecCustomizer binaryCodecs() {
+    SmileMapper smile = SmileMapper.builder().build();
+    CBORMapper cbor = CBORMapper.builder().build();
+    return configurer -> {
+      configurer.defaultCodecs().jacksonSmileEncoder(new SmileArrayEncoder(smile));
+      configurer.defaultCodecs().jacksonSmileDecoder(new JacksonSmileDecoder(smile, SMILE));
+      configurer.defaultCodecs().jacksonCborEncoder(new CborArrayEncoder(cbor));
+      configurer.defaultCodecs().jacksonCborDecoder(new JacksonCborDecoder(cbor, CBOR));
+    };
+  }
+
+  /**
+   * Spring writes a flux body as an array with JSON brackets and commas between the encoded elements, which
+   * is not valid Smile, and refuses to write one at all in CBOR. Search and history bodies are fluxes, so
+   * they are collected and written as one array value, which is what non-streaming JSON sends too.
+   */
+  static Flux<DataBuffer> encodeAsArray(AbstractJacksonEncoder<?> encoder, Publisher<?> input,
+      DataBufferFactory bufferFactory, ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+    if (input instanceof Mono<?> value) {
+      return value.map(body -> encoder.encodeValue(body, bufferFactory, elementType, mimeType, hints)).flux();
+    }
+    ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+    return Flux.from(input).collectList()
+        .map(list -> encoder.encodeValue(list, bufferFactory, listType, mimeType, hints))
+        .flux();
+  }
+
+  static final class SmileArrayEncoder extends JacksonSmileEncoder {
+
+    SmileArrayEncoder(SmileMapper mapper) {
+      super(mapper, SMILE);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+        MimeType mimeType, Map<String, Object> hints) {
+      return encodeAsArray(this, input, bufferFactory, elementType, mimeType, hints);
+    }
+  }
+
+  static final class CborArrayEncoder extends JacksonCborEncoder {
+
+    CborArrayEncoder(CBORMapper mapper) {
+      super(mapper, CBOR);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+        MimeType mimeType, Map<String, Object> hints) {
+      return encodeAsArray(this, input, bufferFactory, elementType, mimeType, hints);
+    }
+  }
+}
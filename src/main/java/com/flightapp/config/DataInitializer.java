@@ -1,44 +1,131 @@
 package com.flightapp.config;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
-import org.springframework.data.mongodb.core.index.Index;
-import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
 
+import com.flightapp.event.FlightsAdded;
 import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.embedded.EmbeddedStore;
 
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Startup work against Mongo: indexes (created in parallel, then verified) and the seat map migration run
+ * side by side, then a sample flight is inserted into an empty database and announced with a
+ * {@link FlightsAdded}, like any other insert, so the route-day summaries list it. Nothing here blocks; the
+ * runner only subscribes. Until every phase has finished this indicator reports OUT_OF_SERVICE, and it is
+ * part of the readiness group, so no traffic is routed to the instance while query paths may still be
+ * unindexed.
+ *
+ * <p>A phase that fails is run again with backoff, up to {@code flight.startup.max-attempts} times; all of
+ * them can be repeated safely. Meanwhile the indicator stays OUT_OF_SERVICE and names the phase and the
+ * last error. A phase that still fails after the last attempt, or a declared index that is missing once
+ * the indexes were built, is fatal: the indicator reports DOWN for good and the instance needs a restart.
+ */
 @Component
-public class DataInitializer implements ApplicationRunner {
+@Profile("!" + EmbeddedStore.PROFILE)
+public class DataInitializer implements ApplicationRunner, HealthIndicator, DisposableBean {
 
   private final ReactiveMongoTemplate mongoTemplate;
+  private final SeatMapMigration seatMapMigration;
+  private final MongoIndexes mongoIndexes;
+  private final ApplicationEventPublisher events;
   private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+  private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+  /** Declared indexes missing after they were built: another attempt builds the same ones. */
+  private static final class MissingIndexes extends IllegalStateException {
+    MissingIndexes(Object missing) {
+      super("Missing indexes: " + missing);
+    }
+  }
 
-  public DataInitializer(ReactiveMongoTemplate mongoTemplate) {
+  private final int maxAttempts;
+  private final Duration retryBackoff;
+
+  /** Milliseconds per finished phase, in completion order. */
+  private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+  private volatile Health health = Health.outOfService().withDetail("state", "not started").build();
+  private volatile Disposable running;
+
+  public DataInitializer(ReactiveMongoTemplate mongoTemplate, SeatMapMigration seatMapMigration,
+      MongoIndexes mongoIndexes, ApplicationEventPublisher events,
+      @Value("${flight.startup.max-attempts:6}") int maxAttempts,
+      @Value("${flight.startup.retry-backoff:1s}") Duration retryBackoff) {
     this.mongoTemplate = mongoTemplate;
+    this.seatMapMigration = seatMapMigration;
+    this.mongoIndexes = mongoIndexes;
+    this.events = events;
+    this.maxAttempts = maxAttempts;
+    this.retryBackoff = retryBackoff;
   }
 
   @Override
   public void run(ApplicationArguments args) {
-    ReactiveIndexOperations invIdxOps = mongoTemplate.indexOps(AirlineInventory.class);
+    running = initialize().subscribe();
+  }
+
+  @Override
+  public void destroy() {
+    if (running != null) {
+      running.dispose();
+    }
+  }
+
+  @Override
+  public Health health() {
+    return health;
+  }
 
-    Mono<Void> idxs = Mono.when(
-        Mono.fromRunnable(() -> invIdxOps.createIndex(new Index().on("flightNumber", org.springframework.data.domain.Sort.Direction.ASC)).block()),
-        Mono.fromRunnable(() -> invIdxOps.createIndex(new Index().on("origin", org.springframework.data.domain.Sort.Direction.ASC)
-                .on("destination", org.springframework.data.domain.Sort.Direction.ASC)
-                .on("departure", org.springframework.data.domain.Sort.Direction.ASC)).block())
-    ).then();
+  /** All phases; completes when the instance is ready and never errors, failures end up in {@link #health()}. */
+  Mono<Void> initialize() {
+    Mono<Void> indexes = phase("indexes", Mono.defer(mongoIndexes::ensure).then(verifyIndexes()));
+    Mono<Void> migration = phase("seatMapMigration", Mono.defer(seatMapMigration::migrate).then());
+    return timed("total", Mono.when(indexes, migration).then(phase("sampleData", insertSampleIfEmpty())))
+        .doOnSubscribe(s -> health = Health.outOfService().withDetail("state", "initializing").build())
+        .doOnSuccess(v -> health = Health.up().withDetail("phaseMillis", phases()).build())
+        .onErrorResume(err -> {
+          log.error("DataInitializer error: {}", err.getMessage());
+          health = Health.down(err).withDetail("phaseMillis", phases()).build();
+          return Mono.empty();
+        });
+  }
 
-    Mono<Long> countMono = mongoTemplate.count(new org.springframework.data.mongodb.core.query.Query(), AirlineInventory.class);
+  /** A verification that cannot run is only logged; an index that is declared but missing fails startup. */
+  private Mono<Void> verifyIndexes() {
+    return Mono.defer(mongoIndexes::verify)
+        .onErrorResume(err -> {
+          log.warn("Index verification failed: {}", err.getMessage());
+          return Mono.empty();
+        })
+        .flatMap(report -> report.missing().isEmpty()
+            ? Mono.<Void>empty()
+            : Mono.error(new MissingIndexes(report.missing())));
+  }
 
-    idxs.then(countMono).flatMap(cnt -> {
+  private Mono<Void> insertSampleIfEmpty() {
+    return Mono.defer(() -> mongoTemplate.count(new Query(), AirlineInventory.class).flatMap(cnt -> {
       if (cnt == 0) {
         AirlineInventory sample = new AirlineInventory();
         sample.setAirline("Indigo");
@@ -50,12 +137,54 @@ public class DataInitializer implements ApplicationRunner {
         sample.setArrival(sample.getDeparture().plusHours(1).plusMinutes(30));
         sample.setTotalSeats(30);
         sample.setPrice(4500.0);
-        sample.setAvailableSeats(java.util.stream.IntStream.rangeClosed(1, 30).mapToObj(i -> "S" + i).toList());
-        return mongoTemplate.insert(sample).then();
+        sample.setSeatMap(SeatMap.allAvailable(30));
+        return mongoTemplate.insert(sample)
+            .doOnNext(inserted -> events.publishEvent(new FlightsAdded(List.of(inserted))))
+            .then();
       }
       return Mono.empty();
-    }).subscribe(
-      v -> {},
-      err -> log.error("DataInitializer error: {}", err.getMessage())    );
+    }));
+  }
+
+  /** A phase is run again with backoff while it fails; its time includes the failed attempts. */
+  private Mono<Void> phase(String phase, Mono<Void> work) {
+    if (maxAttempts <= 1) {
+      return timed(phase, work);
+    }
+    return timed(phase, work.retryWhen(Retry.backoff(maxAttempts - 1, retryBackoff)
+        .maxBackoff(MAX_BACKOFF)
+        .filter(err -> !(err instanceof MissingIndexes))
+        .doBeforeRetry(signal -> retrying(phase, signal.totalRetries() + 1, signal.failure()))
+        .onRetryExhaustedThrow((spec, signal) -> signal.failure())));
+  }
+
+  private Mono<Void> timed(String phase, Mono<Void> work) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return work.doOnSuccess(v -> {
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        synchronized (phaseMillis) {
+          phaseMillis.put(phase, millis);
+        }
+        log.info("Startup phase {} finished in {} ms", phase, millis);
+      });
+    });
+  }
+
+  private void retrying(String phase, long failed, Throwable err) {
+    log.warn("Startup phase {} failed (attempt {} of {}), retrying: {}", phase, failed, maxAttempts,
+        err.getMessage());
+    health = Health.outOfService()
+        .withDetail("state", "retrying")
+        .withDetail("phase", phase)
+        .withDetail("failedAttempts", failed)
+        .withDetail("lastError", String.valueOf(err.getMessage()))
+        .build();
+  }
+
+  private Map<String, Long> phases() {
+    synchronized (phaseMillis) {
+      return new LinkedHashMap<>(phaseMillis);
+    }
   }
 }
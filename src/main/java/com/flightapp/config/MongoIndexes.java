@@ -0,0 +1,182 @@
+package com.flightapp.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.IdempotencyRecord;
+import com.flightapp.model.RouteDaySummary;
+import com.flightapp.model.SeatHold;
+import com.flightapp.repository.embedded.EmbeddedStore;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Every index the application relies on, declared in one place. {@link #ensure()} creates them and
+ * {@link #verify()} compares the declaration with what the server actually has.
+ *
+ * <p>Names are explicit so the comparison does not depend on key order; the inventory indexes keep the
+ * names Mongo generated for them before they were declared here, so existing deployments match.
+ */
+@Component
+@Profile("!" + EmbeddedStore.PROFILE)
+public class MongoIndexes {
+
+  static final String INVENTORIES = "inventories";
+  static final String BOOKINGS = "bookings";
+  static final String SEAT_HOLDS = "seatHolds";
+  static final String IDEMPOTENCY_KEYS = "idempotencyKeys";
+  static final String ROUTE_DAYS = "routeDays";
+  private static final String ID_INDEX = "_id_";
+
+  private static final Logger log = LoggerFactory.getLogger(MongoIndexes.class);
+
+  public record Spec(String collection, Index index) {
+
+    public String name() {
+      return index.getIndexOptions().getString("name");
+    }
+  }
+
+  /**
+   * @param missing    declared but absent, usually because creation failed (e.g. duplicate PNRs)
+   * @param undeclared present on the server but not declared here
+   * @param unused     no accesses since the mongod started, according to {@code $indexStats}
+   */
+  public record Report(List<String> missing, List<String> undeclared, List<String> unused) {
+
+    public boolean isClean() {
+      return missing.isEmpty() && undeclared.isEmpty() && unused.isEmpty();
+    }
+  }
+
+  static final List<Spec> DECLARED = List.of(
+      new Spec(INVENTORIES, new Index().on("flightNumber", Direction.ASC).named("flightNumber_1")),
+      // route search and departure-ordered keyset pages: equality, then sort key + _id tie-break
+      new Spec(INVENTORIES, new Index().on("origin", Direction.ASC).on("destination", Direction.ASC)
+          .on("departure", Direction.ASC).on("_id", Direction.ASC)
+          .named("origin_1_destination_1_departure_1__id_1")),
+      // price-ordered keyset pages; departure last because it is only a range filter
+      new Spec(INVENTORIES, new Index().on("origin", Direction.ASC).on("destination", Direction.ASC)
+          .on("price", Direction.ASC).on("_id", Direction.ASC).on("departure", Direction.ASC)
+          .named("origin_1_destination_1_price_1__id_1_departure_1")),
+      // fare calendar: covers the whole aggregation; the free seat count changes with every booking
+      new Spec(INVENTORIES, new Index().on("origin", Direction.ASC).on("destination", Direction.ASC)
+          .on("departure", Direction.ASC).on("price", Direction.ASC).on("seatMap.available", Direction.ASC)
+          .named(AirlineInventory.FARE_INDEX)),
+      // ticket lookup and cancel; booking retries with a new code when an insert collides
+      new Spec(BOOKINGS, new Index().on("pnr", Direction.ASC).unique().named(Booking.PNR_INDEX)),
+      // history, newest journey first with _id as keyset tie-break; only used by queries with the same collation
+      new Spec(BOOKINGS, new Index().on("email", Direction.ASC).on("journeyDate", Direction.DESC)
+          .on("_id", Direction.DESC)
+          .collation(Collation.parse(Booking.EMAIL_COLLATION)).named(Booking.EMAIL_INDEX)),
+      // release recovery and engine loads: only bookings with seats not back on their flight yet are indexed,
+      // so it stays tiny; the recovery reads all of it, a flight load only its flight's range
+      new Spec(BOOKINGS, new Index().on("flightId", Direction.ASC).on("pendingReleases.releaseId", Direction.ASC)
+          .partial(PartialIndexFilter.of(Criteria.where("pendingReleases.releaseId").exists(true)))
+          .named(Booking.PENDING_RELEASE_INDEX)),
+      // outbox relay: only bookings with undelivered events are indexed, oldest event first
+      new Spec(BOOKINGS, new Index().on("outbox.eventId", Direction.ASC)
+          .partial(PartialIndexFilter.of(Criteria.where("outbox.eventId").exists(true)))
+          .named(Booking.OUTBOX_INDEX)),
+      // expiry sweep: reads only the holds that have expired. Not a TTL index, the sweep must release the seats
+      new Spec(SEAT_HOLDS, new Index().on("expiresAt", Direction.ASC).named(SeatHold.EXPIRY_INDEX)),
+      // idempotency records are only looked up by _id; Mongo deletes them once expiresAt has passed
+      new Spec(IDEMPOTENCY_KEYS, new Index().on("expiresAt", Direction.ASC).expire(0)
+          .named(IdempotencyRecord.EXPIRY_INDEX)),
+      // seat changes find the route day of a flight by its id; date ranges are read by _id
+      new Spec(ROUTE_DAYS, new Index().on("flights.flightId", Direction.ASC).named(RouteDaySummary.FLIGHT_INDEX)));
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  public MongoIndexes(ReactiveMongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  /** Creates every declared index. A failing index is logged and left to {@link #verify()} to report. */
+  public Mono<Void> ensure() {
+    return Flux.fromIterable(DECLARED)
+        .flatMap(spec -> mongoTemplate.indexOps(spec.collection()).createIndex(spec.index())
+            .onErrorResume(err -> {
+              log.error("Could not create index {}.{}: {}", spec.collection(), spec.name(), err.getMessage());
+              return Mono.empty();
+            }))
+        .then();
+  }
+
+  public Mono<Report> verify() {
+    Set<String> collections = DECLARED.stream().map(Spec::collection)
+        .collect(Collectors.toCollection(LinkedHashSet::new));
+    return Flux.fromIterable(collections)
+        .concatMap(this::verify)
+        .reduce(new Report(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()), (all, one) -> {
+          all.missing().addAll(one.missing());
+          all.undeclared().addAll(one.undeclared());
+          all.unused().addAll(one.unused());
+          return all;
+        })
+        .doOnNext(MongoIndexes::log);
+  }
+
+  private Mono<Report> verify(String collection) {
+    Set<String> declared = DECLARED.stream().filter(spec -> spec.collection().equals(collection))
+        .map(Spec::name).collect(Collectors.toSet());
+    Mono<Set<String>> existing = mongoTemplate.indexOps(collection).getIndexInfo()
+        .map(IndexInfo::getName).collect(Collectors.toSet());
+    Mono<List<String>> unused = indexStats(collection)
+        .filter(stats -> stats.get("accesses", Document.class) != null
+            && ((Number) stats.get("accesses", Document.class).get("ops")).longValue() == 0)
+        .map(stats -> stats.getString("name"))
+        .filter(name -> !ID_INDEX.equals(name))
+        .map(name -> collection + "." + name)
+        .sort()
+        .collectList();
+
+    return Mono.zip(existing, unused, (present, idle) -> new Report(
+        declared.stream().filter(name -> !present.contains(name)).sorted()
+            .map(name -> collection + "." + name).toList(),
+        present.stream().filter(name -> !declared.contains(name) && !ID_INDEX.equals(name)).sorted()
+            .map(name -> collection + "." + name).toList(),
+        idle));
+  }
+
+  private Flux<Document> indexStats(String collection) {
+    return mongoTemplate.aggregate(
+            Aggregation.newAggregation(context -> new Document("$indexStats", new Document())),
+            collection, Document.class)
+        // needs the indexStats privilege; without it the unused check is simply skipped
+        .onErrorResume(err -> {
+          log.debug("$indexStats unavailable on {}: {}", collection, err.getMessage());
+          return Flux.empty();
+        });
+  }
+
+  private static void log(Report report) {
+    if (report.isClean()) {
+      log.info("All {} declared indexes present and in use", DECLARED.size());
+      return;
+    }
+    if (!report.missing().isEmpty()) log.warn("Missing indexes: {}", report.missing());
+    if (!report.undeclared().isEmpty()) log.warn("Indexes not declared by the application: {}", report.undeclared());
+    if (!report.unused().isEmpty()) log.warn("Indexes unused since the server started: {}", report.unused());
+  }
+}
@@ -0,0 +1,58 @@
+package com.flightapp.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import com.flightapp.model.SeatMap;
+
+/**
+ * Maps {@link SeatMap} to <code>{capacity, available, words: [int64...]}</code>. The available count is
+ * denormalised so it can be read or projected without touching the words.
+ */
+public final class SeatMapConverters {
+
+  public static final String CAPACITY = "capacity";
+  public static final String AVAILABLE = "available";
+  public static final String WORDS = "words";
+
+  private SeatMapConverters() {
+    // prevent instantiation
+  }
+
+  public static List<Object> all() {
+    return List.of(new SeatMapWriter(), new SeatMapReader());
+  }
+
+  @WritingConverter
+  public static class SeatMapWriter implements Converter<SeatMap, Document> {
+    @Override
+    public Document convert(SeatMap source) {
+      long[] words = source.getWords();
+      List<Long> boxed = new ArrayList<>(words.length);
+      for (long w : words) {
+        boxed.add(w);
+      }
+      return new Document(CAPACITY, source.getCapacity())
+          .append(AVAILABLE, source.availableCount())
+          .append(WORDS, boxed);
+    }
+  }
+
+  @ReadingConverter
+  public static class SeatMapReader implements Converter<Document, SeatMap> {
+    @Override
+    public SeatMap convert(Document source) {
+      List<?> stored = source.getList(WORDS, Object.class, List.of());
+      long[] words = new long[stored.size()];
+      for (int i = 0; i < words.length; i++) {
+        words[i] = ((Number) stored.get(i)).longValue();
+      }
+      return SeatMap.fromWords(source.getInteger(CAPACITY, words.length * 64), words);
+    }
+  }
+}
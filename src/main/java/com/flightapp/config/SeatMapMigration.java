@@ -0,0 +1,65 @@
+package com.flightapp.config;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.embedded.EmbeddedStore;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Rewrites inventory documents that still carry the legacy {@code availableSeats} string array into the
+ * {@code seatMap} bitset. Safe to run on every startup: migrated documents no longer match.
+ */
+@Component
+@Profile("!" + EmbeddedStore.PROFILE)
+public class SeatMapMigration {
+
+  static final String COLLECTION = "inventories";
+  static final String LEGACY_FIELD = "availableSeats";
+
+  private static final Logger log = LoggerFactory.getLogger(SeatMapMigration.class);
+  private static final int CONCURRENCY = 8;
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final SeatMapConverters.SeatMapWriter writer = new SeatMapConverters.SeatMapWriter();
+
+  public SeatMapMigration(ReactiveMongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  /** @return number of documents converted */
+  public Mono<Long> migrate() {
+    Query legacy = new Query(Criteria.where(LEGACY_FIELD).exists(true));
+    legacy.fields().include("_id", "totalSeats", LEGACY_FIELD);
+
+    return mongoTemplate.find(legacy, Document.class, COLLECTION)
+        .flatMap(this::migrateOne, CONCURRENCY)
+        .filter(Boolean::booleanValue)
+        .count()
+        .doOnNext(n -> {
+          if (n > 0) log.info("Converted {} inventories to seat bitmaps", n);
+        });
+  }
+
+  private Mono<Boolean> migrateOne(Document doc) {
+    List<String> seats = doc.getList(LEGACY_FIELD, String.class, List.of());
+    SeatMap map = SeatMap.fromLabels(doc.getInteger("totalSeats", 0), seats);
+
+    // guarded on the legacy field so a concurrent run cannot convert the same document twice
+    Query query = new Query(Criteria.where("_id").is(doc.get("_id")).and(LEGACY_FIELD).exists(true));
+    Update update = new Update().set("seatMap", writer.convert(map)).unset(LEGACY_FIELD);
+    return mongoTemplate.updateFirst(query, update, COLLECTION)
+        .map(result -> result.getModifiedCount() > 0);
+  }
+}
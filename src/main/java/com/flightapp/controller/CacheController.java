@@ -0,0 +1,34 @@
+package com.flightapp.controller;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.flightapp.service.FareCalendar;
+import com.flightapp.service.PnrCache;
+import com.flightapp.service.SearchCache;
+
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/flight/cache")
+public class CacheController {
+
+    private final SearchCache searchCache;
+    private final PnrCache pnrCache;
+    private final FareCalendar fareCalendar;
+
+    public CacheController(SearchCache searchCache, PnrCache pnrCache, FareCalendar fareCalendar) {
+        this.searchCache = searchCache;
+        this.pnrCache = pnrCache;
+        this.fareCalendar = fareCalendar;
+    }
+
+    @GetMapping("/stats")
+    public Mono<Map<String, Object>> stats() {
+        return Mono.fromSupplier(() -> Map.of("search", searchCache.stats(), "pnr", pnrCache.stats(),
+                "fares", fareCalendar.stats()));
+    }
+}
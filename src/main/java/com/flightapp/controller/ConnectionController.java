@@ -0,0 +1,44 @@
+package com.flightapp.controller;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.flightapp.dto.ConnectionRequest;
+import com.flightapp.dto.Itinerary;
+import com.flightapp.service.ConnectionSearch;
+
+import jakarta.validation.Valid;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/flight/search")
+public class ConnectionController {
+
+    private static final int DEFAULT_MAX_STOPS = 1;
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final ConnectionSearch connections;
+
+    public ConnectionController(ConnectionSearch connections) {
+        this.connections = connections;
+    }
+
+    /** Direct and connecting trips whose first flight leaves in the window, best first; one stop unless asked. */
+    @PostMapping("/connections")
+    public Mono<ResponseEntity<List<Itinerary>>> connections(@RequestBody @Valid ConnectionRequest req) {
+        return Mono.defer(() -> connections.search(req.getOrigin(), req.getDestination(),
+                        LocalDateTime.parse(req.getFrom()), LocalDateTime.parse(req.getTo()),
+                        req.getMaxStops() == null ? DEFAULT_MAX_STOPS : req.getMaxStops(),
+                        req.getPassengers() == null ? 1 : req.getPassengers(),
+                        ConnectionSearch.Rank.from(req.getSortBy()),
+                        req.getLimit() == null ? DEFAULT_LIMIT : req.getLimit())
+                .collectList())
+            .map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,40 @@
+package com.flightapp.controller;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.flightapp.dto.FareDay;
+import com.flightapp.service.FareCalendar;
+
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/flight/search")
+public class FareController {
+
+    private final FareCalendar fares;
+
+    public FareController(FareCalendar fares) {
+        this.fares = fares;
+    }
+
+    /**
+     * Lowest fare and whether seats are left, per departure day of the month that has flights: the month view
+     * of the booking front end, cached per route and month. {@code /search/calendar} answers the occupancy
+     * question for any range of up to 92 days from the route-day summaries.
+     */
+    @GetMapping("/fares")
+    public Mono<ResponseEntity<List<FareDay>>> fares(
+            @RequestParam(name = "origin") String origin,
+            @RequestParam(name = "destination") String destination,
+            @RequestParam(name = "month") @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        return fares.month(origin, destination, month).collectList().map(ResponseEntity::ok);
+    }
+}
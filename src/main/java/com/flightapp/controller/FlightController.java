@@ -2,22 +2,39 @@ package com.flightapp.controller;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.flightapp.config.CodecConfig;
+import com.flightapp.service.BookingMetrics;
 import com.flightapp.service.FlightService;
+import com.flightapp.service.IdempotencyStore;
+import com.flightapp.service.SeatAvailabilityStream;
 import com.flightapp.model.AirlineInventory;
 import com.flightapp.model.Booking;
+import com.flightapp.model.SeatHold;
+import com.flightapp.dto.BookingHistoryItem;
 import com.flightapp.dto.BookingRequest;
 import com.flightapp.dto.BookingUpdateRequest;
+import com.flightapp.dto.CalendarDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.HoldConfirmRequest;
+import com.flightapp.dto.SearchPage;
 import com.flightapp.dto.SearchRequest;
+import com.flightapp.dto.SeatAvailabilityUpdate;
+import com.flightapp.dto.SeatHoldRequest;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import jakarta.validation.Valid;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -25,29 +42,25 @@ import java.util.Map;
 public class FlightController {
 
     private final FlightService flightService;
+    private final IdempotencyStore idempotency;
+    private final SeatAvailabilityStream seatStream;
 
-    public FlightController(FlightService flightService) {
+    public FlightController(FlightService flightService, IdempotencyStore idempotency,
+                            SeatAvailabilityStream seatStream) {
         this.flightService = flightService;
+        this.idempotency = idempotency;
+        this.seatStream = seatStream;
     }
     private static final String ERROR_KEY = "error";
+    /** Optional on book, cancel and update: a retry with the same key gets the first outcome, never a second booking. */
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     @PostMapping("/airline/inventory/add")
     public Mono<ResponseEntity<com.flightapp.model.AirlineInventory>> addInventory(
             @RequestBody @Valid com.flightapp.dto.InventoryRequest req,
             UriComponentsBuilder uriBuilder) {
 
-        com.flightapp.model.AirlineInventory inv = new com.flightapp.model.AirlineInventory();
-        inv.setAirline(req.getAirline());
-        inv.setAirlineLogoUrl(req.getAirlineLogoUrl());
-        inv.setFlightNumber(req.getFlightNumber());
-        inv.setOrigin(req.getOrigin());
-        inv.setDestination(req.getDestination());
-        inv.setDeparture(req.getDeparture());
-        inv.setArrival(req.getArrival());
-        inv.setTotalSeats(req.getTotalSeats());
-        inv.setPrice(req.getPrice());
-        if (req.getAvailableSeats() != null && !req.getAvailableSeats().isEmpty()) {
-            inv.setAvailableSeats(new java.util.ArrayList<>(req.getAvailableSeats()));
-        }
+        com.flightapp.model.AirlineInventory inv = req.toInventory();
 
         return flightService.addInventory(inv)
             .map(saved -> {
@@ -58,25 +71,118 @@ public class FlightController {
     }
 
     @PostMapping("/search")
-    public Flux<AirlineInventory> search(@RequestBody @Valid SearchRequest req) {
+    public Mono<ResponseEntity<Flux<AirlineInventory>>> search(@RequestBody @Valid SearchRequest req) {
+
+        LocalDateTime fromDt = LocalDateTime.parse(req.getFrom());
+        LocalDateTime toDt = LocalDateTime.parse(req.getTo());
+
+        if (req.isPaged()) {
+            return flightService.searchPage(req.getOrigin(), req.getDestination(), fromDt, toDt,
+                    req.getSortBy(), req.getLimit(), req.getCursor())
+                .map(FlightController::pageResponse);
+        }
+        return Mono.just(ResponseEntity.ok(flightService.search(
+            req.getOrigin(),
+            req.getDestination(),
+            fromDt,
+            toDt
+        )));
+    }
+
+    @PostMapping("/search/summary")
+    public Mono<ResponseEntity<Flux<FlightSummary>>> searchSummary(@RequestBody @Valid SearchRequest req) {
 
         LocalDateTime fromDt = LocalDateTime.parse(req.getFrom());
         LocalDateTime toDt = LocalDateTime.parse(req.getTo());
 
-        return flightService.search(
+        if (req.isPaged()) {
+            return flightService.searchSummaryPage(req.getOrigin(), req.getDestination(), fromDt, toDt,
+                    req.getSortBy(), req.getLimit(), req.getCursor())
+                .map(FlightController::pageResponse);
+        }
+        return Mono.just(ResponseEntity.ok(flightService.searchSummaries(
             req.getOrigin(),
             req.getDestination(),
             fromDt,
             toDt
-        );
+        )));
+    }
+
+    /**
+     * Per departure day from {@code from} to {@code to}, both included: flights, free seats and cheapest open fare.
+     * The cached month of lowest fares the booking front end shows is {@code /search/fares}.
+     */
+    @GetMapping("/search/calendar")
+    public Mono<ResponseEntity<List<CalendarDay>>> calendar(
+            @RequestParam(name = "origin") String origin,
+            @RequestParam(name = "destination") String destination,
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return flightService.calendar(origin, destination, from, to).collectList().map(ResponseEntity::ok);
+    }
+
+    // the body stays a plain array so paging is invisible to existing clients; the cursor travels in a header
+    private static <T> ResponseEntity<Flux<T>> pageResponse(SearchPage<T> page) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            builder.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return builder.body(Flux.fromIterable(page.items()));
+    }
+
+    @GetMapping("/airline/inventory/{flightId}/seats")
+    public Mono<ResponseEntity<Map<String, Object>>> seats(@PathVariable String flightId) {
+        return flightService.findFlight(flightId)
+                .map(inv -> {
+                    List<String> available = inv.getAvailableSeats() != null ? inv.getAvailableSeats() : List.of();
+                    Map<String, Object> m = new HashMap<>();
+                    m.put("flightId", inv.getId());
+                    m.put("totalSeats", inv.getTotalSeats());
+                    m.put("availableCount", available.size());
+                    m.put("availableSeats", available);
+                    return ResponseEntity.ok(m);
+                })
+                .defaultIfEmpty(ResponseEntity.<Map<String, Object>>notFound().build());
+    }
+
+    /**
+     * Server-sent events: a {@code snapshot} of the free seats, then a {@code delta} whenever seats are taken
+     * or freed. The event id is the flight's change version. 503 when the node has no room for another stream.
+     */
+    @GetMapping(value = "/airline/inventory/{flightId}/seats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Mono<ResponseEntity<Flux<ServerSentEvent<SeatAvailabilityUpdate>>>> seatStream(@PathVariable String flightId) {
+        if (!seatStream.enabled() || seatStream.full()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+        }
+        return flightService.findFlight(flightId)
+                .map(inv -> ResponseEntity.ok(seatEvents(flightId)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    private Flux<ServerSentEvent<SeatAvailabilityUpdate>> seatEvents(String flightId) {
+        Flux<ServerSentEvent<SeatAvailabilityUpdate>> updates = seatStream.subscribe(flightId)
+                .map(update -> ServerSentEvent.builder(update)
+                        .id(String.valueOf(update.version()))
+                        .event(update.snapshot() ? "snapshot" : "delta")
+                        .build());
+        if (seatStream.heartbeat().isZero()) {
+            return updates;
+        }
+        Flux<ServerSentEvent<SeatAvailabilityUpdate>> heartbeats = Flux.interval(seatStream.heartbeat())
+                .onBackpressureDrop()
+                .map(tick -> ServerSentEvent.<SeatAvailabilityUpdate>builder().comment("keep-alive").build());
+        // prefetch 1: updates wait in the stream, where they are conflated, not in a merge queue
+        return Flux.merge(1, updates, heartbeats);
     }
 
     @PostMapping("/booking/{flightId}")
     public Mono<ResponseEntity<Booking>> book(@PathVariable String flightId,
                                               @RequestBody @Valid BookingRequest req,
+                                              @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
                                               UriComponentsBuilder uriBuilder) {
 
-        return flightService.book(flightId, req)
+        return idempotency.execute(BookingMetrics.BOOK, idempotencyKey, IdempotencyStore.fingerprint(flightId, req),
+                        () -> flightService.book(flightId, req))
                 .map(booking -> {
                     var location = uriBuilder.path("/api/flight/ticket/{pnr}")
                             .buildAndExpand(booking.getPnr()).toUri();
@@ -86,6 +192,66 @@ public class FlightController {
                 });
     }
 
+    /** Sets seats aside for the caller; the returned id is the token to confirm or release the hold with. */
+    @PostMapping("/booking/{flightId}/hold")
+    public Mono<ResponseEntity<SeatHold>> holdSeats(@PathVariable String flightId,
+                                                    @RequestBody @Valid SeatHoldRequest req) {
+        return flightService.holdSeats(flightId, req)
+                .map(hold -> ResponseEntity.status(HttpStatus.CREATED).body(hold));
+    }
+
+    @PostMapping("/booking/hold/{token}/confirm")
+    public Mono<ResponseEntity<Object>> confirmHold(
+            @PathVariable String token,
+            @RequestHeader(name = "X-User-Email", required = true) String headerEmail,
+            @RequestBody @Valid HoldConfirmRequest req,
+            UriComponentsBuilder uriBuilder) {
+
+        if (!headerEmail.equalsIgnoreCase(req.getEmail())) {
+            Map<String, Object> err = new HashMap<>();
+            err.put(ERROR_KEY, "Header email and body email must match");
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(err));
+        }
+
+        return flightService.confirmHold(token, req)
+                .<ResponseEntity<Object>>map(booking -> {
+                    var location = uriBuilder.path("/api/flight/ticket/{pnr}")
+                            .buildAndExpand(booking.getPnr()).toUri();
+                    return ResponseEntity.status(HttpStatus.CREATED)
+                            .location(location)
+                            .body(booking);
+                })
+                .onErrorResume(err -> Mono.just(holdError(err)));
+    }
+
+    @DeleteMapping("/booking/hold/{token}")
+    public Mono<ResponseEntity<Object>> releaseHold(
+            @PathVariable String token,
+            @RequestHeader(name = "X-User-Email", required = true) String headerEmail) {
+
+        return flightService.releaseHold(token, headerEmail)
+                .then(Mono.fromSupplier(() -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("message", "Hold released");
+                    response.put("token", token);
+                    return ResponseEntity.<Object>ok(response);
+                }))
+                .onErrorResume(err -> Mono.just(holdError(err)));
+    }
+
+    private static ResponseEntity<Object> holdError(Throwable err) {
+        Map<String, Object> error = new HashMap<>();
+        error.put(ERROR_KEY, err.getMessage());
+
+        if (err instanceof IllegalArgumentException) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+        if (err instanceof IllegalStateException) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+    }
+
     @GetMapping("/ticket/{pnr}")
     public Mono<ResponseEntity<Booking>> ticket(@PathVariable String pnr) {
         return flightService.findByPnr(pnr)
@@ -93,27 +259,37 @@ public class FlightController {
                 .defaultIfEmpty(ResponseEntity.<Booking>notFound().build());
     }
 
-    @GetMapping("/booking/history")
-    public Flux<Map<String, Object>> history(@RequestParam(name = "email") String email) {
-        return flightService.findByEmail(email)
-                .map(b -> {
-                    Map<String, Object> m = new HashMap<>();
-                    m.put("pnr", b.getPnr());
-                    m.put("name", b.getName());
-                    m.put("email", b.getEmail());
-                    m.put("flightId", b.getFlightId());
-                    m.put("journeyDate", b.getJourneyDate());
-                    m.put("seatNumbers", b.getSeatNumbers());
-                    m.put("status", Boolean.TRUE.equals(b.isCanceled()) ? "CANCELLED" : "ACTIVE");
-                    if (b.getCanceledAt() != null) m.put("canceledAt", b.getCanceledAt());
-                    return m;
-                });
+    /** Newest journey first, one page at a time; the next page's cursor travels in {@value #NEXT_CURSOR_HEADER}. */
+    @GetMapping(value = "/booking/history", produces = { MediaType.APPLICATION_JSON_VALUE, CodecConfig.SMILE_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE })
+    public Mono<ResponseEntity<Flux<BookingHistoryItem>>> history(
+            @RequestParam(name = "email") String email,
+            @RequestParam(name = "status", required = false) String status,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor) {
+        return flightService.historyPage(email, status, from, to, limit, cursor)
+                .map(FlightController::pageResponse);
+    }
+
+    /** Same filters as {@link #history}, streamed row by row with no page size unless a limit is given. */
+    @GetMapping(value = "/booking/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookingHistoryItem> historyStream(
+            @RequestParam(name = "email") String email,
+            @RequestParam(name = "status", required = false) String status,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor) {
+        return flightService.history(email, status, from, to, limit, cursor);
     }
 
     @DeleteMapping("/booking/cancel/{pnr}")
     public Mono<ResponseEntity<Map<String, Object>>> cancel(
             @PathVariable String pnr,
             @RequestHeader(name = "X-User-Email", required = true) String headerEmail,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @RequestParam(name = "email", required = false) String emailParam) {
 
         // require email request parameter for verification
@@ -131,7 +307,9 @@ public class FlightController {
             return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error));
         }
 
-        return flightService.cancelByPnrAndEmail(pnr, headerEmail)
+        return idempotency.execute(BookingMetrics.CANCEL, idempotencyKey,
+                        IdempotencyStore.fingerprint(pnr, headerEmail.toLowerCase()),
+                        () -> flightService.cancelByPnrAndEmail(pnr, headerEmail).then(Mono.empty()))
                 .then(Mono.fromSupplier(() -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("message", "Booking cancelled successfully");
@@ -155,6 +333,7 @@ public class FlightController {
     public Mono<ResponseEntity<Map<String, Object>>> updateBooking(
             @PathVariable String pnr,
             @RequestHeader(name = "X-User-Email", required = true) String headerEmail,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @RequestBody @Valid BookingUpdateRequest updateReq) {
 
         if (!headerEmail.equalsIgnoreCase(updateReq.getEmail())) {
@@ -163,7 +342,8 @@ public class FlightController {
             return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(err));
         }
 
-        return flightService.updateBooking(pnr, updateReq)
+        return idempotency.execute(BookingMetrics.UPDATE, idempotencyKey, IdempotencyStore.fingerprint(pnr, updateReq),
+                        () -> flightService.updateBooking(pnr, updateReq))
                 .map(updated -> {
                     Map<String, Object> resp = new HashMap<>();
                     resp.put("message", "Booking updated successfully");
@@ -0,0 +1,36 @@
+package com.flightapp.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.flightapp.dto.InventoryIngestResult;
+import com.flightapp.dto.InventoryRequest;
+import com.flightapp.service.InventoryIngestService;
+
+import reactor.core.publisher.Flux;
+
+@RestController
+@RequestMapping("/api/flight")
+public class InventoryIngestController {
+
+    private final InventoryIngestService ingestService;
+
+    public InventoryIngestController(InventoryIngestService ingestService) {
+        this.ingestService = ingestService;
+    }
+
+    /**
+     * Accepts an NDJSON stream or a JSON array of inventory records. Both are decoded element by element,
+     * and the per-record report is streamed back as NDJSON unless the client asks for a JSON array.
+     * Records are validated individually, so one bad record does not fail the upload.
+     */
+    @PostMapping(value = "/airline/inventory/bulk",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<InventoryIngestResult> bulkAdd(@RequestBody Flux<InventoryRequest> records) {
+        return ingestService.ingest(records);
+    }
+}
@@ -0,0 +1,33 @@
+package com.flightapp.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.flightapp.service.RouteDaySummaries;
+
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/flight/route-days")
+public class RouteDayController {
+
+    private final RouteDaySummaries routeDays;
+
+    public RouteDayController(RouteDaySummaries routeDays) {
+        this.routeDays = routeDays;
+    }
+
+    /** Compares every route-day summary with the inventories and reports the differences. */
+    @GetMapping("/check")
+    public Mono<RouteDaySummaries.Report> check() {
+        return routeDays.reconcile(false);
+    }
+
+    /** Same comparison, replacing what differs; rebuilds the whole collection when it is empty. */
+    @PostMapping("/rebuild")
+    public Mono<RouteDaySummaries.Report> rebuild() {
+        return routeDays.reconcile(true);
+    }
+}
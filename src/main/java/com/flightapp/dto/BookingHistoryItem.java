@@ -0,0 +1,26 @@
+package com.flightapp.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One row of a booking history. Read straight from a projection of the booking document, so passengers and
+ * the other booking details are never loaded.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookingHistoryItem(@JsonIgnore String id, String pnr, String name, String email, String flightId,
+    LocalDateTime journeyDate, List<String> seatNumbers, @JsonIgnore Boolean canceled,
+    LocalDateTime canceledAt) {
+
+  public static final String ACTIVE = "ACTIVE";
+  public static final String CANCELLED = "CANCELLED";
+
+  @JsonProperty("status")
+  public String status() {
+    return Boolean.TRUE.equals(canceled) ? CANCELLED : ACTIVE;
+  }
+}
@@ -0,0 +1,11 @@
+package com.flightapp.dto;
+
+import java.time.LocalDate;
+
+/**
+ * One departure day of a route: how many flights, how full they are and the cheapest fare still on sale.
+ *
+ * @param minPrice cheapest flight with a free seat; null when every flight of the day is sold out
+ */
+public record CalendarDay(LocalDate day, int flights, int totalSeats, int availableSeats, Double minPrice) {
+}
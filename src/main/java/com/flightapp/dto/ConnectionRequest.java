@@ -0,0 +1,22 @@
+package com.flightapp.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+
+import lombok.Data;
+
+/** Connection search: the first flight leaves between {@code from} and {@code to}, later ones follow it. */
+@Data
+public class ConnectionRequest {
+
+  @NotEmpty private String origin;
+  @NotEmpty private String destination;
+  @NotEmpty private String from; // ISO date-time
+  @NotEmpty private String to;
+
+  @Min(0) @Max(2) private Integer maxStops; // default 1
+  @Min(1) @Max(9) private Integer passengers; // default 1
+  private String sortBy; // duration (default) or price
+  @Min(1) @Max(100) private Integer limit; // default 20
+}
@@ -0,0 +1,12 @@
+package com.flightapp.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Lowest fare of one departure day of a route.
+ *
+ * @param minPrice       cheapest flight with a free seat; when the day is sold out, the cheapest flight it had
+ * @param seatsAvailable whether any flight of the day still has a free seat
+ */
+public record FareDay(LocalDate day, double minPrice, boolean seatsAvailable) {
+}
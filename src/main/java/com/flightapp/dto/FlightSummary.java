@@ -0,0 +1,23 @@
+package com.flightapp.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/**
+ * Search result row without the seat map; the seat list is served per flight.
+ */
+@Data
+public class FlightSummary {
+  private String id;
+  private String airline;
+  private String airlineLogoUrl;
+  private String flightNumber;
+  private String origin;
+  private String destination;
+  private LocalDateTime departure;
+  private LocalDateTime arrival;
+  private double price;
+  private int totalSeats;
+  private int availableSeats;
+}
@@ -0,0 +1,36 @@
+package com.flightapp.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset position of the last row of a history page, which is ordered by journey date then id, both
+ * descending. Handed to clients as an opaque url-safe token, like {@link SearchCursor}.
+ */
+public record HistoryCursor(LocalDateTime journeyDate, String id) {
+
+  private static final String SEP = "|";
+
+  public static HistoryCursor after(BookingHistoryItem item) {
+    return new HistoryCursor(item.journeyDate(), item.id());
+  }
+
+  public String encode() {
+    String raw = journeyDate + SEP + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the token is malformed
+   */
+  public static HistoryCursor decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] parts = raw.split("\\|", 2);
+      return new HistoryCursor(LocalDateTime.parse(parts[0]), parts[1]);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid history cursor");
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.flightapp.dto;
+
+import java.util.List;
+import com.flightapp.model.Passenger;
+import lombok.Data;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotEmpty;
+
+/** Passenger details for a seat hold; the seats are the held ones. */
+@Data
+public class HoldConfirmRequest {
+  @NotEmpty(message = "Name required") private String name;
+  @Email(message = "Email must be valid") @NotEmpty(message = "Email required") private String email;
+  @NotEmpty(message = "At least one passenger") private List<Passenger> passengers;
+  private boolean mealVeg;
+}
@@ -0,0 +1,33 @@
+package com.flightapp.dto;
+
+/**
+ * Outcome of one record of a bulk inventory upload.
+ *
+ * @param index    zero-based position of the record in the upload
+ * @param status   what happened to the record
+ * @param flightId id of the created flight, only set when {@code status} is CREATED
+ * @param error    why the record was not stored, null when it was
+ */
+public record InventoryIngestResult(long index, Status status, String flightId, String error) {
+
+  public enum Status {
+    /** Stored. */
+    CREATED,
+    /** Failed validation and was never sent to the database. */
+    REJECTED,
+    /** Valid, but the database refused or failed the write. */
+    FAILED
+  }
+
+  public static InventoryIngestResult created(long index, String flightId) {
+    return new InventoryIngestResult(index, Status.CREATED, flightId, null);
+  }
+
+  public static InventoryIngestResult rejected(long index, String error) {
+    return new InventoryIngestResult(index, Status.REJECTED, null, error);
+  }
+
+  public static InventoryIngestResult failed(long index, String error) {
+    return new InventoryIngestResult(index, Status.FAILED, null, error);
+  }
+}
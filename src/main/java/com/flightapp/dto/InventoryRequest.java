@@ -1,6 +1,9 @@
 package com.flightapp.dto;
 
+import com.flightapp.model.AirlineInventory;
+
 import jakarta.validation.constraints.*;
+import java.util.ArrayList;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -53,4 +56,21 @@ public class InventoryRequest {
     public void setPrice(Double price) { this.price = price; }
     public List<String> getAvailableSeats() { return availableSeats; }
     public void setAvailableSeats(List<String> availableSeats) { this.availableSeats = availableSeats; }
+
+    public AirlineInventory toInventory() {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setAirline(airline);
+        inv.setAirlineLogoUrl(airlineLogoUrl);
+        inv.setFlightNumber(flightNumber);
+        inv.setOrigin(origin);
+        inv.setDestination(destination);
+        inv.setDeparture(departure);
+        inv.setArrival(arrival);
+        inv.setTotalSeats(totalSeats);
+        inv.setPrice(price);
+        if (availableSeats != null && !availableSeats.isEmpty()) {
+            inv.setAvailableSeats(new ArrayList<>(availableSeats));
+        }
+        return inv;
+    }
 }
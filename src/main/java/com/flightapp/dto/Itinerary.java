@@ -0,0 +1,18 @@
+package com.flightapp.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A trip from the searched origin to the destination over one to three flights, each leaving at least the
+ * minimum layover after the previous one lands.
+ *
+ * @param legs            the flights in travel order, with their free seats at search time
+ * @param stops           connecting airports, {@code legs.size() - 1}
+ * @param durationMinutes first departure to last arrival, layovers included
+ * @param price           sum of the leg fares
+ * @param availableSeats  fewest free seats on any leg, so the most travellers that can book the whole trip
+ */
+public record Itinerary(List<FlightSummary> legs, int stops, LocalDateTime departure, LocalDateTime arrival,
+    long durationMinutes, double price, int availableSeats) {
+}
@@ -0,0 +1,43 @@
+package com.flightapp.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset position of the last row of a search page: the sort value and the document id that breaks ties.
+ * Handed to clients as an opaque url-safe token.
+ */
+public record SearchCursor(SearchSort sort, Object value, String id) {
+
+  private static final String SEP = "|";
+
+  public static SearchCursor after(SearchSort sort, LocalDateTime departure, double price, String id) {
+    return new SearchCursor(sort, sort == SearchSort.PRICE ? (Object) price : departure, id);
+  }
+
+  public String encode() {
+    String raw = sort.name() + SEP + value + SEP + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the token is malformed or was issued for another sort order
+   */
+  public static SearchCursor decode(String token, SearchSort expectedSort) {
+    SearchCursor cursor;
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] parts = raw.split("\\|", 3);
+      SearchSort sort = SearchSort.valueOf(parts[0]);
+      Object value = sort == SearchSort.PRICE ? (Object) Double.valueOf(parts[1]) : LocalDateTime.parse(parts[1]);
+      cursor = new SearchCursor(sort, value, parts[2]);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid search cursor");
+    }
+    if (cursor.sort() != expectedSort) {
+      throw new IllegalArgumentException("Cursor does not match the requested sort order");
+    }
+    return cursor;
+  }
+}
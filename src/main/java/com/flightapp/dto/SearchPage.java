@@ -0,0 +1,11 @@
+package com.flightapp.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of search results.
+ *
+ * @param nextCursor token for the following page, null on the last page
+ */
+public record SearchPage<T>(List<T> items, String nextCursor) {
+}
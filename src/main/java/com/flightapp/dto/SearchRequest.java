@@ -1,5 +1,9 @@
 package com.flightapp.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 
 public class SearchRequest {
@@ -8,6 +12,11 @@ public class SearchRequest {
   @NotEmpty private String destination;
   @NotEmpty private String from; // ISO date-time
   @NotEmpty private String to;
+
+  // optional paging: setting any of these switches the search to sorted keyset pages
+  private String sortBy; // departure (default) or price
+  @Min(1) @Max(200) private Integer limit;
+  private String cursor; // nextCursor of the previous page
   public String getOrigin() {
 	return origin;
   }
@@ -32,5 +41,27 @@ public class SearchRequest {
   public void setTo(String to) {
 	this.to = to;
   }
+  public String getSortBy() {
+	return sortBy;
+  }
+  public void setSortBy(String sortBy) {
+	this.sortBy = sortBy;
+  }
+  public Integer getLimit() {
+	return limit;
+  }
+  public void setLimit(Integer limit) {
+	this.limit = limit;
+  }
+  public String getCursor() {
+	return cursor;
+  }
+  public void setCursor(String cursor) {
+	this.cursor = cursor;
+  }
+  @JsonIgnore
+  public boolean isPaged() {
+	return sortBy != null || limit != null || cursor != null;
+  }
 
   }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.flightapp.dto;
+
+public enum SearchSort {
+  DEPARTURE("departure"),
+  PRICE("price");
+
+  private final String field;
+
+  SearchSort(String field) {
+    this.field = field;
+  }
+
+  public String field() {
+    return field;
+  }
+
+  /** Case-insensitive lookup; null means the default departure order. */
+  public static SearchSort from(String name) {
+    if (name == null || name.isBlank()) {
+      return DEPARTURE;
+    }
+    for (SearchSort s : values()) {
+      if (s.field.equalsIgnoreCase(name) || s.name().equalsIgnoreCase(name)) {
+        return s;
+      }
+    }
+    throw new IllegalArgumentException("sortBy must be departure or price");
+  }
+}
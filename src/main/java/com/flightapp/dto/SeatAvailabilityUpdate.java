@@ -0,0 +1,16 @@
+package com.flightapp.dto;
+
+import java.util.List;
+
+/**
+ * One event of a flight's seat stream. The first event of a subscription is a snapshot whose
+ * {@code available} lists every free seat; the ones after it are deltas of the seats freed and taken since
+ * the previous event, merged into one when the subscriber reads slower than seats change.
+ *
+ * @param version  grows with every change published for the flight on this node; a snapshot carries the
+ *                 version it is current as of
+ * @param snapshot true for the first event
+ */
+public record SeatAvailabilityUpdate(String flightId, long version, boolean snapshot, List<String> available,
+    List<String> taken) {
+}
@@ -0,0 +1,12 @@
+package com.flightapp.dto;
+
+import java.util.List;
+import lombok.Data;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotEmpty;
+
+@Data
+public class SeatHoldRequest {
+  @Email(message = "Email must be valid") @NotEmpty(message = "Email required") private String email;
+  @NotEmpty(message = "Select at least one seat") private List<String> seatNumbers;
+}
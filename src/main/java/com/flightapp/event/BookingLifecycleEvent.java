@@ -0,0 +1,17 @@
+package com.flightapp.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.flightapp.model.OutboxEntry;
+
+/**
+ * A book, update or cancel as downstream systems see it, relayed from the booking outbox. Delivery is at
+ * least once: consumers drop events whose id they have already seen.
+ *
+ * @param id          event id, increasing with the time the change was made
+ * @param seatNumbers seats of the booking after the change; for a cancellation, the seats it gave up
+ */
+public record BookingLifecycleEvent(String id, OutboxEntry.Type type, LocalDateTime occurredAt, String bookingId,
+    String pnr, String email, String flightId, List<String> seatNumbers, LocalDateTime journeyDate) {
+}
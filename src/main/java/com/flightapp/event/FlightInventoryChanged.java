@@ -0,0 +1,22 @@
+package com.flightapp.event;
+
+import java.util.List;
+
+import com.flightapp.model.AirlineInventory;
+
+/**
+ * Published by the service after a flight was added or its seat availability changed.
+ *
+ * @param flightId id of the flight that changed
+ * @param flight   flight details (route, departure, price) without the seat map; null when the change was a
+ *                 pure release and the flight was never loaded
+ * @param claimed  seats that became unavailable
+ * @param released seats that became available again
+ */
+public record FlightInventoryChanged(String flightId, AirlineInventory flight, List<String> claimed,
+    List<String> released) {
+
+  public static FlightInventoryChanged added(AirlineInventory flight) {
+    return new FlightInventoryChanged(flight.getId(), flight, List.of(), List.of());
+  }
+}
@@ -0,0 +1,14 @@
+package com.flightapp.event;
+
+import java.util.List;
+
+import com.flightapp.model.AirlineInventory;
+
+/**
+ * Published once per bulk-inserted batch, so listeners can react to a whole schedule load without one
+ * event per flight.
+ *
+ * @param flights the inserted flights
+ */
+public record FlightsAdded(List<AirlineInventory> flights) {
+}
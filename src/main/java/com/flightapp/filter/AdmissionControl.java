@@ -0,0 +1,336 @@
+package com.flightapp.filter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Bounds how many requests run at once, per route class and in total, so a spike queues or is turned away
+ * at the door instead of piling up on the Mongo connection pool.
+ *
+ * <p>Every {@link Route} has a concurrency limit between {@code min} and {@code max} and a bounded queue.
+ * The limit adapts to latency (AIMD): a request that finishes within its route's {@code latency-target}
+ * while the limit is in use raises the limit by {@code 1/limit}, one that takes longer cuts a limit by 10%,
+ * at most once per {@value #DECREASE_INTERVAL_MS}ms. The cut goes to the lowest-priority route that can
+ * still shrink, so slow bookings shed search and admin traffic before bookings themselves. On top of that,
+ * {@code max-concurrency} caps all routes together; when a slot frees, queued bookings go first, then
+ * lookups, search and admin, and a new request never jumps a queue of a higher-priority route.
+ *
+ * <p>A request whose route queue is full is rejected at once with 429; one that waits longer than
+ * {@code max-wait} gets 503. Both carry {@code Retry-After}. Disabled with {@code enabled=false}.
+ */
+@Component
+public class AdmissionControl {
+
+  public static final String LIMIT = "flight.admission.limit";
+  public static final String IN_FLIGHT = "flight.admission.in.flight";
+  public static final String QUEUED = "flight.admission.queued";
+  public static final String REJECTED = "flight.admission.rejected";
+  public static final String QUEUE_WAIT = "flight.admission.queue.wait";
+
+  static final String ERR_QUEUE_FULL = "Too many requests, try again later";
+  static final String ERR_TIMEOUT = "Service is overloaded, try again later";
+
+  private static final long DECREASE_INTERVAL_MS = 100;
+  private static final double BACKOFF = 0.9;
+
+  /** Route classes in priority order, with their default limits, queue bound and latency target. */
+  public enum Route {
+    BOOKING(8, 256, 1024, Duration.ofMillis(500)),
+    LOOKUP(4, 256, 512, Duration.ofMillis(200)),
+    SEARCH(2, 64, 128, Duration.ofMillis(500)),
+    ADMIN(1, 8, 16, Duration.ofSeconds(5));
+
+    final int min;
+    final int max;
+    final int queue;
+    final Duration latencyTarget;
+
+    Route(int min, int max, int queue, Duration latencyTarget) {
+      this.min = min;
+      this.max = max;
+      this.queue = queue;
+      this.latencyTarget = latencyTarget;
+    }
+
+    String key() {
+      return name().toLowerCase();
+    }
+  }
+
+  /** Turned away before running; carries the status and {@code Retry-After} to answer with. */
+  public static final class Rejected extends RuntimeException {
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    Rejected(HttpStatus status, String message, Duration retryAfter) {
+      super(message, null, false, false);
+      this.status = status;
+      this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus status() {
+      return status;
+    }
+
+    public Duration retryAfter() {
+      return retryAfter;
+    }
+  }
+
+  /** A running request's slot; release it exactly once when the request is done. */
+  public final class Permit {
+    private final Lane lane;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(Lane lane) {
+      this.lane = lane;
+    }
+
+    /** @param latencyNanos how long the request ran, or negative when it did not finish (cancelled) */
+    public void release(long latencyNanos) {
+      if (released.compareAndSet(false, true)) {
+        AdmissionControl.this.release(lane, latencyNanos);
+      }
+    }
+  }
+
+  private final class Waiter {
+    final Lane lane;
+    final long queuedAt = System.nanoTime();
+    MonoSink<Permit> sink;
+    // guarded by AdmissionControl.this
+    boolean settled;
+    Permit permit;
+
+    Waiter(Lane lane) {
+      this.lane = lane;
+    }
+  }
+
+  private final class Lane {
+    final Route route;
+    final int min;
+    final int max;
+    final int maxQueue;
+    final long targetNanos;
+    final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    final Counter queueFull;
+    final Counter timedOut;
+    final Timer queueWait;
+    // guarded by AdmissionControl.this; read without it by the gauges
+    volatile double limit;
+    volatile int inFlight;
+    long lastDecrease;
+
+    Lane(Route route, Environment env, MeterRegistry registry) {
+      String prefix = "flight.admission." + route.key() + ".";
+      this.route = route;
+      this.min = Math.max(1, property(env, prefix + "min-limit", Integer.class, route.min));
+      this.max = Math.max(min, property(env, prefix + "max-limit", Integer.class, route.max));
+      this.maxQueue = Math.max(0, property(env, prefix + "queue", Integer.class, route.queue));
+      this.targetNanos = property(env, prefix + "latency-target", Duration.class, route.latencyTarget).toNanos();
+      this.limit = max;
+      Gauge.builder(LIMIT, this, lane -> lane.limit)
+          .description("Current concurrency limit of a route class")
+          .tag("route", route.key())
+          .register(registry);
+      Gauge.builder(IN_FLIGHT, this, lane -> lane.inFlight)
+          .description("Requests of a route class running now")
+          .tag("route", route.key())
+          .register(registry);
+      Gauge.builder(QUEUED, this, lane -> lane.queue.size())
+          .description("Requests of a route class waiting for a slot")
+          .tag("route", route.key())
+          .register(registry);
+      this.queueFull = rejected(registry, route, "queue_full");
+      this.timedOut = rejected(registry, route, "timeout");
+      this.queueWait = Timer.builder(QUEUE_WAIT)
+          .description("Time admitted requests waited for a slot")
+          .tag("route", route.key())
+          .register(registry);
+    }
+
+    boolean hasRoom() {
+      return inFlight < (int) limit && totalInFlight < maxConcurrency;
+    }
+  }
+
+  private final boolean enabled;
+  private final int maxConcurrency;
+  private final Duration maxWait;
+  private final Duration retryAfter;
+  private final Lane[] lanes;
+  // guarded by this
+  private int totalInFlight;
+
+  public AdmissionControl(Environment env, MeterRegistry registry,
+      @Value("${flight.admission.enabled:true}") boolean enabled,
+      @Value("${flight.admission.max-concurrency:200}") int maxConcurrency,
+      @Value("${flight.admission.max-wait:2s}") Duration maxWait,
+      @Value("${flight.admission.retry-after:1s}") Duration retryAfter) {
+    this.enabled = enabled;
+    this.maxConcurrency = Math.max(1, maxConcurrency);
+    this.maxWait = maxWait;
+    this.retryAfter = retryAfter;
+    this.lanes = new Lane[Route.values().length];
+    for (Route route : Route.values()) {
+      lanes[route.ordinal()] = new Lane(route, env, registry);
+    }
+  }
+
+  private static <T> T property(Environment env, String key, Class<T> type, T defaultValue) {
+    return env == null ? defaultValue : env.getProperty(key, type, defaultValue);
+  }
+
+  private static Counter rejected(MeterRegistry registry, Route route, String reason) {
+    return Counter.builder(REJECTED)
+        .description("Requests turned away by admission control")
+        .tag("route", route.key())
+        .tag("reason", reason)
+        .register(registry);
+  }
+
+  public static AdmissionControl disabled() {
+    return new AdmissionControl(null, new CompositeMeterRegistry(), false, 1, Duration.ZERO, Duration.ZERO);
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /** Current limit of a route class, for tests and diagnostics. */
+  public int limit(Route route) {
+    return (int) lanes[route.ordinal()].limit;
+  }
+
+  /**
+   * A slot for one request: right away when there is room, after waiting in the route's queue otherwise.
+   * Fails with {@link Rejected} when the queue is full or the wait exceeds {@code max-wait}.
+   */
+  public Mono<Permit> acquire(Route route) {
+    return Mono.defer(() -> {
+      Lane lane = lanes[route.ordinal()];
+      Waiter waiter;
+      synchronized (this) {
+        if (lane.queue.isEmpty() && !higherPriorityWaiting(lane) && lane.hasRoom()) {
+          return Mono.just(take(lane));
+        }
+        if (lane.queue.size() >= lane.maxQueue) {
+          lane.queueFull.increment();
+          return Mono.error(new Rejected(HttpStatus.TOO_MANY_REQUESTS, ERR_QUEUE_FULL, retryAfter));
+        }
+        waiter = new Waiter(lane);
+        lane.queue.add(waiter);
+      }
+      return Mono.<Permit>create(sink -> {
+            sink.onCancel(() -> abandon(waiter));
+            Permit granted;
+            synchronized (this) {
+              waiter.sink = sink;
+              granted = waiter.permit;
+            }
+            // granted before the sink was attached
+            if (granted != null) {
+              sink.success(granted);
+            }
+          })
+          .timeout(maxWait)
+          .onErrorMap(TimeoutException.class, err -> {
+            lane.timedOut.increment();
+            return new Rejected(HttpStatus.SERVICE_UNAVAILABLE, ERR_TIMEOUT, retryAfter);
+          })
+          .doOnNext(permit -> lane.queueWait.record(System.nanoTime() - waiter.queuedAt, TimeUnit.NANOSECONDS));
+    });
+  }
+
+  private boolean higherPriorityWaiting(Lane lane) {
+    for (int i = 0; i < lane.route.ordinal(); i++) {
+      if (!lanes[i].queue.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Permit take(Lane lane) {
+    lane.inFlight++;
+    totalInFlight++;
+    return new Permit(lane);
+  }
+
+  private void abandon(Waiter waiter) {
+    Permit granted;
+    synchronized (this) {
+      if (!waiter.settled) {
+        waiter.settled = true;
+        waiter.lane.queue.remove(waiter);
+        return;
+      }
+      granted = waiter.permit;
+    }
+    // handed a slot just as it gave up waiting
+    granted.release(-1);
+  }
+
+  private void release(Lane lane, long latencyNanos) {
+    List<Waiter> granted = new ArrayList<>();
+    synchronized (this) {
+      boolean limitInUse = lane.inFlight * 2 >= lane.limit;
+      lane.inFlight--;
+      totalInFlight--;
+      if (latencyNanos >= 0) {
+        adapt(lane, latencyNanos, limitInUse);
+      }
+      for (Lane next : lanes) {
+        while (!next.queue.isEmpty() && next.hasRoom()) {
+          Waiter waiter = next.queue.poll();
+          waiter.settled = true;
+          waiter.permit = take(next);
+          if (waiter.sink != null) {
+            granted.add(waiter);
+          }
+        }
+      }
+    }
+    granted.forEach(waiter -> waiter.sink.success(waiter.permit));
+  }
+
+  private void adapt(Lane lane, long latencyNanos, boolean limitInUse) {
+    if (latencyNanos <= lane.targetNanos) {
+      if (limitInUse) {
+        lane.limit = Math.min(lane.max, lane.limit + 1 / lane.limit);
+      }
+      return;
+    }
+    Lane shed = lane;
+    for (int i = lanes.length - 1; i > lane.route.ordinal(); i--) {
+      if (lanes[i].limit > lanes[i].min) {
+        shed = lanes[i];
+        break;
+      }
+    }
+    long now = System.currentTimeMillis();
+    if (now - shed.lastDecrease >= DECREASE_INTERVAL_MS) {
+      shed.limit = Math.max(shed.min, shed.limit * BACKOFF);
+      shed.lastDecrease = now;
+    }
+  }
+}
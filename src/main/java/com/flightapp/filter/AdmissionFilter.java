@@ -0,0 +1,84 @@
+package com.flightapp.filter;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.flightapp.filter.AdmissionControl.Rejected;
+import com.flightapp.filter.AdmissionControl.Route;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Runs every API request through {@link AdmissionControl}. Bookings, cancels, updates and holds are
+ * {@link Route#BOOKING}; ticket, seat map and history reads {@link Route#LOOKUP}; searches
+ * {@link Route#SEARCH}; inventory uploads and cache administration {@link Route#ADMIN}. Seat streams and
+ * actuator endpoints are not limited: a stream holds its connection for minutes and probes must answer
+ * under load.
+ */
+@Component
+public class AdmissionFilter implements WebFilter {
+
+  static final String RETRY_AFTER = HttpHeaders.RETRY_AFTER;
+
+  private static final String API = "/api/flight/";
+
+  private final AdmissionControl admission;
+
+  public AdmissionFilter(AdmissionControl admission) {
+    this.admission = admission;
+  }
+
+  /** Route class of a request, or null when it is not limited. */
+  static Route classify(HttpMethod method, String path) {
+    if (!path.startsWith(API) || path.endsWith("/seats/stream")) {
+      return null;
+    }
+    String rest = path.substring(API.length());
+    if (rest.startsWith("search")) {
+      return Route.SEARCH;
+    }
+    if (rest.startsWith("booking/")) {
+      return HttpMethod.GET.equals(method) ? Route.LOOKUP : Route.BOOKING;
+    }
+    if (rest.startsWith("ticket/") || (HttpMethod.GET.equals(method) && rest.endsWith("/seats"))) {
+      return Route.LOOKUP;
+    }
+    return Route.ADMIN;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    Route route = admission.enabled()
+        ? classify(exchange.getRequest().getMethod(), exchange.getRequest().getPath().value())
+        : null;
+    if (route == null) {
+      return chain.filter(exchange);
+    }
+    return admission.acquire(route)
+        .onErrorResume(Rejected.class, rejected -> reject(exchange.getResponse(), rejected).then(Mono.empty()))
+        .flatMap(permit -> {
+          long start = System.nanoTime();
+          return chain.filter(exchange)
+              .doFinally(signal -> permit.release(signal == SignalType.CANCEL ? -1 : System.nanoTime() - start));
+        });
+  }
+
+  private static Mono<Void> reject(ServerHttpResponse response, Rejected rejected) {
+    long seconds = Math.max(1, (rejected.retryAfter().toMillis() + 999) / 1000);
+    response.setStatusCode(rejected.status());
+    response.getHeaders().set(RETRY_AFTER, String.valueOf(seconds));
+    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    // same shape as GlobalErrorHandler's bodies; the message is a constant, so no escaping is needed
+    byte[] body = ("{\"error\":\"" + rejected.getMessage() + "\"}").getBytes(StandardCharsets.UTF_8);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+  }
+}
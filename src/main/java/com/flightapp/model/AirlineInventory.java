@@ -1,9 +1,11 @@
 package com.flightapp.model;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -13,6 +15,14 @@ import lombok.Data;
 @Data
 @Document(collection = "inventories")
 public class AirlineInventory {
+  /** Route, departure, price and free seat count: fare calendars are read from this index alone. */
+  public static final String FARE_INDEX = "origin_1_destination_1_departure_1_price_1_seatMap.available_1";
+  /**
+   * How long a flight remembers the id of a seat release applied to it, so that a retried or recovered
+   * release is never applied twice. Releases still pending after this long are not replayed any more.
+   */
+  public static final Duration RELEASE_MEMORY = Duration.ofDays(7);
+
   @Id
   private String id;            
 
@@ -43,5 +53,19 @@ public class AirlineInventory {
   @Positive(message = "Price must be positive")
   private double price;
 
-  private List<String> availableSeats; 
-}
\ No newline at end of file
+  // persisted form of seat availability; clients keep seeing the availableSeats list
+  @JsonIgnore
+  private SeatMap seatMap;
+
+  // ids of the seat releases applied to this flight within RELEASE_MEMORY
+  @JsonIgnore
+  private List<String> recentReleases;
+
+  public List<String> getAvailableSeats() {
+    return seatMap == null ? null : seatMap.toLabels();
+  }
+
+  public void setAvailableSeats(List<String> availableSeats) {
+    this.seatMap = availableSeats == null ? null : SeatMap.fromLabels(totalSeats, availableSeats);
+  }
+}
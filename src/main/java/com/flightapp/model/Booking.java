@@ -1,15 +1,27 @@
 package com.flightapp.model;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 
 @Data
 @Document(collection = "bookings")
 public class Booking {
+/** Name of the unique index on {@code pnr}; duplicate key errors naming it mean the generated PNR collided. */
+public static final String PNR_INDEX = "pnr_unique";
+/** Case-insensitive comparison for email lookups; queries must use it to hit the email index. */
+public static final String EMAIL_COLLATION = "{ 'locale' : 'en', 'strength' : 2 }";
+public static final String EMAIL_INDEX = "email_ci_journeyDate_id_desc";
+/** Partial index over the bookings with released seats that are not back on the flight yet, by flight. */
+public static final String PENDING_RELEASE_INDEX = "flightId_pendingReleases_releaseId_pending";
+/** Partial index over the bookings with undelivered outbox events, ordered by event id. */
+public static final String OUTBOX_INDEX = "outbox_eventId_pending";
 @Id
 private String id;
 private String pnr;
@@ -22,5 +34,50 @@ private boolean mealVeg;
 private LocalDateTime bookedAt;
 private boolean canceled = false;
 private LocalDateTime canceledAt;   
+// seats given up by a cancellation or seat change and not back on the flight yet
+@JsonIgnore
+private List<PendingRelease> pendingReleases;
+// changes not yet relayed downstream, oldest first; written together with the change itself
+@JsonIgnore
+private List<OutboxEntry> outbox;
 private LocalDateTime journeyDate;
-}
\ No newline at end of file
+
+/** A copy sharing nothing mutable with this booking, for callers that keep one around while handing others out. */
+public Booking copy() {
+  Booking copy = new Booking();
+  copy.setId(id);
+  copy.setPnr(pnr);
+  copy.setFlightId(flightId);
+  copy.setEmail(email);
+  copy.setName(name);
+  copy.setPassengers(passengers == null ? null : passengers.stream().map(p -> {
+    Passenger passenger = new Passenger();
+    passenger.setName(p.getName());
+    passenger.setGender(p.getGender());
+    passenger.setAge(p.getAge());
+    return passenger;
+  }).collect(Collectors.toCollection(ArrayList::new)));
+  copy.setSeatNumbers(seatNumbers == null ? null : new ArrayList<>(seatNumbers));
+  copy.setMealVeg(mealVeg);
+  copy.setBookedAt(bookedAt);
+  copy.setCanceled(canceled);
+  copy.setCanceledAt(canceledAt);
+  copy.setPendingReleases(pendingReleases == null ? null : pendingReleases.stream().map(r -> {
+    PendingRelease release = new PendingRelease();
+    release.setReleaseId(r.getReleaseId());
+    release.setSeatNumbers(r.getSeatNumbers() == null ? null : new ArrayList<>(r.getSeatNumbers()));
+    release.setRequestedAt(r.getRequestedAt());
+    return release;
+  }).collect(Collectors.toCollection(ArrayList::new)));
+  copy.setOutbox(outbox == null ? null : outbox.stream().map(e -> {
+    OutboxEntry entry = new OutboxEntry();
+    entry.setEventId(e.getEventId());
+    entry.setType(e.getType());
+    entry.setOccurredAt(e.getOccurredAt());
+    entry.setSeatNumbers(e.getSeatNumbers() == null ? null : new ArrayList<>(e.getSeatNumbers()));
+    return entry;
+  }).collect(Collectors.toCollection(ArrayList::new)));
+  copy.setJourneyDate(journeyDate);
+  return copy;
+}
+}
@@ -0,0 +1,29 @@
+package com.flightapp.model;
+
+import java.time.LocalDateTime;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+
+/**
+ * Outcome of a request sent with an {@code Idempotency-Key}, so a retry gets the same answer instead of running
+ * again. The id is the operation and the key; the record is inserted before the request runs and completed with
+ * the booking or the business error it ended with. Mongo removes it at {@code expiresAt} through a TTL index.
+ */
+@Data
+@Document(collection = "idempotencyKeys")
+public class IdempotencyRecord {
+/** TTL index on {@code expiresAt}; documents are removed once that time has passed. */
+public static final String EXPIRY_INDEX = "expiresAt_ttl";
+@Id
+private String id;
+/** Hash of what the request asked for; the same key with a different request is rejected. */
+private String fingerprint;
+private boolean completed;
+private Booking booking;
+/** Simple name of the business exception the request was rejected with, if any. */
+private String errorType;
+private String errorMessage;
+private LocalDateTime createdAt;
+private LocalDateTime expiresAt;
+}
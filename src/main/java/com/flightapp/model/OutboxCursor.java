@@ -0,0 +1,22 @@
+package com.flightapp.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+
+/**
+ * Where a relay stands in the outbox. {@code token} is the id of the last event its sink accepted;
+ * {@code delivered} lists the events of that last batch, so a relay restarting before it removed them from
+ * their bookings does not hand them over a second time.
+ */
+@Data
+@Document(collection = "outboxCursors")
+public class OutboxCursor {
+  @Id
+  private String id;
+  private String token;
+  private List<String> delivered;
+  private LocalDateTime deliveredAt;
+}
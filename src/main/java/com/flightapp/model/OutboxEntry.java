@@ -0,0 +1,31 @@
+package com.flightapp.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.bson.types.ObjectId;
+import lombok.Data;
+
+/**
+ * A booking change not yet handed to downstream systems. Kept in the booking's own outbox and written in the
+ * same document write as the change, so the change and its event are stored together or not at all. Event
+ * ids are ObjectIds: they sort by creation time, which is the order the relay delivers them in.
+ */
+@Data
+public class OutboxEntry {
+  public enum Type { BOOKED, UPDATED, CANCELLED }
+
+  private String eventId;
+  private Type type;
+  private LocalDateTime occurredAt;
+  /** Seats of the booking after the change; for a cancellation, the seats it gave up. */
+  private List<String> seatNumbers;
+
+  public static OutboxEntry of(Type type, List<String> seatNumbers, LocalDateTime occurredAt) {
+    OutboxEntry entry = new OutboxEntry();
+    entry.setEventId(new ObjectId().toHexString());
+    entry.setType(type);
+    entry.setOccurredAt(occurredAt);
+    entry.setSeatNumbers(seatNumbers == null ? List.of() : List.copyOf(seatNumbers));
+    return entry;
+  }
+}
@@ -0,0 +1,36 @@
+package com.flightapp.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import org.bson.types.ObjectId;
+import lombok.Data;
+
+/**
+ * Seats a booking gave up, by cancellation or seat change, that are not back on the flight yet. Saved by the
+ * same write as the change and removed once the release is applied, so a release lost to a crash or to
+ * failures past the last retry stays on record for the recovery sweep. Release ids are ObjectIds and sort by
+ * the time the release was requested.
+ */
+@Data
+public class PendingRelease {
+  private String releaseId;
+  private List<String> seatNumbers;
+  private LocalDateTime requestedAt;
+
+  /**
+   * Lowest possible id of a release requested at or after {@code time}: ids compare as strings in the order
+   * of the second they were drawn in.
+   */
+  public static String idsFrom(LocalDateTime time) {
+    return String.format("%08x", time.atZone(ZoneId.systemDefault()).toEpochSecond());
+  }
+
+  public static PendingRelease of(List<String> seatNumbers, LocalDateTime requestedAt) {
+    PendingRelease release = new PendingRelease();
+    release.setReleaseId(new ObjectId().toHexString());
+    release.setSeatNumbers(List.copyOf(seatNumbers));
+    release.setRequestedAt(requestedAt);
+    return release;
+  }
+}
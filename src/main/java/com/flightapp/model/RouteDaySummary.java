@@ -0,0 +1,99 @@
+package com.flightapp.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+/**
+ * Flights of one route departing on one day, copied out of the inventories without their seat maps, so a
+ * route search or a calendar reads one small document per day instead of every flight document. The day
+ * totals ({@code flightCount}, seat counts, {@code minPrice}) are recomputed from the flights on every
+ * change. The id is {@code origin:destination:yyyy-MM-dd}, so the days of a route sort in date order and a
+ * date range is an {@code _id} range.
+ */
+@Data
+@Document(collection = "routeDays")
+public class RouteDaySummary {
+  /** Index seat changes go through, they only know the flight id. */
+  public static final String FLIGHT_INDEX = "flights.flightId_1";
+
+  /** Flights in departure order, ties broken by id. */
+  public static final Comparator<Flight> ORDER =
+      Comparator.comparing(Flight::getDeparture).thenComparing(Flight::getFlightId);
+
+  @Id
+  private String id;
+  private String origin;
+  private String destination;
+  private LocalDate day;
+  private int flightCount;
+  private int totalSeats;
+  private int availableSeats;
+  /** Cheapest flight that still has a free seat; null when the day is sold out. */
+  private Double minPrice;
+  private List<Flight> flights;
+
+  @Data
+  public static class Flight {
+    private String flightId;
+    private String airline;
+    private String airlineLogoUrl;
+    private String flightNumber;
+    private LocalDateTime departure;
+    private LocalDateTime arrival;
+    private double price;
+    private int totalSeats;
+    private int availableSeats;
+
+    public static Flight of(AirlineInventory inventory) {
+      Flight flight = new Flight();
+      flight.setFlightId(inventory.getId());
+      flight.setAirline(inventory.getAirline());
+      flight.setAirlineLogoUrl(inventory.getAirlineLogoUrl());
+      flight.setFlightNumber(inventory.getFlightNumber());
+      flight.setDeparture(inventory.getDeparture());
+      flight.setArrival(inventory.getArrival());
+      flight.setPrice(inventory.getPrice());
+      flight.setTotalSeats(inventory.getTotalSeats());
+      flight.setAvailableSeats(inventory.getSeatMap() == null
+          ? inventory.getTotalSeats() : inventory.getSeatMap().availableCount());
+      return flight;
+    }
+  }
+
+  public static String idOf(String origin, String destination, LocalDate day) {
+    return origin + ':' + destination + ':' + day;
+  }
+
+  public static String idOf(AirlineInventory inventory) {
+    return idOf(inventory.getOrigin(), inventory.getDestination(), inventory.getDeparture().toLocalDate());
+  }
+
+  public static RouteDaySummary of(String origin, String destination, LocalDate day, List<Flight> flights) {
+    RouteDaySummary summary = new RouteDaySummary();
+    summary.setId(idOf(origin, destination, day));
+    summary.setOrigin(origin);
+    summary.setDestination(destination);
+    summary.setDay(day);
+    summary.setFlights(new ArrayList<>(flights));
+    summary.recount();
+    return summary;
+  }
+
+  /** Puts the flights in {@link #ORDER} and recomputes the day totals from them. */
+  public void recount() {
+    flights.sort(ORDER);
+    flightCount = flights.size();
+    totalSeats = flights.stream().mapToInt(Flight::getTotalSeats).sum();
+    availableSeats = flights.stream().mapToInt(Flight::getAvailableSeats).sum();
+    minPrice = flights.stream().filter(flight -> flight.getAvailableSeats() > 0)
+        .map(Flight::getPrice).min(Double::compare).orElse(null);
+  }
+}
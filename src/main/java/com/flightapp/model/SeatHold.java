@@ -0,0 +1,31 @@
+package com.flightapp.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+
+/**
+ * Seats taken out of a flight's seat map for one user until {@code expiresAt}. The id is the hold token the
+ * user confirms with. A confirmed hold is removed; one given up is marked releasing and only deleted once
+ * its seats are back on the flight, so the collection has live holds and those being released.
+ */
+@Data
+@Document(collection = "seatHolds")
+public class SeatHold {
+/** Index the expiry sweep reads from; it only ever touches holds that have expired. */
+public static final String EXPIRY_INDEX = "expiresAt_1";
+@Id
+private String id;
+private String flightId;
+private String email;
+private List<String> seatNumbers;
+private LocalDateTime journeyDate;
+private LocalDateTime createdAt;
+private LocalDateTime expiresAt;
+/** Id the seats are released under, so a release retried after a lost reply is applied once. */
+private String releaseId;
+/** Set once the seats are being given back; nothing can take the hold any more. */
+private boolean releasing;
+}
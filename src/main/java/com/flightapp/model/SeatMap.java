@@ -0,0 +1,196 @@
+package com.flightapp.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Seat availability for one flight as a bitset: bit {@code i-1} is set while seat "S{i}" is free.
+ * Stored in Mongo as an array of 64-bit words so single seats can be tested and flipped in place.
+ */
+public final class SeatMap {
+
+  public static final String SEAT_PREFIX = "S";
+  public static final int MAX_SEATS = 10_000;
+  private static final int WORD_BITS = 64;
+
+  private final int capacity;
+  private final long[] words;
+
+  private SeatMap(int capacity, long[] words) {
+    this.capacity = capacity;
+    this.words = words;
+  }
+
+  /** Every seat from S1 to S{capacity} free. */
+  public static SeatMap allAvailable(int capacity) {
+    long[] words = new long[wordCount(capacity)];
+    Arrays.fill(words, -1L);
+    int tail = capacity % WORD_BITS;
+    if (tail != 0) {
+      words[words.length - 1] = (1L << tail) - 1;
+    }
+    return new SeatMap(capacity, words);
+  }
+
+  /**
+   * Builds a map from seat labels. Labels that are not of the form "S{n}" cannot be represented and are skipped.
+   */
+  public static SeatMap fromLabels(int capacity, Collection<String> labels) {
+    int cap = capacity;
+    for (String label : labels) {
+      cap = Math.max(cap, indexOf(label) + 1);
+    }
+    SeatMap map = new SeatMap(cap, new long[wordCount(cap)]);
+    for (String label : labels) {
+      int idx = indexOf(label);
+      if (idx >= 0) {
+        map.words[idx / WORD_BITS] |= 1L << idx;
+      }
+    }
+    return map;
+  }
+
+  public static SeatMap fromWords(int capacity, long[] words) {
+    return new SeatMap(capacity, Arrays.copyOf(words, wordCount(capacity)));
+  }
+
+  /** Zero based seat index for a label, or -1 when the label is not a seat number. */
+  public static int indexOf(String label) {
+    if (label == null || label.length() < 2 || !label.startsWith(SEAT_PREFIX)) {
+      return -1;
+    }
+    int n = 0;
+    for (int i = 1; i < label.length(); i++) {
+      char c = label.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      n = n * 10 + (c - '0');
+      if (n > MAX_SEATS) {
+        return -1;
+      }
+    }
+    return n > 0 ? n - 1 : -1;
+  }
+
+  public static String labelOf(int index) {
+    return SEAT_PREFIX + (index + 1);
+  }
+
+  /**
+   * Groups seats by storage word: word index to the bit positions inside it. Returns null if any label is not a seat.
+   */
+  public static Map<Integer, List<Integer>> bitsByWord(Collection<String> labels) {
+    Map<Integer, List<Integer>> byWord = new TreeMap<>();
+    for (String label : labels) {
+      int idx = indexOf(label);
+      if (idx < 0) {
+        return null;
+      }
+      byWord.computeIfAbsent(idx / WORD_BITS, w -> new ArrayList<>()).add(idx % WORD_BITS);
+    }
+    return byWord;
+  }
+
+  public static long maskOf(Collection<Integer> bits) {
+    long mask = 0L;
+    for (int bit : bits) {
+      mask |= 1L << bit;
+    }
+    return mask;
+  }
+
+  private static int wordCount(int capacity) {
+    return (Math.max(capacity, 0) + WORD_BITS - 1) / WORD_BITS;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public long[] getWords() {
+    return words.clone();
+  }
+
+  public boolean isAvailable(String label) {
+    int idx = indexOf(label);
+    return idx >= 0 && idx < capacity && (words[idx / WORD_BITS] & (1L << idx)) != 0;
+  }
+
+  public boolean containsAll(Collection<String> labels) {
+    for (String label : labels) {
+      if (!isAvailable(label)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Marks all seats taken if every one of them is free; otherwise leaves the map untouched. */
+  public boolean claim(Collection<String> labels) {
+    if (!containsAll(labels)) {
+      return false;
+    }
+    for (String label : labels) {
+      int idx = indexOf(label);
+      words[idx / WORD_BITS] &= ~(1L << idx);
+    }
+    return true;
+  }
+
+  /** Marks seats free again. Unknown labels and seats beyond capacity are ignored. */
+  public void release(Collection<String> labels) {
+    for (String label : labels) {
+      int idx = indexOf(label);
+      if (idx >= 0 && idx < capacity) {
+        words[idx / WORD_BITS] |= 1L << idx;
+      }
+    }
+  }
+
+  public int availableCount() {
+    int count = 0;
+    for (long w : words) {
+      count += Long.bitCount(w);
+    }
+    return count;
+  }
+
+  public List<String> toLabels() {
+    List<String> labels = new ArrayList<>(availableCount());
+    for (int w = 0; w < words.length; w++) {
+      long word = words[w];
+      while (word != 0) {
+        int bit = Long.numberOfTrailingZeros(word);
+        labels.add(labelOf(w * WORD_BITS + bit));
+        word &= word - 1;
+      }
+    }
+    return labels;
+  }
+
+  public SeatMap copy() {
+    return new SeatMap(capacity, words.clone());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof SeatMap other)) return false;
+    return capacity == other.capacity && Arrays.equals(words, other.words);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * capacity + Arrays.hashCode(words);
+  }
+
+  @Override
+  public String toString() {
+    return "SeatMap[capacity=" + capacity + ", available=" + availableCount() + "]";
+  }
+}
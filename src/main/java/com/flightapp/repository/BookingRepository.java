@@ -2,10 +2,13 @@ package com.flightapp.repository;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import org.springframework.data.mongodb.core.annotation.Collation;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import com.flightapp.model.Booking;
 
-public interface BookingRepository extends ReactiveCrudRepository<Booking, String> {
+public interface BookingRepository extends ReactiveCrudRepository<Booking, String>, BookingRepositoryCustom {
   Mono<Booking> findByPnr(String pnr);
+  @Collation(Booking.EMAIL_COLLATION)
   Flux<Booking> findByEmail(String email);
+  Flux<Booking> findByFlightIdAndCanceledFalse(String flightId);
 }
\ No newline at end of file
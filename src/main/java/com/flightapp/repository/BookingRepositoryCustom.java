@@ -0,0 +1,59 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+import com.flightapp.dto.BookingHistoryItem;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.model.Booking;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Booking queries that need a projection or a collation the derived finders cannot express.
+ */
+public interface BookingRepositoryCustom {
+
+  /**
+   * History rows of one email (case-insensitive), newest journey first with the id breaking ties, starting
+   * after {@code after} (null for the first row). Served by the email index with no in-memory sort.
+   *
+   * @param canceled only cancelled (true) or only active (false) bookings; null for both
+   * @param from     inclusive lower bound on the journey date, or null
+   * @param to       exclusive upper bound on the journey date, or null
+   * @param limit    maximum rows, 0 for no limit
+   */
+  Flux<BookingHistoryItem> findHistory(String email, Boolean canceled, LocalDateTime from, LocalDateTime to,
+      HistoryCursor after, int limit);
+
+  /**
+   * Bookings with seat releases that are not applied yet, read through the partial pending release index.
+   * Only the flight and the pending releases are read.
+   */
+  Flux<Booking> findWithPendingReleases();
+
+  /** Like {@link #findWithPendingReleases()}, for the bookings of one flight only. */
+  Flux<Booking> findWithPendingReleases(String flightId);
+
+  /**
+   * Removes applied releases from their bookings, in one unordered bulk write.
+   *
+   * @return number of bookings modified
+   */
+  Mono<Long> removeReleases(Map<String, ? extends Collection<String>> releaseIdsByBooking);
+
+  /**
+   * Bookings with undelivered outbox events, the one with the oldest event first, at most {@code limit}.
+   * Served by the partial outbox index; only the fields an event carries are read.
+   */
+  Flux<Booking> findWithPendingEvents(int limit);
+
+  /**
+   * Removes delivered events from the outboxes of their bookings, in one unordered bulk write.
+   *
+   * @return number of bookings modified
+   */
+  Mono<Long> removeEvents(Map<String, ? extends Collection<String>> eventIdsByBooking);
+}
@@ -0,0 +1,117 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.flightapp.dto.BookingHistoryItem;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.model.Booking;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class BookingRepositoryCustomImpl implements BookingRepositoryCustom {
+
+  private static final Collation EMAIL_COLLATION = Collation.parse(Booking.EMAIL_COLLATION);
+  private static final String COLLECTION = "bookings";
+  private static final String PENDING_RELEASES = "pendingReleases";
+  private static final String PENDING_RELEASE_ID = PENDING_RELEASES + ".releaseId";
+  private static final String OUTBOX = "outbox";
+  private static final String OUTBOX_EVENT_ID = OUTBOX + ".eventId";
+  private static final String[] EVENT_FIELDS = {"pnr", "email", "flightId", "journeyDate", OUTBOX};
+  private static final String[] HISTORY_FIELDS = {
+      "pnr", "name", "email", "flightId", "journeyDate", "seatNumbers", "canceled", "canceledAt"};
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  public BookingRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public Flux<BookingHistoryItem> findHistory(String email, Boolean canceled, LocalDateTime from,
+      LocalDateTime to, HistoryCursor after, int limit) {
+    Criteria criteria = Criteria.where("email").is(email);
+    if (from != null || to != null) {
+      Criteria journey = criteria.and("journeyDate");
+      if (from != null) journey.gte(from);
+      if (to != null) journey.lt(to);
+    }
+    if (canceled != null) {
+      criteria.and("canceled").is(canceled);
+    }
+    if (after != null) {
+      // strictly older than (journeyDate, id)
+      criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+          Criteria.where("journeyDate").lt(after.journeyDate()),
+          Criteria.where("journeyDate").is(after.journeyDate()).and("id").lt(after.id())));
+    }
+
+    Query query = new Query(criteria)
+        .collation(EMAIL_COLLATION)
+        .with(Sort.by(Sort.Direction.DESC, "journeyDate", "id"));
+    if (limit > 0) {
+      query.limit(limit);
+    }
+    // passengers and the rest of the booking never leave the server
+    query.fields().include(HISTORY_FIELDS);
+
+    return mongoTemplate.find(query, BookingHistoryItem.class, COLLECTION);
+  }
+
+  @Override
+  public Flux<Booking> findWithPendingReleases() {
+    Query query = new Query(Criteria.where(PENDING_RELEASE_ID).exists(true)).withHint(Booking.PENDING_RELEASE_INDEX);
+    query.fields().include("flightId", PENDING_RELEASES);
+    return mongoTemplate.find(query, Booking.class);
+  }
+
+  @Override
+  public Flux<Booking> findWithPendingReleases(String flightId) {
+    Query query = new Query(Criteria.where("flightId").is(flightId).and(PENDING_RELEASE_ID).exists(true))
+        .withHint(Booking.PENDING_RELEASE_INDEX);
+    query.fields().include("flightId", PENDING_RELEASES);
+    return mongoTemplate.find(query, Booking.class);
+  }
+
+  @Override
+  public Mono<Long> removeReleases(Map<String, ? extends Collection<String>> releaseIdsByBooking) {
+    return pull(PENDING_RELEASES, "releaseId", releaseIdsByBooking);
+  }
+
+  @Override
+  public Flux<Booking> findWithPendingEvents(int limit) {
+    Query query = new Query(Criteria.where(OUTBOX_EVENT_ID).exists(true))
+        .with(Sort.by(OUTBOX_EVENT_ID))
+        .limit(limit)
+        .withHint(Booking.OUTBOX_INDEX);
+    query.fields().include(EVENT_FIELDS);
+    return mongoTemplate.find(query, Booking.class);
+  }
+
+  @Override
+  public Mono<Long> removeEvents(Map<String, ? extends Collection<String>> eventIdsByBooking) {
+    return pull(OUTBOX, "eventId", eventIdsByBooking);
+  }
+
+  /** Pulls the entries of an embedded list whose {@code key} is listed for their booking. */
+  private Mono<Long> pull(String list, String key, Map<String, ? extends Collection<String>> idsByBooking) {
+    if (idsByBooking.isEmpty()) {
+      return Mono.just(0L);
+    }
+    var bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Booking.class);
+    idsByBooking.forEach((bookingId, ids) -> bulk.updateOne(
+        new Query(Criteria.where("id").is(bookingId)),
+        new Update().pull(list, new Query(Criteria.where(key).in(ids)))));
+    return bulk.execute().map(result -> (long) result.getModifiedCount());
+  }
+}
@@ -0,0 +1,8 @@
+package com.flightapp.repository;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import com.flightapp.model.IdempotencyRecord;
+
+public interface IdempotencyRepository extends ReactiveCrudRepository<IdempotencyRecord, String>,
+    IdempotencyRepositoryCustom {
+}
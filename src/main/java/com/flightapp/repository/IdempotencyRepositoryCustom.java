@@ -0,0 +1,18 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+
+import com.flightapp.model.IdempotencyRecord;
+
+import reactor.core.publisher.Mono;
+
+public interface IdempotencyRepositoryCustom {
+
+  /**
+   * Inserts the record unless a live one with the same id exists; one that expired by {@code now} but was not
+   * removed yet is replaced.
+   *
+   * @return true if this caller now owns the key
+   */
+  Mono<Boolean> claim(IdempotencyRecord record, LocalDateTime now);
+}
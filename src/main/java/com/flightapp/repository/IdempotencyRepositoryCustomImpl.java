@@ -0,0 +1,34 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.flightapp.model.IdempotencyRecord;
+
+import reactor.core.publisher.Mono;
+
+public class IdempotencyRepositoryCustomImpl implements IdempotencyRepositoryCustom {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  public IdempotencyRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  /**
+   * One upsert matching only an expired record: a live record makes the upsert insert a second document with
+   * the same id, which the _id index rejects. The TTL monitor only runs once a minute, hence the replace.
+   */
+  @Override
+  public Mono<Boolean> claim(IdempotencyRecord record, LocalDateTime now) {
+    Query expired = new Query(Criteria.where("id").is(record.getId()).and("expiresAt").lte(now));
+    return mongoTemplate.findAndReplace(expired, record, FindAndReplaceOptions.options().upsert())
+        .thenReturn(true)
+        .onErrorResume(DuplicateKeyException.class, err -> Mono.just(false));
+  }
+}
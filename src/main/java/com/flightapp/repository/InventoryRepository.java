@@ -4,7 +4,7 @@ import reactor.core.publisher.Flux;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import com.flightapp.model.AirlineInventory;
 
-public interface InventoryRepository extends ReactiveCrudRepository<AirlineInventory, String> {
+public interface InventoryRepository extends ReactiveCrudRepository<AirlineInventory, String>, InventoryRepositoryCustom {
   Flux<AirlineInventory> findByOriginAndDestinationAndDepartureBetween(
       String origin, String destination, java.time.LocalDateTime from, java.time.LocalDateTime to);
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.flightapp.dto.FareDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.SearchCursor;
+import com.flightapp.dto.SearchSort;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Atomic seat operations that must not go through a read-modify-write of the whole inventory document.
+ */
+public interface InventoryRepositoryCustom {
+
+  /**
+   * Removes the given seats from the flight in a single conditional update. The update only matches
+   * when the flight departs after {@code now} and every requested seat is still available.
+   *
+   * @return the inventory as it was before the claim (without its seat list), or empty when nothing matched
+   */
+  Mono<AirlineInventory> claimSeats(String flightId, Collection<String> seats, LocalDateTime now);
+
+  /**
+   * Puts the given seats back into the flight's availability.
+   *
+   * @return true when the inventory document was modified
+   */
+  Mono<Boolean> releaseSeats(String flightId, Collection<String> seats);
+
+  /**
+   * Puts the given seats back and records {@code releaseIds} among the flight's recent releases, in a single
+   * conditional update. The update only matches when none of the ids is recorded yet and every seat is still
+   * taken; with no seats it only records the ids.
+   *
+   * @return the inventory as it was before the update (without its seat map), or empty when nothing matched
+   */
+  Mono<AirlineInventory> releaseSeatsOnce(String flightId, Collection<String> seats, Collection<String> releaseIds);
+
+  /**
+   * Drops the flight's recent release ids that sort before {@code idsFrom}, when it has any.
+   *
+   * @return true if any id was dropped
+   */
+  Mono<Boolean> forgetReleases(String flightId, String idsFrom);
+
+  /**
+   * Overwrites the stored seat maps of several flights in one unordered bulk write.
+   *
+   * @return number of documents matched
+   */
+  Mono<Integer> saveSeatMaps(Map<String, SeatMap> seatMapsByFlight);
+
+  /**
+   * Inserts the flights in one unordered bulk write, so a bad document does not stop the rest of the batch.
+   * Every flight must already carry its id.
+   *
+   * @return write error messages keyed by position in {@code flights}; empty when all of them were inserted
+   */
+  Mono<Map<Integer, String>> insertUnordered(List<AirlineInventory> flights);
+
+  /**
+   * Same match as {@code findByOriginAndDestinationAndDepartureBetween}, but projected so the seat words
+   * are never read; only the stored available count comes back.
+   */
+  Flux<FlightSummary> findSummaries(String origin, String destination, LocalDateTime from, LocalDateTime to);
+
+  /**
+   * Summary projection of every flight, ordered by origin, destination, departure and id along the route
+   * index, so the flights of one route and day arrive next to each other.
+   */
+  Flux<FlightSummary> findAllSummaries();
+
+  /**
+   * Lowest fare per departure day of the flights of the route leaving from {@code from} (included) to
+   * {@code to} (excluded), in day order; days without flights are absent. One aggregation covered by the
+   * (origin, destination, departure, price, available) index, so no flight document is read.
+   */
+  Flux<FareDay> findFareDays(String origin, String destination, LocalDateTime from, LocalDateTime to);
+
+  /**
+   * Keyset page of a route search ordered by {@code sort} then id, starting after {@code after} (null for
+   * the first page). Served by the (origin, destination, sort field, _id) indexes.
+   */
+  Flux<AirlineInventory> findPage(String origin, String destination, LocalDateTime from, LocalDateTime to,
+      SearchSort sort, SearchCursor after, int limit);
+
+  /** Summary projection of {@link #findPage}. */
+  Flux<FlightSummary> findSummaryPage(String origin, String destination, LocalDateTime from, LocalDateTime to,
+      SearchSort sort, SearchCursor after, int limit);
+}
@@ -0,0 +1,256 @@
+package com.flightapp.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.flightapp.config.SeatMapConverters;
+import com.flightapp.dto.FareDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.SearchCursor;
+import com.flightapp.dto.SearchSort;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+import com.mongodb.bulk.BulkWriteResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Seat updates work directly on the words of the stored {@link SeatMap}: a claim matches only when all
+ * requested bits are set and clears them with {@code $bit}, a release matches only when they are all clear.
+ */
+public class InventoryRepositoryCustomImpl implements InventoryRepositoryCustom {
+
+  private static final String SEAT_MAP = "seatMap";
+  private static final String WORDS = SEAT_MAP + "." + SeatMapConverters.WORDS + ".";
+  private static final String AVAILABLE = SEAT_MAP + "." + SeatMapConverters.AVAILABLE;
+  private static final String CAPACITY = SEAT_MAP + "." + SeatMapConverters.CAPACITY;
+  private static final String RECENT_RELEASES = "recentReleases";
+  private static final String COLLECTION = "inventories";
+  private static final String ID = "_id";
+  private static final String[] SUMMARY_FIELDS = {
+      "airline", "airlineLogoUrl", "flightNumber", "origin", "destination", "departure", "arrival", "price",
+      "totalSeats", AVAILABLE};
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  public InventoryRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public Mono<AirlineInventory> claimSeats(String flightId, Collection<String> seats, LocalDateTime now) {
+    Map<Integer, List<Integer>> bits = SeatMap.bitsByWord(seats);
+    if (bits == null || bits.isEmpty()) {
+      return Mono.empty();
+    }
+
+    Criteria criteria = Criteria.where("id").is(flightId).and("departure").gt(now);
+    Update update = new Update().inc(AVAILABLE, -seats.size());
+    bits.forEach((word, positions) -> {
+      criteria.and(WORDS + word).bits().allSet(positions);
+      update.bitwise(WORDS + word).and(~SeatMap.maskOf(positions));
+    });
+
+    Query query = new Query(criteria);
+    // the caller only needs flight details, never ship the seat map back
+    query.fields().exclude(SEAT_MAP);
+
+    return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false),
+        AirlineInventory.class);
+  }
+
+  @Override
+  public Mono<Boolean> releaseSeats(String flightId, Collection<String> seats) {
+    Map<Integer, List<Integer>> bits = SeatMap.bitsByWord(seats);
+    if (bits == null || bits.isEmpty()) {
+      return Mono.just(false);
+    }
+    int highest = seats.stream().mapToInt(SeatMap::indexOf).max().orElse(0);
+    return releaseExact(flightId, bits, seats.size(), highest)
+        .flatMap(released -> released || seats.size() == 1
+            ? Mono.just(released)
+            // some seat was already free: fall back to one guarded update per seat
+            : Flux.fromIterable(seats)
+                .concatMap(seat -> releaseExact(flightId, SeatMap.bitsByWord(List.of(seat)), 1, SeatMap.indexOf(seat)))
+                .reduce(false, Boolean::logicalOr));
+  }
+
+  private Mono<Boolean> releaseExact(String flightId, Map<Integer, List<Integer>> bits, int count, int highest) {
+    // bits past the capacity are always clear, so they have to be excluded explicitly
+    Criteria criteria = Criteria.where("id").is(flightId).and(CAPACITY).gt(highest);
+    Update update = new Update().inc(AVAILABLE, count);
+    bits.forEach((word, positions) -> {
+      criteria.and(WORDS + word).bits().allClear(positions);
+      update.bitwise(WORDS + word).or(SeatMap.maskOf(positions));
+    });
+
+    return mongoTemplate.updateFirst(new Query(criteria), update, AirlineInventory.class)
+        .map(result -> result.getModifiedCount() > 0);
+  }
+
+  @Override
+  public Mono<AirlineInventory> releaseSeatsOnce(String flightId, Collection<String> seats,
+      Collection<String> releaseIds) {
+    Criteria criteria = Criteria.where("id").is(flightId).and(RECENT_RELEASES).nin(releaseIds);
+    Update update = new Update().push(RECENT_RELEASES).each(releaseIds.toArray());
+    if (!seats.isEmpty()) {
+      criteria.and(CAPACITY).gt(seats.stream().mapToInt(SeatMap::indexOf).max().orElse(0));
+      update.inc(AVAILABLE, seats.size());
+      SeatMap.bitsByWord(seats).forEach((word, positions) -> {
+        criteria.and(WORDS + word).bits().allClear(positions);
+        update.bitwise(WORDS + word).or(SeatMap.maskOf(positions));
+      });
+    }
+
+    Query query = new Query(criteria);
+    query.fields().exclude(SEAT_MAP).exclude(RECENT_RELEASES);
+    return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false),
+        AirlineInventory.class);
+  }
+
+  @Override
+  public Mono<Boolean> forgetReleases(String flightId, String idsFrom) {
+    // a separate update: $push and $pull cannot touch the same array in one; matches only when there is work
+    return mongoTemplate.updateFirst(
+            new Query(Criteria.where("id").is(flightId).and(RECENT_RELEASES).lt(idsFrom)),
+            new Update().pull(RECENT_RELEASES, new Document("$lt", idsFrom)), AirlineInventory.class)
+        .map(result -> result.getModifiedCount() > 0);
+  }
+
+  @Override
+  public Mono<Integer> saveSeatMaps(Map<String, SeatMap> seatMapsByFlight) {
+    if (seatMapsByFlight.isEmpty()) {
+      return Mono.just(0);
+    }
+    var bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, AirlineInventory.class);
+    seatMapsByFlight.forEach((flightId, seatMap) ->
+        bulk.updateOne(new Query(Criteria.where("id").is(flightId)), new Update().set(SEAT_MAP, seatMap)));
+    return bulk.execute().map(BulkWriteResult::getMatchedCount);
+  }
+
+  @Override
+  public Mono<Map<Integer, String>> insertUnordered(List<AirlineInventory> flights) {
+    if (flights.isEmpty()) {
+      return Mono.just(Map.of());
+    }
+    return mongoTemplate.bulkOps(BulkMode.UNORDERED, AirlineInventory.class)
+        .insert(flights)
+        .execute()
+        .<Map<Integer, String>>map(result -> Map.of())
+        // unordered: the driver still wrote everything else and reports the rejects by index
+        .onErrorResume(BulkOperationException.class, e -> {
+          Map<Integer, String> errors = new TreeMap<>();
+          e.getErrors().forEach(error -> errors.put(error.getIndex(), error.getMessage()));
+          return Mono.just(errors);
+        });
+  }
+
+  @Override
+  public Flux<FlightSummary> findSummaries(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+    Query query = new Query(route(origin, destination, from, to));
+    query.fields().include(SUMMARY_FIELDS);
+
+    return mongoTemplate.find(query, Document.class, COLLECTION).map(this::toSummary);
+  }
+
+  @Override
+  public Flux<FlightSummary> findAllSummaries() {
+    Query query = new Query().with(Sort.by(Sort.Direction.ASC, "origin", "destination", "departure", ID));
+    query.fields().include(SUMMARY_FIELDS);
+
+    return mongoTemplate.find(query, Document.class, COLLECTION).map(this::toSummary);
+  }
+
+  @Override
+  public Flux<FareDay> findFareDays(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+    // departures are stored as instants of the JVM's zone, so the day is taken in that zone
+    Document day = new Document("$dateToString", new Document("format", "%Y-%m-%d").append("date", "$departure")
+        .append("timezone", ZoneId.systemDefault().getId()));
+    Document openPrice = new Document("$cond", List.of(new Document("$gt", List.of("$" + AVAILABLE, 0)), "$price",
+        null));
+    Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("origin").is(origin).and("destination").is(destination)
+                .and("departure").gte(from).lt(to)),
+            context -> new Document("$group", new Document("_id", day)
+                .append("minOpen", new Document("$min", openPrice))
+                .append("minAll", new Document("$min", "$price"))),
+            Aggregation.sort(Sort.Direction.ASC, "_id"))
+        .withOptions(AggregationOptions.builder().hint(AirlineInventory.FARE_INDEX).build());
+
+    return mongoTemplate.aggregate(aggregation, COLLECTION, Document.class)
+        .map(doc -> {
+          Number open = doc.get("minOpen", Number.class);
+          return new FareDay(LocalDate.parse(doc.getString("_id")),
+              open != null ? open.doubleValue() : doc.get("minAll", Number.class).doubleValue(), open != null);
+        });
+  }
+
+  @Override
+  public Flux<AirlineInventory> findPage(String origin, String destination, LocalDateTime from, LocalDateTime to,
+      SearchSort sort, SearchCursor after, int limit) {
+    return mongoTemplate.find(pageQuery(origin, destination, from, to, sort, after, limit), AirlineInventory.class);
+  }
+
+  @Override
+  public Flux<FlightSummary> findSummaryPage(String origin, String destination, LocalDateTime from,
+      LocalDateTime to, SearchSort sort, SearchCursor after, int limit) {
+    Query query = pageQuery(origin, destination, from, to, sort, after, limit);
+    query.fields().include(SUMMARY_FIELDS);
+
+    return mongoTemplate.find(query, Document.class, COLLECTION).map(this::toSummary);
+  }
+
+  private static Criteria route(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+    return Criteria.where("origin").is(origin)
+        .and("destination").is(destination)
+        .and("departure").gt(from).lt(to);
+  }
+
+  static Query pageQuery(String origin, String destination, LocalDateTime from, LocalDateTime to,
+      SearchSort sort, SearchCursor after, int limit) {
+    Criteria criteria = route(origin, destination, from, to);
+    if (after != null) {
+      // strictly after (value, id): a range on the sort field, ties broken by id
+      criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+          Criteria.where(sort.field()).gt(after.value()),
+          Criteria.where(sort.field()).is(after.value()).and(ID).gt(storedId(after.id()))));
+    }
+    return new Query(criteria)
+        .with(Sort.by(Sort.Direction.ASC, sort.field(), ID))
+        .limit(limit);
+  }
+
+  /**
+   * Summary queries read raw documents, so nothing maps {@code id} to {@code _id} or converts the value: the
+   * tie-break is written against the stored field, with the ObjectId Mongo stores for generated ids.
+   */
+  private static Object storedId(String id) {
+    return ObjectId.isValid(id) ? new ObjectId(id) : id;
+  }
+
+  private FlightSummary toSummary(Document doc) {
+    Document seatMap = doc.get(SEAT_MAP, Document.class);
+    doc.remove(SEAT_MAP);
+    doc.put("availableSeats", seatMap == null ? 0 : seatMap.getInteger(SeatMapConverters.AVAILABLE, 0));
+    return mongoTemplate.getConverter().read(FlightSummary.class, doc);
+  }
+}
@@ -0,0 +1,7 @@
+package com.flightapp.repository;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import com.flightapp.model.RouteDaySummary;
+
+public interface RouteDayRepository extends ReactiveCrudRepository<RouteDaySummary, String>, RouteDayRepositoryCustom {
+}
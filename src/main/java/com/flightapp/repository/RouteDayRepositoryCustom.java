@@ -0,0 +1,38 @@
+package com.flightapp.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.RouteDaySummary;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-place updates of route-day summaries. Every update changes one flight entry and recomputes the day
+ * totals in the same single-document write, so concurrent changes to flights of one day never lose each
+ * other's counts.
+ */
+public interface RouteDayRepositoryCustom {
+
+  /**
+   * Adds {@code delta} to the available seats of the flight, found through the flight index.
+   *
+   * @return true when a day lists the flight
+   */
+  Mono<Boolean> adjustSeats(String flightId, int delta);
+
+  /** Inserts or replaces the flights' entries, creating the days that do not exist yet; one write per day. */
+  Mono<Void> putFlights(List<AirlineInventory> flights);
+
+  /**
+   * Days of the route from {@code from} to {@code to}, both included, in date order. Without flights only
+   * the day totals are read.
+   */
+  Flux<RouteDaySummary> findDays(String origin, String destination, LocalDate from, LocalDate to,
+      boolean withFlights);
+
+  /** Ids of every stored day. */
+  Flux<String> findAllIds();
+}
@@ -0,0 +1,118 @@
+package com.flightapp.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.data.core.TypeInformation;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.RouteDaySummary;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Updates are pipelines: the first stage changes the flight entries, the second recomputes the day totals
+ * from them exactly like {@link RouteDaySummary#recount()}.
+ */
+public class RouteDayRepositoryCustomImpl implements RouteDayRepositoryCustom {
+
+  private static final String COLLECTION = "routeDays";
+  private static final String FLIGHTS = "flights";
+  private static final String FLIGHT = "$$f";
+
+  /** Second stage of every update: the day totals, with the cheapest price among flights with free seats. */
+  private static final AggregationOperation RECOUNT = context -> new Document("$set",
+      new Document("flightCount", new Document("$size", "$flights"))
+          .append("totalSeats", new Document("$sum", "$flights.totalSeats"))
+          .append("availableSeats", new Document("$sum", "$flights.availableSeats"))
+          .append("minPrice", new Document("$min", new Document("$map", new Document("input",
+              new Document("$filter", new Document("input", "$flights").append("as", "f")
+                  .append("cond", new Document("$gt", List.of(FLIGHT + ".availableSeats", 0)))))
+              .append("as", "f").append("in", FLIGHT + ".price")))));
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  public RouteDayRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public Mono<Boolean> adjustSeats(String flightId, int delta) {
+    Document adjusted = new Document("$mergeObjects", List.of(FLIGHT,
+        new Document("availableSeats", new Document("$add", List.of(FLIGHT + ".availableSeats", delta)))));
+    AggregationOperation adjust = context -> new Document("$set", new Document(FLIGHTS,
+        new Document("$map", new Document("input", "$flights").append("as", "f").append("in",
+            new Document("$cond", List.of(new Document("$eq", List.of(FLIGHT + ".flightId", flightId)),
+                adjusted, FLIGHT))))));
+
+    return mongoTemplate.updateFirst(new Query(Criteria.where("flights.flightId").is(flightId)),
+            AggregationUpdate.from(List.of(adjust, RECOUNT)), RouteDaySummary.class)
+        .map(result -> result.getMatchedCount() > 0);
+  }
+
+  @Override
+  public Mono<Void> putFlights(List<AirlineInventory> flights) {
+    if (flights.isEmpty()) {
+      return Mono.empty();
+    }
+    Map<String, List<AirlineInventory>> byDay = new LinkedHashMap<>();
+    flights.forEach(flight -> byDay.computeIfAbsent(RouteDaySummary.idOf(flight), id -> new ArrayList<>()).add(flight));
+
+    var bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, RouteDaySummary.class);
+    byDay.forEach((id, dayFlights) -> bulk.upsert(new Query(Criteria.where("id").is(id)),
+        AggregationUpdate.from(List.of(put(dayFlights), RECOUNT))));
+    return bulk.execute().then();
+  }
+
+  /** Keeps the entries of other flights, appends these; the route and day are set for a new document. */
+  private AggregationOperation put(List<AirlineInventory> dayFlights) {
+    AirlineInventory first = dayFlights.get(0);
+    List<String> ids = dayFlights.stream().map(AirlineInventory::getId).toList();
+    List<Object> entries = dayFlights.stream()
+        .map(flight -> mongoTemplate.getConverter().convertToMongoType(RouteDaySummary.Flight.of(flight),
+            TypeInformation.of(RouteDaySummary.Flight.class)))
+        .toList();
+    Document others = new Document("$filter",
+        new Document("input", new Document("$ifNull", List.of("$flights", List.of())))
+        .append("as", "f")
+        .append("cond", new Document("$not", List.of(new Document("$in", List.of(FLIGHT + ".flightId", ids))))));
+
+    return context -> new Document("$set", new Document("origin", first.getOrigin())
+        .append("destination", first.getDestination())
+        .append("day", mongoTemplate.getConverter().convertToMongoType(first.getDeparture().toLocalDate()))
+        // literal: a value starting with $ must not be read as a field path
+        .append(FLIGHTS, new Document("$concatArrays", List.of(others, new Document("$literal", entries)))));
+  }
+
+  @Override
+  public Flux<RouteDaySummary> findDays(String origin, String destination, LocalDate from, LocalDate to,
+      boolean withFlights) {
+    Query query = new Query(Criteria.where("id")
+        .gte(RouteDaySummary.idOf(origin, destination, from))
+        .lte(RouteDaySummary.idOf(origin, destination, to)))
+        .with(Sort.by(Sort.Direction.ASC, "id"));
+    if (!withFlights) {
+      query.fields().exclude(FLIGHTS);
+    }
+    return mongoTemplate.find(query, RouteDaySummary.class);
+  }
+
+  @Override
+  public Flux<String> findAllIds() {
+    Query query = new Query();
+    query.fields().include("id");
+    return mongoTemplate.find(query, Document.class, COLLECTION).map(doc -> doc.getString("_id"));
+  }
+}
@@ -0,0 +1,9 @@
+package com.flightapp.repository;
+
+import reactor.core.publisher.Flux;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import com.flightapp.model.SeatHold;
+
+public interface SeatHoldRepository extends ReactiveCrudRepository<SeatHold, String>, SeatHoldRepositoryCustom {
+  Flux<SeatHold> findByFlightId(String flightId);
+}
@@ -0,0 +1,31 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+
+import com.flightapp.model.SeatHold;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Atomic taking of holds. Whoever takes a hold owns its seats: the confirming booking, the holder giving it
+ * up or the expiry sweep, never two of them, even when their clocks disagree about the expiry. A confirm
+ * removes the hold; a release marks it and deletes it once the seats are back on the flight.
+ */
+public interface SeatHoldRepositoryCustom {
+
+  /** Removes and returns a hold still live at {@code now}; empty if it expired, is gone or is being released. */
+  Mono<SeatHold> takeLive(String id, LocalDateTime now);
+
+  /**
+   * Marks a hold still live at {@code now} as releasing and expired at {@code now}, so the sweep picks it up
+   * if its release fails; empty if it expired, is gone or is being released.
+   */
+  Mono<SeatHold> releaseLive(String id, LocalDateTime now);
+
+  /** Marks the hold as releasing only if it expired by {@code now}, whether or not it is being released already. */
+  Mono<SeatHold> takeExpired(String id, LocalDateTime now);
+
+  /** Holds expired by {@code now}, earliest expiry first, read from the expiry index. */
+  Flux<SeatHold> findExpired(LocalDateTime now, int limit);
+}
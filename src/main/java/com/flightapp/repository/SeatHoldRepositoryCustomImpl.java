@@ -0,0 +1,55 @@
+package com.flightapp.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.flightapp.model.SeatHold;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class SeatHoldRepositoryCustomImpl implements SeatHoldRepositoryCustom {
+
+  private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  public SeatHoldRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public Mono<SeatHold> takeLive(String id, LocalDateTime now) {
+    return mongoTemplate.findAndRemove(untaken(id, now), SeatHold.class);
+  }
+
+  @Override
+  public Mono<SeatHold> releaseLive(String id, LocalDateTime now) {
+    return mongoTemplate.findAndModify(untaken(id, now), new Update().set("releasing", true).set("expiresAt", now),
+        RETURN_NEW, SeatHold.class);
+  }
+
+  private static Query untaken(String id, LocalDateTime now) {
+    return new Query(Criteria.where("id").is(id).and("expiresAt").gt(now).and("releasing").ne(true));
+  }
+
+  @Override
+  public Mono<SeatHold> takeExpired(String id, LocalDateTime now) {
+    return mongoTemplate.findAndModify(new Query(Criteria.where("id").is(id).and("expiresAt").lte(now)),
+        new Update().set("releasing", true), RETURN_NEW, SeatHold.class);
+  }
+
+  @Override
+  public Flux<SeatHold> findExpired(LocalDateTime now, int limit) {
+    Query query = new Query(Criteria.where("expiresAt").lte(now))
+        .with(Sort.by(Sort.Direction.ASC, "expiresAt"))
+        .limit(limit);
+    return mongoTemplate.find(query, SeatHold.class);
+  }
+}
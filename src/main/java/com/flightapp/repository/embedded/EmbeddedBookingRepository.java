@@ -0,0 +1,228 @@
+package com.flightapp.repository.embedded;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.dto.BookingHistoryItem;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.model.Booking;
+import com.flightapp.model.OutboxEntry;
+import com.flightapp.model.PendingRelease;
+import com.flightapp.repository.BookingRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bookings in the {@link EmbeddedStore}, indexed like the Mongo collection: a unique index on pnr and a
+ * case-insensitive email index ordered by journey date then id, both descending, which serves both
+ * {@code findByEmail} and the history pages.
+ */
+@Repository
+@Profile(EmbeddedStore.PROFILE)
+public class EmbeddedBookingRepository extends EmbeddedCrudRepository<Booking> implements BookingRepository {
+
+  static final String COLLECTION = "bookings";
+
+  private static final Comparator<HistoryCursor> NEWEST_FIRST = Comparator
+      .comparing(HistoryCursor::journeyDate, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+      .thenComparing(HistoryCursor::id)
+      .reversed();
+
+  private record Keys(String pnr, String email, String flightId, HistoryCursor position, List<String> events,
+      List<String> releases) {
+  }
+
+  private final Map<String, String> byPnr = new ConcurrentHashMap<>();
+  private final Map<String, NavigableSet<HistoryCursor>> byEmail = new ConcurrentHashMap<>();
+  private final Map<String, Keys> keys = new ConcurrentHashMap<>();
+  // outbox index: undelivered event id to booking id, in event id order
+  private final NavigableMap<String, String> pendingEvents = new ConcurrentSkipListMap<>();
+  // seat releases not yet applied: release id to booking id, oldest first
+  private final NavigableMap<String, String> pendingReleases = new ConcurrentSkipListMap<>();
+  // the same bookings by flight id
+  private final Map<String, Set<String>> pendingReleasesByFlight = new ConcurrentHashMap<>();
+
+  public EmbeddedBookingRepository(EmbeddedStore store) {
+    super(store, COLLECTION, Booking.class, Booking::getId, Booking::setId);
+    reindex();
+  }
+
+  private static String emailKey(String email) {
+    return email == null ? null : email.toLowerCase(Locale.ROOT);
+  }
+
+  @Override
+  protected Booking put(Booking booking) {
+    String owner = byPnr.get(booking.getPnr());
+    if (owner != null && !owner.equals(booking.getId())) {
+      throw new DuplicateKeyException(duplicateKey(Booking.PNR_INDEX, "pnr", booking.getPnr()));
+    }
+    return super.put(booking);
+  }
+
+  @Override
+  protected void indexed(String id, Booking booking) {
+    unindexed(id);
+    List<String> events = booking.getOutbox() == null ? List.of()
+        : booking.getOutbox().stream().map(OutboxEntry::getEventId).toList();
+    List<String> releases = booking.getPendingReleases() == null ? List.of()
+        : booking.getPendingReleases().stream().map(PendingRelease::getReleaseId).toList();
+    Keys k = new Keys(booking.getPnr(), emailKey(booking.getEmail()), booking.getFlightId(),
+        new HistoryCursor(stored(booking.getJourneyDate()), id), events, releases);
+    keys.put(id, k);
+    events.forEach(event -> pendingEvents.put(event, id));
+    releases.forEach(release -> pendingReleases.put(release, id));
+    if (!releases.isEmpty() && k.flightId() != null) {
+      pendingReleasesByFlight.computeIfAbsent(k.flightId(), f -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+    if (k.pnr() != null) {
+      byPnr.put(k.pnr(), id);
+    }
+    if (k.email() != null) {
+      byEmail.computeIfAbsent(k.email(), e -> new ConcurrentSkipListSet<>(NEWEST_FIRST)).add(k.position());
+    }
+  }
+
+  @Override
+  protected void unindexed(String id) {
+    Keys k = keys.remove(id);
+    if (k == null) {
+      return;
+    }
+    if (k.pnr() != null) {
+      byPnr.remove(k.pnr(), id);
+    }
+    k.events().forEach(event -> pendingEvents.remove(event, id));
+    k.releases().forEach(release -> pendingReleases.remove(release, id));
+    if (!k.releases().isEmpty() && k.flightId() != null) {
+      pendingReleasesByFlight.computeIfPresent(k.flightId(), (f, ids) -> {
+        ids.remove(id);
+        return ids.isEmpty() ? null : ids;
+      });
+    }
+    if (k.email() != null) {
+      Set<HistoryCursor> rows = byEmail.get(k.email());
+      if (rows != null) {
+        rows.remove(k.position());
+      }
+    }
+  }
+
+  @Override
+  protected void unindexedAll() {
+    keys.clear();
+    pendingEvents.clear();
+    pendingReleases.clear();
+    pendingReleasesByFlight.clear();
+    byPnr.clear();
+    byEmail.clear();
+  }
+
+  @Override
+  public Mono<Booking> findByPnr(String pnr) {
+    return Mono.fromCallable(() -> {
+      String id = byPnr.get(pnr);
+      return id == null ? null : find(id);
+    });
+  }
+
+  @Override
+  public Flux<Booking> findByEmail(String email) {
+    return rows(email, null).mapNotNull(position -> find(position.id()));
+  }
+
+  @Override
+  public Flux<Booking> findByFlightIdAndCanceledFalse(String flightId) {
+    return Flux.defer(() -> Flux.fromIterable(store.documents(COLLECTION).values()))
+        .filter(doc -> flightId.equals(doc.getString("flightId")) && !doc.getBoolean("canceled", false))
+        .map(this::read);
+  }
+
+  @Override
+  public Flux<Booking> findWithPendingReleases() {
+    return Flux.defer(() -> Flux.fromStream(pendingReleases.values().stream().distinct()))
+        .mapNotNull(this::find);
+  }
+
+  @Override
+  public Flux<Booking> findWithPendingReleases(String flightId) {
+    return Flux.defer(() -> Flux.fromIterable(List.copyOf(pendingReleasesByFlight.getOrDefault(flightId, Set.of()))))
+        .mapNotNull(this::find);
+  }
+
+  @Override
+  public Mono<Long> removeReleases(Map<String, ? extends Collection<String>> releaseIdsByBooking) {
+    return remove(releaseIdsByBooking, Booking::getPendingReleases, PendingRelease::getReleaseId);
+  }
+
+  @Override
+  public Flux<Booking> findWithPendingEvents(int limit) {
+    return Flux.defer(() -> Flux.fromStream(pendingEvents.values().stream().distinct()))
+        .mapNotNull(this::find)
+        .take(limit);
+  }
+
+  @Override
+  public Mono<Long> removeEvents(Map<String, ? extends Collection<String>> eventIdsByBooking) {
+    return remove(eventIdsByBooking, Booking::getOutbox, OutboxEntry::getEventId);
+  }
+
+  /** Removes the entries of an embedded list whose id is listed for their booking, like a Mongo $pull. */
+  private <T> Mono<Long> remove(Map<String, ? extends Collection<String>> idsByBooking,
+      Function<Booking, List<T>> list, Function<T, String> idOf) {
+    return store.writeAsync(() -> {
+      long modified = 0;
+      for (Map.Entry<String, ? extends Collection<String>> e : idsByBooking.entrySet()) {
+        Booking booking = find(e.getKey());
+        if (booking != null && list.apply(booking) != null
+            && list.apply(booking).removeIf(entry -> e.getValue().contains(idOf.apply(entry)))) {
+          put(booking);
+          modified++;
+        }
+      }
+      return modified;
+    });
+  }
+
+  @Override
+  public Flux<BookingHistoryItem> findHistory(String email, Boolean canceled, LocalDateTime from,
+      LocalDateTime to, HistoryCursor after, int limit) {
+    Flux<BookingHistoryItem> rows = rows(email, after)
+        // newest first: skip rows at or after "to", stop at the first one before "from"
+        .filter(position -> to == null
+            || (position.journeyDate() != null && position.journeyDate().isBefore(to)))
+        .takeWhile(position -> from == null
+            || (position.journeyDate() != null && !position.journeyDate().isBefore(from)))
+        .mapNotNull(position -> find(position.id()))
+        .filter(b -> canceled == null || b.isCanceled() == canceled)
+        .map(b -> new BookingHistoryItem(b.getId(), b.getPnr(), b.getName(), b.getEmail(), b.getFlightId(),
+            b.getJourneyDate(), b.getSeatNumbers(), b.isCanceled(), b.getCanceledAt()));
+    return limit > 0 ? rows.take(limit) : rows;
+  }
+
+  private Flux<HistoryCursor> rows(String email, HistoryCursor after) {
+    return Flux.defer(() -> {
+      NavigableSet<HistoryCursor> rows = byEmail.get(emailKey(email));
+      if (rows == null) {
+        return Flux.empty();
+      }
+      return Flux.fromIterable(after == null ? rows : rows.tailSet(after, false));
+    });
+  }
+}
@@ -0,0 +1,193 @@
+package com.flightapp.repository.embedded;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.reactivestreams.Publisher;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * CRUD over one collection of the {@link EmbeddedStore}. Entities are converted to documents on write and
+ * back on read, so callers always get their own copy, as with Mongo. Missing ids are filled with a new
+ * ObjectId on save.
+ *
+ * <p>Subclasses keep their secondary indexes in {@link #indexed} and {@link #unindexed}, which run under the
+ * store's write lock, and must call {@link #reindex} once their index fields are initialised.
+ */
+abstract class EmbeddedCrudRepository<T> implements ReactiveCrudRepository<T, String> {
+
+  protected final EmbeddedStore store;
+  private final String collection;
+  private final Class<T> type;
+  private final Function<T, String> idOf;
+  private final BiConsumer<T, String> setId;
+
+  protected EmbeddedCrudRepository(EmbeddedStore store, String collection, Class<T> type,
+      Function<T, String> idOf, BiConsumer<T, String> setId) {
+    this.store = store;
+    this.collection = collection;
+    this.type = type;
+    this.idOf = idOf;
+    this.setId = setId;
+  }
+
+  /** Called after {@code entity} was stored under {@code id}, replacing any earlier version. */
+  protected abstract void indexed(String id, T entity);
+
+  /** Called after the entity with {@code id} was deleted. */
+  protected abstract void unindexed(String id);
+
+  /** Called after the whole collection was deleted. */
+  protected abstract void unindexedAll();
+
+  /** Builds the indexes from the recovered documents. */
+  protected void reindex() {
+    store.documents(collection).forEach((id, document) -> indexed(id, read(document)));
+  }
+
+  /** Mongo keeps dates to the millisecond; index keys must compare like the stored values. */
+  protected static LocalDateTime stored(LocalDateTime time) {
+    return time == null ? null : time.truncatedTo(ChronoUnit.MILLIS);
+  }
+
+  protected T read(Document document) {
+    return store.converter().read(type, document);
+  }
+
+  protected Document document(String id) {
+    return store.get(collection, id);
+  }
+
+  protected T find(String id) {
+    Document document = document(id);
+    return document == null ? null : read(document);
+  }
+
+  /** Stores the entity; must be called inside {@link EmbeddedStore#write}. */
+  protected T put(T entity) {
+    if (idOf.apply(entity) == null) {
+      setId.accept(entity, new ObjectId().toHexString());
+    }
+    String id = idOf.apply(entity);
+    Document document = new Document();
+    store.converter().write(entity, document);
+    store.put(collection, id, document);
+    indexed(id, entity);
+    return entity;
+  }
+
+  protected String duplicateKey(String index, String field, Object value) {
+    return "E11000 duplicate key error collection: " + collection + " index: " + index
+        + " dup key: { " + field + ": \"" + value + "\" }";
+  }
+
+  @Override
+  public <S extends T> Mono<S> save(S entity) {
+    return store.writeAsync(() -> {
+      put(entity);
+      return entity;
+    });
+  }
+
+  @Override
+  public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+    return Flux.fromIterable(entities).concatMap(this::save);
+  }
+
+  @Override
+  public <S extends T> Flux<S> saveAll(Publisher<S> entityStream) {
+    return Flux.from(entityStream).concatMap(this::save);
+  }
+
+  @Override
+  public Mono<T> findById(String id) {
+    return Mono.fromCallable(() -> find(id));
+  }
+
+  @Override
+  public Mono<T> findById(Publisher<String> id) {
+    return Mono.from(id).flatMap(this::findById);
+  }
+
+  @Override
+  public Mono<Boolean> existsById(String id) {
+    return Mono.fromCallable(() -> document(id) != null);
+  }
+
+  @Override
+  public Mono<Boolean> existsById(Publisher<String> id) {
+    return Mono.from(id).flatMap(this::existsById);
+  }
+
+  @Override
+  public Flux<T> findAll() {
+    return Flux.defer(() -> Flux.fromIterable(store.documents(collection).values())).map(this::read);
+  }
+
+  @Override
+  public Flux<T> findAllById(Iterable<String> ids) {
+    return Flux.fromIterable(ids).concatMap(this::findById);
+  }
+
+  @Override
+  public Flux<T> findAllById(Publisher<String> idStream) {
+    return Flux.from(idStream).concatMap(this::findById);
+  }
+
+  @Override
+  public Mono<Long> count() {
+    return Mono.fromCallable(() -> (long) store.documents(collection).size());
+  }
+
+  @Override
+  public Mono<Void> deleteById(String id) {
+    return store.writeAsync(() -> {
+      if (document(id) != null) {
+        store.delete(collection, id);
+        unindexed(id);
+      }
+      return null;
+    }).then();
+  }
+
+  @Override
+  public Mono<Void> deleteById(Publisher<String> id) {
+    return Mono.from(id).flatMap(this::deleteById);
+  }
+
+  @Override
+  public Mono<Void> delete(T entity) {
+    return deleteById(idOf.apply(entity));
+  }
+
+  @Override
+  public Mono<Void> deleteAllById(Iterable<? extends String> ids) {
+    return Flux.fromIterable(ids).concatMap(this::deleteById).then();
+  }
+
+  @Override
+  public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+    return Flux.fromIterable(entities).concatMap(this::delete).then();
+  }
+
+  @Override
+  public Mono<Void> deleteAll(Publisher<? extends T> entityStream) {
+    return Flux.from(entityStream).concatMap(this::delete).then();
+  }
+
+  @Override
+  public Mono<Void> deleteAll() {
+    return store.writeAsync(() -> {
+      store.clear(collection);
+      unindexedAll();
+      return null;
+    }).then();
+  }
+}
@@ -0,0 +1,86 @@
+package com.flightapp.repository.embedded;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.model.IdempotencyRecord;
+import com.flightapp.repository.IdempotencyRepository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Idempotency records in the {@link EmbeddedStore}. There is no TTL monitor, so each claim removes a few
+ * records that have expired, earliest first, from an (expiresAt, id) index.
+ */
+@Repository
+@Profile(EmbeddedStore.PROFILE)
+public class EmbeddedIdempotencyRepository extends EmbeddedCrudRepository<IdempotencyRecord>
+    implements IdempotencyRepository {
+
+  static final String COLLECTION = "idempotencyKeys";
+
+  private static final int PURGE_PER_CLAIM = 16;
+
+  private record Expiry(LocalDateTime expiresAt, String id) {
+  }
+
+  private final NavigableSet<Expiry> byExpiry = new ConcurrentSkipListSet<>(
+      Comparator.comparing(Expiry::expiresAt).thenComparing(Expiry::id));
+  private final Map<String, Expiry> keys = new ConcurrentHashMap<>();
+
+  public EmbeddedIdempotencyRepository(EmbeddedStore store) {
+    super(store, COLLECTION, IdempotencyRecord.class, IdempotencyRecord::getId, IdempotencyRecord::setId);
+    reindex();
+  }
+
+  @Override
+  protected void indexed(String id, IdempotencyRecord record) {
+    unindexed(id);
+    if (record.getExpiresAt() != null) {
+      Expiry entry = new Expiry(stored(record.getExpiresAt()), id);
+      keys.put(id, entry);
+      byExpiry.add(entry);
+    }
+  }
+
+  @Override
+  protected void unindexed(String id) {
+    Expiry entry = keys.remove(id);
+    if (entry != null) {
+      byExpiry.remove(entry);
+    }
+  }
+
+  @Override
+  protected void unindexedAll() {
+    keys.clear();
+    byExpiry.clear();
+  }
+
+  @Override
+  public Mono<Boolean> claim(IdempotencyRecord record, LocalDateTime now) {
+    return store.writeAsync(() -> {
+      for (int i = 0; i < PURGE_PER_CLAIM && !byExpiry.isEmpty(); i++) {
+        Expiry oldest = byExpiry.first();
+        if (oldest.expiresAt().isAfter(stored(now))) {
+          break;
+        }
+        store.delete(COLLECTION, oldest.id());
+        unindexed(oldest.id());
+      }
+      Expiry existing = keys.get(record.getId());
+      if (existing != null && existing.expiresAt().isAfter(stored(now))) {
+        return false;
+      }
+      put(record);
+      return true;
+    });
+  }
+}
@@ -0,0 +1,323 @@
+package com.flightapp.repository.embedded;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.config.SeatMapConverters;
+import com.flightapp.dto.FareDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.SearchCursor;
+import com.flightapp.dto.SearchSort;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.InventoryRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Flights in the {@link EmbeddedStore}, with an (origin, destination, departure, id) index for route
+ * searches. Seat claims and releases check and update the seat map under the store's write lock, which
+ * gives them the same all-or-nothing behaviour as the conditional updates of the Mongo repository.
+ */
+@Repository
+@Profile(EmbeddedStore.PROFILE)
+public class EmbeddedInventoryRepository extends EmbeddedCrudRepository<AirlineInventory>
+    implements InventoryRepository {
+
+  static final String COLLECTION = "inventories";
+
+  private static final String SEAT_MAP = "seatMap";
+  private static final String LOWEST_ID = "";
+  private static final String HIGHEST_ID = "\uffff";
+
+  /** Index entry; ordered by departure then id, the price is kept to sort price searches without a read. */
+  private record Route(String route, LocalDateTime departure, double price, String id) {
+  }
+
+  private static final Comparator<Route> BY_DEPARTURE =
+      Comparator.comparing(Route::departure).thenComparing(Route::id);
+  private static final Comparator<Route> BY_PRICE =
+      Comparator.comparingDouble(Route::price).thenComparing(Route::id);
+
+  private final Map<String, NavigableSet<Route>> byRoute = new ConcurrentHashMap<>();
+  private final Map<String, Route> keys = new ConcurrentHashMap<>();
+
+  public EmbeddedInventoryRepository(EmbeddedStore store) {
+    super(store, COLLECTION, AirlineInventory.class, AirlineInventory::getId, AirlineInventory::setId);
+    reindex();
+  }
+
+  private static String route(String origin, String destination) {
+    return origin + '\u0000' + destination;
+  }
+
+  @Override
+  protected void indexed(String id, AirlineInventory inventory) {
+    unindexed(id);
+    if (inventory.getOrigin() == null || inventory.getDestination() == null || inventory.getDeparture() == null) {
+      return;
+    }
+    Route entry = new Route(route(inventory.getOrigin(), inventory.getDestination()),
+        stored(inventory.getDeparture()), inventory.getPrice(), id);
+    keys.put(id, entry);
+    byRoute.computeIfAbsent(entry.route(), r -> new ConcurrentSkipListSet<>(BY_DEPARTURE)).add(entry);
+  }
+
+  @Override
+  protected void unindexed(String id) {
+    Route entry = keys.remove(id);
+    if (entry != null) {
+      Set<Route> flights = byRoute.get(entry.route());
+      if (flights != null) {
+        flights.remove(entry);
+      }
+    }
+  }
+
+  @Override
+  protected void unindexedAll() {
+    keys.clear();
+    byRoute.clear();
+  }
+
+  /** Index entries departing strictly between {@code from} and {@code to}, in departure order. */
+  private NavigableSet<Route> departing(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+    String route = route(origin, destination);
+    NavigableSet<Route> flights = byRoute.get(route);
+    if (flights == null || !from.isBefore(to)) {
+      return new ConcurrentSkipListSet<>(BY_DEPARTURE);
+    }
+    return flights.subSet(new Route(route, from, 0, HIGHEST_ID), false, new Route(route, to, 0, LOWEST_ID), false);
+  }
+
+  @Override
+  public Flux<AirlineInventory> findByOriginAndDestinationAndDepartureBetween(String origin, String destination,
+      LocalDateTime from, LocalDateTime to) {
+    return Flux.defer(() -> Flux.fromIterable(departing(origin, destination, from, to)))
+        .mapNotNull(entry -> find(entry.id()));
+  }
+
+  @Override
+  public Flux<FlightSummary> findSummaries(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+    return Flux.defer(() -> Flux.fromIterable(departing(origin, destination, from, to)))
+        .mapNotNull(entry -> summary(entry.id()));
+  }
+
+  @Override
+  public Flux<FlightSummary> findAllSummaries() {
+    // route keys are origin, a separator below every letter, then destination: a TreeMap orders them like Mongo
+    return Flux.defer(() -> Flux.fromIterable(new TreeMap<>(byRoute).values()))
+        .concatMapIterable(flights -> flights)
+        .mapNotNull(entry -> summary(entry.id()));
+  }
+
+  @Override
+  public Flux<FareDay> findFareDays(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+    return Flux.defer(() -> {
+      String route = route(origin, destination);
+      NavigableSet<Route> flights = byRoute.get(route);
+      if (flights == null || !from.isBefore(to)) {
+        return Flux.empty();
+      }
+      // per day: cheapest open fare (null while none is open) and cheapest fare, filled in departure order
+      Map<LocalDate, Double[]> days = new LinkedHashMap<>();
+      for (Route entry : flights.subSet(new Route(route, stored(from), 0, LOWEST_ID), true,
+          new Route(route, stored(to), 0, LOWEST_ID), false)) {
+        Document stored = document(entry.id());
+        if (stored == null) {
+          continue;
+        }
+        Document seatMap = stored.get(SEAT_MAP, Document.class);
+        boolean open = seatMap != null && seatMap.getInteger(SeatMapConverters.AVAILABLE, 0) > 0;
+        Double[] fares = days.computeIfAbsent(entry.departure().toLocalDate(), day -> new Double[2]);
+        if (open && (fares[0] == null || entry.price() < fares[0])) {
+          fares[0] = entry.price();
+        }
+        if (fares[1] == null || entry.price() < fares[1]) {
+          fares[1] = entry.price();
+        }
+      }
+      return Flux.fromIterable(days.entrySet()).map(day -> new FareDay(day.getKey(),
+          day.getValue()[0] != null ? day.getValue()[0] : day.getValue()[1], day.getValue()[0] != null));
+    });
+  }
+
+  @Override
+  public Flux<AirlineInventory> findPage(String origin, String destination, LocalDateTime from, LocalDateTime to,
+      SearchSort sort, SearchCursor after, int limit) {
+    return page(origin, destination, from, to, sort, after, limit).mapNotNull(entry -> find(entry.id()));
+  }
+
+  @Override
+  public Flux<FlightSummary> findSummaryPage(String origin, String destination, LocalDateTime from,
+      LocalDateTime to, SearchSort sort, SearchCursor after, int limit) {
+    return page(origin, destination, from, to, sort, after, limit).mapNotNull(entry -> summary(entry.id()));
+  }
+
+  private Flux<Route> page(String origin, String destination, LocalDateTime from, LocalDateTime to,
+      SearchSort sort, SearchCursor after, int limit) {
+    return Flux.defer(() -> {
+      NavigableSet<Route> flights = departing(origin, destination, from, to);
+      if (sort == SearchSort.PRICE) {
+        // one route over a date range is small; sort it by price instead of keeping a second index
+        Route last = after == null ? null : new Route(null, null, ((Number) after.value()).doubleValue(), after.id());
+        return Flux.fromStream(flights.stream()
+            .filter(entry -> last == null || BY_PRICE.compare(entry, last) > 0)
+            .sorted(BY_PRICE)
+            .limit(limit));
+      }
+      Collection<Route> rows = after == null
+          ? flights
+          : flights.tailSet(new Route(null, (LocalDateTime) after.value(), 0, after.id()), false);
+      return Flux.fromIterable(rows).take(limit);
+    });
+  }
+
+  /** Reads the summary fields straight from the document, like the Mongo projection, without the seat words. */
+  private FlightSummary summary(String id) {
+    Document stored = document(id);
+    if (stored == null) {
+      return null;
+    }
+    Document doc = new Document(stored);
+    Document seatMap = (Document) doc.remove(SEAT_MAP);
+    doc.put("availableSeats", seatMap == null ? 0 : seatMap.getInteger(SeatMapConverters.AVAILABLE, 0));
+    return store.converter().read(FlightSummary.class, doc);
+  }
+
+  @Override
+  public Mono<AirlineInventory> claimSeats(String flightId, Collection<String> seats, LocalDateTime now) {
+    Map<Integer, List<Integer>> bits = SeatMap.bitsByWord(seats);
+    if (bits == null || bits.isEmpty()) {
+      return Mono.empty();
+    }
+    return store.writeAsync(() -> {
+      AirlineInventory inventory = find(flightId);
+      if (inventory == null || inventory.getSeatMap() == null || !inventory.getDeparture().isAfter(now)) {
+        return null;
+      }
+      SeatMap seatMap = inventory.getSeatMap().copy();
+      if (!seatMap.claim(seats)) {
+        return null;
+      }
+      inventory.setSeatMap(seatMap);
+      put(inventory);
+      // same shape as the Mongo claim: the flight before the update, without its seat map
+      inventory.setSeatMap(null);
+      return inventory;
+    });
+  }
+
+  @Override
+  public Mono<Boolean> releaseSeats(String flightId, Collection<String> seats) {
+    Map<Integer, List<Integer>> bits = SeatMap.bitsByWord(seats);
+    if (bits == null || bits.isEmpty()) {
+      return Mono.just(false);
+    }
+    return store.writeAsync(() -> {
+      AirlineInventory inventory = find(flightId);
+      if (inventory == null || inventory.getSeatMap() == null) {
+        return false;
+      }
+      SeatMap before = inventory.getSeatMap();
+      SeatMap after = before.copy();
+      after.release(seats);
+      if (after.equals(before)) {
+        return false;
+      }
+      inventory.setSeatMap(after);
+      put(inventory);
+      return true;
+    });
+  }
+
+  @Override
+  public Mono<AirlineInventory> releaseSeatsOnce(String flightId, Collection<String> seats,
+      Collection<String> releaseIds) {
+    return store.writeAsync(() -> {
+      AirlineInventory inventory = find(flightId);
+      if (inventory == null || inventory.getSeatMap() == null) {
+        return null;
+      }
+      List<String> recent = inventory.getRecentReleases() == null ? List.of() : inventory.getRecentReleases();
+      SeatMap seatMap = inventory.getSeatMap().copy();
+      boolean allTaken = seats.stream().allMatch(seat ->
+          SeatMap.indexOf(seat) >= 0 && SeatMap.indexOf(seat) < seatMap.getCapacity() && !seatMap.isAvailable(seat));
+      if (!allTaken || releaseIds.stream().anyMatch(recent::contains)) {
+        return null;
+      }
+      seatMap.release(seats);
+      List<String> next = new ArrayList<>(recent);
+      next.addAll(releaseIds);
+      inventory.setSeatMap(seatMap);
+      inventory.setRecentReleases(List.copyOf(next));
+      put(inventory);
+      inventory.setSeatMap(null);
+      inventory.setRecentReleases(null);
+      return inventory;
+    });
+  }
+
+  @Override
+  public Mono<Boolean> forgetReleases(String flightId, String idsFrom) {
+    return store.writeAsync(() -> {
+      AirlineInventory inventory = find(flightId);
+      if (inventory == null || inventory.getRecentReleases() == null
+          || inventory.getRecentReleases().stream().noneMatch(id -> id.compareTo(idsFrom) < 0)) {
+        return false;
+      }
+      inventory.setRecentReleases(inventory.getRecentReleases().stream()
+          .filter(id -> id.compareTo(idsFrom) >= 0).toList());
+      put(inventory);
+      return true;
+    });
+  }
+
+  @Override
+  public Mono<Integer> saveSeatMaps(Map<String, SeatMap> seatMapsByFlight) {
+    return store.writeAsync(() -> {
+      int matched = 0;
+      for (Map.Entry<String, SeatMap> e : seatMapsByFlight.entrySet()) {
+        AirlineInventory inventory = find(e.getKey());
+        if (inventory != null) {
+          inventory.setSeatMap(e.getValue().copy());
+          put(inventory);
+          matched++;
+        }
+      }
+      return matched;
+    });
+  }
+
+  @Override
+  public Mono<Map<Integer, String>> insertUnordered(List<AirlineInventory> flights) {
+    return store.writeAsync(() -> {
+      Map<Integer, String> errors = new TreeMap<>();
+      for (int i = 0; i < flights.size(); i++) {
+        AirlineInventory flight = flights.get(i);
+        if (flight.getId() != null && document(flight.getId()) != null) {
+          errors.put(i, duplicateKey("_id_", "_id", flight.getId()));
+        } else {
+          put(flight);
+        }
+      }
+      return errors;
+    });
+  }
+}
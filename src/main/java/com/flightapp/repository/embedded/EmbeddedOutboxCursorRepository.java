@@ -0,0 +1,33 @@
+package com.flightapp.repository.embedded;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.model.OutboxCursor;
+import com.flightapp.repository.OutboxCursorRepository;
+
+/** Outbox relay cursors in the {@link EmbeddedStore}; read by id only, so there are no secondary indexes. */
+@Repository
+@Profile(EmbeddedStore.PROFILE)
+public class EmbeddedOutboxCursorRepository extends EmbeddedCrudRepository<OutboxCursor>
+    implements OutboxCursorRepository {
+
+  static final String COLLECTION = "outboxCursors";
+
+  public EmbeddedOutboxCursorRepository(EmbeddedStore store) {
+    super(store, COLLECTION, OutboxCursor.class, OutboxCursor::getId, OutboxCursor::setId);
+    reindex();
+  }
+
+  @Override
+  protected void indexed(String id, OutboxCursor cursor) {
+  }
+
+  @Override
+  protected void unindexed(String id) {
+  }
+
+  @Override
+  protected void unindexedAll() {
+  }
+}
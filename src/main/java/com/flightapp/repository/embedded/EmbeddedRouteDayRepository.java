@@ -0,0 +1,131 @@
+package com.flightapp.repository.embedded;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.RouteDaySummary;
+import com.flightapp.repository.RouteDayRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Route-day summaries in the {@link EmbeddedStore}, with the sorted ids date ranges are read from and a
+ * flight id to day index for seat changes. Updates read, change and replace a day under the store's write
+ * lock, so they are as atomic as the pipeline updates of the Mongo repository.
+ */
+@Repository
+@Profile(EmbeddedStore.PROFILE)
+public class EmbeddedRouteDayRepository extends EmbeddedCrudRepository<RouteDaySummary>
+    implements RouteDayRepository {
+
+  static final String COLLECTION = "routeDays";
+
+  private final NavigableSet<String> days = new ConcurrentSkipListSet<>();
+  private final Map<String, String> dayOfFlight = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> flightsOfDay = new ConcurrentHashMap<>();
+
+  public EmbeddedRouteDayRepository(EmbeddedStore store) {
+    super(store, COLLECTION, RouteDaySummary.class, RouteDaySummary::getId, RouteDaySummary::setId);
+    reindex();
+  }
+
+  @Override
+  protected void indexed(String id, RouteDaySummary day) {
+    unindexed(id);
+    days.add(id);
+    Set<String> flights = day.getFlights() == null ? Set.of()
+        : day.getFlights().stream().map(RouteDaySummary.Flight::getFlightId).collect(Collectors.toSet());
+    flightsOfDay.put(id, flights);
+    flights.forEach(flightId -> dayOfFlight.put(flightId, id));
+  }
+
+  @Override
+  protected void unindexed(String id) {
+    days.remove(id);
+    Set<String> flights = flightsOfDay.remove(id);
+    if (flights != null) {
+      flights.forEach(flightId -> dayOfFlight.remove(flightId, id));
+    }
+  }
+
+  @Override
+  protected void unindexedAll() {
+    days.clear();
+    dayOfFlight.clear();
+    flightsOfDay.clear();
+  }
+
+  @Override
+  public Mono<Boolean> adjustSeats(String flightId, int delta) {
+    return store.writeAsync(() -> {
+      String id = dayOfFlight.get(flightId);
+      RouteDaySummary day = id == null ? null : find(id);
+      if (day == null) {
+        return false;
+      }
+      day.getFlights().stream().filter(flight -> flightId.equals(flight.getFlightId()))
+          .forEach(flight -> flight.setAvailableSeats(flight.getAvailableSeats() + delta));
+      day.recount();
+      put(day);
+      return true;
+    });
+  }
+
+  @Override
+  public Mono<Void> putFlights(List<AirlineInventory> flights) {
+    return store.writeAsync(() -> {
+      Map<String, List<AirlineInventory>> byDay = new LinkedHashMap<>();
+      flights.forEach(flight -> byDay.computeIfAbsent(RouteDaySummary.idOf(flight), id -> new ArrayList<>())
+          .add(flight));
+      byDay.forEach((id, dayFlights) -> {
+        AirlineInventory first = dayFlights.get(0);
+        RouteDaySummary day = find(id);
+        List<RouteDaySummary.Flight> entries = day == null ? new ArrayList<>() : day.getFlights();
+        Set<String> ids = dayFlights.stream().map(AirlineInventory::getId).collect(Collectors.toSet());
+        entries.removeIf(flight -> ids.contains(flight.getFlightId()));
+        dayFlights.forEach(flight -> entries.add(RouteDaySummary.Flight.of(flight)));
+        put(RouteDaySummary.of(first.getOrigin(), first.getDestination(), first.getDeparture().toLocalDate(),
+            entries));
+      });
+      return null;
+    }).then();
+  }
+
+  @Override
+  public Flux<RouteDaySummary> findDays(String origin, String destination, LocalDate from, LocalDate to,
+      boolean withFlights) {
+    return Flux.defer(() -> {
+      String first = RouteDaySummary.idOf(origin, destination, from);
+      String last = RouteDaySummary.idOf(origin, destination, to);
+      if (first.compareTo(last) > 0) {
+        return Flux.empty();
+      }
+      return Flux.fromIterable(days.subSet(first, true, last, true));
+    }).mapNotNull(id -> {
+      RouteDaySummary day = find(id);
+      if (day != null && !withFlights) {
+        // same shape as the Mongo projection
+        day.setFlights(null);
+      }
+      return day;
+    });
+  }
+
+  @Override
+  public Flux<String> findAllIds() {
+    return Flux.defer(() -> Flux.fromIterable(days));
+  }
+}
@@ -0,0 +1,125 @@
+package com.flightapp.repository.embedded;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.flightapp.model.SeatHold;
+import com.flightapp.repository.SeatHoldRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Seat holds in the {@link EmbeddedStore}, with the (expiresAt, id) index the expiry sweep reads from.
+ * Taking a hold checks and removes or marks it under the store's write lock.
+ */
+@Repository
+@Profile(EmbeddedStore.PROFILE)
+public class EmbeddedSeatHoldRepository extends EmbeddedCrudRepository<SeatHold> implements SeatHoldRepository {
+
+  static final String COLLECTION = "seatHolds";
+
+  private static final String HIGHEST_ID = "\uffff";
+
+  private record Expiry(LocalDateTime expiresAt, String id) {
+  }
+
+  private static final Comparator<Expiry> EARLIEST_FIRST =
+      Comparator.comparing(Expiry::expiresAt).thenComparing(Expiry::id);
+
+  private final NavigableSet<Expiry> byExpiry = new ConcurrentSkipListSet<>(EARLIEST_FIRST);
+  private final Map<String, Expiry> keys = new ConcurrentHashMap<>();
+
+  public EmbeddedSeatHoldRepository(EmbeddedStore store) {
+    super(store, COLLECTION, SeatHold.class, SeatHold::getId, SeatHold::setId);
+    reindex();
+  }
+
+  @Override
+  protected void indexed(String id, SeatHold hold) {
+    unindexed(id);
+    if (hold.getExpiresAt() != null) {
+      Expiry entry = new Expiry(stored(hold.getExpiresAt()), id);
+      keys.put(id, entry);
+      byExpiry.add(entry);
+    }
+  }
+
+  @Override
+  protected void unindexed(String id) {
+    Expiry entry = keys.remove(id);
+    if (entry != null) {
+      byExpiry.remove(entry);
+    }
+  }
+
+  @Override
+  protected void unindexedAll() {
+    keys.clear();
+    byExpiry.clear();
+  }
+
+  @Override
+  public Flux<SeatHold> findByFlightId(String flightId) {
+    return Flux.defer(() -> Flux.fromIterable(store.documents(COLLECTION).values()))
+        .filter(doc -> flightId.equals(doc.getString("flightId")))
+        .map(this::read);
+  }
+
+  @Override
+  public Mono<SeatHold> takeLive(String id, LocalDateTime now) {
+    return store.writeAsync(() -> {
+      SeatHold hold = find(id);
+      if (hold == null || hold.getExpiresAt() == null || !untaken(hold, now)) {
+        return null;
+      }
+      store.delete(COLLECTION, id);
+      unindexed(id);
+      return hold;
+    });
+  }
+
+  @Override
+  public Mono<SeatHold> releaseLive(String id, LocalDateTime now) {
+    return mark(id, hold -> untaken(hold, now), hold -> {
+      hold.setReleasing(true);
+      hold.setExpiresAt(now);
+    });
+  }
+
+  private static boolean untaken(SeatHold hold, LocalDateTime now) {
+    return stored(hold.getExpiresAt()).isAfter(stored(now)) && !hold.isReleasing();
+  }
+
+  @Override
+  public Mono<SeatHold> takeExpired(String id, LocalDateTime now) {
+    return mark(id, hold -> !stored(hold.getExpiresAt()).isAfter(stored(now)), hold -> hold.setReleasing(true));
+  }
+
+  private Mono<SeatHold> mark(String id, Predicate<SeatHold> matches, Consumer<SeatHold> update) {
+    return store.writeAsync(() -> {
+      SeatHold hold = find(id);
+      if (hold == null || hold.getExpiresAt() == null || !matches.test(hold)) {
+        return null;
+      }
+      update.accept(hold);
+      return put(hold);
+    });
+  }
+
+  @Override
+  public Flux<SeatHold> findExpired(LocalDateTime now, int limit) {
+    return Flux.defer(() -> Flux.fromIterable(byExpiry.headSet(new Expiry(stored(now), HIGHEST_ID), false)))
+        .take(limit)
+        .mapNotNull(entry -> find(entry.id()));
+  }
+}
@@ -0,0 +1,368 @@
+package com.flightapp.repository.embedded;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * In-memory document collections made durable by a journal, for running without a Mongo server
+ * (profile {@value #PROFILE}). Documents are the same BSON the Mongo repositories store, produced by the
+ * same converters, and are never modified once stored: a change replaces the document.
+ *
+ * <p>Every change is appended to the current journal before it is applied, and the journal is forced to
+ * disk every {@code commit-interval}. Every {@code snapshot-interval}, and on shutdown, the store switches to
+ * a new journal generation and writes all documents to a memory-mapped snapshot of that generation; older
+ * files are deleted once the snapshot is on disk. The snapshot is taken without blocking writers, so it may
+ * already contain some changes of the new journal; replaying them again is harmless because every record
+ * carries the whole document.
+ *
+ * <p>Recovery loads the newest snapshot and replays the journals of its generation and later, dropping a
+ * torn record at the end.
+ */
+@Component
+@Profile(EmbeddedStore.PROFILE)
+public class EmbeddedStore implements InitializingBean, DisposableBean {
+
+  public static final String PROFILE = "embedded";
+
+  private static final Logger log = LoggerFactory.getLogger(EmbeddedStore.class);
+  private static final String JOURNAL = "journal-";
+  private static final String SNAPSHOT = "snapshot-";
+  private static final String JOURNAL_SUFFIX = ".log";
+  private static final String SNAPSHOT_SUFFIX = ".bson";
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private static final String OP = "op";
+  private static final String COLLECTION = "c";
+  private static final String ID = "id";
+  private static final String DOC = "doc";
+  private static final String PUT = "put";
+  private static final String DELETE = "delete";
+  private static final String CLEAR = "clear";
+
+  private final MappingMongoConverter converter;
+  private final Path dir;
+  private final Duration commitInterval;
+  private final Duration snapshotInterval;
+
+  private final Map<String, Map<String, Document>> collections = new ConcurrentHashMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Object snapshotLock = new Object();
+  private volatile Journal journal;
+  private long generation;
+  // one thread: writes are serialised by the lock anyway
+  private final Scheduler writer = Schedulers.newBoundedElastic(1, Integer.MAX_VALUE, "embedded-store");
+  private Disposable committer;
+  private Disposable snapshotter;
+
+  public EmbeddedStore(MongoCustomConversions conversions,
+      @Value("${flight.embedded.dir:data/embedded}") String dir,
+      @Value("${flight.embedded.commit-interval:100ms}") Duration commitInterval,
+      @Value("${flight.embedded.snapshot-interval:10m}") Duration snapshotInterval) {
+    this.converter = converter(conversions);
+    this.dir = Path.of(dir);
+    this.commitInterval = commitInterval;
+    this.snapshotInterval = snapshotInterval;
+  }
+
+  private static MappingMongoConverter converter(MongoCustomConversions conversions) {
+    MongoMappingContext context = new MongoMappingContext();
+    context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+    context.afterPropertiesSet();
+    MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+    converter.setCustomConversions(conversions);
+    converter.afterPropertiesSet();
+    return converter;
+  }
+
+  @Override
+  public void afterPropertiesSet() throws IOException {
+    recover();
+    committer = Flux.interval(commitInterval, Schedulers.boundedElastic())
+        .onBackpressureDrop()
+        .subscribe(tick -> commit());
+    snapshotter = Flux.interval(snapshotInterval, Schedulers.boundedElastic())
+        .onBackpressureDrop()
+        .subscribe(tick -> {
+          try {
+            snapshot();
+          } catch (RuntimeException e) {
+            log.error("Snapshot failed: {}", e.getMessage());
+          }
+        });
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (committer != null) {
+      committer.dispose();
+      snapshotter.dispose();
+    }
+    try {
+      snapshot();
+    } finally {
+      lock.lock();
+      try {
+        journal.commit();
+        journal.close();
+      } finally {
+        lock.unlock();
+        writer.dispose();
+      }
+    }
+  }
+
+  public MappingMongoConverter converter() {
+    return converter;
+  }
+
+  public Document get(String collection, String id) {
+    return collection(collection).get(id);
+  }
+
+  /** Read-only live view of a collection, keyed by id. */
+  public Map<String, Document> documents(String collection) {
+    return Collections.unmodifiableMap(collection(collection));
+  }
+
+  private Map<String, Document> collection(String name) {
+    return collections.computeIfAbsent(name, n -> new ConcurrentHashMap<>());
+  }
+
+  /**
+   * Runs {@code action} while holding the write lock, so checks made inside it still hold when its changes
+   * are applied. Changes are journaled in the order they are made.
+   */
+  public <T> T write(Supplier<T> action) {
+    lock.lock();
+    try {
+      return action.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * {@link #write} on the store's writer thread: the journal append is a blocking file write, so it never runs
+   * on the subscriber's thread, which may be an event loop. Empty if {@code action} returns null.
+   *
+   * <p>Cancelling does not stop a write that was queued: interrupting the writer would close the journal's
+   * channel for good.
+   */
+  public <T> Mono<T> writeAsync(Supplier<T> action) {
+    return Mono.create(sink -> writer.schedule(() -> {
+      T result;
+      try {
+        result = write(action);
+      } catch (RuntimeException e) {
+        sink.error(e);
+        return;
+      }
+      sink.success(result);
+    }));
+  }
+
+  public void put(String collection, String id, Document document) {
+    change(new Document(OP, PUT).append(COLLECTION, collection).append(ID, id).append(DOC, document));
+  }
+
+  public void delete(String collection, String id) {
+    change(new Document(OP, DELETE).append(COLLECTION, collection).append(ID, id));
+  }
+
+  public void clear(String collection) {
+    change(new Document(OP, CLEAR).append(COLLECTION, collection));
+  }
+
+  private void change(Document record) {
+    lock.lock();
+    try {
+      journal.append(record);
+      apply(record);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Journal write failed", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void apply(Document record) {
+    Map<String, Document> documents = collection(record.getString(COLLECTION));
+    switch (record.getString(OP)) {
+      case PUT -> documents.put(record.getString(ID), record.get(DOC, Document.class));
+      case DELETE -> documents.remove(record.getString(ID));
+      case CLEAR -> documents.clear();
+      default -> throw new IllegalStateException("Unknown journal operation " + record.getString(OP));
+    }
+  }
+
+  /** Forces the current journal to disk. */
+  public void commit() {
+    Journal current = journal;
+    try {
+      current.commit();
+    } catch (ClosedChannelException e) {
+      // switched to a new generation meanwhile; the old journal was forced before it was closed
+    } catch (IOException e) {
+      log.error("Journal commit failed: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Starts a new journal generation and writes every document to a snapshot of it. Does nothing when the
+   * current journal is empty.
+   */
+  public void snapshot() {
+    synchronized (snapshotLock) {
+      Journal previous;
+      long next;
+      lock.lock();
+      try {
+        if (journal.size() == 0) {
+          return;
+        }
+        previous = journal;
+        next = generation + 1;
+        journal = Journal.open(file(JOURNAL, next, JOURNAL_SUFFIX));
+        generation = next;
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not start a new journal", e);
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        previous.commit();
+        previous.close();
+
+        List<ByteBuffer> records = new ArrayList<>();
+        collections.forEach((collection, documents) -> documents.forEach((id, document) -> records.add(
+            Journal.encode(new Document(OP, PUT).append(COLLECTION, collection).append(ID, id).append(DOC, document)))));
+        Path target = file(SNAPSHOT, next, SNAPSHOT_SUFFIX);
+        Path tmp = target.resolveSibling(target.getFileName() + TMP_SUFFIX);
+        Journal.writeMapped(tmp, records);
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        deleteOlderThan(next);
+        log.info("Snapshot {} written: {} documents", next, records.size());
+      } catch (IOException e) {
+        // the journals are kept, so recovery still has everything
+        throw new UncheckedIOException("Snapshot " + next + " failed", e);
+      }
+    }
+  }
+
+  private void recover() throws IOException {
+    Files.createDirectories(dir);
+    for (Path tmp : list(TMP_SUFFIX)) {
+      Files.delete(tmp);
+    }
+
+    long snapshot = generations(SNAPSHOT, SNAPSHOT_SUFFIX).stream().mapToLong(Long::longValue).max().orElse(0);
+    if (snapshot > 0) {
+      Path file = file(SNAPSHOT, snapshot, SNAPSHOT_SUFFIX);
+      long valid = Journal.read(file, this::apply);
+      if (valid < Files.size(file)) {
+        throw new IOException("Snapshot " + file + " is damaged at offset " + valid);
+      }
+    }
+
+    generation = snapshot;
+    for (long gen : generations(JOURNAL, JOURNAL_SUFFIX)) {
+      if (gen < snapshot) {
+        continue;
+      }
+      Path file = file(JOURNAL, gen, JOURNAL_SUFFIX);
+      long valid = Journal.read(file, this::apply);
+      long size = Files.size(file);
+      if (valid < size) {
+        log.warn("Journal {} ends in an incomplete record, dropping the last {} bytes", file, size - valid);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+          ch.truncate(valid);
+          ch.force(true);
+        }
+      }
+      generation = gen;
+    }
+    deleteOlderThan(snapshot);
+    journal = Journal.open(file(JOURNAL, generation, JOURNAL_SUFFIX));
+
+    Map<String, Integer> counts = new TreeMap<>();
+    collections.forEach((name, documents) -> counts.put(name, documents.size()));
+    log.info("Embedded store recovered from {} at generation {}: {}", dir, generation, counts);
+  }
+
+  private Path file(String prefix, long gen, String suffix) {
+    return dir.resolve(String.format("%s%08d%s", prefix, gen, suffix));
+  }
+
+  private List<Path> list(String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(f -> f.getFileName().toString().endsWith(suffix)).toList();
+    }
+  }
+
+  private List<Long> generations(String prefix, String suffix) throws IOException {
+    List<Long> gens = new ArrayList<>();
+    for (Path f : list(suffix)) {
+      String name = f.getFileName().toString();
+      if (name.startsWith(prefix)) {
+        gens.add(Long.parseLong(name, prefix.length(), name.length() - suffix.length(), 10));
+      }
+    }
+    Collections.sort(gens);
+    return gens;
+  }
+
+  private void deleteOlderThan(long gen) throws IOException {
+    for (long old : generations(SNAPSHOT, SNAPSHOT_SUFFIX)) {
+      if (old < gen) Files.delete(file(SNAPSHOT, old, SNAPSHOT_SUFFIX));
+    }
+    for (long old : generations(JOURNAL, JOURNAL_SUFFIX)) {
+      if (old < gen) Files.delete(file(JOURNAL, old, JOURNAL_SUFFIX));
+    }
+  }
+
+  private void syncDirectory() {
+    try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+      ch.force(true);
+    } catch (IOException e) {
+      // not supported on every platform; the rename is still atomic
+    }
+  }
+}
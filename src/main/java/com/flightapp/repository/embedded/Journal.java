@@ -0,0 +1,162 @@
+package com.flightapp.repository.embedded;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import com.mongodb.MongoClientSettings;
+
+/**
+ * Append-only file of BSON records, each framed as {@code [length][crc32][document]}. The same framing is
+ * used for snapshots, which are written and read through memory-mapped windows.
+ *
+ * <p>A record whose frame or checksum does not match marks the end of the valid data: everything after it
+ * is a write that never completed and is dropped on recovery.
+ */
+final class Journal implements Closeable {
+
+  private static final int HEADER = 2 * Integer.BYTES;
+  private static final int MIN_DOCUMENT = 5;
+  private static final long MAX_WINDOW = 1L << 30;
+  private static final DocumentCodec CODEC = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+
+  private final FileChannel channel;
+  private volatile long size;
+  private volatile boolean dirty;
+
+  private Journal(FileChannel channel) throws IOException {
+    this.channel = channel;
+    this.size = channel.size();
+  }
+
+  static Journal open(Path path) throws IOException {
+    return new Journal(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND));
+  }
+
+  /** Writes the record to the file; it survives a process crash, {@link #commit} makes it survive power loss. */
+  void append(Document record) throws IOException {
+    ByteBuffer frame = encode(record);
+    int length = frame.remaining();
+    while (frame.hasRemaining()) {
+      channel.write(frame);
+    }
+    size += length;
+    dirty = true;
+  }
+
+  /** Forces appended records to disk, if there are any. */
+  void commit() throws IOException {
+    if (dirty) {
+      dirty = false;
+      channel.force(false);
+    }
+  }
+
+  long size() {
+    return size;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  static ByteBuffer encode(Document record) {
+    BasicOutputBuffer out = new BasicOutputBuffer();
+    CODEC.encode(new BsonBinaryWriter(out), record, EncoderContext.builder().build());
+    byte[] payload = out.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    return ByteBuffer.allocate(HEADER + payload.length)
+        .putInt(payload.length)
+        .putInt((int) crc.getValue())
+        .put(payload)
+        .flip();
+  }
+
+  /**
+   * Hands every valid record of the file to {@code consumer}, in order.
+   *
+   * @return length of the valid prefix; less than the file size when the tail is torn
+   */
+  static long read(Path path, Consumer<Document> consumer) throws IOException {
+    try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+      long fileSize = ch.size();
+      long pos = 0;
+      while (pos < fileSize) {
+        MappedByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(fileSize - pos, MAX_WINDOW));
+        while (window.remaining() >= HEADER) {
+          int start = window.position();
+          int length = window.getInt();
+          int checksum = window.getInt();
+          if (length < MIN_DOCUMENT || length > window.remaining()) {
+            // torn, or continues in the next window: retry from the start of the frame
+            window.position(start);
+            break;
+          }
+          ByteBuffer payload = window.slice(window.position(), length);
+          CRC32 crc = new CRC32();
+          crc.update(payload.duplicate());
+          if ((int) crc.getValue() != checksum) {
+            return pos + start;
+          }
+          Document record;
+          try {
+            record = CODEC.decode(new BsonBinaryReader(payload), DecoderContext.builder().build());
+          } catch (RuntimeException e) {
+            return pos + start;
+          }
+          consumer.accept(record);
+          window.position(window.position() + length);
+        }
+        if (window.position() == 0) {
+          return pos;
+        }
+        pos += window.position();
+      }
+      return pos;
+    }
+  }
+
+  /** Writes the encoded records to a new file through memory-mapped windows and forces them to disk. */
+  static void writeMapped(Path path, List<ByteBuffer> records) throws IOException {
+    long total = 0;
+    for (ByteBuffer record : records) {
+      total += record.remaining();
+    }
+    try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      long pos = 0;
+      MappedByteBuffer window = null;
+      for (ByteBuffer record : records) {
+        if (window == null || window.remaining() < record.remaining()) {
+          if (window != null) {
+            window.force();
+            pos += window.position();
+          }
+          window = ch.map(FileChannel.MapMode.READ_WRITE, pos, Math.min(total - pos, MAX_WINDOW));
+        }
+        window.put(record.duplicate());
+      }
+      if (window != null) {
+        window.force();
+      }
+    }
+  }
+}
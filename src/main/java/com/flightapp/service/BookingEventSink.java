@@ -0,0 +1,20 @@
+package com.flightapp.service;
+
+import java.util.List;
+
+import com.flightapp.event.BookingLifecycleEvent;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Where the {@link OutboxRelay} hands booking lifecycle events over. Chosen with {@code flight.outbox.sink}:
+ * {@code in-process} (default) or {@code file}.
+ */
+public interface BookingEventSink {
+
+  /**
+   * Delivers one batch, in order. Completes once the whole batch is accepted; on an error the relay hands
+   * the same events over again, so a sink may see an event more than once.
+   */
+  Mono<Void> deliver(List<BookingLifecycleEvent> batch);
+}
@@ -0,0 +1,97 @@
+package com.flightapp.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Counters for the booking mutations: how each book, cancel, update and seat hold ended, how often a claim
+ * lost its seats to another booking, how often a PNR had to be drawn again, how many holds expired and how
+ * many retries were answered from an {@code Idempotency-Key} instead of running again.
+ * Outcomes are {@code success} or the name of the business rule that rejected the request
+ * ({@code seat_unavailable} for {@code ERR_SEAT_UNAVAILABLE}), so the set of tag values is fixed. Counters
+ * are created on first use and looked up without allocating afterwards.
+ */
+@Component
+public class BookingMetrics {
+
+  public static final String OUTCOMES = "flight.booking.outcomes";
+  public static final String SEAT_CONFLICTS = "flight.booking.seat.conflicts";
+  public static final String PNR_RETRIES = "flight.booking.pnr.retries";
+  public static final String HOLDS_EXPIRED = "flight.booking.holds.expired";
+  public static final String IDEMPOTENT_REPLAYS = "flight.booking.idempotent.replays";
+
+  public static final String BOOK = "book";
+  public static final String CANCEL = "cancel";
+  public static final String UPDATE = "update";
+  public static final String HOLD = "hold";
+  public static final String CONFIRM = "confirm";
+  public static final String RELEASE_HOLD = "release_hold";
+
+  public static final String SUCCESS = "success";
+  /** Anything that is not a business rule: storage errors, timeouts, bugs. */
+  public static final String UNEXPECTED = "unexpected";
+
+  private final MeterRegistry registry;
+  private final Map<String, Map<String, Counter>> outcomes = new ConcurrentHashMap<>();
+  private final Map<String, Counter> seatConflicts = new ConcurrentHashMap<>();
+  private final Map<String, Counter> idempotentReplays = new ConcurrentHashMap<>();
+  private final Counter pnrRetries;
+  private final Counter holdsExpired;
+
+  public BookingMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.pnrRetries = Counter.builder(PNR_RETRIES)
+        .description("PNRs drawn again after a unique index collision")
+        .register(registry);
+    this.holdsExpired = Counter.builder(HOLDS_EXPIRED)
+        .description("Seat holds released because they were not confirmed in time")
+        .register(registry);
+  }
+
+  /** Counts nothing; a registry without children hands out no-op meters. */
+  public static BookingMetrics disabled() {
+    return new BookingMetrics(new CompositeMeterRegistry());
+  }
+
+  public void outcome(String operation, String outcome) {
+    outcomes.computeIfAbsent(operation, op -> new ConcurrentHashMap<>())
+        .computeIfAbsent(outcome, o -> Counter.builder(OUTCOMES)
+            .description("Booking mutations by how they ended")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .register(registry))
+        .increment();
+  }
+
+  public void seatConflict(String operation) {
+    seatConflicts.computeIfAbsent(operation, op -> Counter.builder(SEAT_CONFLICTS)
+            .description("Seat claims that found a requested seat already taken")
+            .tag("operation", operation)
+            .register(registry))
+        .increment();
+  }
+
+  public void idempotentReplay(String operation) {
+    idempotentReplays.computeIfAbsent(operation, op -> Counter.builder(IDEMPOTENT_REPLAYS)
+            .description("Requests answered with the stored outcome of an earlier one with the same key")
+            .tag("operation", operation)
+            .register(registry))
+        .increment();
+  }
+
+  public void pnrRetry() {
+    pnrRetries.increment();
+  }
+
+  public void holdsExpired(int count) {
+    if (count > 0) {
+      holdsExpired.increment(count);
+    }
+  }
+}
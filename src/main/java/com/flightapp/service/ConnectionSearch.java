@@ -0,0 +1,418 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.Itinerary;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.event.FlightsAdded;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.repository.InventoryRepository;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Connection search over an in-memory graph of the flights still to depart: per airport its departures, and
+ * per route its flights, both in departure order, so the onward flights of a leg are one range read. A search
+ * takes the first legs leaving the origin in the requested window and expands each one in parallel, at most
+ * {@code parallelism} at a time: a leg to the destination is a direct trip, a leg elsewhere is joined with the
+ * flights to the destination leaving within the layover window, and for two stops with at most {@code fan-out}
+ * onward flights of the connecting airport and their flights to the destination. Each expansion keeps only
+ * its best {@code limit} trips, so the merge stays small however dense the network is.
+ *
+ * <p>The graph is built from the inventory summaries at startup and again every {@code rebuild-interval},
+ * which drops departed flights. In between it follows the service's change events: new flights are added and
+ * seat changes move the leg's free seat count, so sold-out legs are skipped. A seat change that lands while a
+ * rebuild reads the inventories may be missed until the next one; booking checks the seats itself, so a trip
+ * shown with a seat too many fails there like any other lost race.
+ */
+@Component
+public class ConnectionSearch implements InitializingBean, DisposableBean {
+
+  public static final int MAX_STOPS = 2;
+
+  static final String ERR_DISABLED = "Connection search is disabled";
+  static final String ERR_ORIGIN_DEST_SAME = "Origin and destination cannot be the same";
+  static final String ERR_WINDOW = "from must be before to";
+  static final String ERR_STOPS = "maxStops must be between 0 and " + MAX_STOPS;
+
+  private static final Logger log = LoggerFactory.getLogger(ConnectionSearch.class);
+  private static final String FIRST_ID = "";
+  private static final String LAST_ID = "\uffff";
+
+  public enum Rank {
+    DURATION, PRICE;
+
+    /** Case-insensitive lookup; null means the default, shortest trip first. */
+    public static Rank from(String name) {
+      if (name == null || name.isBlank()) {
+        return DURATION;
+      }
+      for (Rank rank : values()) {
+        if (rank.name().equalsIgnoreCase(name)) {
+          return rank;
+        }
+      }
+      throw new IllegalArgumentException("sortBy must be duration or price");
+    }
+  }
+
+  /** One flight as an edge of the graph. Only the free seat count changes; a changed flight is a new leg. */
+  static final class Leg {
+    final String id;
+    final String origin;
+    final String destination;
+    final LocalDateTime departure;
+    final LocalDateTime arrival;
+    final double price;
+    final FlightSummary flight;
+    final AtomicInteger seats;
+
+    private Leg(String id, String origin, String destination, LocalDateTime departure, LocalDateTime arrival,
+        double price, FlightSummary flight, int seats) {
+      this.id = id;
+      this.origin = origin;
+      this.destination = destination;
+      this.departure = departure;
+      this.arrival = arrival;
+      this.price = price;
+      this.flight = flight;
+      this.seats = new AtomicInteger(seats);
+    }
+
+    static Leg of(FlightSummary flight) {
+      return new Leg(flight.getId(), flight.getOrigin(), flight.getDestination(), flight.getDeparture(),
+          flight.getArrival(), flight.getPrice(), flight, flight.getAvailableSeats());
+    }
+
+    static Leg of(AirlineInventory inventory) {
+      FlightSummary flight = new FlightSummary();
+      flight.setId(inventory.getId());
+      flight.setAirline(inventory.getAirline());
+      flight.setAirlineLogoUrl(inventory.getAirlineLogoUrl());
+      flight.setFlightNumber(inventory.getFlightNumber());
+      flight.setOrigin(inventory.getOrigin());
+      flight.setDestination(inventory.getDestination());
+      flight.setDeparture(inventory.getDeparture());
+      flight.setArrival(inventory.getArrival());
+      flight.setPrice(inventory.getPrice());
+      flight.setTotalSeats(inventory.getTotalSeats());
+      flight.setAvailableSeats(inventory.getSeatMap() == null
+          ? inventory.getTotalSeats() : inventory.getSeatMap().availableCount());
+      return of(flight);
+    }
+
+    /** Bound of a departure range: sorts before or after every leg leaving at {@code departure}. */
+    private static Leg bound(LocalDateTime departure, String id) {
+      return new Leg(id, null, null, departure, null, 0, null, 0);
+    }
+
+    FlightSummary summary() {
+      FlightSummary copy = new FlightSummary();
+      copy.setId(flight.getId());
+      copy.setAirline(flight.getAirline());
+      copy.setAirlineLogoUrl(flight.getAirlineLogoUrl());
+      copy.setFlightNumber(flight.getFlightNumber());
+      copy.setOrigin(origin);
+      copy.setDestination(destination);
+      copy.setDeparture(departure);
+      copy.setArrival(arrival);
+      copy.setPrice(price);
+      copy.setTotalSeats(flight.getTotalSeats());
+      copy.setAvailableSeats(seats.get());
+      return copy;
+    }
+  }
+
+  private static final Comparator<Leg> DEPARTURE_ORDER =
+      Comparator.comparing((Leg leg) -> leg.departure).thenComparing(leg -> leg.id);
+
+  /** The flights still to depart, indexed by departure airport and by route. */
+  static final class Graph {
+    final Map<String, Leg> legs = new ConcurrentHashMap<>();
+    final Map<String, NavigableSet<Leg>> byOrigin = new ConcurrentHashMap<>();
+    final Map<String, NavigableSet<Leg>> byRoute = new ConcurrentHashMap<>();
+
+    void put(Leg leg) {
+      Leg previous = legs.put(leg.id, leg);
+      if (previous != null) {
+        departures(byOrigin, previous.origin).remove(previous);
+        departures(byRoute, route(previous.origin, previous.destination)).remove(previous);
+      }
+      departures(byOrigin, leg.origin).add(leg);
+      departures(byRoute, route(leg.origin, leg.destination)).add(leg);
+    }
+
+    private static NavigableSet<Leg> departures(Map<String, NavigableSet<Leg>> index, String key) {
+      return index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(DEPARTURE_ORDER));
+    }
+
+    static String route(String origin, String destination) {
+      return origin + ':' + destination;
+    }
+  }
+
+  /** A candidate trip; only the ones that make the final cut become {@link Itinerary} objects. */
+  private record Trip(Leg[] legs, long minutes, double price) {
+
+    static Trip of(Leg... legs) {
+      double price = 0;
+      for (Leg leg : legs) {
+        price += leg.price;
+      }
+      return new Trip(legs, Duration.between(legs[0].departure, legs[legs.length - 1].arrival).toMinutes(), price);
+    }
+
+    Itinerary itinerary() {
+      List<FlightSummary> flights = Arrays.stream(legs).map(Leg::summary).toList();
+      int seats = flights.stream().mapToInt(FlightSummary::getAvailableSeats).min().orElse(0);
+      return new Itinerary(flights, legs.length - 1, legs[0].departure, legs[legs.length - 1].arrival, minutes,
+          price, seats);
+    }
+  }
+
+  private static final Comparator<Trip> TIE_BREAK = Comparator.comparing((Trip trip) -> trip.legs()[0].departure)
+      .thenComparingInt(trip -> trip.legs().length)
+      .thenComparing((a, b) -> {
+        for (int i = 0; i < a.legs().length; i++) {
+          int c = a.legs()[i].id.compareTo(b.legs()[i].id);
+          if (c != 0) {
+            return c;
+          }
+        }
+        return 0;
+      });
+  private static final Comparator<Trip> BY_DURATION =
+      Comparator.comparingLong(Trip::minutes).thenComparingDouble(Trip::price).thenComparing(TIE_BREAK);
+  private static final Comparator<Trip> BY_PRICE =
+      Comparator.comparingDouble(Trip::price).thenComparingLong(Trip::minutes).thenComparing(TIE_BREAK);
+
+  private final InventoryRepository inventoryRepository;
+  private final boolean enabled;
+  private final Duration minLayover;
+  private final Duration maxLayover;
+  private final int fanOut;
+  private final int parallelism;
+  private final Duration rebuildInterval;
+  private volatile Graph graph = new Graph();
+  private Disposable rebuilder;
+
+  public ConnectionSearch(InventoryRepository inventoryRepository,
+      @Value("${flight.connections.enabled:true}") boolean enabled,
+      @Value("${flight.connections.min-layover:45m}") Duration minLayover,
+      @Value("${flight.connections.max-layover:6h}") Duration maxLayover,
+      @Value("${flight.connections.fan-out:32}") int fanOut,
+      @Value("${flight.connections.parallelism:4}") int parallelism,
+      @Value("${flight.connections.rebuild-interval:1h}") Duration rebuildInterval) {
+    this.inventoryRepository = inventoryRepository;
+    this.enabled = enabled;
+    this.minLayover = minLayover;
+    this.maxLayover = maxLayover;
+    this.fanOut = fanOut;
+    this.parallelism = parallelism;
+    this.rebuildInterval = rebuildInterval;
+  }
+
+  public static ConnectionSearch disabled() {
+    return new ConnectionSearch(null, false, Duration.ZERO, Duration.ZERO, 0, 1, Duration.ZERO);
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (!enabled) {
+      return;
+    }
+    Flux<Integer> rebuilds = rebuildInterval.isZero() ? Flux.empty() : Flux.interval(rebuildInterval)
+        .onBackpressureDrop()
+        .concatMap(tick -> rebuild().onErrorResume(err -> {
+          log.error("Connection graph rebuild failed: {}", err.getMessage());
+          return Mono.empty();
+        }));
+    rebuilder = rebuild()
+        .onErrorResume(err -> {
+          log.error("Could not build the connection graph: {}", err.getMessage());
+          return Mono.empty();
+        })
+        .thenMany(rebuilds)
+        .subscribe();
+  }
+
+  @Override
+  public void destroy() {
+    if (rebuilder != null) {
+      rebuilder.dispose();
+    }
+  }
+
+  /** Replaces the graph with one read from the inventories, without the flights that already left. */
+  public Mono<Integer> rebuild() {
+    if (!enabled) {
+      return Mono.error(new IllegalStateException(ERR_DISABLED));
+    }
+    return Mono.defer(() -> {
+      LocalDateTime now = LocalDateTime.now();
+      Graph next = new Graph();
+      return inventoryRepository.findAllSummaries()
+          .filter(flight -> flight.getDeparture().isAfter(now))
+          .doOnNext(flight -> next.put(Leg.of(flight)))
+          .then(Mono.fromCallable(() -> {
+            graph = next;
+            return next.legs.size();
+          }));
+    });
+  }
+
+  @EventListener
+  public void onInventoryChanged(FlightInventoryChanged event) {
+    if (!enabled) {
+      return;
+    }
+    if (event.claimed().isEmpty() && event.released().isEmpty()) {
+      // only a new flight comes with its seat map and no seats changed
+      if (event.flight() != null && event.flight().getSeatMap() != null) {
+        graph.put(Leg.of(event.flight()));
+      }
+      return;
+    }
+    Leg leg = graph.legs.get(event.flightId());
+    if (leg != null) {
+      leg.seats.addAndGet(event.released().size() - event.claimed().size());
+    }
+  }
+
+  @EventListener
+  public void onFlightsAdded(FlightsAdded event) {
+    if (!enabled) {
+      return;
+    }
+    Graph current = graph;
+    event.flights().forEach(flight -> current.put(Leg.of(flight)));
+  }
+
+  /**
+   * Trips from {@code origin} to {@code destination} whose first flight leaves strictly between {@code from}
+   * and {@code to}, with at most {@code maxStops} connections and a free seat per passenger on every leg, best
+   * {@code limit} first by {@code rank}. Connecting airports are never the origin or visited twice. A window
+   * that starts in the past starts now: the graph keeps departed flights until the next rebuild.
+   */
+  public Flux<Itinerary> search(String origin, String destination, LocalDateTime from, LocalDateTime to,
+      int maxStops, int passengers, Rank rank, int limit) {
+    if (!enabled) {
+      return Flux.error(new IllegalStateException(ERR_DISABLED));
+    }
+    if (origin.equalsIgnoreCase(destination)) {
+      return Flux.error(new IllegalArgumentException(ERR_ORIGIN_DEST_SAME));
+    }
+    if (!from.isBefore(to)) {
+      return Flux.error(new IllegalArgumentException(ERR_WINDOW));
+    }
+    if (maxStops < 0 || maxStops > MAX_STOPS) {
+      return Flux.error(new IllegalArgumentException(ERR_STOPS));
+    }
+    Comparator<Trip> order = rank == Rank.PRICE ? BY_PRICE : BY_DURATION;
+    return Flux.defer(() -> {
+      LocalDateTime now = LocalDateTime.now();
+      LocalDateTime earliest = from.isBefore(now) ? now : from;
+      if (!earliest.isBefore(to)) {
+        return Flux.<Itinerary>empty();
+      }
+      Graph current = graph;
+      List<Leg> first = open(current.byOrigin.get(origin), earliest, to, false, passengers, Integer.MAX_VALUE,
+          leg -> true);
+      return Flux.fromIterable(first)
+          .flatMap(leg -> Mono.fromCallable(() ->
+                  expand(current, leg, destination, maxStops, passengers, order, limit))
+              .subscribeOn(Schedulers.parallel()), parallelism)
+          .flatMapIterable(trips -> trips)
+          .sort(order)
+          .take(limit)
+          .map(Trip::itinerary);
+    });
+  }
+
+  private List<Trip> expand(Graph current, Leg first, String destination, int maxStops, int passengers,
+      Comparator<Trip> order, int limit) {
+    List<Trip> trips = new ArrayList<>();
+    if (first.destination.equals(destination)) {
+      trips.add(Trip.of(first));
+      return trips;
+    }
+    if (maxStops == 0) {
+      return trips;
+    }
+    for (Leg second : onward(current.byRoute.get(Graph.route(first.destination, destination)), first, passengers,
+        leg -> true)) {
+      trips.add(Trip.of(first, second));
+    }
+    if (maxStops > 1) {
+      // straight to the destination is a one-stop trip, back to the origin a loop
+      for (Leg second : onward(current.byOrigin.get(first.destination), first, passengers,
+          leg -> !leg.destination.equals(destination) && !leg.destination.equals(first.origin))) {
+        for (Leg third : onward(current.byRoute.get(Graph.route(second.destination, destination)), second,
+            passengers, leg -> true)) {
+          trips.add(Trip.of(first, second, third));
+        }
+      }
+    }
+    if (trips.size() > limit) {
+      trips.sort(order);
+      return trips.subList(0, limit);
+    }
+    return trips;
+  }
+
+  /** Flights of {@code departures} that can follow {@code arriving}, at most {@code fan-out} of them. */
+  private List<Leg> onward(NavigableSet<Leg> departures, Leg arriving, int passengers, Predicate<Leg> follow) {
+    return open(departures, arriving.arrival.plus(minLayover), arriving.arrival.plus(maxLayover), true,
+        passengers, fanOut, follow);
+  }
+
+  /**
+   * The first {@code max} legs to {@code follow} with a seat per passenger, leaving from {@code from} to
+   * {@code to}, both included or both excluded.
+   */
+  private static List<Leg> open(NavigableSet<Leg> departures, LocalDateTime from, LocalDateTime to,
+      boolean inclusive, int passengers, int max, Predicate<Leg> follow) {
+    if (departures == null || from.isAfter(to)) {
+      return List.of();
+    }
+    Leg lower = inclusive ? Leg.bound(from, FIRST_ID) : Leg.bound(from, LAST_ID);
+    Leg upper = inclusive ? Leg.bound(to, LAST_ID) : Leg.bound(to, FIRST_ID);
+    List<Leg> open = new ArrayList<>();
+    for (Leg leg : departures.subSet(lower, false, upper, false)) {
+      if (leg.seats.get() >= passengers && follow.test(leg)) {
+        open.add(leg);
+        if (open.size() == max) {
+          break;
+        }
+      }
+    }
+    return open;
+  }
+}
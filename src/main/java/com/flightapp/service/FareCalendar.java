@@ -0,0 +1,163 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.dto.FareDay;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.event.FlightsAdded;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.repository.InventoryRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lowest fare per day of a route and month, read with one index-covered aggregation and cached per route
+ * and month; identical concurrent misses share one aggregation. A month is dropped when a flight is added to
+ * it or when a seat change may have moved its fares: a claim on a day's cheapest open flight (it may have
+ * sold out) or a release on a day that was sold out or on a flight cheaper than the day's fare (it may have
+ * reopened). Other seat changes leave the month cached. A release that comes without the flight drops the
+ * month of the flight once its route is read back. A max size of 0 turns the cache off.
+ *
+ * <p>A cached month is an unmodifiable list of {@link FareDay} records, so it is shared with every caller.
+ */
+@Component
+public class FareCalendar {
+
+  public record Key(String origin, String destination, YearMonth month) {
+
+    static Key of(AirlineInventory flight) {
+      return new Key(flight.getOrigin(), flight.getDestination(), YearMonth.from(flight.getDeparture()));
+    }
+  }
+
+  public record Stats(long hits, long misses, long coalesced, long invalidations, long size) {
+  }
+
+  private final InventoryRepository inventoryRepository;
+  private final AsyncCache<Key, List<FareDay>> cache;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  public FareCalendar(InventoryRepository inventoryRepository,
+      @Value("${flight.fare-calendar.max-size:5000}") long maxSize,
+      @Value("${flight.fare-calendar.ttl:5m}") Duration ttl) {
+    this.inventoryRepository = inventoryRepository;
+    this.cache = maxSize <= 0 ? null : Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl)
+        .buildAsync();
+  }
+
+  /** Days of the month with flights on the route, in date order. */
+  public Flux<FareDay> month(String origin, String destination, YearMonth month) {
+    Key key = new Key(origin, destination, month);
+    if (cache == null) {
+      return Flux.defer(() -> load(key));
+    }
+    // nothing is looked up or loaded before the caller subscribes
+    return Flux.defer(() -> lookup(key));
+  }
+
+  private Flux<FareDay> lookup(Key key) {
+    CompletableFuture<List<FareDay>> created = new CompletableFuture<>();
+    CompletableFuture<List<FareDay>> existing = cache.asMap().putIfAbsent(key, created);
+    if (existing != null) {
+      (existing.isDone() ? hits : coalesced).increment();
+      return fromFuture(existing);
+    }
+    misses.increment();
+    // failed loads complete exceptionally and Caffeine drops them, so errors are never cached; the load runs
+    // on its own so that a caller that cancels does not cancel it for the others waiting on it
+    load(key).collectList().map(List::copyOf).subscribe(created::complete, created::completeExceptionally);
+    return fromFuture(created);
+  }
+
+  private Flux<FareDay> load(Key key) {
+    return inventoryRepository.findFareDays(key.origin(), key.destination(), key.month().atDay(1).atStartOfDay(),
+        key.month().plusMonths(1).atDay(1).atStartOfDay());
+  }
+
+  private static Flux<FareDay> fromFuture(CompletableFuture<List<FareDay>> future) {
+    // never cancel the shared future: other callers may be waiting on it
+    return Mono.fromFuture(future, true).flatMapIterable(days -> days);
+  }
+
+  @EventListener
+  public void onInventoryChanged(FlightInventoryChanged event) {
+    if (cache == null) {
+      return;
+    }
+    AirlineInventory flight = event.flight();
+    if (flight == null || flight.getOrigin() == null || flight.getDeparture() == null) {
+      // a release that did not read the flight back: look its route up and drop that month only
+      inventoryRepository.findById(event.flightId()).subscribe(found -> invalidate(Key.of(found)), err -> {
+        cache.synchronous().invalidateAll();
+        invalidations.increment();
+      });
+      return;
+    }
+    Key key = Key.of(flight);
+    CompletableFuture<List<FareDay>> entry = cache.getIfPresent(key);
+    if (entry == null) {
+      return;
+    }
+    boolean added = event.claimed().isEmpty() && event.released().isEmpty();
+    if (added || !entry.isDone() || entry.isCompletedExceptionally()
+        || mayChange(entry.join(), flight, !event.claimed().isEmpty(), !event.released().isEmpty())) {
+      invalidate(key, entry);
+    }
+  }
+
+  @EventListener
+  public void onFlightsAdded(FlightsAdded event) {
+    if (cache == null) {
+      return;
+    }
+    event.flights().stream().map(Key::of).distinct().forEach(this::invalidate);
+  }
+
+  private void invalidate(Key key) {
+    CompletableFuture<List<FareDay>> entry = cache.getIfPresent(key);
+    if (entry != null) {
+      invalidate(key, entry);
+    }
+  }
+
+  private void invalidate(Key key, CompletableFuture<List<FareDay>> entry) {
+    // an entry still loading is dropped too: it may have read the flight before the change
+    if (cache.asMap().remove(key, entry)) {
+      invalidations.increment();
+    }
+  }
+
+  /** Whether claiming or releasing seats of {@code flight} can change the cached fares of its day. */
+  static boolean mayChange(List<FareDay> days, AirlineInventory flight, boolean claimed, boolean released) {
+    LocalDate departure = flight.getDeparture().toLocalDate();
+    FareDay day = days.stream().filter(fares -> fares.day().equals(departure)).findFirst().orElse(null);
+    if (day == null) {
+      return true;
+    }
+    double price = flight.getPrice();
+    return (claimed && (!day.seatsAvailable() || price <= day.minPrice()))
+        || (released && (!day.seatsAvailable() || price < day.minPrice()));
+  }
+
+  public Stats stats() {
+    long size = cache == null ? 0 : cache.synchronous().estimatedSize();
+    return new Stats(hits.sum(), misses.sum(), coalesced.sum(), invalidations.sum(), size);
+  }
+}
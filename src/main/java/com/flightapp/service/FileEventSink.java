@@ -0,0 +1,63 @@
+package com.flightapp.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.event.BookingLifecycleEvent;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Appends relayed events to a file, one JSON object per line, for local testing of consumers. A batch is
+ * written with one append and forced to disk before it counts as delivered; a batch that is redelivered after
+ * a crash shows up twice in the file.
+ */
+@Component
+@ConditionalOnProperty(name = "flight.outbox.sink", havingValue = "file")
+public class FileEventSink implements BookingEventSink {
+
+  private final JsonMapper mapper = JsonMapper.builder().build();
+  private final Path file;
+
+  public FileEventSink(@Value("${flight.outbox.file:data/outbox-events.ndjson}") Path file) {
+    this.file = file;
+  }
+
+  @Override
+  public Mono<Void> deliver(List<BookingLifecycleEvent> batch) {
+    return Mono.<Void>fromRunnable(() -> append(batch)).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private synchronized void append(List<BookingLifecycleEvent> batch) {
+    StringBuilder lines = new StringBuilder();
+    batch.forEach(event -> lines.append(mapper.writeValueAsString(event)).append('\n'));
+    try {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND)) {
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+          channel.write(bytes);
+        }
+        channel.force(false);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -4,17 +4,39 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import com.flightapp.model.AirlineInventory;
 import com.flightapp.model.Booking;
+import com.flightapp.model.SeatHold;
+import com.flightapp.dto.BookingHistoryItem;
 import com.flightapp.dto.BookingRequest;
 import com.flightapp.dto.BookingUpdateRequest;
+import com.flightapp.dto.CalendarDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.HoldConfirmRequest;
+import com.flightapp.dto.SearchPage;
+import com.flightapp.dto.SeatHoldRequest;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 public interface FlightService {
   Mono<AirlineInventory> addInventory(AirlineInventory inventory);
   Flux<AirlineInventory> search(String origin, String destination, LocalDateTime from, LocalDateTime to);
+  Flux<FlightSummary> searchSummaries(String origin, String destination, LocalDateTime from, LocalDateTime to);
+  Mono<SearchPage<AirlineInventory>> searchPage(String origin, String destination, LocalDateTime from,
+      LocalDateTime to, String sortBy, Integer limit, String cursor);
+  Mono<SearchPage<FlightSummary>> searchSummaryPage(String origin, String destination, LocalDateTime from,
+      LocalDateTime to, String sortBy, Integer limit, String cursor);
+  Flux<CalendarDay> calendar(String origin, String destination, LocalDate from, LocalDate to);
+  Mono<AirlineInventory> findFlight(String flightId);
   Mono<Booking> book(String flightId, BookingRequest req);
+  Mono<SeatHold> holdSeats(String flightId, SeatHoldRequest req);
+  Mono<Booking> confirmHold(String token, HoldConfirmRequest req);
+  Mono<Void> releaseHold(String token, String email);
   Mono<Booking> findByPnr(String pnr);
   Flux<Booking> findByEmail(String email);
+  Mono<SearchPage<BookingHistoryItem>> historyPage(String email, String status, LocalDateTime from,
+      LocalDateTime to, Integer limit, String cursor);
+  Flux<BookingHistoryItem> history(String email, String status, LocalDateTime from, LocalDateTime to,
+      Integer limit, String cursor);
   Mono<Void> cancelByPnrAndEmail(String pnr, String email);
   Mono<Booking> updateBooking(String pnr, BookingUpdateRequest req);
   }
\ No newline at end of file
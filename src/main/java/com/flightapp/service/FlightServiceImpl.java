@@ -1,28 +1,76 @@
 package com.flightapp.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import com.flightapp.repository.InventoryRepository;
 import com.flightapp.repository.BookingRepository;
 import com.flightapp.model.AirlineInventory;
 import com.flightapp.model.Booking;
+import com.flightapp.model.OutboxEntry;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.PendingRelease;
+import com.flightapp.model.SeatHold;
+import com.flightapp.model.SeatMap;
+import com.flightapp.dto.BookingHistoryItem;
 import com.flightapp.dto.BookingRequest;
 import com.flightapp.dto.BookingUpdateRequest;
+import com.flightapp.dto.CalendarDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.HoldConfirmRequest;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.dto.SearchCursor;
+import com.flightapp.dto.SearchPage;
+import com.flightapp.dto.SearchSort;
+import com.flightapp.dto.SeatHoldRequest;
+import com.flightapp.event.FlightInventoryChanged;
 import com.flightapp.util.PnrGenerator;
 
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Service
 public class FlightServiceImpl implements FlightService {
 
     private final InventoryRepository inventoryRepository;
     private final BookingRepository bookingRepository;
+    private final SeatAllocator seatAllocator;
+    private final SearchCache searchCache;
+    private final PnrCache pnrCache;
+    private final ApplicationEventPublisher events;
+    private final BookingMetrics metrics;
+    private final SeatHolds seatHolds;
+    private final RouteDaySummaries routeDays;
+    private final SeatReleases seatReleases;
+    private final boolean outboxEnabled;
+
+    private static final Logger log = LoggerFactory.getLogger(FlightServiceImpl.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    // reads after a write whose outcome is unknown, to learn whether it landed
+    private static final int READ_BACK_ATTEMPTS = 3;
+    private static final Duration READ_BACK_BACKOFF = Duration.ofMillis(50);
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_PNR_ATTEMPTS = 5;
+    private static final int MAX_CALENDAR_DAYS = 92;
 
     private static final String ERR_ORIGIN_DEST_SAME = "Origin and destination cannot be the same";
     private static final String ERR_ARRIVAL_BEFORE_DEPARTURE = "Arrival must be after departure";
@@ -30,8 +78,13 @@ public class FlightServiceImpl implements FlightService {
     private static final String ERR_FLIGHT_NOT_FOUND = "Flight not found";
     private static final String ERR_SELECT_SEAT = "At least one seat must be selected";
     private static final String ERR_SEAT_UNAVAILABLE = "Some selected seats are unavailable";
+    private static final String ERR_DUPLICATE_SEATS = "The same seat cannot be selected twice";
+    private static final String ERR_FLIGHT_DEPARTED = "Cannot book a flight that already departed";
     private static final String ERR_PASSENGER_SEAT_MISMATCH = "Passenger count must match selected seats";
     private static final String ERR_PNR_NOT_FOUND = "PNR not found";
+    private static final String ERR_INVALID_STATUS = "Status must be ACTIVE or CANCELLED";
+    private static final String ERR_INVALID_LIMIT = "Limit must be between 1 and " + MAX_PAGE_SIZE;
+    private static final String ERR_CALENDAR_RANGE = "Calendar range must be 1 to " + MAX_CALENDAR_DAYS + " days";
     private static final String ERR_ONLY_OWNER = "Only owner can cancel the booking";
     private static final String ERR_ALREADY_CANCELLED = "Booking already cancelled";
     private static final String ERR_CANCEL_WINDOW = "Cancellation allowed only 24 hrs before journey";
@@ -41,86 +94,404 @@ public class FlightServiceImpl implements FlightService {
     private static final String ERR_REQUESTED_SEATS_UNAVAILABLE = "One or more requested seats are not available";
     private static final String ERR_PASSENGER_COUNT_NEWSEATS = "Passenger count must match the number of requested seats";
     private static final String ERR_FLIGHT_NOT_FOUND_FOR_BOOKING = "Flight not found for this booking";
-
-    public FlightServiceImpl(InventoryRepository inventoryRepository, BookingRepository bookingRepository) {
+    private static final String ERR_HOLDS_DISABLED = "Seat holds are disabled";
+    private static final String ERR_HOLD_NOT_FOUND = "Hold not found or expired";
+    private static final String ERR_HOLD_ONLY_OWNER = "Only the holder can use this hold";
+
+    /**
+     * Outcome tag per error message: the constant's name without ERR_, so ERR_SEAT_UNAVAILABLE is seat_unavailable.
+     * A new error constant goes here too, or it is counted as unexpected and replayed as a failure.
+     */
+    private static final Map<String, String> OUTCOMES = Map.ofEntries(
+            Map.entry(ERR_ORIGIN_DEST_SAME, "origin_dest_same"),
+            Map.entry(ERR_ARRIVAL_BEFORE_DEPARTURE, "arrival_before_departure"),
+            Map.entry(ERR_TOTAL_SEATS_POSITIVE, "total_seats_positive"),
+            Map.entry(ERR_FLIGHT_NOT_FOUND, "flight_not_found"),
+            Map.entry(ERR_SELECT_SEAT, "select_seat"),
+            Map.entry(ERR_SEAT_UNAVAILABLE, "seat_unavailable"),
+            Map.entry(ERR_DUPLICATE_SEATS, "duplicate_seats"),
+            Map.entry(ERR_FLIGHT_DEPARTED, "flight_departed"),
+            Map.entry(ERR_PASSENGER_SEAT_MISMATCH, "passenger_seat_mismatch"),
+            Map.entry(ERR_PNR_NOT_FOUND, "pnr_not_found"),
+            Map.entry(ERR_INVALID_STATUS, "invalid_status"),
+            Map.entry(ERR_INVALID_LIMIT, "invalid_limit"),
+            Map.entry(ERR_CALENDAR_RANGE, "calendar_range"),
+            Map.entry(ERR_ONLY_OWNER, "only_owner"),
+            Map.entry(ERR_ALREADY_CANCELLED, "already_cancelled"),
+            Map.entry(ERR_CANCEL_WINDOW, "cancel_window"),
+            Map.entry(ERR_UPDATE_ONLY_OWNER, "update_only_owner"),
+            Map.entry(ERR_UPDATE_CANCELLED, "update_cancelled"),
+            Map.entry(ERR_UPDATE_WINDOW, "update_window"),
+            Map.entry(ERR_REQUESTED_SEATS_UNAVAILABLE, "requested_seats_unavailable"),
+            Map.entry(ERR_PASSENGER_COUNT_NEWSEATS, "passenger_count_newseats"),
+            Map.entry(ERR_FLIGHT_NOT_FOUND_FOR_BOOKING, "flight_not_found_for_booking"),
+            Map.entry(ERR_HOLDS_DISABLED, "holds_disabled"),
+            Map.entry(ERR_HOLD_NOT_FOUND, "hold_not_found"),
+            Map.entry(ERR_HOLD_ONLY_OWNER, "hold_only_owner"));
+
+    public FlightServiceImpl(InventoryRepository inventoryRepository, BookingRepository bookingRepository,
+                             SeatAllocator seatAllocator, SearchCache searchCache, PnrCache pnrCache,
+                             ApplicationEventPublisher events, BookingMetrics metrics, SeatHolds seatHolds,
+                             RouteDaySummaries routeDays, SeatReleases seatReleases,
+                             @Value("${flight.outbox.enabled:true}") boolean outboxEnabled) {
         this.inventoryRepository = inventoryRepository;
         this.bookingRepository = bookingRepository;
+        this.seatAllocator = seatAllocator;
+        this.searchCache = searchCache;
+        this.pnrCache = pnrCache;
+        this.events = events;
+        this.metrics = metrics;
+        this.seatHolds = seatHolds;
+        this.routeDays = routeDays;
+        this.seatReleases = seatReleases;
+        this.outboxEnabled = outboxEnabled;
+    }
+
+    /** Whether the request was rejected with one of the service's own errors, which a retry would get again. */
+    static boolean isBusinessError(Throwable err) {
+        return (err instanceof IllegalArgumentException || err instanceof IllegalStateException)
+                && err.getMessage() != null && OUTCOMES.containsKey(err.getMessage());
+    }
+
+    static String outcomeOf(Throwable err) {
+        String message = err.getMessage();
+        return message == null ? BookingMetrics.UNEXPECTED : OUTCOMES.getOrDefault(message, BookingMetrics.UNEXPECTED);
+    }
+
+    /** Counts how a booking mutation ended, once per subscription. */
+    private <T> Mono<T> counted(String operation, Mono<T> mutation) {
+        return mutation
+                .doOnSuccess(result -> metrics.outcome(operation, BookingMetrics.SUCCESS))
+                .doOnError(err -> metrics.outcome(operation, outcomeOf(err)));
     }
 
     @Override
     public Mono<AirlineInventory> addInventory(AirlineInventory inventory) {
-        if (inventory.getOrigin().equalsIgnoreCase(inventory.getDestination())) {
-            return Mono.error(new IllegalStateException(ERR_ORIGIN_DEST_SAME));
+        String error = inventoryError(inventory);
+        if (error != null) {
+            return Mono.error(new IllegalStateException(error));
         }
 
+        inventory.setSeatMap(SeatMap.allAvailable(inventory.getTotalSeats()));
+
+        return inventoryRepository.save(inventory)
+                .doOnNext(saved -> events.publishEvent(FlightInventoryChanged.added(saved)));
+    }
+
+    /** Business rules every new flight must pass; returns the first violated rule, or null. */
+    static String inventoryError(AirlineInventory inventory) {
+        if (inventory.getOrigin().equalsIgnoreCase(inventory.getDestination())) {
+            return ERR_ORIGIN_DEST_SAME;
+        }
         if (!inventory.getArrival().isAfter(inventory.getDeparture())) {
-            return Mono.error(new IllegalStateException(ERR_ARRIVAL_BEFORE_DEPARTURE));
+            return ERR_ARRIVAL_BEFORE_DEPARTURE;
         }
-
         if (inventory.getTotalSeats() <= 0) {
-            return Mono.error(new IllegalStateException(ERR_TOTAL_SEATS_POSITIVE));
+            return ERR_TOTAL_SEATS_POSITIVE;
         }
-
-        inventory.setAvailableSeats(
-                java.util.stream.IntStream.rangeClosed(1, inventory.getTotalSeats())
-                        .mapToObj(i -> "S" + i)
-                        .toList()
-        );
-
-        return inventoryRepository.save(inventory);
+        return null;
     }
 
     @Override
     public Flux<AirlineInventory> search(String origin, String destination,
                                          LocalDateTime from, LocalDateTime to) {
-        return inventoryRepository.findByOriginAndDestinationAndDepartureBetween(origin, destination, from, to);
+        return searchCache.get(new SearchCache.Key(origin, destination, from, to),
+                () -> inventoryRepository.findByOriginAndDestinationAndDepartureBetween(origin, destination, from, to));
+    }
+
+    @Override
+    public Flux<FlightSummary> searchSummaries(String origin, String destination,
+                                               LocalDateTime from, LocalDateTime to) {
+        return searchCache.get(new SearchCache.Key(origin, destination, from, to, SearchCache.View.SUMMARY),
+                () -> routeDays.ready()
+                        ? routeDays.search(origin, destination, from, to)
+                        : inventoryRepository.findSummaries(origin, destination, from, to));
+    }
+
+    @Override
+    public Flux<CalendarDay> calendar(String origin, String destination, LocalDate from, LocalDate to) {
+        if (from.isAfter(to) || from.plusDays(MAX_CALENDAR_DAYS).isBefore(to.plusDays(1))) {
+            return Flux.error(new IllegalArgumentException(ERR_CALENDAR_RANGE));
+        }
+        if (routeDays.ready()) {
+            return routeDays.calendar(origin, destination, from, to);
+        }
+        // a second before midnight: the window is exclusive and must take a flight leaving at 00:00
+        return RouteDaySummaries.calendarOf(inventoryRepository.findSummaries(origin, destination,
+                from.atStartOfDay().minusSeconds(1), to.plusDays(1).atStartOfDay())
+                .filter(flight -> !flight.getDeparture().toLocalDate().isBefore(from)));
+    }
+
+    @Override
+    public Mono<SearchPage<AirlineInventory>> searchPage(String origin, String destination, LocalDateTime from,
+                                                         LocalDateTime to, String sortBy, Integer limit,
+                                                         String cursor) {
+        return Mono.defer(() -> {
+            SearchSort sort = SearchSort.from(sortBy);
+            SearchCursor after = cursor == null ? null : SearchCursor.decode(cursor, sort);
+            int size = limit == null ? DEFAULT_PAGE_SIZE : limit;
+            return toPage(inventoryRepository.findPage(origin, destination, from, to, sort, after, size + 1), size,
+                    inv -> SearchCursor.after(sort, inv.getDeparture(), inv.getPrice(), inv.getId()).encode());
+        });
+    }
+
+    @Override
+    public Mono<SearchPage<FlightSummary>> searchSummaryPage(String origin, String destination, LocalDateTime from,
+                                                             LocalDateTime to, String sortBy, Integer limit,
+                                                             String cursor) {
+        return Mono.defer(() -> {
+            SearchSort sort = SearchSort.from(sortBy);
+            SearchCursor after = cursor == null ? null : SearchCursor.decode(cursor, sort);
+            int size = limit == null ? DEFAULT_PAGE_SIZE : limit;
+            return toPage(inventoryRepository.findSummaryPage(origin, destination, from, to, sort, after, size + 1),
+                    size, s -> SearchCursor.after(sort, s.getDeparture(), s.getPrice(), s.getId()).encode());
+        });
+    }
+
+    /** Rows were fetched with limit + 1: a surplus row means there is a next page. */
+    private static <T> Mono<SearchPage<T>> toPage(Flux<T> rows, int size, Function<T, String> cursorOf) {
+        return rows.collectList().map(list -> {
+            if (list.size() <= size) {
+                return new SearchPage<>(list, null);
+            }
+            List<T> items = list.subList(0, size);
+            return new SearchPage<>(items, cursorOf.apply(items.get(size - 1)));
+        });
+    }
+
+    @Override
+    public Mono<AirlineInventory> findFlight(String flightId) {
+        return inventoryRepository.findById(flightId);
     }
 
     @Override
     public Mono<Booking> book(String flightId, BookingRequest req) {
-        return inventoryRepository.findById(flightId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(ERR_FLIGHT_NOT_FOUND)))
+        return counted(BookingMetrics.BOOK, placeBooking(flightId, req));
+    }
+
+    private Mono<Booking> placeBooking(String flightId, BookingRequest req) {
+        if (req.getSeatNumbers() == null || req.getSeatNumbers().isEmpty()) {
+            return Mono.error(new IllegalArgumentException(ERR_SELECT_SEAT));
+        }
+
+        if (new HashSet<>(req.getSeatNumbers()).size() != req.getSeatNumbers().size()) {
+            return Mono.error(new IllegalArgumentException(ERR_DUPLICATE_SEATS));
+        }
+
+        if (req.getPassengers() == null || req.getPassengers().size() != req.getSeatNumbers().size()) {
+            return Mono.error(new IllegalArgumentException(ERR_PASSENGER_SEAT_MISMATCH));
+        }
+
+        // reserve seats: a single conditional update that only matches while every seat is still free
+        return seatAllocator.claim(flightId, req.getSeatNumbers(), LocalDateTime.now())
+                .switchIfEmpty(Mono.defer(() -> explainClaimFailure(flightId, BookingMetrics.BOOK)))
                 .flatMap(inv -> {
+                    Booking booking = newBooking(inv.getId(), inv.getDeparture(), req.getName(), req.getEmail(),
+                            req.getPassengers(), req.getSeatNumbers(), req.isMealVeg());
+
+                    return saveWithUniquePnr(booking)
+                            .onErrorResume(err -> afterFailedWrite(err,
+                                    bookingRepository.findByPnr(booking.getPnr()), stored -> true,
+                                    Mono.defer(() -> seatAllocator.release(flightId, req.getSeatNumbers()))))
+                            .doOnNext(pnrCache::put)
+                            .doOnNext(saved -> events.publishEvent(
+                                    new FlightInventoryChanged(flightId, inv, req.getSeatNumbers(), List.of())));
+                });
+    }
 
-                    if (!inv.getDeparture().isAfter(LocalDateTime.now())) {
-                        return Mono.error(new IllegalStateException("Cannot book a flight that already departed"));
-                    }
+    private Booking newBooking(String flightId, LocalDateTime journeyDate, String name, String email,
+                                      List<Passenger> passengers, List<String> seats, boolean mealVeg) {
+        Booking booking = new Booking();
+        booking.setFlightId(flightId);
+        booking.setEmail(email);
+        booking.setName(name);
+        booking.setPassengers(passengers);
+        booking.setSeatNumbers(seats);
+        booking.setMealVeg(mealVeg);
+        booking.setBookedAt(LocalDateTime.now());
+        booking.setJourneyDate(journeyDate);
+        booking.setCanceled(false);
+        recordEvent(booking, OutboxEntry.Type.BOOKED, booking.getBookedAt());
+        return booking;
+    }
 
-                    if (req.getSeatNumbers() == null || req.getSeatNumbers().isEmpty()) {
-                        return Mono.error(new IllegalArgumentException(ERR_SELECT_SEAT));
-                    }
+    /** Records seats the booking gives up until they are back on the flight; saved with the change itself. */
+    private static void addPendingRelease(Booking booking, PendingRelease release) {
+        if (release == null) {
+            return;
+        }
+        List<PendingRelease> pending = new ArrayList<>();
+        if (booking.getPendingReleases() != null) {
+            pending.addAll(booking.getPendingReleases());
+        }
+        pending.add(release);
+        booking.setPendingReleases(pending);
+    }
 
-                    if (inv.getAvailableSeats() == null || !inv.getAvailableSeats().containsAll(req.getSeatNumbers())) {
-                        return Mono.error(new IllegalStateException(ERR_SEAT_UNAVAILABLE));
-                    }
+    /**
+     * Appends a lifecycle event to the booking's outbox. It is saved by the same document write as the change,
+     * so the relay sees exactly the changes that were stored. With the outbox off no relay drains it, so
+     * nothing is recorded.
+     */
+    private void recordEvent(Booking booking, OutboxEntry.Type type, LocalDateTime now) {
+        if (!outboxEnabled) {
+            return;
+        }
+        List<OutboxEntry> outbox = new ArrayList<>();
+        if (booking.getOutbox() != null) {
+            outbox.addAll(booking.getOutbox());
+        }
+        outbox.add(OutboxEntry.of(type, booking.getSeatNumbers(), now));
+        booking.setOutbox(outbox);
+    }
 
-                    if (req.getPassengers() == null || req.getPassengers().size() != req.getSeatNumbers().size()) {
-                        return Mono.error(new IllegalArgumentException(ERR_PASSENGER_SEAT_MISMATCH));
-                    }
+    @Override
+    public Mono<SeatHold> holdSeats(String flightId, SeatHoldRequest req) {
+        return counted(BookingMetrics.HOLD, Mono.defer(() -> {
+            if (!seatHolds.enabled()) {
+                return Mono.error(new IllegalStateException(ERR_HOLDS_DISABLED));
+            }
+            List<String> seats = req.getSeatNumbers();
+            if (seats == null || seats.isEmpty()) {
+                return Mono.error(new IllegalArgumentException(ERR_SELECT_SEAT));
+            }
+            if (new HashSet<>(seats).size() != seats.size()) {
+                return Mono.error(new IllegalArgumentException(ERR_DUPLICATE_SEATS));
+            }
+            LocalDateTime now = LocalDateTime.now();
+            // the same all-or-nothing claim as a booking; the seats stay taken until confirm, release or expiry
+            return seatAllocator.claim(flightId, seats, now)
+                    .switchIfEmpty(Mono.defer(() -> explainClaimFailure(flightId, BookingMetrics.HOLD)))
+                    .flatMap(inv -> {
+                        SeatHold hold = seatHolds.newHold(flightId, req.getEmail(), seats, inv.getDeparture(), now);
+                        return seatHolds.place(hold)
+                                .onErrorResume(err -> afterFailedWrite(err, seatHolds.find(hold.getId()),
+                                        stored -> true, Mono.defer(() -> seatAllocator.release(flightId, seats))))
+                                .doOnNext(placed -> events.publishEvent(
+                                        new FlightInventoryChanged(flightId, inv, seats, List.of())));
+                    });
+        }));
+    }
+
+    /**
+     * Books the held seats. Checks run against a read of the hold first so a rejected request keeps it; the
+     * hold is then taken atomically, which fails if it expired or was used in the meantime. A booking that
+     * was not stored gives the seats back.
+     */
+    @Override
+    public Mono<Booking> confirmHold(String token, HoldConfirmRequest req) {
+        return counted(BookingMetrics.CONFIRM, Mono.defer(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            return liveHold(token, req.getEmail(), now)
+                    .flatMap(hold -> {
+                        if (req.getPassengers() == null
+                                || req.getPassengers().size() != hold.getSeatNumbers().size()) {
+                            return Mono.error(new IllegalArgumentException(ERR_PASSENGER_SEAT_MISMATCH));
+                        }
+                        return seatHolds.take(token, now)
+                                .switchIfEmpty(Mono.error(new IllegalArgumentException(ERR_HOLD_NOT_FOUND)))
+                                .flatMap(taken -> {
+                                    Booking booking = newBooking(taken.getFlightId(), taken.getJourneyDate(),
+                                            req.getName(), req.getEmail(), req.getPassengers(),
+                                            taken.getSeatNumbers(), req.isMealVeg());
+                                    // a hold put back whose release fails is released by the sweep
+                                    return saveWithUniquePnr(booking)
+                                            .onErrorResume(err -> afterFailedWrite(err,
+                                                    bookingRepository.findByPnr(booking.getPnr()), stored -> true,
+                                                    Mono.defer(() -> seatHolds.giveBack(taken, now))
+                                                            .onErrorResume(releaseErr -> Mono.empty())));
+                                });
+                    })
+                    .doOnNext(pnrCache::put);
+        }));
+    }
+
+    @Override
+    public Mono<Void> releaseHold(String token, String email) {
+        return counted(BookingMetrics.RELEASE_HOLD, Mono.defer(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            return liveHold(token, email, now)
+                    .flatMap(hold -> seatHolds.releaseLive(token, now))
+                    .switchIfEmpty(Mono.error(new IllegalArgumentException(ERR_HOLD_NOT_FOUND)))
+                    .then();
+        }));
+    }
 
-                    // reserve seats
-                    inv.getAvailableSeats().removeAll(req.getSeatNumbers());
+    private Mono<SeatHold> liveHold(String token, String email, LocalDateTime now) {
+        return seatHolds.find(token)
+                .filter(hold -> hold.getExpiresAt().isAfter(now))
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(ERR_HOLD_NOT_FOUND)))
+                .flatMap(hold -> hold.getEmail().equalsIgnoreCase(email)
+                        ? Mono.just(hold)
+                        : Mono.error(new IllegalStateException(ERR_HOLD_ONLY_OWNER)));
+    }
 
-                    Booking booking = new Booking();
+    /**
+     * Inserts the booking under a fresh PNR, drawing a new one whenever the unique PNR index rejects it.
+     * Collisions are rare enough that a handful of attempts only fails when something else is wrong.
+     */
+    private Mono<Booking> saveWithUniquePnr(Booking booking) {
+        return Mono.defer(() -> {
+                    booking.setId(null);
                     booking.setPnr(PnrGenerator.generate());
-                    booking.setFlightId(inv.getId());
-                    booking.setEmail(req.getEmail());
-                    booking.setName(req.getName());
-                    booking.setPassengers(req.getPassengers());
-                    booking.setSeatNumbers(req.getSeatNumbers());
-                    booking.setMealVeg(req.isMealVeg());
-                    booking.setBookedAt(LocalDateTime.now());
-                    booking.setJourneyDate(inv.getDeparture());
-                    booking.setCanceled(false);
-
-                    return inventoryRepository.save(inv)
-                            .then(bookingRepository.save(booking));
+                    return bookingRepository.save(booking);
+                })
+                .retryWhen(Retry.max(MAX_PNR_ATTEMPTS - 1L).filter(FlightServiceImpl::isPnrCollision)
+                        .doBeforeRetry(signal -> metrics.pnrRetry())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    /** Whether a failed write is known not to be stored: the server or the service rejected it. */
+    static boolean nothingWritten(Throwable err) {
+        return err instanceof DataIntegrityViolationException || isBusinessError(err);
+    }
+
+    /**
+     * Settles the seats claimed for a write that failed. A rejected write gets {@code undo}, which gives them
+     * back. A timeout or a dropped connection may still have stored it, so the result is read back first:
+     * when it is there and {@code landed} holds the change is made after all; when it is not, {@code undo}
+     * runs. When it cannot be read either, the seats stay taken rather than risk selling them twice.
+     */
+    private <T> Mono<T> afterFailedWrite(Throwable err, Mono<T> readBack, Predicate<T> landed, Mono<?> undo) {
+        if (nothingWritten(err)) {
+            return undo.then(Mono.error(err));
+        }
+        return readBack
+                .retryWhen(Retry.backoff(READ_BACK_ATTEMPTS - 1L, READ_BACK_BACKOFF))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(readErr -> {
+                    log.warn("Write failed with an unknown outcome and could not be read back, its seats stay "
+                            + "taken: {}", err.getMessage());
+                    return Mono.error(err);
+                })
+                .flatMap(stored -> stored.filter(landed).map(Mono::just)
+                        .orElseGet(() -> undo.then(Mono.error(err))));
+    }
+
+    private static boolean isPnrCollision(Throwable err) {
+        return err instanceof DuplicateKeyException && err.getMessage() != null
+                && err.getMessage().contains(Booking.PNR_INDEX);
+    }
+
+    /**
+     * Only reached when a conditional claim matched nothing, so the extra read stays off the happy path.
+     */
+    private Mono<AirlineInventory> explainClaimFailure(String flightId, String operation) {
+        return inventoryRepository.findById(flightId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(ERR_FLIGHT_NOT_FOUND)))
+                .flatMap(inv -> {
+                    if (!inv.getDeparture().isAfter(LocalDateTime.now())) {
+                        return Mono.error(new IllegalStateException(ERR_FLIGHT_DEPARTED));
+                    }
+                    metrics.seatConflict(operation);
+                    return Mono.error(new IllegalStateException(ERR_SEAT_UNAVAILABLE));
                 });
     }
 
     @Override
     public Mono<Booking> findByPnr(String pnr) {
-        return bookingRepository.findByPnr(pnr);
+        return pnrCache.get(pnr, bookingRepository::findByPnr);
     }
 
     @Override
@@ -128,9 +499,48 @@ public class FlightServiceImpl implements FlightService {
         return bookingRepository.findByEmail(email);
     }
 
+    @Override
+    public Mono<SearchPage<BookingHistoryItem>> historyPage(String email, String status, LocalDateTime from,
+                                                           LocalDateTime to, Integer limit, String cursor) {
+        return Mono.defer(() -> {
+            Boolean canceled = canceledFilter(status);
+            HistoryCursor after = cursor == null ? null : HistoryCursor.decode(cursor);
+            int size = limit == null ? DEFAULT_PAGE_SIZE : checkLimit(limit);
+            return toPage(bookingRepository.findHistory(email, canceled, from, to, after, size + 1), size,
+                    item -> HistoryCursor.after(item).encode());
+        });
+    }
+
+    @Override
+    public Flux<BookingHistoryItem> history(String email, String status, LocalDateTime from, LocalDateTime to,
+                                            Integer limit, String cursor) {
+        return Flux.defer(() -> bookingRepository.findHistory(email, canceledFilter(status), from, to,
+                cursor == null ? null : HistoryCursor.decode(cursor), limit == null ? 0 : Math.max(limit, 1)));
+    }
+
+    private static Boolean canceledFilter(String status) {
+        if (status == null || status.isBlank()) {
+            return null;
+        }
+        if (BookingHistoryItem.ACTIVE.equalsIgnoreCase(status)) {
+            return false;
+        }
+        if (BookingHistoryItem.CANCELLED.equalsIgnoreCase(status)) {
+            return true;
+        }
+        throw new IllegalArgumentException(ERR_INVALID_STATUS);
+    }
+
+    private static int checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(ERR_INVALID_LIMIT);
+        }
+        return limit;
+    }
+
     @Override
     public Mono<Void> cancelByPnrAndEmail(String pnr, String email) {
-        return bookingRepository.findByPnr(pnr)
+        return counted(BookingMetrics.CANCEL, bookingRepository.findByPnr(pnr)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException(ERR_PNR_NOT_FOUND)))
                 .flatMap(b -> {
                     if (!b.getEmail().equalsIgnoreCase(email)) {
@@ -143,20 +553,34 @@ public class FlightServiceImpl implements FlightService {
                     if (!b.getJourneyDate().minusHours(24).isAfter(now)) {
                         return Mono.error(new IllegalStateException(ERR_CANCEL_WINDOW));
                     }
+                    boolean hasSeats = b.getFlightId() != null && b.getSeatNumbers() != null
+                            && !b.getSeatNumbers().isEmpty();
+                    PendingRelease release = hasSeats ? PendingRelease.of(b.getSeatNumbers(), now) : null;
                     b.setCanceled(true);
                     b.setCanceledAt(now);
-                    return bookingRepository.save(b).then();
-                });
+                    addPendingRelease(b, release);
+                    recordEvent(b, OutboxEntry.Type.CANCELLED, now);
+                    // a failed release stays pending on the booking and is retried by the recovery sweep
+                    return bookingRepository.save(b)
+                            .doOnNext(pnrCache::put)
+                            .doOnError(err -> pnrCache.invalidate(pnr))
+                            .flatMap(saved -> release != null
+                                    ? seatReleases.release(saved, release).onErrorResume(err -> Mono.empty())
+                                    : Mono.<Void>empty())
+                            .then();
+                }));
     }
 
     @Override
     public Mono<Booking> updateBooking(String pnr, BookingUpdateRequest req) {
-        return bookingRepository.findByPnr(pnr)
+        return counted(BookingMetrics.UPDATE, bookingRepository.findByPnr(pnr)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException(ERR_PNR_NOT_FOUND)))
                 .flatMap(existingBooking ->
                         validateUpdatePreconditions(existingBooking, req)
                                 .then(Mono.defer(() -> processUpdate(existingBooking, req)))
-                );
+                                .doOnNext(pnrCache::put)
+                                .doOnError(err -> pnrCache.invalidate(pnr))
+                ));
     }
 
 
@@ -192,6 +616,7 @@ public class FlightServiceImpl implements FlightService {
         if (req.getMealVeg() != null) {
             existingBooking.setMealVeg(req.getMealVeg());
         }
+        recordEvent(existingBooking, OutboxEntry.Type.UPDATED, LocalDateTime.now());
         return bookingRepository.save(existingBooking);
     }
 
@@ -200,44 +625,58 @@ public class FlightServiceImpl implements FlightService {
         if (Objects.isNull(existingBooking.getFlightId())) {
             return Mono.error(new IllegalArgumentException(ERR_FLIGHT_NOT_FOUND_FOR_BOOKING));
         }
+        if (new HashSet<>(newSeats).size() != newSeats.size()) {
+            return Mono.error(new IllegalArgumentException(ERR_DUPLICATE_SEATS));
+        }
 
-        return inventoryRepository.findById(existingBooking.getFlightId())
+        String flightId = existingBooking.getFlightId();
+        List<String> oldSeats = existingBooking.getSeatNumbers() != null ? existingBooking.getSeatNumbers() : List.of();
+        List<String> toClaim = newSeats.stream().filter(s -> !oldSeats.contains(s)).toList();
+        List<String> toRelease = oldSeats.stream().filter(s -> !newSeats.contains(s)).toList();
+
+        Mono<Optional<AirlineInventory>> claim = toClaim.isEmpty()
+                ? Mono.just(Optional.empty())
+                : seatAllocator.claim(flightId, toClaim, LocalDateTime.now())
+                        .switchIfEmpty(Mono.defer(() -> explainSeatChangeFailure(flightId)))
+                        .map(Optional::of);
+
+        return claim.flatMap(flight -> {
+            LocalDateTime now = LocalDateTime.now();
+            PendingRelease release = toRelease.isEmpty() ? null : PendingRelease.of(toRelease, now);
+            existingBooking.setSeatNumbers(newSeats);
+            addPendingRelease(existingBooking, release);
+            if (req.getPassengers() != null) existingBooking.setPassengers(req.getPassengers());
+            if (req.getName() != null) existingBooking.setName(req.getName());
+            if (req.getMealVeg() != null) existingBooking.setMealVeg(req.getMealVeg());
+            recordEvent(existingBooking, OutboxEntry.Type.UPDATED, now);
+
+            return bookingRepository.save(existingBooking)
+                    .onErrorResume(err -> afterFailedWrite(err, bookingRepository.findByPnr(existingBooking.getPnr()),
+                            stored -> newSeats.equals(stored.getSeatNumbers()), Mono.defer(() -> releaseIfAny(flightId, toClaim))))
+                    .doOnNext(saved -> flight.ifPresent(claimed -> events.publishEvent(
+                            new FlightInventoryChanged(flightId, claimed, toClaim, List.of()))))
+                    // the seats given up go back through the release pipeline, which publishes their change; a
+                    // failed release stays pending on the booking and is retried by the recovery sweep
+                    .flatMap(saved -> release == null ? Mono.just(saved)
+                            : seatReleases.release(saved, release)
+                                    .onErrorResume(err -> Mono.empty())
+                                    .thenReturn(saved));
+        });
+    }
+
+    private Mono<AirlineInventory> explainSeatChangeFailure(String flightId) {
+        return inventoryRepository.findById(flightId)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException(ERR_FLIGHT_NOT_FOUND_FOR_BOOKING)))
                 .flatMap(inv -> {
-                    List<String> tempAvailable = buildTempAvailability(inv, existingBooking);
-
-                    if (!tempAvailable.containsAll(newSeats)) {
-                        return Mono.error(new IllegalStateException(ERR_REQUESTED_SEATS_UNAVAILABLE));
-                    }
-
-                    List<String> invSeats = new ArrayList<>(inv.getAvailableSeats() != null ? inv.getAvailableSeats() : List.of());
-                    invSeats = mergeInventoryWithOldSeats(invSeats, existingBooking.getSeatNumbers());
-
-                    invSeats.removeAll(newSeats);
-
-                    inv.setAvailableSeats(invSeats);
-                    existingBooking.setSeatNumbers(newSeats);
-                    if (req.getPassengers() != null) existingBooking.setPassengers(req.getPassengers());
-                    if (req.getName() != null) existingBooking.setName(req.getName());
-                    if (req.getMealVeg() != null) existingBooking.setMealVeg(req.getMealVeg());
-
-                    return inventoryRepository.save(inv).then(bookingRepository.save(existingBooking));
+                    metrics.seatConflict(BookingMetrics.UPDATE);
+                    return Mono.error(new IllegalStateException(ERR_REQUESTED_SEATS_UNAVAILABLE));
                 });
     }
 
-    private List<String> buildTempAvailability(AirlineInventory inv, Booking existingBooking) {
-        List<String> temp = new ArrayList<>();
-        if (inv.getAvailableSeats() != null) temp.addAll(inv.getAvailableSeats());
-        if (existingBooking.getSeatNumbers() != null) temp.addAll(existingBooking.getSeatNumbers());
-        return temp;
-    }
-
-    private List<String> mergeInventoryWithOldSeats(List<String> invSeats, List<String> oldSeats) {
-        if (invSeats == null) invSeats = new ArrayList<>();
-        if (oldSeats == null || oldSeats.isEmpty()) return invSeats;
-        for (String s : oldSeats) {
-            if (!invSeats.contains(s)) invSeats.add(s);
+    private Mono<Void> releaseIfAny(String flightId, List<String> seats) {
+        if (seats.isEmpty()) {
+            return Mono.empty();
         }
-        return invSeats;
+        return seatAllocator.release(flightId, seats).then();
     }
 }
@@ -0,0 +1,198 @@
+package com.flightapp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.Booking;
+import com.flightapp.model.IdempotencyRecord;
+import com.flightapp.repository.IdempotencyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs a booking mutation at most once per {@code Idempotency-Key} and hands every retry the same outcome:
+ * the booking, nothing (cancel) or the business error it was rejected with. Unexpected failures are not
+ * remembered, so a retry after one runs the request again.
+ *
+ * <p>Two layers, both evicted after {@code ttl}. In memory, a bounded map of in-flight and finished requests:
+ * concurrent duplicates on one node wait for the first one's result. In Mongo, one record per key, claimed by
+ * an insert before the request runs: a duplicate on another node finds the claim and polls until the record is
+ * completed, for at most {@code wait-timeout}. The same key with a different request is rejected. A ttl of 0
+ * turns idempotency off and requests run as they come.
+ *
+ * <p>A claim only holds the key for {@code lease}, so the key of a node that died mid-request is free again
+ * soon; completing the record keeps it for {@code ttl}. The lease must outlast the slowest request, or a retry
+ * on another node can run it a second time.
+ */
+@Component
+public class IdempotencyStore {
+
+  static final String ERR_KEY_INVALID = "Idempotency-Key must be 1 to 255 characters";
+  static final String ERR_KEY_REUSED = "Idempotency-Key was already used for a different request";
+  static final String ERR_IN_PROGRESS = "A request with this Idempotency-Key is still in progress";
+
+  private static final int MAX_KEY_LENGTH = 255;
+  private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+  private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+  private record InFlight(String fingerprint, CompletableFuture<IdempotencyRecord> outcome) {
+  }
+
+  private final IdempotencyRepository repository;
+  private final BookingMetrics metrics;
+  private final Duration ttl;
+  private final Duration lease;
+  private final Duration waitTimeout;
+  private final Cache<String, InFlight> local;
+
+  public IdempotencyStore(IdempotencyRepository repository, BookingMetrics metrics,
+      @Value("${flight.idempotency.max-size:100000}") long maxSize,
+      @Value("${flight.idempotency.ttl:24h}") Duration ttl,
+      @Value("${flight.idempotency.lease:2m}") Duration lease,
+      @Value("${flight.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+    this.repository = repository;
+    this.metrics = metrics;
+    this.ttl = ttl;
+    this.lease = lease;
+    this.waitTimeout = waitTimeout;
+    this.local = ttl.isZero() ? null : Caffeine.newBuilder()
+        .maximumSize(Math.max(maxSize, 1))
+        .expireAfterWrite(ttl)
+        .build();
+  }
+
+  public static IdempotencyStore disabled() {
+    return new IdempotencyStore(null, BookingMetrics.disabled(), 0, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+  }
+
+  /** Stable hash of everything that identifies a request: path variables and body. */
+  public static String fingerprint(Object... parts) {
+    try {
+      MessageDigest sha = MessageDigest.getInstance("SHA-256");
+      for (Object part : parts) {
+        sha.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+      }
+      return HexFormat.of().formatHex(sha.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param operation   which endpoint the key belongs to; keys of different endpoints never collide
+   * @param key         the client's key, or null to just run the request
+   * @param fingerprint {@link #fingerprint} of the request
+   */
+  public Mono<Booking> execute(String operation, String key, String fingerprint, Supplier<Mono<Booking>> request) {
+    if (key == null || local == null) {
+      return request.get();
+    }
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      return Mono.error(new IllegalArgumentException(ERR_KEY_INVALID));
+    }
+    String id = operation + ":" + key;
+    InFlight created = new InFlight(fingerprint, new CompletableFuture<>());
+    InFlight existing = local.asMap().putIfAbsent(id, created);
+    if (existing != null) {
+      if (!existing.fingerprint().equals(fingerprint)) {
+        return Mono.error(new IllegalStateException(ERR_KEY_REUSED));
+      }
+      metrics.idempotentReplay(operation);
+      return replay(existing.outcome());
+    }
+    // detached from the caller: a client that times out and retries must find the result stored
+    claimAndRun(operation, id, fingerprint, request, System.nanoTime() + waitTimeout.toNanos()).subscribe(
+        created.outcome()::complete,
+        err -> {
+          local.asMap().remove(id, created);
+          created.outcome().completeExceptionally(err);
+        });
+    return replay(created.outcome());
+  }
+
+  private Mono<IdempotencyRecord> claimAndRun(String operation, String id, String fingerprint,
+      Supplier<Mono<Booking>> request, long deadline) {
+    if (System.nanoTime() - deadline > 0) {
+      return Mono.error(new IllegalStateException(ERR_IN_PROGRESS));
+    }
+    LocalDateTime now = LocalDateTime.now();
+    IdempotencyRecord claim = new IdempotencyRecord();
+    claim.setId(id);
+    claim.setFingerprint(fingerprint);
+    claim.setCreatedAt(now);
+    claim.setExpiresAt(now.plus(lease));
+    return repository.claim(claim, now).flatMap(owned -> owned
+        ? run(claim, request)
+        : repository.findById(id)
+            .filter(other -> other.getExpiresAt().isAfter(now))
+            .flatMap(other -> {
+              if (!other.getFingerprint().equals(fingerprint)) {
+                return Mono.error(new IllegalStateException(ERR_KEY_REUSED));
+              }
+              if (!other.isCompleted()) {
+                return Mono.empty();
+              }
+              metrics.idempotentReplay(operation);
+              return Mono.just(other);
+            })
+            // still running elsewhere, or its owner failed and gave the key up: look again shortly
+            .switchIfEmpty(Mono.delay(POLL_INTERVAL)
+                .then(Mono.defer(() -> claimAndRun(operation, id, fingerprint, request, deadline)))));
+  }
+
+  private Mono<IdempotencyRecord> run(IdempotencyRecord claim, Supplier<Mono<Booking>> request) {
+    return Mono.defer(request)
+        .map(booking -> completed(claim, booking, null))
+        .switchIfEmpty(Mono.fromSupplier(() -> completed(claim, null, null)))
+        .onErrorResume(FlightServiceImpl::isBusinessError, err -> Mono.just(completed(claim, null, err)))
+        .onErrorResume(err -> repository.deleteById(claim.getId())
+            .onErrorResume(deleteErr -> Mono.empty())
+            .then(Mono.error(err)))
+        .flatMap(record -> repository.save(record)
+            .onErrorResume(err -> {
+              // the request did run; retries on other nodes wait for the claim to expire
+              log.warn("Could not store idempotent result {}: {}", record.getId(), err.getMessage());
+              return Mono.just(record);
+            }));
+  }
+
+  private IdempotencyRecord completed(IdempotencyRecord claim, Booking booking, Throwable error) {
+    claim.setCompleted(true);
+    claim.setExpiresAt(LocalDateTime.now().plus(ttl));
+    claim.setBooking(booking);
+    if (error != null) {
+      claim.setErrorType(error instanceof IllegalArgumentException
+          ? IllegalArgumentException.class.getSimpleName()
+          : IllegalStateException.class.getSimpleName());
+      claim.setErrorMessage(error.getMessage());
+    }
+    return claim;
+  }
+
+  private static Mono<Booking> replay(CompletableFuture<IdempotencyRecord> outcome) {
+    // never cancel the shared future: other callers may be waiting on it
+    return Mono.fromFuture(outcome, true).flatMap(record -> {
+      if (IllegalArgumentException.class.getSimpleName().equals(record.getErrorType())) {
+        return Mono.error(new IllegalArgumentException(record.getErrorMessage()));
+      }
+      if (IllegalStateException.class.getSimpleName().equals(record.getErrorType())) {
+        return Mono.error(new IllegalStateException(record.getErrorMessage()));
+      }
+      return Mono.justOrEmpty(record.getBooking());
+    });
+  }
+}
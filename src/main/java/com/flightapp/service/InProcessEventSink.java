@@ -0,0 +1,28 @@
+package com.flightapp.service;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.event.BookingLifecycleEvent;
+
+import reactor.core.publisher.Mono;
+
+/** Publishes each relayed event as an application event; listeners run before the batch counts as delivered. */
+@Component
+@ConditionalOnProperty(name = "flight.outbox.sink", havingValue = "in-process", matchIfMissing = true)
+public class InProcessEventSink implements BookingEventSink {
+
+  private final ApplicationEventPublisher events;
+
+  public InProcessEventSink(ApplicationEventPublisher events) {
+    this.events = events;
+  }
+
+  @Override
+  public Mono<Void> deliver(List<BookingLifecycleEvent> batch) {
+    return Mono.fromRunnable(() -> batch.forEach(events::publishEvent));
+  }
+}
@@ -0,0 +1,153 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import com.flightapp.dto.InventoryIngestResult;
+import com.flightapp.dto.InventoryRequest;
+import com.flightapp.event.FlightsAdded;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.InventoryRepository;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Loads a stream of flights with batched unordered inserts.
+ *
+ * <p>Each record is validated as it arrives, with the same bean constraints as the single add endpoint
+ * plus {@link FlightServiceImpl#inventoryError}. Records are grouped into batches of {@code batch-size}
+ * (or whatever arrived within {@code batch-window}), and at most {@code concurrency} batches are in flight
+ * at once. Demand is only signalled upstream as batches complete, so memory stays bounded by
+ * {@code batch-size * concurrency} records whatever the size of the upload. Results come back in upload
+ * order, one per record.
+ */
+@Service
+public class InventoryIngestService {
+
+  private static final Logger log = LoggerFactory.getLogger(InventoryIngestService.class);
+
+  private final InventoryRepository inventoryRepository;
+  private final Validator validator;
+  private final ApplicationEventPublisher events;
+  private final int batchSize;
+  private final Duration batchWindow;
+  private final int concurrency;
+
+  public InventoryIngestService(InventoryRepository inventoryRepository, Validator validator,
+      ApplicationEventPublisher events,
+      @Value("${flight.ingest.batch-size:1000}") int batchSize,
+      @Value("${flight.ingest.batch-window:100ms}") Duration batchWindow,
+      @Value("${flight.ingest.concurrency:4}") int concurrency) {
+    this.inventoryRepository = inventoryRepository;
+    this.validator = validator;
+    this.events = events;
+    this.batchSize = batchSize;
+    this.batchWindow = batchWindow;
+    this.concurrency = concurrency;
+  }
+
+  public Flux<InventoryIngestResult> ingest(Flux<InventoryRequest> records) {
+    return records.index((index, request) -> prepare(index, request))
+        // fair backpressure: only pull from the upload when a batch can actually be taken
+        .bufferTimeout(batchSize, batchWindow, true)
+        .flatMapSequential(this::write, concurrency, 1);
+  }
+
+  private Candidate prepare(long index, InventoryRequest request) {
+    Set<ConstraintViolation<InventoryRequest>> violations = validator.validate(request);
+    if (!violations.isEmpty()) {
+      return Candidate.rejected(index, violations.stream()
+          .map(v -> v.getPropertyPath() + " " + v.getMessage())
+          .sorted()
+          .collect(Collectors.joining("; ")));
+    }
+    try {
+      AirlineInventory inventory = request.toInventory();
+      String error = FlightServiceImpl.inventoryError(inventory);
+      if (error != null) {
+        return Candidate.rejected(index, error);
+      }
+      inventory.setId(new ObjectId().toHexString());
+      inventory.setSeatMap(SeatMap.allAvailable(inventory.getTotalSeats()));
+      return new Candidate(index, inventory, null);
+    } catch (IllegalArgumentException e) {
+      return Candidate.rejected(index, e.getMessage());
+    }
+  }
+
+  private Flux<InventoryIngestResult> write(List<Candidate> batch) {
+    List<AirlineInventory> valid = batch.stream()
+        .filter(c -> c.inventory() != null)
+        .map(Candidate::inventory)
+        .toList();
+    if (valid.isEmpty()) {
+      return Flux.fromIterable(report(batch, Map.of(), null));
+    }
+    return inventoryRepository.insertUnordered(valid)
+        .map(errors -> {
+          publish(valid, errors);
+          return report(batch, errors, null);
+        })
+        .onErrorResume(err -> {
+          log.error("Inventory batch of {} failed: {}", valid.size(), err.getMessage());
+          return Mono.just(report(batch, Map.of(), err.getMessage()));
+        })
+        .flatMapIterable(results -> results);
+  }
+
+  private void publish(List<AirlineInventory> valid, Map<Integer, String> errors) {
+    List<AirlineInventory> inserted = new ArrayList<>(valid.size());
+    for (int i = 0; i < valid.size(); i++) {
+      if (!errors.containsKey(i)) {
+        inserted.add(valid.get(i));
+      }
+    }
+    if (!inserted.isEmpty()) {
+      events.publishEvent(new FlightsAdded(inserted));
+    }
+  }
+
+  /**
+   * @param errors     write errors keyed by position among the batch's valid records
+   * @param batchError set when the whole write failed
+   */
+  private static List<InventoryIngestResult> report(List<Candidate> batch, Map<Integer, String> errors,
+      String batchError) {
+    List<InventoryIngestResult> results = new ArrayList<>(batch.size());
+    int position = 0;
+    for (Candidate candidate : batch) {
+      if (candidate.inventory() == null) {
+        results.add(InventoryIngestResult.rejected(candidate.index(), candidate.error()));
+        continue;
+      }
+      String error = batchError != null ? batchError : errors.get(position);
+      results.add(error == null
+          ? InventoryIngestResult.created(candidate.index(), candidate.inventory().getId())
+          : InventoryIngestResult.failed(candidate.index(), error));
+      position++;
+    }
+    return results;
+  }
+
+  private record Candidate(long index, AirlineInventory inventory, String error) {
+
+    static Candidate rejected(long index, String error) {
+      return new Candidate(index, null, error);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.flightapp.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.PendingRelease;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.InventoryRepository;
+
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnProperty(name = "flight.seat-allocation.mode", havingValue = "mongo", matchIfMissing = true)
+public class MongoSeatAllocator implements SeatAllocator {
+
+  /** Conditional release attempts per batch; each retry only follows a change to the same seats or ids. */
+  static final int RELEASE_ATTEMPTS = 3;
+  private static final String ERR_RELEASE_CONFLICT = "Seat release kept conflicting with concurrent changes";
+
+  private final InventoryRepository inventoryRepository;
+
+  public MongoSeatAllocator(InventoryRepository inventoryRepository) {
+    this.inventoryRepository = inventoryRepository;
+  }
+
+  @Override
+  public Mono<AirlineInventory> claim(String flightId, Collection<String> seats, LocalDateTime now) {
+    return inventoryRepository.claimSeats(flightId, seats, now);
+  }
+
+  @Override
+  public Mono<Boolean> release(String flightId, Collection<String> seats) {
+    return inventoryRepository.releaseSeats(flightId, seats);
+  }
+
+  /**
+   * One conditional update for the whole batch. When it does not match, some id was applied before or some
+   * seat is free already: the flight is read once, and what is left is tried again under the same condition.
+   * Ids older than {@link AirlineInventory#RELEASE_MEMORY} are dropped after a batch that freed seats.
+   */
+  @Override
+  public Mono<Released> releaseOnce(String flightId, Map<String, ? extends Collection<String>> seatsByRelease) {
+    return releaseOnce(flightId, seatsByRelease, RELEASE_ATTEMPTS)
+        .flatMap(released -> released.seats().isEmpty() ? Mono.just(released)
+            : inventoryRepository.forgetReleases(flightId,
+                    PendingRelease.idsFrom(LocalDateTime.now().minus(AirlineInventory.RELEASE_MEMORY)))
+                // pruning is housekeeping: the release itself is applied
+                .onErrorResume(err -> Mono.just(false))
+                .thenReturn(released));
+  }
+
+  private Mono<Released> releaseOnce(String flightId, Map<String, ? extends Collection<String>> seatsByRelease,
+      int attempts) {
+    List<String> seats = seatsOf(seatsByRelease);
+    return inventoryRepository.releaseSeatsOnce(flightId, seats, seatsByRelease.keySet())
+        .map(flight -> new Released(flight, seats))
+        .switchIfEmpty(Mono.defer(() -> inventoryRepository.findById(flightId).flatMap(current -> {
+          List<String> applied = current.getRecentReleases() == null ? List.of() : current.getRecentReleases();
+          SeatMap seatMap = current.getSeatMap();
+          Map<String, List<String>> left = new LinkedHashMap<>();
+          seatsByRelease.forEach((id, taken) -> {
+            if (!applied.contains(id)) {
+              left.put(id, taken.stream().filter(seat -> seatMap != null && !seatMap.isAvailable(seat)).toList());
+            }
+          });
+          if (left.isEmpty()) {
+            current.setSeatMap(null);
+            current.setRecentReleases(null);
+            return Mono.just(new Released(current, List.of()));
+          }
+          if (attempts <= 1) {
+            return Mono.error(new IllegalStateException(ERR_RELEASE_CONFLICT));
+          }
+          return releaseOnce(flightId, left, attempts - 1);
+        })));
+  }
+
+  static List<String> seatsOf(Map<String, ? extends Collection<String>> seatsByRelease) {
+    Set<String> seats = new LinkedHashSet<>();
+    seatsByRelease.values().forEach(seats::addAll);
+    return List.copyOf(seats);
+  }
+
+  @Override
+  public Mono<SeatMap> snapshot(String flightId) {
+    return inventoryRepository.findById(flightId).mapNotNull(AirlineInventory::getSeatMap);
+  }
+}
@@ -0,0 +1,234 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.event.BookingLifecycleEvent;
+import com.flightapp.model.Booking;
+import com.flightapp.model.OutboxCursor;
+import com.flightapp.model.OutboxEntry;
+import com.flightapp.repository.BookingRepository;
+import com.flightapp.repository.OutboxCursorRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Drains the booking outbox to the {@link BookingEventSink}. Each pass reads the bookings with undelivered
+ * events through a partial index, oldest event first, hands the events over in event id order, records the
+ * last delivered id as the resume token and only then removes the events from their bookings.
+ *
+ * <p>Delivery is at least once. A batch the sink fails is read and handed over again on the next pass. A
+ * crash after the sink accepted a batch but before its events were removed is covered by the cursor, which
+ * keeps the ids of the last batch: those events are removed without being sent again. A booking saved from
+ * a copy read before its events were removed can bring them back, and they are then delivered twice.
+ *
+ * <p>Event ids are drawn before the booking is written, so a write can land after a later id was already
+ * visible. Events younger than the settle delay are left for a later pass, and a pass stops at the first one,
+ * so the events of one relay reach the sink in id order as long as writes take less than that delay.
+ */
+@Component
+public class OutboxRelay implements InitializingBean, DisposableBean {
+
+  public static final String EVENTS = "flight.outbox.relay.events";
+  public static final String BATCHES = "flight.outbox.relay.batches";
+  public static final String FAILURES = "flight.outbox.relay.failures";
+  public static final String DELIVERY_LAG = "flight.outbox.relay.delivery.lag";
+  public static final String PENDING_AGE = "flight.outbox.relay.pending.age";
+
+  /** The relay's cursor in {@code outboxCursors}. */
+  static final String CURSOR_ID = "bookings";
+
+  private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+  private record Pending(Booking booking, OutboxEntry entry) {
+  }
+
+  private final BookingRepository bookingRepository;
+  private final OutboxCursorRepository cursorRepository;
+  private final BookingEventSink sink;
+  private final boolean enabled;
+  private final Duration pollInterval;
+  private final int batchSize;
+  private final Duration settle;
+  private final Counter delivered;
+  private final Counter failures;
+  private final Timer batches;
+  private final Timer deliveryLag;
+  // age of the oldest event still in the outbox at the last pass, in milliseconds
+  private final AtomicLong pendingAge = new AtomicLong();
+  private Disposable poller;
+
+  @Autowired
+  public OutboxRelay(BookingRepository bookingRepository, OutboxCursorRepository cursorRepository,
+      BookingEventSink sink, MeterRegistry registry,
+      @Value("${flight.outbox.enabled:true}") boolean enabled,
+      @Value("${flight.outbox.poll-interval:500ms}") Duration pollInterval,
+      @Value("${flight.outbox.batch-size:500}") int batchSize,
+      @Value("${flight.outbox.settle:1s}") Duration settle) {
+    this.bookingRepository = bookingRepository;
+    this.cursorRepository = cursorRepository;
+    this.sink = sink;
+    this.enabled = enabled;
+    this.pollInterval = pollInterval;
+    this.batchSize = batchSize;
+    this.settle = settle;
+    this.delivered = Counter.builder(EVENTS)
+        .description("Booking events the sink accepted")
+        .register(registry);
+    this.failures = Counter.builder(FAILURES)
+        .description("Relay passes whose batch the sink or the store failed; the batch is handed over again")
+        .register(registry);
+    this.batches = Timer.builder(BATCHES)
+        .description("Time to hand one batch to the sink and record it")
+        .register(registry);
+    this.deliveryLag = Timer.builder(DELIVERY_LAG)
+        .description("Time from a booking change to the sink accepting its event")
+        .register(registry);
+    Gauge.builder(PENDING_AGE, pendingAge, age -> age.get() / 1000.0)
+        .description("Age in seconds of the oldest undelivered booking event at the last relay pass")
+        .baseUnit("seconds")
+        .register(registry);
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (enabled && !pollInterval.isZero()) {
+      poller = Flux.interval(pollInterval, pollInterval)
+          .onBackpressureDrop()
+          .concatMap(tick -> drain().onErrorResume(err -> {
+            log.warn("Outbox relay pass failed, the batch will be handed over again: {}", err.getMessage());
+            return Mono.empty();
+          }))
+          .subscribe();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (poller != null) {
+      poller.dispose();
+    }
+  }
+
+  /**
+   * Relays batches until a pass finds nothing ready.
+   *
+   * @return number of events handed to the sink
+   */
+  public Mono<Long> drain() {
+    return relayBatch().repeat().takeUntil(count -> count == 0).reduce(0L, Long::sum);
+  }
+
+  /**
+   * One pass: at most {@code batch-size} events, delivered in one call to the sink.
+   *
+   * @return number of events handed to the sink
+   */
+  public Mono<Long> relayBatch() {
+    return Mono.defer(() -> {
+      LocalDateTime now = LocalDateTime.now();
+      Mono<OutboxCursor> cursor = cursorRepository.findById(CURSOR_ID).defaultIfEmpty(new OutboxCursor());
+      return Mono.zip(cursor, bookingRepository.findWithPendingEvents(batchSize).collectList())
+          .flatMap(read -> relay(read.getT1(), read.getT2(), now));
+    });
+  }
+
+  private Mono<Long> relay(OutboxCursor cursor, List<Booking> bookings, LocalDateTime now) {
+    List<Pending> pending = new ArrayList<>();
+    bookings.forEach(booking -> booking.getOutbox().forEach(entry -> pending.add(new Pending(booking, entry))));
+    pending.sort(Comparator.comparing(p -> p.entry().getEventId()));
+    pendingAge.set(pending.stream().map(p -> p.entry().getOccurredAt())
+        .min(Comparator.naturalOrder())
+        .map(oldest -> Duration.between(oldest, now).toMillis())
+        .orElse(0L));
+
+    // a truncated read is ordered by each booking's oldest event: the bookings left out only hold events
+    // after the oldest event of the last booking read
+    String complete = bookings.size() < batchSize ? null
+        : bookings.get(bookings.size() - 1).getOutbox().stream()
+            .map(OutboxEntry::getEventId).min(Comparator.naturalOrder()).orElse(null);
+    LocalDateTime settledBefore = now.minus(settle);
+    Set<String> handedOver = cursor.getDelivered() == null ? Set.of() : Set.copyOf(cursor.getDelivered());
+
+    List<Pending> batch = new ArrayList<>();
+    Map<String, List<String>> stale = new LinkedHashMap<>();
+    for (Pending p : pending) {
+      String id = p.entry().getEventId();
+      if ((complete != null && id.compareTo(complete) > 0) || p.entry().getOccurredAt().isAfter(settledBefore)
+          || batch.size() == batchSize) {
+        break;
+      }
+      if (handedOver.contains(id)) {
+        stale.computeIfAbsent(p.booking().getId(), b -> new ArrayList<>()).add(id);
+      } else {
+        batch.add(p);
+      }
+    }
+
+    Mono<Long> removeStale = stale.isEmpty() ? Mono.just(0L) : bookingRepository.removeEvents(stale);
+    if (batch.isEmpty()) {
+      return removeStale.thenReturn(0L);
+    }
+    List<BookingLifecycleEvent> events = batch.stream().map(OutboxRelay::event).toList();
+    Map<String, List<String>> delivered = new LinkedHashMap<>();
+    batch.forEach(p -> delivered.computeIfAbsent(p.booking().getId(), b -> new ArrayList<>())
+        .add(p.entry().getEventId()));
+    long started = System.nanoTime();
+    return removeStale
+        .then(sink.deliver(events))
+        .then(Mono.defer(() -> cursorRepository.save(advance(cursor, events))))
+        .then(Mono.defer(() -> bookingRepository.removeEvents(delivered)))
+        .doOnSuccess(removed -> record(events, Duration.ofNanos(System.nanoTime() - started)))
+        .doOnError(err -> failures.increment())
+        .thenReturn((long) events.size());
+  }
+
+  private static OutboxCursor advance(OutboxCursor cursor, List<BookingLifecycleEvent> events) {
+    cursor.setId(CURSOR_ID);
+    cursor.setToken(events.get(events.size() - 1).id());
+    cursor.setDelivered(events.stream().map(BookingLifecycleEvent::id).toList());
+    cursor.setDeliveredAt(LocalDateTime.now());
+    return cursor;
+  }
+
+  private void record(List<BookingLifecycleEvent> events, Duration took) {
+    LocalDateTime deliveredAt = LocalDateTime.now();
+    delivered.increment(events.size());
+    batches.record(took);
+    events.forEach(event -> deliveryLag.record(Duration.between(event.occurredAt(), deliveredAt)));
+  }
+
+  private static BookingLifecycleEvent event(Pending p) {
+    Booking booking = p.booking();
+    OutboxEntry entry = p.entry();
+    return new BookingLifecycleEvent(entry.getEventId(), entry.getType(), entry.getOccurredAt(), booking.getId(),
+        booking.getPnr(), booking.getEmail(), booking.getFlightId(), entry.getSeatNumbers(),
+        booking.getJourneyDate());
+  }
+
+  /** The resume token: id of the last event the sink accepted, or null before the first delivery. */
+  public Mono<String> resumeToken() {
+    return cursorRepository.findById(CURSOR_ID).mapNotNull(OutboxCursor::getToken);
+  }
+}
@@ -0,0 +1,125 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.Booking;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded read-through cache of bookings by PNR for ticket lookups. Concurrent misses for one PNR share a
+ * single repository read. Every booking mutation in this node writes the saved booking through, so a
+ * change is visible here as soon as the mutation returns; other nodes see it after at most {@code ttl}.
+ * The cache keeps its own copy of each booking and every caller gets a copy of it, so a caller changing
+ * the booking it got changes neither the cache nor what other callers see.
+ *
+ * <p>Unknown PNRs are remembered for {@code negative-ttl} to absorb enumeration traffic; 0 turns that off.
+ * A max size of 0 turns the cache off.
+ */
+@Component
+public class PnrCache {
+
+  public record Stats(long hits, long negativeHits, long misses, long coalesced, long writes,
+      long invalidations, long size, double hitRatio) {
+  }
+
+  private final AsyncCache<String, Optional<Booking>> cache;
+  private final boolean negativeCaching;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder negativeHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder writes = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  public PnrCache(@Value("${flight.pnr-cache.max-size:100000}") long maxSize,
+      @Value("${flight.pnr-cache.ttl:5m}") Duration ttl,
+      @Value("${flight.pnr-cache.negative-ttl:0s}") Duration negativeTtl) {
+    this.negativeCaching = !negativeTtl.isZero();
+    this.cache = maxSize <= 0 ? null : Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfter(Expiry.<String, Optional<Booking>>writing((pnr, booking) ->
+            booking.isPresent() ? ttl : negativeTtl))
+        .buildAsync();
+  }
+
+  public static PnrCache disabled() {
+    return new PnrCache(0, Duration.ZERO, Duration.ZERO);
+  }
+
+  /** Nothing is looked up or loaded before the returned Mono is subscribed. */
+  public Mono<Booking> get(String pnr, Function<String, Mono<Booking>> loader) {
+    if (cache == null) {
+      return Mono.defer(() -> loader.apply(pnr));
+    }
+    return Mono.defer(() -> lookup(pnr, loader));
+  }
+
+  private Mono<Booking> lookup(String pnr, Function<String, Mono<Booking>> loader) {
+    CompletableFuture<Optional<Booking>> created = new CompletableFuture<>();
+    CompletableFuture<Optional<Booking>> existing = cache.asMap().putIfAbsent(pnr, created);
+    if (existing != null) {
+      if (!existing.isDone()) {
+        coalesced.increment();
+      } else if (existing.join().isPresent()) {
+        hits.increment();
+      } else {
+        negativeHits.increment();
+      }
+      return fromFuture(existing);
+    }
+    misses.increment();
+    // the load runs on its own: a caller that cancels must not cancel it for the others waiting on it
+    loader.apply(pnr).map(Optional::of).defaultIfEmpty(Optional.empty()).subscribe(
+        booking -> {
+          created.complete(booking);
+          if (booking.isEmpty() && !negativeCaching) {
+            cache.asMap().remove(pnr, created);
+          }
+        },
+        // failed loads complete exceptionally and Caffeine drops them, so errors are never cached
+        created::completeExceptionally);
+    return fromFuture(created);
+  }
+
+  private static Mono<Booking> fromFuture(CompletableFuture<Optional<Booking>> future) {
+    // never cancel the shared future: other callers may be waiting on it
+    return Mono.fromFuture(future, true).flatMap(Mono::justOrEmpty).map(Booking::copy);
+  }
+
+  /** Replaces whatever is cached, including an in-flight load, with the booking as just saved. */
+  public void put(Booking booking) {
+    if (cache != null && booking.getPnr() != null) {
+      cache.put(booking.getPnr(), CompletableFuture.completedFuture(Optional.of(booking.copy())));
+      writes.increment();
+    }
+  }
+
+  /** For writes whose outcome is unknown, e.g. a save that failed after reaching the server. */
+  public void invalidate(String pnr) {
+    if (cache != null && cache.asMap().remove(pnr) != null) {
+      invalidations.increment();
+    }
+  }
+
+  public Stats stats() {
+    long h = hits.sum();
+    long n = negativeHits.sum();
+    long m = misses.sum();
+    long c = coalesced.sum();
+    long lookups = h + n + m + c;
+    return new Stats(h, n, m, c, writes.sum(), invalidations.sum(),
+        cache == null ? 0 : cache.synchronous().estimatedSize(),
+        lookups == 0 ? 0.0 : (double) (h + n + c) / lookups);
+  }
+}
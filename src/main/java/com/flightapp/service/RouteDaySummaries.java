@@ -0,0 +1,304 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.dto.CalendarDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.event.FlightsAdded;
+import com.flightapp.model.RouteDaySummary;
+import com.flightapp.repository.InventoryRepository;
+import com.flightapp.repository.RouteDayRepository;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Route-day summaries: one document per route and departure day listing its flights with their free seat
+ * counts, plus the day's totals and cheapest open fare. Summary searches and the calendar read these instead
+ * of the inventories, so a week of a route is seven small reads however many flights it has, and no seat map
+ * is ever loaded.
+ *
+ * <p>The summaries follow the inventories through the service's change events: a new flight is put into its
+ * day, a booking, hold, release or seat change adds its net seat count to the flight's entry. The write
+ * happens after the event, off the booking's path, and the search cache is invalidated once it has landed.
+ * A change that is lost (a failed write, an event the node never saw) leaves the summary off until
+ * {@link #reconcile} compares every day with the inventories and replaces what differs, which runs every
+ * {@code check-interval}, on demand, and at startup when the collection is empty. A repair can overwrite a
+ * seat change that lands while it runs; the next check puts that right.
+ *
+ * <p>Until the collection is known to hold every day, {@link #ready} is false and searches and the calendar
+ * are answered from the inventories: at startup while the first build runs, and for good if it fails, until
+ * a later check repairs the collection.
+ */
+@Component
+public class RouteDaySummaries implements InitializingBean, DisposableBean {
+
+  static final String ERR_DISABLED = "Route-day summaries are disabled";
+
+  private static final Logger log = LoggerFactory.getLogger(RouteDaySummaries.class);
+  private static final int CHECK_CONCURRENCY = 8;
+
+  /**
+   * @param days     route days the inventories have
+   * @param flights  flights in the inventories
+   * @param missing  days with flights but no summary
+   * @param drifted  summaries that differ from their flights
+   * @param stale    summaries of days without flights
+   * @param repaired whether the differences were written back
+   */
+  public record Report(long days, long flights, long missing, long drifted, long stale, boolean repaired) {
+
+    public boolean isClean() {
+      return missing == 0 && drifted == 0 && stale == 0;
+    }
+  }
+
+  private enum Outcome { SAME, MISSING, DRIFTED, STALE }
+
+  private final RouteDayRepository repository;
+  private final InventoryRepository inventoryRepository;
+  private final SearchCache searchCache;
+  private final boolean enabled;
+  private final Duration checkInterval;
+  private volatile boolean built;
+  private Disposable checker;
+
+  public RouteDaySummaries(RouteDayRepository repository, InventoryRepository inventoryRepository,
+      SearchCache searchCache, @Value("${flight.route-days.enabled:true}") boolean enabled,
+      @Value("${flight.route-days.check-interval:1h}") Duration checkInterval) {
+    this.repository = repository;
+    this.inventoryRepository = inventoryRepository;
+    this.searchCache = searchCache;
+    this.enabled = enabled;
+    this.checkInterval = checkInterval;
+  }
+
+  public static RouteDaySummaries disabled() {
+    return new RouteDaySummaries(null, null, SearchCache.disabled(), false, Duration.ZERO);
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /** Whether reads can be served from the summaries: enabled, and the collection was found or built whole. */
+  public boolean ready() {
+    return enabled && built;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (!enabled) {
+      return;
+    }
+    Flux<Report> checks = checkInterval.isZero() ? Flux.empty() : Flux.interval(checkInterval)
+        .onBackpressureDrop()
+        .concatMap(tick -> reconcile(true).onErrorResume(err -> {
+          log.error("Route-day summary check failed: {}", err.getMessage());
+          return Mono.empty();
+        }));
+    checker = buildIfEmpty().thenMany(checks).subscribe();
+  }
+
+  @Override
+  public void destroy() {
+    if (checker != null) {
+      checker.dispose();
+    }
+  }
+
+  private Mono<Report> buildIfEmpty() {
+    return repository.count()
+        .flatMap(count -> {
+          if (count > 0) {
+            built = true;
+            return Mono.empty();
+          }
+          return reconcile(true);
+        })
+        .onErrorResume(err -> {
+          log.error("Could not build the route-day summaries: {}", err.getMessage());
+          return Mono.empty();
+        });
+  }
+
+  @EventListener
+  public void onInventoryChanged(FlightInventoryChanged event) {
+    if (!enabled) {
+      return;
+    }
+    int delta = event.released().size() - event.claimed().size();
+    Mono<?> write;
+    if (event.claimed().isEmpty() && event.released().isEmpty()) {
+      // only a new flight comes with its seat map and no seats changed
+      if (event.flight() == null || event.flight().getSeatMap() == null) {
+        return;
+      }
+      write = repository.putFlights(List.of(event.flight()));
+    } else if (delta != 0) {
+      write = repository.adjustSeats(event.flightId(), delta);
+    } else {
+      return;
+    }
+    write.subscribe(null,
+        err -> log.warn("Route-day summary of flight {} not updated: {}", event.flightId(), err.getMessage()),
+        () -> searchCache.onInventoryChanged(event));
+  }
+
+  @EventListener
+  public void onFlightsAdded(FlightsAdded event) {
+    if (!enabled) {
+      return;
+    }
+    repository.putFlights(event.flights()).subscribe(null,
+        err -> log.warn("Route-day summaries of {} new flights not updated: {}", event.flights().size(),
+            err.getMessage()),
+        () -> searchCache.invalidateAll(event.flights()));
+  }
+
+  /** Flights of the route departing strictly between {@code from} and {@code to}, in departure order. */
+  public Flux<FlightSummary> search(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+    if (!from.isBefore(to)) {
+      return Flux.empty();
+    }
+    return repository.findDays(origin, destination, from.toLocalDate(), to.toLocalDate(), true)
+        .concatMapIterable(day -> day.getFlights().stream()
+            .filter(flight -> flight.getDeparture().isAfter(from) && flight.getDeparture().isBefore(to))
+            .sorted(RouteDaySummary.ORDER)
+            .map(flight -> summaryOf(day, flight))
+            .toList());
+  }
+
+  /** Days of the route from {@code from} to {@code to} that have flights, read without their flight lists. */
+  public Flux<CalendarDay> calendar(String origin, String destination, LocalDate from, LocalDate to) {
+    return repository.findDays(origin, destination, from, to, false)
+        .map(day -> new CalendarDay(day.getDay(), day.getFlightCount(), day.getTotalSeats(),
+            day.getAvailableSeats(), day.getMinPrice()));
+  }
+
+  /** The calendar computed from the flight summaries of one route, for when the summaries are disabled. */
+  static Flux<CalendarDay> calendarOf(Flux<FlightSummary> flights) {
+    return flights.sort(Comparator.comparing(FlightSummary::getDeparture))
+        .bufferUntilChanged(RouteDaySummaries::dayId)
+        .map(RouteDaySummaries::expectedDay)
+        .map(day -> new CalendarDay(day.getDay(), day.getFlightCount(), day.getTotalSeats(),
+            day.getAvailableSeats(), day.getMinPrice()));
+  }
+
+  /**
+   * Rebuilds every day from the inventories, read once in route and departure order, and compares it with
+   * the stored summary; with {@code repair} a summary that is missing or differs is replaced and one of a day
+   * without flights deleted. A repair of an empty collection builds it from scratch.
+   */
+  public Mono<Report> reconcile(boolean repair) {
+    if (!enabled) {
+      return Mono.error(new IllegalStateException(ERR_DISABLED));
+    }
+    return Mono.defer(() -> {
+      Set<String> seen = ConcurrentHashMap.newKeySet();
+      AtomicLong flights = new AtomicLong();
+      Flux<Outcome> days = inventoryRepository.findAllSummaries()
+          .doOnNext(flight -> flights.incrementAndGet())
+          .bufferUntilChanged(RouteDaySummaries::dayId)
+          .flatMap(dayFlights -> {
+            RouteDaySummary expected = expectedDay(dayFlights);
+            seen.add(expected.getId());
+            return repository.findById(expected.getId())
+                .map(stored -> matches(stored, expected) ? Outcome.SAME : Outcome.DRIFTED)
+                .defaultIfEmpty(Outcome.MISSING)
+                .flatMap(outcome -> repair && outcome != Outcome.SAME
+                    ? repository.save(expected).thenReturn(outcome)
+                    : Mono.just(outcome));
+          }, CHECK_CONCURRENCY);
+      // only complete once every day was seen
+      Flux<Outcome> stale = Flux.defer(() -> repository.findAllIds()
+          .filter(id -> !seen.contains(id))
+          .concatMap(id -> repair ? repository.deleteById(id).thenReturn(Outcome.STALE) : Mono.just(Outcome.STALE)));
+
+      return days.concatWith(stale)
+          .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+          .map(counts -> report(counts, seen.size(), flights.get(), repair))
+          .doOnNext(report -> {
+            if (!report.isClean()) {
+              log.warn("Route-day summaries differed from the inventories: {}", report);
+            }
+            if (repair) {
+              built = true;
+            }
+          });
+    });
+  }
+
+  private static Report report(Map<Outcome, Long> counts, long days, long flights, boolean repair) {
+    return new Report(days, flights, counts.getOrDefault(Outcome.MISSING, 0L),
+        counts.getOrDefault(Outcome.DRIFTED, 0L), counts.getOrDefault(Outcome.STALE, 0L), repair);
+  }
+
+  private static boolean matches(RouteDaySummary stored, RouteDaySummary expected) {
+    // entries are appended by updates; only the order of a rebuilt day is defined
+    if (stored.getFlights() != null) {
+      stored.getFlights().sort(RouteDaySummary.ORDER);
+    }
+    return expected.equals(stored);
+  }
+
+  private static String dayId(FlightSummary flight) {
+    return RouteDaySummary.idOf(flight.getOrigin(), flight.getDestination(), flight.getDeparture().toLocalDate());
+  }
+
+  private static RouteDaySummary expectedDay(List<FlightSummary> flights) {
+    FlightSummary first = flights.get(0);
+    return RouteDaySummary.of(first.getOrigin(), first.getDestination(), first.getDeparture().toLocalDate(),
+        flights.stream().map(RouteDaySummaries::entryOf).toList());
+  }
+
+  private static RouteDaySummary.Flight entryOf(FlightSummary summary) {
+    RouteDaySummary.Flight flight = new RouteDaySummary.Flight();
+    flight.setFlightId(summary.getId());
+    flight.setAirline(summary.getAirline());
+    flight.setAirlineLogoUrl(summary.getAirlineLogoUrl());
+    flight.setFlightNumber(summary.getFlightNumber());
+    flight.setDeparture(summary.getDeparture());
+    flight.setArrival(summary.getArrival());
+    flight.setPrice(summary.getPrice());
+    flight.setTotalSeats(summary.getTotalSeats());
+    flight.setAvailableSeats(summary.getAvailableSeats());
+    return flight;
+  }
+
+  private static FlightSummary summaryOf(RouteDaySummary day, RouteDaySummary.Flight flight) {
+    FlightSummary summary = new FlightSummary();
+    summary.setId(flight.getFlightId());
+    summary.setAirline(flight.getAirline());
+    summary.setAirlineLogoUrl(flight.getAirlineLogoUrl());
+    summary.setFlightNumber(flight.getFlightNumber());
+    summary.setOrigin(day.getOrigin());
+    summary.setDestination(day.getDestination());
+    summary.setDeparture(flight.getDeparture());
+    summary.setArrival(flight.getArrival());
+    summary.setPrice(flight.getPrice());
+    summary.setTotalSeats(flight.getTotalSeats());
+    summary.setAvailableSeats(flight.getAvailableSeats());
+    return summary;
+  }
+}
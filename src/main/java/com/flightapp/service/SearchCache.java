@@ -0,0 +1,165 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.event.FlightsAdded;
+import com.flightapp.model.AirlineInventory;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded cache of search results keyed by route and time window. Identical concurrent misses share one
+ * repository query. Entries whose window covers a changed flight are dropped when its inventory changes.
+ * A max size of 0 turns the cache off.
+ *
+ * <p>Cached rows are handed to every caller as they are, since copying a result with its seat maps on each
+ * hit would cost about as much as the query. They are read-only: a caller that wants to change a flight
+ * reads it from the repository. The cached lists themselves are unmodifiable.
+ */
+@Component
+public class SearchCache {
+
+  /** Shape of the cached rows, so full documents and summaries for one window are cached separately. */
+  public enum View { FULL, SUMMARY }
+
+  public record Key(String origin, String destination, LocalDateTime from, LocalDateTime to, View view) {
+
+    public Key(String origin, String destination, LocalDateTime from, LocalDateTime to) {
+      this(origin, destination, from, to, View.FULL);
+    }
+
+    boolean covers(AirlineInventory flight) {
+      return origin.equals(flight.getOrigin()) && destination.equals(flight.getDestination())
+          && !flight.getDeparture().isBefore(from) && !flight.getDeparture().isAfter(to);
+    }
+  }
+
+  public record Stats(long hits, long misses, long coalesced, long invalidations, long size) {
+  }
+
+  private final AsyncCache<Key, List<?>> cache;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  public SearchCache(@Value("${flight.search-cache.max-size:10000}") long maxSize,
+      @Value("${flight.search-cache.ttl:30s}") Duration ttl) {
+    this.cache = maxSize <= 0 ? null : Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl)
+        .buildAsync();
+  }
+
+  public static SearchCache disabled() {
+    return new SearchCache(0, Duration.ZERO);
+  }
+
+  /** Nothing is looked up or loaded before the returned Flux is subscribed. */
+  public <T> Flux<T> get(Key key, Supplier<Flux<T>> loader) {
+    if (cache == null) {
+      return Flux.defer(loader);
+    }
+    return Flux.defer(() -> lookup(key, loader));
+  }
+
+  private <T> Flux<T> lookup(Key key, Supplier<Flux<T>> loader) {
+    CompletableFuture<List<?>> created = new CompletableFuture<>();
+    CompletableFuture<List<?>> existing = cache.asMap().putIfAbsent(key, created);
+    if (existing != null) {
+      (existing.isDone() ? hits : coalesced).increment();
+      return fromFuture(existing);
+    }
+    misses.increment();
+    // failed loads complete exceptionally and Caffeine drops them, so errors are never cached; the load runs
+    // on its own so that a caller that cancels does not cancel it for the others waiting on it
+    loader.get().collectList().map(List::copyOf)
+        .subscribe(created::complete, created::completeExceptionally);
+    return fromFuture(created);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Flux<T> fromFuture(CompletableFuture<List<?>> future) {
+    // never cancel the shared future: other callers may be waiting on it
+    return Mono.fromFuture(future, true).flatMapIterable(list -> (List<T>) list);
+  }
+
+  @EventListener
+  public void onInventoryChanged(FlightInventoryChanged event) {
+    if (event.flight() != null && event.flight().getOrigin() != null) {
+      invalidate(event.flight());
+    } else {
+      invalidateFlight(event.flightId());
+    }
+  }
+
+  @EventListener
+  public void onFlightsAdded(FlightsAdded event) {
+    invalidateAll(event.flights());
+  }
+
+  /** {@link #invalidate} for a batch of flights in a single pass over the cache. */
+  public void invalidateAll(List<AirlineInventory> flights) {
+    if (cache == null || flights.isEmpty()) {
+      return;
+    }
+    Map<List<String>, List<AirlineInventory>> byRoute = flights.stream()
+        .collect(Collectors.groupingBy(flight -> List.of(flight.getOrigin(), flight.getDestination())));
+    boolean removed = cache.asMap().keySet().removeIf(key ->
+        byRoute.getOrDefault(List.of(key.origin(), key.destination()), List.of()).stream().anyMatch(key::covers));
+    if (removed) {
+      invalidations.increment();
+    }
+  }
+
+  /** Drops every cached window of the flight's route that contains its departure. */
+  public void invalidate(AirlineInventory flight) {
+    if (cache != null && cache.asMap().keySet().removeIf(key -> key.covers(flight))) {
+      invalidations.increment();
+    }
+  }
+
+  /**
+   * Fallback when only the id is known: drops completed entries that list the flight, and every load still
+   * running, since its rows may have been read before the change. Callers already waiting on a dropped load
+   * still get its rows; they are just not cached.
+   */
+  public void invalidateFlight(String flightId) {
+    if (cache == null) {
+      return;
+    }
+    boolean removed = cache.asMap().values().removeIf(future -> !future.isDone()
+        || (!future.isCompletedExceptionally()
+            && future.join().stream().anyMatch(row -> flightId.equals(idOf(row)))));
+    if (removed) {
+      invalidations.increment();
+    }
+  }
+
+  private static String idOf(Object row) {
+    if (row instanceof AirlineInventory inv) return inv.getId();
+    if (row instanceof FlightSummary summary) return summary.getId();
+    return null;
+  }
+
+  public Stats stats() {
+    long size = cache == null ? 0 : cache.synchronous().estimatedSize();
+    return new Stats(hits.sum(), misses.sum(), coalesced.sum(), invalidations.sum(), size);
+  }
+}
@@ -0,0 +1,51 @@
+package com.flightapp.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Owns the seat state of flights. Selected with {@code flight.seat-allocation.mode}: {@code mongo} (default)
+ * claims straight against the inventory document, {@code engine} keeps seat maps in memory.
+ */
+public interface SeatAllocator {
+
+  /** Outcome of {@link #releaseOnce}: the flight (seat map not populated) and the seats that were freed. */
+  record Released(AirlineInventory flight, List<String> seats) {
+  }
+
+  /**
+   * Takes all seats or none.
+   *
+   * @return the flight (seat map not populated) when the claim succeeded, empty if the flight is unknown,
+   *         departed by {@code now} or any seat is taken
+   */
+  Mono<AirlineInventory> claim(String flightId, Collection<String> seats, LocalDateTime now);
+
+  /**
+   * Returns seats to the flight. Seats that are already free are left alone.
+   *
+   * @return true if anything was released
+   */
+  Mono<Boolean> release(String flightId, Collection<String> seats);
+
+  /**
+   * Applies a batch of releases atomically and at most once each: releases whose id was applied before are
+   * skipped, seats that are already free are left alone, and the ids are remembered for
+   * {@link AirlineInventory#RELEASE_MEMORY} so that retrying the batch cannot free a seat that was sold again
+   * in the meantime.
+   *
+   * @param seatsByRelease seats to return keyed by release id
+   * @return the flight and the seats this call freed, empty if the flight is unknown
+   */
+  Mono<Released> releaseOnce(String flightId, Map<String, ? extends Collection<String>> seatsByRelease);
+
+  /** Current seat map of a flight, empty if the flight is unknown. */
+  Mono<SeatMap> snapshot(String flightId);
+}
@@ -0,0 +1,353 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.dto.SeatAvailabilityUpdate;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.model.SeatMap;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Live seat availability per flight: a subscriber gets the current seat map, then the seats freed and taken
+ * by every booking, update and hold after it.
+ *
+ * <p>A flight is hot while it has subscribers and owns one multicast sink; changes of other flights cost a
+ * map lookup. Deltas are fanned out on a worker of their own per flight, in order, so a booking never waits
+ * for subscribers. Each subscriber keeps one pending bit per seat and is only sent what it asked
+ * for: a subscriber that reads slower than seats change gets the net change since its last event in one
+ * delta, so its memory is bounded by the flight's seat count however far behind it is.
+ *
+ * <p>By default changes come from this node's {@link FlightInventoryChanged} events. With
+ * {@code source=change-stream} they come from {@link SeatMapChangeFeed} instead, which sees the writes of
+ * every node. {@code max-subscribers} bounds open streams on the node; 0 turns the streams off.
+ */
+@Component
+public class SeatAvailabilityStream {
+
+  public static final String SOURCE_EVENTS = "events";
+  public static final String SOURCE_CHANGE_STREAM = "change-stream";
+
+  static final String ERR_DISABLED = "Seat availability streams are disabled";
+  static final String ERR_TOO_MANY = "Too many seat availability streams, try again later";
+
+  private static final int RESYNC_CONCURRENCY = 8;
+
+  public record Stats(int hotFlights, int subscribers, long published, long conflated) {
+  }
+
+  /** Seat indexes, parsed once per change rather than once per subscriber. */
+  private record Delta(long version, int[] available, int[] taken) {
+  }
+
+  private final SeatAllocator seatAllocator;
+  private final int maxSubscribers;
+  private final Duration heartbeat;
+  private final boolean fromEvents;
+  private final Map<String, HotFlight> flights = new ConcurrentHashMap<>();
+  private final AtomicInteger subscribers = new AtomicInteger();
+  private final LongAdder published = new LongAdder();
+  private final LongAdder conflated = new LongAdder();
+
+  public SeatAvailabilityStream(SeatAllocator seatAllocator,
+      @Value("${flight.seat-stream.max-subscribers:10000}") int maxSubscribers,
+      @Value("${flight.seat-stream.heartbeat:15s}") Duration heartbeat,
+      @Value("${flight.seat-stream.source:" + SOURCE_EVENTS + "}") String source) {
+    this.seatAllocator = seatAllocator;
+    this.maxSubscribers = maxSubscribers;
+    this.heartbeat = heartbeat;
+    this.fromEvents = !SOURCE_CHANGE_STREAM.equals(source);
+  }
+
+  public static SeatAvailabilityStream disabled() {
+    return new SeatAvailabilityStream(null, 0, Duration.ZERO, SOURCE_EVENTS);
+  }
+
+  public boolean enabled() {
+    return maxSubscribers > 0;
+  }
+
+  /** Interval of the keep-alive comments the SSE endpoint sends between events. */
+  public Duration heartbeat() {
+    return heartbeat;
+  }
+
+  public boolean full() {
+    return subscribers.get() >= maxSubscribers;
+  }
+
+  public Stats stats() {
+    return new Stats(flights.size(), subscribers.get(), published.sum(), conflated.sum());
+  }
+
+  /**
+   * Snapshot first, then deltas until cancelled. Completes right away if the flight is unknown; fails with
+   * {@link IllegalStateException} when streams are off or the node has {@code max-subscribers} open.
+   */
+  public Flux<SeatAvailabilityUpdate> subscribe(String flightId) {
+    if (!enabled()) {
+      return Flux.error(new IllegalStateException(ERR_DISABLED));
+    }
+    // never emits past demand, so the sink's own buffer stays empty
+    return Flux.create(out -> {
+      if (subscribers.incrementAndGet() > maxSubscribers) {
+        subscribers.decrementAndGet();
+        out.error(new IllegalStateException(ERR_TOO_MANY));
+        return;
+      }
+      HotFlight hot = join(flightId);
+      Subscriber subscriber = new Subscriber(flightId, hot, out);
+      Disposable.Composite resources = Disposables.composite();
+      out.onRequest(n -> subscriber.drain());
+      out.onDispose(() -> {
+        resources.dispose();
+        leave(flightId, hot);
+        subscribers.decrementAndGet();
+      });
+      // deltas first: whatever changes while the snapshot loads is folded into it
+      resources.add(hot.deltas.asFlux().subscribe(subscriber::offer));
+      resources.add(seatAllocator.snapshot(flightId)
+          .subscribe(subscriber::snapshot, out::error, subscriber::snapshotLoaded));
+    }, FluxSink.OverflowStrategy.ERROR);
+  }
+
+  @EventListener
+  public void onInventoryChanged(FlightInventoryChanged event) {
+    if (fromEvents) {
+      publish(event.flightId(), event.released(), event.claimed());
+    }
+  }
+
+  /** Change feed input: publishes the difference to the last seat map seen for the flight, if it is hot. */
+  public void onSeatMap(String flightId, SeatMap seats) {
+    HotFlight hot = flights.get(flightId);
+    if (hot == null || seats == null) {
+      return;
+    }
+    SeatMap previous;
+    synchronized (hot) {
+      previous = hot.lastSeen;
+      hot.lastSeen = seats;
+    }
+    List<String> available = new ArrayList<>();
+    List<String> taken = new ArrayList<>();
+    diff(previous, seats, available, taken);
+    publish(flightId, available, taken);
+  }
+
+  /**
+   * Change feed input after the feed lost changes: reads the seat map of every hot flight and publishes what
+   * differs from the last one seen, so subscribers catch up on whatever the feed missed.
+   */
+  public Mono<Void> resync() {
+    return Flux.defer(() -> Flux.fromIterable(List.copyOf(flights.keySet())))
+        .flatMap(flightId -> seatAllocator.snapshot(flightId).doOnNext(seats -> onSeatMap(flightId, seats)),
+            RESYNC_CONCURRENCY)
+        .then();
+  }
+
+  void publish(String flightId, List<String> available, List<String> taken) {
+    if (available.isEmpty() && taken.isEmpty()) {
+      return;
+    }
+    HotFlight hot = flights.get(flightId);
+    if (hot != null) {
+      hot.publish(available, taken);
+    }
+  }
+
+  /** Seats whose availability differs; every seat of {@code after} when there is nothing to compare with. */
+  static void diff(SeatMap before, SeatMap after, List<String> available, List<String> taken) {
+    long[] now = after.getWords();
+    long[] then = before == null ? null : before.getWords();
+    for (int w = 0; w < now.length; w++) {
+      long changed = then == null ? -1L : now[w] ^ (w < then.length ? then[w] : 0L);
+      while (changed != 0) {
+        int bit = Long.numberOfTrailingZeros(changed);
+        int index = w * Long.SIZE + bit;
+        if (index >= after.getCapacity()) {
+          break;
+        }
+        ((now[w] & (1L << bit)) != 0 ? available : taken).add(SeatMap.labelOf(index));
+        changed &= changed - 1;
+      }
+    }
+  }
+
+  private static int[] indexes(List<String> seats) {
+    return seats.stream().mapToInt(SeatMap::indexOf).filter(index -> index >= 0).toArray();
+  }
+
+  private HotFlight join(String flightId) {
+    return flights.compute(flightId, (id, hot) -> {
+      HotFlight joined = hot != null ? hot : new HotFlight();
+      joined.subscribers++;
+      return joined;
+    });
+  }
+
+  private void leave(String flightId, HotFlight left) {
+    flights.computeIfPresent(flightId, (id, hot) -> {
+      if (hot != left || --hot.subscribers > 0) {
+        return hot;
+      }
+      hot.worker.dispose();
+      return null;
+    });
+  }
+
+  private final class HotFlight {
+    final Sinks.Many<Delta> deltas = Sinks.many().multicast().directBestEffort();
+    final Scheduler.Worker worker = Schedulers.parallel().createWorker();
+    final AtomicLong version = new AtomicLong();
+    // guarded by the flights map
+    int subscribers;
+    // change feed only, guarded by this
+    SeatMap lastSeen;
+
+    void publish(List<String> available, List<String> taken) {
+      try {
+        // only the worker emits, so emissions are serialized and never fail
+        worker.schedule(() -> {
+          deltas.tryEmitNext(new Delta(version.incrementAndGet(), indexes(available), indexes(taken)));
+          published.increment();
+        });
+      } catch (RejectedExecutionException e) {
+        // the last subscriber left meanwhile
+      }
+    }
+  }
+
+  /** Pending state of one subscription; every method runs under its monitor. */
+  private final class Subscriber {
+    private final String flightId;
+    private final HotFlight hot;
+    private final FluxSink<SeatAvailabilityUpdate> out;
+    // one bit per seat: changed since the last event sent, and whether it ended up free
+    private long[] changed = new long[0];
+    private long[] free = new long[0];
+    private boolean dirty;
+    private SeatAvailabilityUpdate snapshot;
+    private boolean loaded;
+    private boolean live;
+    private boolean draining;
+    private long version;
+
+    Subscriber(String flightId, HotFlight hot, FluxSink<SeatAvailabilityUpdate> out) {
+      this.flightId = flightId;
+      this.hot = hot;
+      this.out = out;
+    }
+
+    synchronized void offer(Delta delta) {
+      if (live && dirty) {
+        conflated.increment();
+      }
+      mark(delta.available(), true);
+      mark(delta.taken(), false);
+      version = delta.version();
+      drain();
+    }
+
+    synchronized void snapshot(SeatMap seats) {
+      loaded = true;
+      SeatMap current = seats.copy();
+      List<String> available = new ArrayList<>();
+      List<String> taken = new ArrayList<>();
+      takePending(available, taken);
+      current.release(available);
+      taken.forEach(seat -> current.claim(List.of(seat)));
+      version = Math.max(version, hot.version.get());
+      snapshot = new SeatAvailabilityUpdate(flightId, version, true, current.toLabels(), List.of());
+      drain();
+    }
+
+    synchronized void snapshotLoaded() {
+      if (!loaded) {
+        out.complete();
+      }
+    }
+
+    synchronized void drain() {
+      // out.next may request more or offer on this thread; the loop below picks that up
+      if (draining) {
+        return;
+      }
+      draining = true;
+      try {
+        SeatAvailabilityUpdate next;
+        while (out.requestedFromDownstream() > 0 && !out.isCancelled() && (next = poll()) != null) {
+          out.next(next);
+        }
+      } finally {
+        draining = false;
+      }
+    }
+
+    private SeatAvailabilityUpdate poll() {
+      if (!live) {
+        if (snapshot == null) {
+          return null;
+        }
+        SeatAvailabilityUpdate first = snapshot;
+        snapshot = null;
+        live = true;
+        return first;
+      }
+      if (!dirty) {
+        return null;
+      }
+      List<String> available = new ArrayList<>();
+      List<String> taken = new ArrayList<>();
+      takePending(available, taken);
+      return new SeatAvailabilityUpdate(flightId, version, false, available, taken);
+    }
+
+    private void mark(int[] seats, boolean available) {
+      for (int seat : seats) {
+        int w = seat / Long.SIZE;
+        if (w >= changed.length) {
+          changed = Arrays.copyOf(changed, w + 1);
+          free = Arrays.copyOf(free, w + 1);
+        }
+        long bit = 1L << seat;
+        changed[w] |= bit;
+        free[w] = available ? free[w] | bit : free[w] & ~bit;
+        dirty = true;
+      }
+    }
+
+    private void takePending(List<String> available, List<String> taken) {
+      for (int w = 0; w < changed.length; w++) {
+        long word = changed[w];
+        while (word != 0) {
+          int bit = Long.numberOfTrailingZeros(word);
+          ((free[w] & (1L << bit)) != 0 ? available : taken).add(SeatMap.labelOf(w * Long.SIZE + bit));
+          word &= word - 1;
+        }
+        changed[w] = 0;
+      }
+      dirty = false;
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.model.SeatHold;
+import com.flightapp.repository.SeatHoldRepository;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Seats set aside for one user for {@code ttl} while they enter passenger details. The seats are claimed in
+ * the seat map when the hold is placed, so nobody else can book them, and the hold is later either confirmed
+ * into a booking or given back.
+ *
+ * <p>Expired holds are released by a sweep every {@code sweep-interval} that reads only the expired holds
+ * from the expiry index: its cost follows the number of holds expiring, not the number of flights or of
+ * live holds. Confirming, giving up and expiring each take the hold atomically before touching its seats, so
+ * a confirm racing the sweep (possibly on another node) gets the seats or finds the hold taken, never both.
+ *
+ * <p>A confirm removes the hold. Giving up and expiring mark it releasing and delete it only once its seats
+ * are back on the flight, so a release that failed is retried by the sweep; a confirm whose booking could
+ * not be stored puts the hold back marked releasing for the same reason. Marking a live hold releasing also
+ * expires it, so the sweep retries it on its next run rather than after the ttl. Releases carry the hold's release
+ * id, so a retry never frees seats twice. A ttl of 0 turns holds off.
+ */
+@Component
+public class SeatHolds implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(SeatHolds.class);
+  private static final int SWEEP_BATCH = 500;
+  private static final int SWEEP_CONCURRENCY = 8;
+
+  private final SeatHoldRepository repository;
+  private final SeatAllocator seatAllocator;
+  private final ApplicationEventPublisher events;
+  private final BookingMetrics metrics;
+  private final Duration ttl;
+  private final Duration sweepInterval;
+  private Disposable sweeper;
+
+  public SeatHolds(SeatHoldRepository repository, SeatAllocator seatAllocator, ApplicationEventPublisher events,
+      BookingMetrics metrics, @Value("${flight.seat-hold.ttl:10m}") Duration ttl, @Value("${flight.seat-hold.sweep-interval:1s}") Duration sweepInterval) {
+    this.repository = repository;
+    this.seatAllocator = seatAllocator;
+    this.events = events;
+    this.metrics = metrics;
+    this.ttl = ttl;
+    this.sweepInterval = sweepInterval;
+  }
+
+  public static SeatHolds disabled() {
+    return new SeatHolds(null, null, event -> { }, BookingMetrics.disabled(), Duration.ZERO, Duration.ZERO);
+  }
+
+  public boolean enabled() {
+    return !ttl.isZero();
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (!enabled()) {
+      return;
+    }
+    sweeper = Flux.interval(sweepInterval)
+        .onBackpressureDrop()
+        .concatMap(tick -> expire(LocalDateTime.now()).onErrorResume(err -> {
+          log.error("Seat hold sweep failed: {}", err.getMessage());
+          return Mono.empty();
+        }))
+        .subscribe();
+  }
+
+  @Override
+  public void destroy() {
+    if (sweeper != null) {
+      sweeper.dispose();
+    }
+  }
+
+  /** A hold on seats that were just claimed, not stored yet; the id is a random token the user confirms with. */
+  public SeatHold newHold(String flightId, String email, List<String> seats, LocalDateTime journeyDate,
+      LocalDateTime now) {
+    SeatHold hold = new SeatHold();
+    hold.setId(UUID.randomUUID().toString());
+    hold.setFlightId(flightId);
+    hold.setEmail(email);
+    hold.setSeatNumbers(seats);
+    hold.setJourneyDate(journeyDate);
+    hold.setCreatedAt(now);
+    hold.setExpiresAt(now.plus(ttl));
+    hold.setReleaseId(new ObjectId().toHexString());
+    return hold;
+  }
+
+  public Mono<SeatHold> place(SeatHold hold) {
+    return repository.save(hold);
+  }
+
+  public Mono<SeatHold> find(String token) {
+    return repository.findById(token);
+  }
+
+  /**
+   * Takes a live hold for a booking; whoever takes it owns its seats. Empty if the hold expired or was taken
+   * already. Call {@link #giveBack} if the booking could not be stored.
+   */
+  public Mono<SeatHold> take(String token, LocalDateTime now) {
+    return repository.takeLive(token, now);
+  }
+
+  /**
+   * Releases a hold taken for a booking that could not be stored. The hold is put back marked releasing and
+   * expired at {@code now} first, so the next sweep retries a release that fails here.
+   */
+  public Mono<Void> giveBack(SeatHold taken, LocalDateTime now) {
+    taken.setReleasing(true);
+    taken.setExpiresAt(now);
+    return repository.save(taken).flatMap(this::release);
+  }
+
+  /** Gives up a live hold nobody took; empty if there is none. A failed release is retried by the sweep. */
+  public Mono<SeatHold> releaseLive(String token, LocalDateTime now) {
+    return repository.releaseLive(token, now).flatMap(hold -> release(hold).thenReturn(hold));
+  }
+
+  /** Gives the seats of a hold that was taken back to the flight, then deletes the hold. */
+  public Mono<Void> release(SeatHold hold) {
+    // holds placed before release ids were recorded get a fresh one, as every release did then
+    String releaseId = hold.getReleaseId() != null ? hold.getReleaseId() : new ObjectId().toHexString();
+    return seatAllocator.releaseOnce(hold.getFlightId(), Map.of(releaseId, hold.getSeatNumbers()))
+        .doOnNext(released -> {
+          if (!released.seats().isEmpty()) {
+            events.publishEvent(new FlightInventoryChanged(hold.getFlightId(), released.flight(), List.of(),
+                released.seats()));
+          }
+        })
+        .then(Mono.defer(() -> repository.deleteById(hold.getId())));
+  }
+
+  /**
+   * Releases holds expired by {@code now}, up to one batch; a longer backlog is worked off by the next sweeps.
+   *
+   * @return number of holds released
+   */
+  public Mono<Integer> expire(LocalDateTime now) {
+    return repository.findExpired(now, SWEEP_BATCH)
+        .flatMap(hold -> repository.takeExpired(hold.getId(), now)
+            .flatMap(taken -> release(taken).thenReturn(taken).onErrorResume(err -> {
+              log.warn("Seat hold {} could not be released, retrying on the next sweep: {}", taken.getId(),
+                  err.getMessage());
+              return Mono.empty();
+            })), SWEEP_CONCURRENCY)
+        .count()
+        .map(Long::intValue)
+        .doOnNext(metrics::holdsExpired);
+  }
+}
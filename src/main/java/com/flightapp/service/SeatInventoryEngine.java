@@ -0,0 +1,380 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.PendingRelease;
+import com.flightapp.model.SeatHold;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.BookingRepository;
+import com.flightapp.repository.InventoryRepository;
+import com.flightapp.repository.SeatHoldRepository;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Keeps each flight's seat map in memory and serves claims and releases without a Mongo round trip.
+ *
+ * <p>Every flight holds an immutable {@link SeatMap} snapshot behind an {@link AtomicReference}; a change
+ * copies the snapshot and swaps it in with a CAS, so writers on one flight are serialized without locks.
+ * Changed flights are written back in unordered bulk batches every {@code flush-interval}.
+ *
+ * <p>Bookings stay the durable record. When a flight is first touched its map is rebuilt from the
+ * inventory's seat count minus the seats of its active bookings and seat holds, which also recovers any changes that
+ * had not been flushed before a crash. The engine assumes it is the only writer of the flights it serves,
+ * i.e. one node per flight.
+ *
+ * <p>Release ids live in memory, so {@link #releaseOnce} completes only once a flush has written the freed
+ * seats, and the caller drops its pending release after that. On load the ids of the releases still pending
+ * on the flight's bookings count as applied: the rebuilt map already has their seats free.
+ *
+ * <p>After each flush, flights whose changes are all written are dropped from memory once they have departed
+ * or have not been touched for {@code idle-eviction}; the next request for one loads it again. A flight being
+ * dropped is first sealed, so a change racing with the eviction either lands before it, and the flight is kept,
+ * or is retried once the eviction settles, on the kept flight or a fresh load. The retry is chained on the
+ * eviction's completion rather than waited for, so no caller thread blocks.
+ */
+@Component
+@ConditionalOnProperty(name = "flight.seat-allocation.mode", havingValue = "engine")
+public class SeatInventoryEngine implements SeatAllocator, InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(SeatInventoryEngine.class);
+  private static final int FLUSH_BATCH_SIZE = 500;
+
+  private final InventoryRepository inventoryRepository;
+  private final BookingRepository bookingRepository;
+  private final SeatHoldRepository seatHoldRepository;
+  private final Duration flushInterval;
+  private final Duration idleEviction;
+
+  private final Map<String, Mono<FlightSeats>> flights = new ConcurrentHashMap<>();
+  private final Map<String, FlightSeats> loaded = new ConcurrentHashMap<>();
+  private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+  // completes when the next flush has written every flight dirty when it started
+  private final AtomicReference<Sinks.Empty<Void>> nextFlush = new AtomicReference<>(Sinks.empty());
+  private Disposable flusher;
+
+  public SeatInventoryEngine(InventoryRepository inventoryRepository, BookingRepository bookingRepository,
+      SeatHoldRepository seatHoldRepository,
+      @Value("${flight.seat-allocation.flush-interval:200ms}") Duration flushInterval,
+      @Value("${flight.seat-allocation.idle-eviction:30m}") Duration idleEviction) {
+    this.inventoryRepository = inventoryRepository;
+    this.bookingRepository = bookingRepository;
+    this.seatHoldRepository = seatHoldRepository;
+    this.flushInterval = flushInterval;
+    this.idleEviction = idleEviction;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    flusher = Flux.interval(flushInterval)
+        .onBackpressureDrop()
+        .concatMap(tick -> flush()
+            .doOnSuccess(written -> evict(LocalDateTime.now()))
+            .onErrorResume(err -> {
+              log.error("Seat map flush failed: {}", err.getMessage());
+              return Mono.empty();
+            }))
+        .subscribe();
+  }
+
+  @Override
+  public void destroy() {
+    if (flusher != null) {
+      flusher.dispose();
+    }
+    flush().block(Duration.ofSeconds(10));
+  }
+
+  @Override
+  public Mono<AirlineInventory> claim(String flightId, Collection<String> seats, LocalDateTime now) {
+    return flight(flightId).flatMap(f -> {
+      if (!f.inventory.getDeparture().isAfter(now) || !f.claim(seats)) {
+        return Mono.empty();
+      }
+      dirty.add(flightId);
+      return Mono.just(f.inventory);
+    }).onErrorResume(Evicted.class, evicted -> evicted.settled.then(Mono.defer(() -> claim(flightId, seats, now))));
+  }
+
+  @Override
+  public Mono<Boolean> release(String flightId, Collection<String> seats) {
+    return flight(flightId)
+        .map(f -> {
+          boolean released = f.release(seats);
+          if (released) {
+            dirty.add(flightId);
+          }
+          return released;
+        })
+        .onErrorResume(Evicted.class, evicted -> evicted.settled.then(Mono.defer(() -> release(flightId, seats))))
+        .defaultIfEmpty(false);
+  }
+
+  @Override
+  public Mono<Released> releaseOnce(String flightId, Map<String, ? extends Collection<String>> seatsByRelease) {
+    return flight(flightId).flatMap(f -> {
+      Released released = new Released(f.inventory, f.releaseOnce(seatsByRelease));
+      if (!released.seats().isEmpty()) {
+        dirty.add(flightId);
+      }
+      // a replayed id may belong to a release that is still waiting for its flush
+      return dirty.contains(flightId) ? nextFlush.get().asMono().thenReturn(released) : Mono.just(released);
+    }).onErrorResume(Evicted.class,
+        evicted -> evicted.settled.then(Mono.defer(() -> releaseOnce(flightId, seatsByRelease))));
+  }
+
+  /** Current seat map of a flight, loading it if needed. */
+  @Override
+  public Mono<SeatMap> snapshot(String flightId) {
+    return flight(flightId).map(f -> f.current().copy())
+        .onErrorResume(Evicted.class, evicted -> evicted.settled.then(Mono.defer(() -> snapshot(flightId))));
+  }
+
+  /**
+   * Writes every changed flight back to Mongo. Flights that fail to persist are marked dirty again, and the
+   * releases waiting on them wait for the next flush.
+   *
+   * @return number of flights written
+   */
+  public Mono<Integer> flush() {
+    Sinks.Empty<Void> flushed = nextFlush.getAndSet(Sinks.empty());
+    if (dirty.isEmpty()) {
+      flushed.tryEmitEmpty();
+      return Mono.just(0);
+    }
+    List<String> ids = List.copyOf(dirty);
+    dirty.removeAll(ids);
+
+    return Flux.fromIterable(ids)
+        .buffer(FLUSH_BATCH_SIZE)
+        .concatMapDelayError(batch -> {
+          Map<String, SeatMap> maps = new HashMap<>();
+          for (String id : batch) {
+            FlightSeats f = loaded.get(id);
+            if (f != null) {
+              maps.put(id, f.seats.get());
+            }
+          }
+          return inventoryRepository.saveSeatMaps(maps)
+              .doOnError(err -> dirty.addAll(batch))
+              .map(n -> batch.size());
+        })
+        .reduce(0, Integer::sum)
+        .doOnSuccess(n -> flushed.tryEmitEmpty())
+        .doOnError(err -> nextFlush.get().asMono().subscribe(null, null, flushed::tryEmitEmpty));
+  }
+
+  /**
+   * Drops the flights that departed before {@code now} or were not touched for {@code idle-eviction}, as
+   * long as every change to them is written. Runs after a flush, never alongside one.
+   *
+   * @return number of flights dropped
+   */
+  int evict(LocalDateTime now) {
+    long idleBefore = System.nanoTime() - idleEviction.toNanos();
+    int evicted = 0;
+    for (Map.Entry<String, FlightSeats> entry : loaded.entrySet()) {
+      String flightId = entry.getKey();
+      FlightSeats f = entry.getValue();
+      boolean departed = f.inventory.getDeparture().isBefore(now);
+      boolean idle = !idleEviction.isZero() && f.lastTouched - idleBefore < 0;
+      if ((!departed && !idle) || dirty.contains(flightId)) {
+        continue;
+      }
+      long touched = f.lastTouched;
+      SeatMap last = f.seats.get();
+      Sinks.Empty<Void> settled = Sinks.empty();
+      f.settled = settled;
+      if (last == null || !f.seats.compareAndSet(last, null)) {
+        continue;
+      }
+      // a change that got in before the seal is still on its way to the booking: keep the flight
+      if (f.lastTouched != touched || dirty.contains(flightId)) {
+        f.seats.set(last);
+      } else {
+        loaded.remove(flightId, f);
+        flights.remove(flightId);
+        evicted++;
+      }
+      settled.tryEmitEmpty();
+    }
+    if (evicted > 0) {
+      log.debug("Dropped {} departed or idle flights from the seat engine", evicted);
+    }
+    return evicted;
+  }
+
+  /** Number of flights held in memory. */
+  int loadedFlights() {
+    return loaded.size();
+  }
+
+  private Mono<FlightSeats> flight(String flightId) {
+    return flights.computeIfAbsent(flightId, id -> load(id)
+        .doOnSuccess(f -> {
+          if (f == null) flights.remove(id);
+        })
+        .doOnError(err -> flights.remove(id))
+        .cache());
+  }
+
+  private Mono<FlightSeats> load(String flightId) {
+    return inventoryRepository.findById(flightId)
+        .flatMap(inv -> Mono.zip(taken(flightId), pendingReleases(flightId)).map(state -> {
+          SeatMap seats = SeatMap.allAvailable(inv.getTotalSeats());
+          state.getT1().forEach(seats::claim);
+          if (!seats.equals(inv.getSeatMap())) {
+            // the stored map missed changes that were not flushed
+            dirty.add(flightId);
+          }
+          inv.setSeatMap(null);
+          FlightSeats f = new FlightSeats(inv, seats);
+          f.recentReleases.addAll(state.getT2());
+          loaded.put(flightId, f);
+          return f;
+        }));
+  }
+
+  private Mono<List<List<String>>> taken(String flightId) {
+    return bookingRepository.findByFlightIdAndCanceledFalse(flightId)
+        .filter(b -> b.getSeatNumbers() != null)
+        .map(Booking::getSeatNumbers)
+        // expired holds too: their seats stay claimed until the sweep releases them
+        .concatWith(seatHoldRepository.findByFlightId(flightId).map(SeatHold::getSeatNumbers))
+        .collectList();
+  }
+
+  private Mono<List<String>> pendingReleases(String flightId) {
+    return bookingRepository.findWithPendingReleases(flightId)
+        .flatMapIterable(Booking::getPendingReleases)
+        .map(PendingRelease::getReleaseId)
+        .collectList();
+  }
+
+  /**
+   * The flight was sealed for eviction when a change reached it. The change is made again once
+   * {@code settled} completes: on the same flight if it was kept, on a fresh load if it was dropped.
+   */
+  private static final class Evicted extends RuntimeException {
+    private final transient Mono<Void> settled;
+
+    Evicted(Mono<Void> settled) {
+      super("flight evicted", null, false, false);
+      this.settled = settled;
+    }
+  }
+
+  private static final class FlightSeats {
+    private final AirlineInventory inventory;
+    // null while the flight is sealed for eviction
+    private final AtomicReference<SeatMap> seats;
+    private volatile long lastTouched = System.nanoTime();
+    // completes when the last seal is undone or the flight is dropped; set before sealing
+    private volatile Sinks.Empty<Void> settled = Sinks.empty();
+    // ids of the releases applied within RELEASE_MEMORY, oldest first; guarded by this
+    private final Set<String> recentReleases = new LinkedHashSet<>();
+
+    FlightSeats(AirlineInventory inventory, SeatMap seats) {
+      this.inventory = inventory;
+      this.seats = new AtomicReference<>(seats);
+    }
+
+    /**
+     * The seat map to change; marks the flight as touched.
+     *
+     * @throws Evicted when the flight is sealed for eviction
+     */
+    SeatMap current() {
+      lastTouched = System.nanoTime();
+      SeatMap current = seats.get();
+      if (current == null) {
+        throw new Evicted(settled.asMono());
+      }
+      return current;
+    }
+
+    boolean claim(Collection<String> labels) {
+      while (true) {
+        SeatMap current = current();
+        if (!current.containsAll(labels)) {
+          return false;
+        }
+        SeatMap next = current.copy();
+        next.claim(labels);
+        if (seats.compareAndSet(current, next)) {
+          return true;
+        }
+      }
+    }
+
+    /** @return the seats freed, skipping releases applied before and seats that are already free */
+    synchronized List<String> releaseOnce(Map<String, ? extends Collection<String>> seatsByRelease) {
+      Set<String> labels = new LinkedHashSet<>();
+      Set<String> recorded = new LinkedHashSet<>();
+      seatsByRelease.forEach((id, taken) -> {
+        if (recentReleases.add(id)) {
+          recorded.add(id);
+          labels.addAll(taken);
+        }
+      });
+      String forgetBefore = PendingRelease.idsFrom(LocalDateTime.now().minus(AirlineInventory.RELEASE_MEMORY));
+      recentReleases.removeIf(id -> id.compareTo(forgetBefore) < 0);
+      while (true) {
+        SeatMap current;
+        try {
+          current = current();
+        } catch (Evicted e) {
+          // the retry may find this flight kept: it must not take these releases as applied
+          recentReleases.removeAll(recorded);
+          throw e;
+        }
+        List<String> freed = labels.stream().filter(label -> SeatMap.indexOf(label) >= 0
+            && SeatMap.indexOf(label) < current.getCapacity() && !current.isAvailable(label)).toList();
+        if (freed.isEmpty()) {
+          return freed;
+        }
+        SeatMap next = current.copy();
+        next.release(freed);
+        if (seats.compareAndSet(current, next)) {
+          return freed;
+        }
+      }
+    }
+
+    boolean release(Collection<String> labels) {
+      while (true) {
+        SeatMap current = current();
+        SeatMap next = current.copy();
+        next.release(labels);
+        if (next.equals(current)) {
+          return false;
+        }
+        if (seats.compareAndSet(current, next)) {
+          return true;
+        }
+      }
+    }
+  }
+}
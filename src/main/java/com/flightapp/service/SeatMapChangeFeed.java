@@ -0,0 +1,120 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import com.mongodb.MongoServerException;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+/**
+ * Feeds {@link SeatAvailabilityStream} from a Mongo change stream on the inventories, so subscribers on any
+ * node see seats taken through every node. Needs a replica set. The stream resumes after the last change it
+ * handled when the connection drops; changes of flights nobody on this node watches are diffed and dropped.
+ *
+ * <p>When that change is no longer in the oplog the stream cannot resume. It then starts over from a little
+ * before now and the seat maps of all watched flights are read again, so subscribers get whatever was
+ * missed as one delta. The overlap covers clock skew with the cluster; changes seen twice diff to nothing.
+ */
+@Component
+@Profile("!" + EmbeddedStore.PROFILE)
+@ConditionalOnProperty(name = "flight.seat-stream.source", havingValue = SeatAvailabilityStream.SOURCE_CHANGE_STREAM)
+public class SeatMapChangeFeed implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(SeatMapChangeFeed.class);
+  private static final Duration MIN_BACKOFF = Duration.ofMillis(200);
+  private static final Duration MAX_BACKOFF = Duration.ofSeconds(10);
+  private static final Duration RESTART_OVERLAP = Duration.ofSeconds(10);
+  // ChangeStreamFatalError (resume token not found) and ChangeStreamHistoryLost
+  private static final Set<Integer> CANNOT_RESUME = Set.of(280, 286);
+
+  private final ReactiveMongoTemplate mongoTemplate;
+  private final SeatAvailabilityStream stream;
+  private volatile BsonValue resumeToken;
+  private volatile Instant startAt;
+  private Disposable subscription;
+
+  public SeatMapChangeFeed(ReactiveMongoTemplate mongoTemplate, SeatAvailabilityStream stream) {
+    this.mongoTemplate = mongoTemplate;
+    this.stream = stream;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    subscription = Flux.defer(this::changes)
+        .doOnError(this::onStreamError)
+        .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF).maxBackoff(MAX_BACKOFF))
+        .subscribe();
+  }
+
+  @Override
+  public void destroy() {
+    if (subscription != null) {
+      subscription.dispose();
+    }
+  }
+
+  private void onStreamError(Throwable err) {
+    if (!cannotResume(err)) {
+      log.warn("Seat map change stream failed, resuming: {}", err.getMessage());
+      return;
+    }
+    log.warn("Seat map change stream cannot resume, restarting from now and reloading watched flights: {}",
+        err.getMessage());
+    resumeToken = null;
+    startAt = Instant.now().minus(RESTART_OVERLAP);
+    stream.resync().subscribe(null,
+        resyncErr -> log.warn("Watched flights not reloaded after the change stream restart: {}",
+            resyncErr.getMessage()));
+  }
+
+  static boolean cannotResume(Throwable err) {
+    for (Throwable cause = err; cause != null; cause = cause.getCause()) {
+      if (cause instanceof MongoServerException server && CANNOT_RESUME.contains(server.getCode())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Flux<ChangeStreamEvent<AirlineInventory>> changes() {
+    BsonValue token = resumeToken;
+    Instant from = startAt;
+    return mongoTemplate.changeStream(AirlineInventory.class)
+        .withOptions(options -> {
+          options.returnFullDocumentOnUpdate();
+          if (token != null) {
+            options.resumeAfter(token);
+          } else if (from != null) {
+            options.resumeAt(from);
+          }
+        })
+        .watchCollection(AirlineInventory.class)
+        .filter(Criteria.where("operationType").in("insert", "update", "replace"))
+        .listen()
+        .doOnNext(event -> {
+          AirlineInventory flight = event.getBody();
+          if (flight != null) {
+            stream.onSeatMap(flight.getId(), flight.getSeatMap());
+          }
+          resumeToken = event.getResumeToken();
+        });
+  }
+}
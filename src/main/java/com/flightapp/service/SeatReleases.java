@@ -0,0 +1,241 @@
+package com.flightapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.PendingRelease;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.BookingRepository;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+/**
+ * Returns seats given up by cancellations and seat changes to their flights. Releases submitted within one
+ * batch window are grouped per flight and each group is applied in a single atomic update, so a burst of
+ * cancellations on a flight costs one write instead of one per booking. Every release carries an id that the
+ * update records on the flight, which makes retries safe: a release is applied at most once, even when a
+ * retry follows a write whose reply was lost and the seat has been sold again since.
+ *
+ * <p>A booking keeps each release it requested as a {@link PendingRelease}, saved with the cancellation or
+ * seat change, until the release is applied. Releases lost to a crash or to failures past the last retry are
+ * found through those entries and submitted again every recovery interval. A release is only replayed while
+ * its flight still remembers the id, see {@link #REPLAY_LIMIT}; one pending for longer is left for manual
+ * repair and counted as expired. A batch window of 0 applies each release on its own as soon as it is
+ * submitted.
+ */
+@Component
+public class SeatReleases implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(SeatReleases.class);
+
+  /**
+   * Oldest release the recovery sweep replays: a day less than flights remember release ids, which leaves
+   * room for clocks that differ between nodes. Replaying an older one could free a seat sold again since.
+   */
+  static final Duration REPLAY_LIMIT = AirlineInventory.RELEASE_MEMORY.minusDays(1);
+
+  public record Stats(long submitted, long batches, long released, long retries, long failed, long expired) {
+  }
+
+  private record Pending(String releaseId, String flightId, List<String> seats, String bookingId,
+      Sinks.Empty<Void> done) {
+  }
+
+  private final SeatAllocator seatAllocator;
+  private final BookingRepository bookingRepository;
+  private final ApplicationEventPublisher events;
+  private final Duration batchWindow;
+  private final int maxBatch;
+  private final int concurrency;
+  private final int maxAttempts;
+  private final Duration retryBackoff;
+  private final Duration recoveryInterval;
+  private final Sinks.Many<Pending> submissions = Sinks.many().unicast().onBackpressureBuffer();
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder released = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+  private Disposable pipeline;
+  private Disposable recovery;
+
+  @Autowired
+  public SeatReleases(SeatAllocator seatAllocator, BookingRepository bookingRepository,
+      ApplicationEventPublisher events,
+      @Value("${flight.seat-release.batch-window:20ms}") Duration batchWindow,
+      @Value("${flight.seat-release.max-batch:500}") int maxBatch,
+      @Value("${flight.seat-release.concurrency:8}") int concurrency,
+      @Value("${flight.seat-release.max-attempts:5}") int maxAttempts,
+      @Value("${flight.seat-release.retry-backoff:50ms}") Duration retryBackoff,
+      @Value("${flight.seat-release.recovery-interval:1m}") Duration recoveryInterval) {
+    this.seatAllocator = seatAllocator;
+    this.bookingRepository = bookingRepository;
+    this.events = events;
+    this.batchWindow = batchWindow;
+    this.maxBatch = maxBatch;
+    this.concurrency = concurrency;
+    this.maxAttempts = maxAttempts;
+    this.retryBackoff = retryBackoff;
+    this.recoveryInterval = recoveryInterval;
+  }
+
+  /** Applies each release on its own when it is submitted, without batching, retries or recovery. */
+  public static SeatReleases direct(SeatAllocator seatAllocator, BookingRepository bookingRepository,
+      ApplicationEventPublisher events) {
+    return new SeatReleases(seatAllocator, bookingRepository, events, Duration.ZERO, 1, 1, 1, Duration.ZERO,
+        Duration.ZERO);
+  }
+
+  private boolean batched() {
+    return !batchWindow.isZero();
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (batched()) {
+      pipeline = submissions.asFlux()
+          .bufferTimeout(maxBatch, batchWindow, true)
+          .concatMap(batch -> Flux.fromIterable(byFlight(batch).values())
+              .flatMap(this::apply, concurrency)
+              .then())
+          .subscribe();
+    }
+    if (!recoveryInterval.isZero()) {
+      recovery = Flux.interval(recoveryInterval, recoveryInterval)
+          .onBackpressureDrop()
+          .concatMap(tick -> recover(LocalDateTime.now().minus(recoveryInterval)).onErrorResume(err -> {
+            log.error("Seat release recovery failed: {}", err.getMessage());
+            return Mono.empty();
+          }))
+          .subscribe();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (recovery != null) {
+      recovery.dispose();
+    }
+    if (pipeline != null) {
+      // lets the releases already submitted finish their batch
+      submissions.tryEmitComplete();
+    }
+  }
+
+  /**
+   * Returns the seats of a release that was just saved pending on its booking, and removes it from the booking
+   * once they are back. Completes when the release is applied; an error means it is left to the recovery sweep.
+   */
+  public Mono<Void> release(Booking booking, PendingRelease pending) {
+    return Mono.defer(() -> {
+      // labels that cannot name a seat were never claimed either
+      List<String> valid = pending.getSeatNumbers() == null ? List.of()
+          : pending.getSeatNumbers().stream().filter(seat -> SeatMap.indexOf(seat) >= 0).distinct().toList();
+      Pending release = new Pending(pending.getReleaseId(), booking.getFlightId(), valid, booking.getId(),
+          Sinks.empty());
+      submitted.increment();
+      if (!batched()) {
+        return apply(List.of(release)).then(release.done().asMono());
+      }
+      submissions.emitNext(release, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+      return release.done().asMono();
+    });
+  }
+
+  private static Map<String, List<Pending>> byFlight(List<Pending> batch) {
+    Map<String, List<Pending>> groups = new LinkedHashMap<>();
+    for (Pending release : batch) {
+      groups.computeIfAbsent(release.flightId(), id -> new ArrayList<>()).add(release);
+    }
+    return groups;
+  }
+
+  /** One atomic update for the releases of one flight; never fails, the outcome goes to each submitter. */
+  private Mono<Void> apply(List<Pending> releases) {
+    String flightId = releases.get(0).flightId();
+    Map<String, List<String>> seatsByRelease = new LinkedHashMap<>();
+    releases.forEach(release -> seatsByRelease.put(release.releaseId(), release.seats()));
+    Map<String, List<String>> releaseIdsByBooking = new LinkedHashMap<>();
+    releases.forEach(release -> releaseIdsByBooking.computeIfAbsent(release.bookingId(), id -> new ArrayList<>())
+        .add(release.releaseId()));
+    batches.increment();
+
+    Mono<SeatAllocator.Released> update = Mono.defer(() -> seatAllocator.releaseOnce(flightId, seatsByRelease));
+    if (maxAttempts > 1) {
+      update = update.retryWhen(Retry.backoff(maxAttempts - 1, retryBackoff)
+          .doBeforeRetry(signal -> retries.increment()));
+    }
+    return update
+        .doOnNext(outcome -> {
+          released.add(outcome.seats().size());
+          if (!outcome.seats().isEmpty()) {
+            events.publishEvent(new FlightInventoryChanged(flightId, outcome.flight(), List.of(), outcome.seats()));
+          }
+        })
+        // a flight that no longer exists has nothing to give back: its releases count as applied too
+        .then(Mono.defer(() -> bookingRepository.removeReleases(releaseIdsByBooking)))
+        .doOnSuccess(marked -> releases.forEach(release -> release.done().tryEmitEmpty()))
+        .doOnError(err -> {
+          failed.add(releases.size());
+          log.warn("Releasing {} seat release(s) on flight {} failed: {}", releases.size(), flightId,
+              err.getMessage());
+          releases.forEach(release -> release.done().tryEmitError(err));
+        })
+        .onErrorResume(err -> Mono.empty())
+        .then();
+  }
+
+  /**
+   * Submits again the releases requested before {@code requestedBefore} that are still pending on their
+   * bookings; the ids make it harmless when the first attempt did get through.
+   *
+   * @return number of releases resubmitted
+   */
+  public Mono<Long> recover(LocalDateTime requestedBefore) {
+    String replayFrom = PendingRelease.idsFrom(LocalDateTime.now().minus(REPLAY_LIMIT));
+    return bookingRepository.findWithPendingReleases()
+        .concatMap(booking -> Flux.fromIterable(booking.getPendingReleases())
+            .filter(pending -> pending.getRequestedAt() == null
+                || pending.getRequestedAt().isBefore(requestedBefore))
+            .filter(pending -> {
+              if (pending.getReleaseId().compareTo(replayFrom) >= 0) {
+                return true;
+              }
+              expired.increment();
+              log.error("Seat release {} of booking {} is pending since {}, past the replay limit; its seats {} "
+                  + "need a manual release", pending.getReleaseId(), booking.getId(), pending.getRequestedAt(),
+                  pending.getSeatNumbers());
+              return false;
+            })
+            .map(pending -> Map.entry(booking, pending)))
+        .flatMap(due -> release(due.getKey(), due.getValue()).onErrorResume(err -> Mono.empty()).thenReturn(due),
+            Math.max(concurrency, maxBatch))
+        .count();
+  }
+
+  public Stats stats() {
+    return new Stats(submitted.sum(), batches.sum(), released.sum(), retries.sum(), failed.sum(), expired.sum());
+  }
+}
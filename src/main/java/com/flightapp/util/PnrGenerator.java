@@ -1,18 +1,51 @@
 package com.flightapp.util;
 
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
+/**
+ * Random six character booking references. Codes are unpredictable but not unique on their own: with
+ * 36^6 possible codes, collisions are expected after tens of thousands of bookings. Uniqueness comes from
+ * the unique index on {@code bookings.pnr}, and the booking path draws a fresh code when an insert hits it.
+ */
 public class PnrGenerator {
   private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-  private static final SecureRandom RANDOM = new SecureRandom();
+  public static final int LENGTH = 6;
+  public static final long CODES = 2_176_782_336L; // 36^6
+  // largest multiple of CODES in a non-negative long; draws at or above it are retried so no code is favoured
+  private static final long LIMIT = Long.MAX_VALUE - Long.MAX_VALUE % CODES;
+  // one generator per thread: a shared SecureRandom serializes every booking on its lock, and the platform
+  // default (NativePRNG) shares one locked source across instances. SHA1PRNG keeps all state per instance.
+  private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(PnrGenerator::newRandom);
+
   private PnrGenerator() {
       // prevent instantiation
   }
+
   public static String generate() {
-    StringBuilder sb = new StringBuilder(6);
-    for (int i = 0; i < 6; i++) {
-      sb.append(ALPHABET.charAt(RANDOM.nextInt(ALPHABET.length())));
+    SecureRandom random = RANDOM.get();
+    long draw;
+    do {
+      draw = random.nextLong() >>> 1;
+    } while (draw >= LIMIT);
+    return encode(draw % CODES);
+  }
+
+  /** Base-36 form of a code in [0, CODES), left padded to {@link #LENGTH} characters. */
+  static String encode(long code) {
+    char[] chars = new char[LENGTH];
+    for (int i = LENGTH - 1; i >= 0; i--) {
+      chars[i] = ALPHABET.charAt((int) (code % ALPHABET.length()));
+      code /= ALPHABET.length();
+    }
+    return new String(chars);
+  }
+
+  private static SecureRandom newRandom() {
+    try {
+      return SecureRandom.getInstance("SHA1PRNG");
+    } catch (NoSuchAlgorithmException e) {
+      return new SecureRandom();
     }
-    return sb.toString();
   }
-}
\ No newline at end of file
+}
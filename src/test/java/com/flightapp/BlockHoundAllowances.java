@@ -0,0 +1,20 @@
+package com.flightapp;
+
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.integration.BlockHoundIntegration;
+
+/**
+ * BlockHound is installed for every test run (blockhound-junit-platform) and fails any blocking call made on a
+ * non-blocking thread. The calls allowed here block once per JVM and never again: reading a seed from the OS
+ * entropy source, and loading the validation message bundle from its jar the first time a constraint fails.
+ */
+public class BlockHoundAllowances implements BlockHoundIntegration {
+
+    @Override
+    public void applyTo(BlockHound.Builder builder) {
+        builder.allowBlockingCallsInside("org.bson.types.ObjectId", "<clinit>");
+        builder.allowBlockingCallsInside("sun.security.provider.SecureRandom$SeederHolder", "<clinit>");
+        builder.allowBlockingCallsInside(
+                "org.hibernate.validator.resourceloading.PlatformResourceBundleLocator", "loadBundle");
+    }
+}
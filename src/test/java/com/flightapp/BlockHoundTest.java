@@ -0,0 +1,22 @@
+package com.flightapp;
+
+import org.junit.jupiter.api.Test;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+/** Guards the guard: BlockHound must be active for the test run, or blocking calls go unnoticed. */
+class BlockHoundTest {
+
+    @Test
+    void blockingOnANonBlockingThread_fails() {
+        StepVerifier.create(Mono.fromCallable(() -> {
+                    Thread.sleep(1);
+                    return "";
+                }).subscribeOn(Schedulers.parallel()))
+                .expectErrorMatches(err -> err instanceof BlockingOperationError
+                        || err.getCause() instanceof BlockingOperationError)
+                .verify();
+    }
+}
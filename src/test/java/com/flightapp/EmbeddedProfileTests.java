@@ -0,0 +1,113 @@
+package com.flightapp;
+
+import com.flightapp.dto.BookingHistoryItem;
+import com.flightapp.model.Booking;
+import com.flightapp.repository.BookingRepository;
+import com.flightapp.repository.InventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedBookingRepository;
+import com.flightapp.repository.embedded.EmbeddedInventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** The whole application, controllers and services unchanged, on the embedded storage backend. */
+@SpringBootTest
+@ActiveProfiles(EmbeddedStore.PROFILE)
+class EmbeddedProfileTests {
+
+    private static final String FLIGHT = "{\"airline\":\"Indigo\",\"flightNumber\":\"IN1\",\"origin\":\"HYD\","
+            + "\"destination\":\"BLR\",\"departure\":\"2030-01-01T10:00:00\",\"arrival\":\"2030-01-01T12:00:00\","
+            + "\"totalSeats\":30,\"price\":4000.0}";
+    private static final String BOOKING = "{\"name\":\"Agent\",\"email\":\"agent@example.com\","
+            + "\"passengers\":[{\"name\":\"A\",\"gender\":\"F\",\"age\":30},{\"name\":\"B\",\"gender\":\"M\",\"age\":31}],"
+            + "\"seatNumbers\":[\"S1\",\"S2\"]}";
+
+    @TempDir
+    static Path dir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("flight.embedded.dir", dir::toString);
+    }
+
+    @Autowired
+    ApplicationContext context;
+
+    @Test
+    void wiresEmbeddedRepositoriesWithoutMongo() {
+        assertThat(context.getBean(InventoryRepository.class)).isInstanceOf(EmbeddedInventoryRepository.class);
+        assertThat(context.getBean(BookingRepository.class)).isInstanceOf(EmbeddedBookingRepository.class);
+        assertThat(context.getBeanNamesForType(ReactiveMongoTemplate.class)).isEmpty();
+    }
+
+    @Test
+    void addSearchBookCancel_throughTheControllers() {
+        WebTestClient client = WebTestClient.bindToApplicationContext(context).build();
+
+        Map<?, ?> flight = client.post().uri("/api/flight/airline/inventory/add")
+                .header("Content-Type", "application/json")
+                .bodyValue(FLIGHT)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Map.class).returnResult().getResponseBody();
+        String flightId = (String) flight.get("id");
+
+        client.post().uri("/api/flight/search/summary")
+                .header("Content-Type", "application/json")
+                .bodyValue("{\"origin\":\"HYD\",\"destination\":\"BLR\",\"from\":\"2030-01-01T00:00:00\","
+                        + "\"to\":\"2030-01-02T00:00:00\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(flightId)
+                .jsonPath("$[0].availableSeats").isEqualTo(30);
+
+        Booking booking = client.post().uri("/api/flight/booking/{id}", flightId)
+                .header("Content-Type", "application/json")
+                .bodyValue(BOOKING)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Booking.class).returnResult().getResponseBody();
+
+        // the same seats again are taken
+        client.post().uri("/api/flight/booking/{id}", flightId)
+                .header("Content-Type", "application/json")
+                .bodyValue(BOOKING)
+                .exchange()
+                .expectStatus().value(status -> assertThat(status).isNotEqualTo(HttpStatus.CREATED.value()));
+
+        client.get().uri("/api/flight/ticket/{pnr}", booking.getPnr())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.seatNumbers[1]").isEqualTo("S2");
+
+        client.get().uri("/api/flight/airline/inventory/{id}/seats", flightId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.availableCount").isEqualTo(28);
+
+        client.delete().uri("/api/flight/booking/cancel/{pnr}?email=agent@example.com", booking.getPnr())
+                .header("X-User-Email", "agent@example.com")
+                .exchange()
+                .expectStatus().isOk();
+
+        client.get().uri("/api/flight/booking/history?email=AGENT@example.com")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BookingHistoryItem.class).hasSize(1);
+    }
+}
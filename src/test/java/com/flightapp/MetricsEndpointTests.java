@@ -0,0 +1,69 @@
+package com.flightapp;
+
+import com.flightapp.repository.embedded.EmbeddedStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** The Prometheus scrape carries route-level latency histograms and the booking outcome counters. */
+@SpringBootTest
+@ActiveProfiles(EmbeddedStore.PROFILE)
+class MetricsEndpointTests {
+
+    private static final String FLIGHT = "{\"airline\":\"Indigo\",\"flightNumber\":\"IN1\",\"origin\":\"HYD\","
+            + "\"destination\":\"BLR\",\"departure\":\"2030-01-01T10:00:00\",\"arrival\":\"2030-01-01T12:00:00\","
+            + "\"totalSeats\":30,\"price\":4000.0}";
+    private static final String BOOKING = "{\"name\":\"Agent\",\"email\":\"agent@example.com\","
+            + "\"passengers\":[{\"name\":\"A\",\"gender\":\"F\",\"age\":30}],\"seatNumbers\":[\"S1\"]}";
+
+    @TempDir
+    static Path dir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("flight.embedded.dir", dir::toString);
+    }
+
+    @Autowired
+    ApplicationContext context;
+
+    @Test
+    void prometheusScrape_hasRouteHistogramsAndBookingOutcomes() {
+        WebTestClient client = WebTestClient.bindToApplicationContext(context).build();
+        Map<?, ?> flight = client.post().uri("/api/flight/airline/inventory/add")
+                .header("Content-Type", "application/json")
+                .bodyValue(FLIGHT)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Map.class).returnResult().getResponseBody();
+        for (int i = 0; i < 2; i++) {
+            client.post().uri("/api/flight/booking/{id}", flight.get("id"))
+                    .header("Content-Type", "application/json")
+                    .bodyValue(BOOKING)
+                    .exchange();
+        }
+
+        String scrape = client.get().uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertThat(scrape)
+                .containsPattern("http_server_requests_seconds_bucket\\{[^}]*uri=\"/api/flight/booking/\\{flightId}\"")
+                .containsPattern("flight_booking_outcomes_total\\{[^}]*operation=\"book\",outcome=\"success\"[^}]*} 1")
+                .containsPattern("flight_booking_outcomes_total\\{[^}]*outcome=\"seat_unavailable\"[^}]*} 1")
+                .containsPattern("flight_booking_seat_conflicts_total\\{[^}]*operation=\"book\"[^}]*} 1")
+                .containsPattern("flight_admission_limit\\{[^}]*route=\"search\"[^}]*} 64");
+    }
+}
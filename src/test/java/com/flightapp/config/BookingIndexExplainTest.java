@@ -0,0 +1,128 @@
+package com.flightapp.config;
+
+import com.flightapp.model.Booking;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the ticket and history queries against a real mongod and reads the winning plan from
+ * {@code explain}. Uses {@code mongodb://localhost:27017} (or {@code -Dmongo.it.uri}) and is skipped
+ * when no server answers.
+ */
+class BookingIndexExplainTest {
+
+    private static final String DATABASE = "flightdb_index_it";
+
+    static MongoClient client;
+    static ReactiveMongoTemplate mongoTemplate;
+    static MongoCollection<Document> bookings;
+
+    @BeforeAll
+    static void connect() {
+        String uri = System.getProperty("mongo.it.uri",
+                "mongodb://localhost:27017/?serverSelectionTimeoutMS=1000&connectTimeoutMS=1000");
+        client = MongoClients.create(uri);
+        boolean up;
+        try {
+            up = Mono.from(client.getDatabase("admin").runCommand(new Document("ping", 1)))
+                    .block(Duration.ofSeconds(3)) != null;
+        } catch (RuntimeException e) {
+            up = false;
+        }
+        assumeTrue(up, "no mongod reachable, skipping explain checks");
+
+        mongoTemplate = new ReactiveMongoTemplate(client, DATABASE);
+        bookings = client.getDatabase(DATABASE).getCollection(MongoIndexes.BOOKINGS);
+        Mono.from(bookings.drop()).block();
+
+        List<Document> docs = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        for (int i = 0; i < 2_000; i++) {
+            docs.add(new Document("pnr", String.format("P%05d", i))
+                    .append("email", "user" + (i % 50) + "@Example.com")
+                    .append("journeyDate", start.plusHours(i)));
+        }
+        Mono.from(bookings.insertMany(docs)).block();
+        new MongoIndexes(mongoTemplate).ensure().block();
+    }
+
+    @AfterAll
+    static void cleanup() {
+        if (bookings != null) {
+            Mono.from(bookings.drop()).block();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void ticketLookup_usesUniquePnrIndex() {
+        Document explain = Mono.from(bookings.find(new Document("pnr", "P00042")).explain(Document.class)).block();
+
+        assertThat(indexesUsed(explain)).containsExactly(Booking.PNR_INDEX);
+    }
+
+    @Test
+    void historyLookup_isCaseInsensitiveAndUsesEmailIndexWithoutSorting() {
+        Collation collation = Collation.builder().locale("en").collationStrength(CollationStrength.SECONDARY).build();
+        Document filter = new Document("email", "USER7@EXAMPLE.COM");
+        Document newestFirst = new Document("journeyDate", -1).append("_id", -1);
+
+        Document explain = Mono.from(bookings.find(filter).collation(collation).sort(newestFirst)
+                .explain(Document.class)).block();
+        long matches = Flux.from(bookings.find(filter).collation(collation)).count().block();
+
+        assertThat(matches).isEqualTo(40);
+        assertThat(indexesUsed(explain)).containsExactly(Booking.EMAIL_INDEX);
+        assertThat(stages(explain)).doesNotContain("SORT", "COLLSCAN");
+    }
+
+    private static Document winningPlan(Document explain) {
+        Document plan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        // slot-based engine wraps the classic tree in queryPlan
+        return plan.containsKey("queryPlan") ? plan.get("queryPlan", Document.class) : plan;
+    }
+
+    private static List<String> indexesUsed(Document explain) {
+        List<String> names = new ArrayList<>();
+        walk(winningPlan(explain), stage -> {
+            if ("IXSCAN".equals(stage.getString("stage"))) names.add(stage.getString("indexName"));
+        });
+        return names;
+    }
+
+    private static List<String> stages(Document explain) {
+        List<String> names = new ArrayList<>();
+        walk(winningPlan(explain), stage -> names.add(stage.getString("stage")));
+        return names;
+    }
+
+    private static void walk(Document stage, java.util.function.Consumer<Document> visitor) {
+        visitor.accept(stage);
+        if (stage.get("inputStage") instanceof Document input) {
+            walk(input, visitor);
+        }
+        if (stage.get("inputStages") instanceof List<?> inputs) {
+            inputs.forEach(input -> walk((Document) input, visitor));
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package com.flightapp.config;
 
+import com.flightapp.event.FlightsAdded;
 import com.flightapp.model.AirlineInventory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
-import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -15,22 +25,26 @@ import static org.mockito.Mockito.*;
 class DataInitializerTest {
 
     private ReactiveMongoTemplate mongoTemplate;
-    private ReactiveIndexOperations idxOps;
+    private MongoIndexes mongoIndexes;
+    private SeatMapMigration migration;
+    private ApplicationEventPublisher events;
     private DataInitializer dataInitializer;
 
     @BeforeEach
     void setup() {
         mongoTemplate = mock(ReactiveMongoTemplate.class);
-        idxOps = mock(ReactiveIndexOperations.class);
-
-        when(mongoTemplate.indexOps(AirlineInventory.class)).thenReturn(idxOps);
-
-        when(idxOps.createIndex(any())).thenReturn(Mono.just("idx"));
+        mongoIndexes = mock(MongoIndexes.class);
+        when(mongoIndexes.ensure()).thenReturn(Mono.empty());
+        when(mongoIndexes.verify()).thenReturn(Mono.just(new MongoIndexes.Report(List.of(), List.of(), List.of())));
 
         when(mongoTemplate.count(any(), eq(AirlineInventory.class))).thenReturn(Mono.just(0L));
         when(mongoTemplate.insert(any(AirlineInventory.class))).thenReturn(Mono.just(new AirlineInventory()));
 
-        dataInitializer = new DataInitializer(mongoTemplate);
+        migration = mock(SeatMapMigration.class);
+        when(migration.migrate()).thenReturn(Mono.just(0L));
+
+        events = mock(ApplicationEventPublisher.class);
+        dataInitializer = new DataInitializer(mongoTemplate, migration, mongoIndexes, events, 3, Duration.ofMillis(1));
     }
 
     @Test
@@ -39,8 +53,80 @@ class DataInitializerTest {
 
         dataInitializer.run(args);
 
-        verify(idxOps, times(2)).createIndex(any());
+        verify(mongoIndexes).ensure();
+        verify(mongoIndexes).verify();
+
+        verify(migration).migrate();
 
         verify(mongoTemplate, times(1)).insert(any(AirlineInventory.class));
+        verify(events).publishEvent(any(FlightsAdded.class));
+    }
+
+    @Test
+    void health_outOfServiceUntilEveryPhaseIsDone_migrationRunsAlongsideIndexes() {
+        Sinks.Empty<Void> indexes = Sinks.empty();
+        AtomicBoolean migrating = new AtomicBoolean();
+        when(mongoIndexes.ensure()).thenReturn(indexes.asMono());
+        when(migration.migrate()).thenReturn(Mono.just(0L).doOnSubscribe(s -> migrating.set(true)));
+
+        dataInitializer.run(mock(ApplicationArguments.class));
+
+        assertThat(dataInitializer.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(migrating).isTrue();
+        verify(mongoTemplate, never()).insert(any(AirlineInventory.class));
+
+        indexes.tryEmitEmpty();
+
+        assertThat(dataInitializer.health().getStatus()).isEqualTo(Status.UP);
+        assertThat((Map<String, ?>) dataInitializer.health().getDetails().get("phaseMillis"))
+                .containsKeys("indexes", "seatMapMigration", "sampleData", "total");
+        verify(mongoTemplate).insert(any(AirlineInventory.class));
+    }
+
+    @Test
+    void health_downWhenADeclaredIndexIsMissing() {
+        when(mongoIndexes.verify()).thenReturn(Mono.just(
+                new MongoIndexes.Report(List.of("bookings.pnr_unique"), List.of(), List.of())));
+
+        StepVerifier.create(dataInitializer.initialize()).verifyComplete();
+
+        assertThat(dataInitializer.health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(dataInitializer.health().getDetails().get("error").toString()).contains("bookings.pnr_unique");
+        // building the same indexes again would not bring the missing one
+        verify(mongoIndexes).ensure();
+        verify(mongoTemplate, never()).insert(any(AirlineInventory.class));
+    }
+
+    @Test
+    void initialize_continuesOnAParallelThreadWithoutBlocking() {
+        // BlockHound fails the pipeline if any step after the delay blocks the non-blocking thread
+        when(mongoIndexes.ensure()).thenReturn(Mono.delay(Duration.ofMillis(10)).then());
+
+        StepVerifier.create(dataInitializer.initialize()).verifyComplete();
+
+        assertThat(dataInitializer.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    void failedPhase_isRetried_andTheInstanceBecomesReady() {
+        when(migration.migrate()).thenReturn(Mono.error(new IllegalStateException("primary stepped down")),
+                Mono.just(0L));
+
+        StepVerifier.create(dataInitializer.initialize()).verifyComplete();
+
+        assertThat(dataInitializer.health().getStatus()).isEqualTo(Status.UP);
+        verify(migration, times(2)).migrate();
+    }
+
+    @Test
+    void phaseStillFailingAfterTheLastAttempt_isDownForGood() {
+        when(mongoTemplate.count(any(), eq(AirlineInventory.class)))
+                .thenReturn(Mono.error(new IllegalStateException("no primary")));
+
+        StepVerifier.create(dataInitializer.initialize()).verifyComplete();
+
+        assertThat(dataInitializer.health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(dataInitializer.health().getDetails().get("error").toString()).contains("no primary");
+        verify(mongoTemplate, times(3)).count(any(), eq(AirlineInventory.class));
     }
 }
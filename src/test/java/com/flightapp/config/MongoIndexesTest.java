@@ -0,0 +1,140 @@
+package com.flightapp.config;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.IdempotencyRecord;
+import com.flightapp.model.RouteDaySummary;
+import com.flightapp.model.SeatHold;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MongoIndexesTest {
+
+    ReactiveMongoTemplate mongoTemplate;
+    ReactiveIndexOperations inventoryIdx;
+    ReactiveIndexOperations bookingIdx;
+    ReactiveIndexOperations holdIdx;
+    ReactiveIndexOperations idempotencyIdx;
+    ReactiveIndexOperations routeDayIdx;
+    MongoIndexes mongoIndexes;
+
+    @BeforeEach
+    void setup() {
+        mongoTemplate = mock(ReactiveMongoTemplate.class);
+        inventoryIdx = mock(ReactiveIndexOperations.class);
+        bookingIdx = mock(ReactiveIndexOperations.class);
+        when(mongoTemplate.indexOps(MongoIndexes.INVENTORIES)).thenReturn(inventoryIdx);
+        when(mongoTemplate.indexOps(MongoIndexes.BOOKINGS)).thenReturn(bookingIdx);
+        holdIdx = mock(ReactiveIndexOperations.class);
+        when(mongoTemplate.indexOps(MongoIndexes.SEAT_HOLDS)).thenReturn(holdIdx);
+        when(holdIdx.createIndex(any())).thenReturn(Mono.just("idx"));
+        when(holdIdx.getIndexInfo()).thenReturn(Flux.just(info("_id_"), info(SeatHold.EXPIRY_INDEX)));
+        idempotencyIdx = mock(ReactiveIndexOperations.class);
+        when(mongoTemplate.indexOps(MongoIndexes.IDEMPOTENCY_KEYS)).thenReturn(idempotencyIdx);
+        when(idempotencyIdx.createIndex(any())).thenReturn(Mono.just("idx"));
+        when(idempotencyIdx.getIndexInfo()).thenReturn(Flux.just(info("_id_"), info(IdempotencyRecord.EXPIRY_INDEX)));
+        routeDayIdx = mock(ReactiveIndexOperations.class);
+        when(mongoTemplate.indexOps(MongoIndexes.ROUTE_DAYS)).thenReturn(routeDayIdx);
+        when(routeDayIdx.createIndex(any())).thenReturn(Mono.just("idx"));
+        when(routeDayIdx.getIndexInfo()).thenReturn(Flux.just(info("_id_"), info(RouteDaySummary.FLIGHT_INDEX)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), any(String.class), eq(Document.class)))
+                .thenReturn(Flux.empty());
+        mongoIndexes = new MongoIndexes(mongoTemplate);
+    }
+
+    private static IndexInfo info(String name) {
+        return IndexInfo.indexInfoOf(new Document("name", name).append("key", new Document("x", 1)));
+    }
+
+    private static String name(IndexDefinition index) {
+        return index.getIndexOptions().getString("name");
+    }
+
+    @Test
+    void ensure_createsBookingIndexes_uniquePnrAndCaseInsensitiveEmail() {
+        when(inventoryIdx.createIndex(any())).thenReturn(Mono.just("idx"));
+        when(bookingIdx.createIndex(any())).thenReturn(Mono.just("idx"));
+
+        StepVerifier.create(mongoIndexes.ensure()).verifyComplete();
+
+        verify(inventoryIdx, times(4)).createIndex(any());
+        verify(inventoryIdx).createIndex(argThat(idx -> AirlineInventory.FARE_INDEX.equals(name(idx))
+                && idx.getIndexKeys().equals(new Document("origin", 1).append("destination", 1)
+                        .append("departure", 1).append("price", 1).append("seatMap.available", 1))));
+        verify(bookingIdx).createIndex(argThat(idx -> Booking.PNR_INDEX.equals(name(idx))
+                && idx.getIndexOptions().getBoolean("unique", false)));
+        verify(bookingIdx).createIndex(argThat(idx -> Booking.EMAIL_INDEX.equals(name(idx))
+                && idx.getIndexKeys().equals(new Document("email", 1).append("journeyDate", -1).append("_id", -1))
+                && idx.getIndexOptions().get("collation", Document.class).getInteger("strength") == 2));
+        verify(holdIdx).createIndex(argThat(idx -> idx.getIndexKeys().equals(new Document("expiresAt", 1))
+                && !idx.getIndexOptions().containsKey("expireAfterSeconds")));
+        verify(idempotencyIdx).createIndex(argThat(idx -> idx.getIndexKeys().equals(new Document("expiresAt", 1))
+                && idx.getIndexOptions().getLong("expireAfterSeconds") == 0L));
+        verify(routeDayIdx).createIndex(argThat(idx -> idx.getIndexKeys().equals(new Document("flights.flightId", 1))));
+    }
+
+    @Test
+    void ensure_failingIndex_doesNotStopTheOthers() {
+        when(inventoryIdx.createIndex(any())).thenReturn(Mono.just("idx"));
+        when(bookingIdx.createIndex(any())).thenAnswer(a -> Booking.PNR_INDEX.equals(name(a.getArgument(0)))
+                ? Mono.error(new IllegalStateException("E11000 duplicate key"))
+                : Mono.just("idx"));
+
+        StepVerifier.create(mongoIndexes.ensure()).verifyComplete();
+
+        verify(bookingIdx, times(4)).createIndex(any());
+    }
+
+    @Test
+    void verify_reportsMissingUndeclaredAndUnused() {
+        when(inventoryIdx.getIndexInfo()).thenReturn(Flux.fromIterable(MongoIndexes.DECLARED.stream()
+                .filter(spec -> spec.collection().equals(MongoIndexes.INVENTORIES))
+                .map(spec -> info(spec.name())).toList()).concatWith(Flux.just(info("_id_"))));
+        when(bookingIdx.getIndexInfo()).thenReturn(Flux.just(info("_id_"), info(Booking.PNR_INDEX),
+                info(Booking.PENDING_RELEASE_INDEX), info(Booking.OUTBOX_INDEX), info("email_1")));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(MongoIndexes.BOOKINGS), eq(Document.class)))
+                .thenReturn(Flux.just(
+                        new Document("name", "_id_").append("accesses", new Document("ops", 0L)),
+                        new Document("name", Booking.PNR_INDEX).append("accesses", new Document("ops", 12L)),
+                        new Document("name", "email_1").append("accesses", new Document("ops", 0L))));
+
+        StepVerifier.create(mongoIndexes.verify())
+                .assertNext(report -> {
+                    assertThat(report.missing()).containsExactly("bookings." + Booking.EMAIL_INDEX);
+                    assertThat(report.undeclared()).containsExactly("bookings.email_1");
+                    assertThat(report.unused()).containsExactly("bookings.email_1");
+                    assertThat(report.isClean()).isFalse();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void verify_allDeclaredAndUsed_isClean() {
+        when(inventoryIdx.getIndexInfo()).thenReturn(Flux.fromIterable(MongoIndexes.DECLARED.stream()
+                .filter(spec -> spec.collection().equals(MongoIndexes.INVENTORIES))
+                .map(spec -> info(spec.name())).toList()));
+        when(bookingIdx.getIndexInfo()).thenReturn(Flux.just(info(Booking.PNR_INDEX), info(Booking.EMAIL_INDEX),
+                info(Booking.PENDING_RELEASE_INDEX), info(Booking.OUTBOX_INDEX)));
+
+        StepVerifier.create(mongoIndexes.verify())
+                .assertNext(report -> assertThat(report.isClean()).isTrue())
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,43 @@
+package com.flightapp.controller;
+
+import com.flightapp.service.FlightService;
+import com.flightapp.service.IdempotencyStore;
+import com.flightapp.service.SeatAvailabilityStream;
+
+/**
+ * Builds a {@link FlightController} for tests. Collaborators left unset are off: requests are not
+ * deduplicated by idempotency key and the seat stream has no source.
+ */
+public final class FlightControllerFixture {
+
+    private final FlightService flightService;
+    private IdempotencyStore idempotency = IdempotencyStore.disabled();
+    private SeatAvailabilityStream seatStream = SeatAvailabilityStream.disabled();
+
+    private FlightControllerFixture(FlightService flightService) {
+        this.flightService = flightService;
+    }
+
+    public static FlightControllerFixture on(FlightService flightService) {
+        return new FlightControllerFixture(flightService);
+    }
+
+    /** The controller with every optional collaborator off. */
+    public static FlightController plain(FlightService flightService) {
+        return on(flightService).build();
+    }
+
+    public FlightControllerFixture idempotency(IdempotencyStore idempotency) {
+        this.idempotency = idempotency;
+        return this;
+    }
+
+    public FlightControllerFixture seatStream(SeatAvailabilityStream seatStream) {
+        this.seatStream = seatStream;
+        return this;
+    }
+
+    public FlightController build() {
+        return new FlightController(flightService, idempotency, seatStream);
+    }
+}
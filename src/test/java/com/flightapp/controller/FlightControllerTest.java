@@ -1,18 +1,41 @@
 package com.flightapp.controller;
 
+import com.flightapp.config.CodecConfig;
 import com.flightapp.service.FlightService;
+import com.flightapp.service.SeatAllocator;
+import com.flightapp.service.SeatAvailabilityStream;
+import com.flightapp.event.FlightInventoryChanged;
 import com.flightapp.model.AirlineInventory;
 import com.flightapp.model.Booking;
+import com.flightapp.dto.BookingHistoryItem;
 import com.flightapp.dto.BookingRequest;
+import com.flightapp.dto.CalendarDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.HoldConfirmRequest;
+import com.flightapp.dto.SearchPage;
 import com.flightapp.dto.SearchRequest;
+import com.flightapp.dto.SeatAvailabilityUpdate;
+import com.flightapp.dto.SeatHoldRequest;
+import com.flightapp.model.SeatHold;
 import com.flightapp.model.Passenger;
+import com.flightapp.model.SeatMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -31,7 +54,7 @@ class FlightControllerTest {
     @BeforeEach
     void setup() {
         flightService = mock(FlightService.class);
-        controller = new FlightController(flightService);
+        controller = FlightControllerFixture.plain(flightService);
         webClient = WebTestClient.bindToController(controller).build();
     }
 
@@ -83,6 +106,247 @@ class FlightControllerTest {
                 .hasSize(1);
     }
 
+    private WebTestClient binaryClient() {
+        return WebTestClient.bindToController(controller)
+                .httpMessageCodecs(new CodecConfig().binaryCodecs()::customize)
+                .build();
+    }
+
+    @Test
+    void search_negotiatesSmileAndCbor_withTheSameFieldsAsJson() {
+        when(flightService.search(eq("HYD"), eq("BLR"), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Flux.just(sampleInventory(), sampleInventory()));
+        WebTestClient client = binaryClient();
+
+        byte[] json = client.post().uri("/api/flight/search").bodyValue(searchRequest())
+                .exchange()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody().returnResult().getResponseBody();
+        byte[] smile = client.post().uri("/api/flight/search").bodyValue(searchRequest())
+                .accept(CodecConfig.SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfig.SMILE)
+                .expectBody().returnResult().getResponseBody();
+        byte[] cbor = client.post().uri("/api/flight/search").bodyValue(searchRequest())
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                .expectBody().returnResult().getResponseBody();
+
+        JsonNode expected = JsonMapper.builder().build().readTree(json);
+        assertThat(expected.size()).isEqualTo(2);
+        assertThat(SmileMapper.builder().build().readTree(smile)).isEqualTo(expected);
+        assertThat(CBORMapper.builder().build().readTree(cbor)).isEqualTo(expected);
+        assertThat(smile.length).isLessThan(json.length);
+    }
+
+    @Test
+    void binaryRequestBodiesAndSingleValues_roundTrip() {
+        when(flightService.search(eq("HYD"), eq("BLR"), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Flux.just(sampleInventory()));
+        Booking booking = new Booking();
+        booking.setPnr("PNR1");
+        booking.setSeatNumbers(List.of("S1", "S2"));
+        when(flightService.findByPnr("PNR1")).thenReturn(Mono.just(booking));
+        CBORMapper cbor = CBORMapper.builder().build();
+        WebTestClient client = binaryClient();
+
+        byte[] found = client.post().uri("/api/flight/search")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .bodyValue(cbor.writeValueAsBytes(searchRequest()))
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+        assertThat(cbor.readValue(found, AirlineInventory[].class)).extracting(AirlineInventory::getId)
+                .containsExactly("id-1");
+
+        byte[] ticket = client.get().uri("/api/flight/ticket/PNR1")
+                .accept(CodecConfig.SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfig.SMILE)
+                .expectBody().returnResult().getResponseBody();
+        assertThat(SmileMapper.builder().build().readValue(ticket, Booking.class)).isEqualTo(booking);
+    }
+
+    private FlightSummary summaryOf(AirlineInventory inv) {
+        FlightSummary s = new FlightSummary();
+        s.setId(inv.getId());
+        s.setAirline(inv.getAirline());
+        s.setFlightNumber(inv.getFlightNumber());
+        s.setOrigin(inv.getOrigin());
+        s.setDestination(inv.getDestination());
+        s.setDeparture(inv.getDeparture());
+        s.setArrival(inv.getArrival());
+        s.setPrice(inv.getPrice());
+        s.setAvailableSeats(inv.getAvailableSeats().size());
+        return s;
+    }
+
+    private SearchRequest searchRequest() {
+        SearchRequest req = new SearchRequest();
+        req.setOrigin("HYD");
+        req.setDestination("BLR");
+        req.setFrom(LocalDateTime.now().toString());
+        req.setTo(LocalDateTime.now().plusDays(3).toString());
+        return req;
+    }
+
+    @Test
+    void searchSummary_returnsSeatCountWithoutSeatList() {
+        when(flightService.searchSummaries(eq("HYD"), eq("BLR"), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Flux.just(summaryOf(sampleInventory())));
+
+        webClient.post().uri("/api/flight/search/summary")
+                .bodyValue(searchRequest())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].flightNumber").isEqualTo("IN1")
+                .jsonPath("$[0].availableSeats").isEqualTo(5);
+    }
+
+    @Test
+    void calendar_returnsOneRowPerDay_withoutPriceWhenSoldOut() {
+        LocalDate day = LocalDate.of(2030, 1, 1);
+        when(flightService.calendar("HYD", "BLR", day, day.plusDays(1))).thenReturn(Flux.just(
+                new CalendarDay(day, 3, 540, 12, 3999.0),
+                new CalendarDay(day.plusDays(1), 1, 180, 0, null)));
+
+        webClient.get().uri("/api/flight/search/calendar?origin=HYD&destination=BLR&from=2030-01-01&to=2030-01-02")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].day").isEqualTo("2030-01-01")
+                .jsonPath("$[0].minPrice").isEqualTo(3999.0)
+                .jsonPath("$[1].availableSeats").isEqualTo(0)
+                .jsonPath("$[1].minPrice").doesNotExist();
+    }
+
+    @Test
+    void searchSummary_payloadIsFractionOfFullSearchForWideBodies() {
+        List<AirlineInventory> flights = java.util.stream.IntStream.range(0, 40).mapToObj(i -> {
+            AirlineInventory inv = sampleInventory();
+            inv.setId("id-" + i);
+            inv.setTotalSeats(420);
+            inv.setSeatMap(SeatMap.allAvailable(420));
+            return inv;
+        }).toList();
+        when(flightService.search(any(), any(), any(), any())).thenReturn(Flux.fromIterable(flights));
+        when(flightService.searchSummaries(any(), any(), any(), any()))
+                .thenReturn(Flux.fromIterable(flights).map(this::summaryOf));
+
+        byte[] full = webClient.post().uri("/api/flight/search").bodyValue(searchRequest())
+                .exchange().expectBody().returnResult().getResponseBody();
+        byte[] summary = webClient.post().uri("/api/flight/search/summary").bodyValue(searchRequest())
+                .exchange().expectBody().returnResult().getResponseBody();
+
+        assertThat(summary.length).isLessThan(full.length / 10);
+    }
+
+    @Test
+    void search_withLimit_returnsPageAndCursorHeader() {
+        when(flightService.searchPage(eq("HYD"), eq("BLR"), any(), any(), eq("price"), eq(1), isNull()))
+                .thenReturn(Mono.just(new SearchPage<>(List.of(sampleInventory()), "next-token")));
+
+        SearchRequest req = searchRequest();
+        req.setSortBy("price");
+        req.setLimit(1);
+
+        webClient.post().uri("/api/flight/search")
+                .bodyValue(req)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Next-Cursor", "next-token")
+                .expectBodyList(AirlineInventory.class)
+                .hasSize(1);
+        verify(flightService, never()).search(any(), any(), any(), any());
+    }
+
+    @Test
+    void search_limitAboveMax_returns400() {
+        SearchRequest req = searchRequest();
+        req.setLimit(1000);
+
+        webClient.post().uri("/api/flight/search")
+                .bodyValue(req)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void seats_returnsSeatListForOneFlight() {
+        when(flightService.findFlight("id-1")).thenReturn(Mono.just(sampleInventory()));
+
+        webClient.get().uri("/api/flight/airline/inventory/id-1/seats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.availableCount").isEqualTo(5)
+                .jsonPath("$.availableSeats[4]").isEqualTo("S5");
+    }
+
+    @Test
+    void seats_unknownFlight_returns404() {
+        when(flightService.findFlight("nope")).thenReturn(Mono.empty());
+
+        webClient.get().uri("/api/flight/airline/inventory/nope/seats")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void seatStream_sendsSnapshotThenDeltas_asServerSentEvents() {
+        SeatAllocator allocator = mock(SeatAllocator.class);
+        when(allocator.snapshot("id-1")).thenReturn(Mono.just(SeatMap.allAvailable(5)));
+        when(flightService.findFlight("id-1")).thenReturn(Mono.just(sampleInventory()));
+        when(flightService.findFlight("nope")).thenReturn(Mono.empty());
+        SeatAvailabilityStream stream = new SeatAvailabilityStream(allocator, 10, Duration.ofSeconds(15),
+                SeatAvailabilityStream.SOURCE_EVENTS);
+        webClient = WebTestClient.bindToController(FlightControllerFixture.on(flightService).seatStream(stream).build())
+                .build();
+
+        Flux<ServerSentEvent<SeatAvailabilityUpdate>> events = webClient.get()
+                .uri("/api/flight/airline/inventory/id-1/seats/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<SeatAvailabilityUpdate>>() { })
+                .getResponseBody();
+
+        StepVerifier.create(events)
+                .assertNext(first -> {
+                    assertThat(first.event()).isEqualTo("snapshot");
+                    assertThat(first.data().available()).containsExactly("S1", "S2", "S3", "S4", "S5");
+                })
+                .then(() -> stream.onInventoryChanged(
+                        new FlightInventoryChanged("id-1", null, List.of("S2"), List.of())))
+                .assertNext(delta -> {
+                    assertThat(delta.event()).isEqualTo("delta");
+                    assertThat(delta.id()).isEqualTo("1");
+                    assertThat(delta.data().taken()).containsExactly("S2");
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        webClient.get().uri("/api/flight/airline/inventory/nope/seats/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void seatStream_disabled_returns503() {
+        webClient.get().uri("/api/flight/airline/inventory/id-1/seats/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isEqualTo(503);
+    }
+
     @Test
     void book_returns201() {
         Booking booking = new Booking();
@@ -104,6 +368,54 @@ class FlightControllerTest {
                 .jsonPath("$.pnr").isEqualTo("PNR1");
     }
 
+    @Test
+    void hold_returns201WithToken_andConfirmReturnsTicketLocation() {
+        SeatHold hold = new SeatHold();
+        hold.setId("token-1");
+        hold.setSeatNumbers(List.of("S1"));
+        when(flightService.holdSeats(eq("flight-1"), any(SeatHoldRequest.class))).thenReturn(Mono.just(hold));
+        Booking booking = new Booking();
+        booking.setPnr("PNR1");
+        when(flightService.confirmHold(eq("token-1"), any(HoldConfirmRequest.class))).thenReturn(Mono.just(booking));
+
+        SeatHoldRequest req = new SeatHoldRequest();
+        req.setEmail("u@example.com");
+        req.setSeatNumbers(List.of("S1"));
+        webClient.post().uri("/api/flight/booking/flight-1/hold")
+                .bodyValue(req)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("token-1");
+
+        HoldConfirmRequest confirm = new HoldConfirmRequest();
+        confirm.setName("User");
+        confirm.setEmail("u@example.com");
+        confirm.setPassengers(List.of(new Passenger()));
+        webClient.post().uri("/api/flight/booking/hold/token-1/confirm")
+                .header("X-User-Email", "u@example.com")
+                .bodyValue(confirm)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("Location", "/api/flight/ticket/PNR1")
+                .expectBody()
+                .jsonPath("$.pnr").isEqualTo("PNR1");
+    }
+
+    @Test
+    void releaseHold_expired_returns404() {
+        when(flightService.releaseHold("token-1", "u@example.com"))
+                .thenReturn(Mono.error(new IllegalArgumentException("Hold not found or expired")));
+
+        webClient.method(HttpMethod.DELETE)
+                .uri("/api/flight/booking/hold/token-1")
+                .header("X-User-Email", "u@example.com")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Hold not found or expired");
+    }
+
     @Test
     void ticket_notFound_returns404() {
         when(flightService.findByPnr("NOPE")).thenReturn(Mono.empty());
@@ -115,12 +427,11 @@ class FlightControllerTest {
 
     @Test
     void history_returnsBookings_withStatusField() {
-        Booking b = new Booking();
-        b.setPnr("PNR10");
-        b.setEmail("e@example.com");
-        b.setCanceled(true);
+        BookingHistoryItem b = new BookingHistoryItem("b-1", "PNR10", null, "e@example.com", "f-1",
+                LocalDateTime.of(2030, 1, 1, 9, 0), List.of("S1"), true, LocalDateTime.of(2029, 12, 1, 9, 0));
 
-        when(flightService.findByEmail("e@example.com")).thenReturn(Flux.just(b));
+        when(flightService.historyPage("e@example.com", null, null, null, null, null))
+                .thenReturn(Mono.just(new SearchPage<>(List.of(b), null)));
 
         webClient.get()
                 .uri(uriBuilder -> uriBuilder.path("/api/flight/booking/history")
@@ -128,6 +439,7 @@ class FlightControllerTest {
                         .build())
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().doesNotExist(FlightController.NEXT_CURSOR_HEADER)
                 .expectBodyList(Map.class)
                 .hasSize(1)
                 .consumeWith(res -> {
@@ -136,9 +448,70 @@ class FlightControllerTest {
                     assertThat(first).containsEntry("status", "CANCELLED");
                     assertThat(first).containsEntry("email", "e@example.com");
                     assertThat(first).containsEntry("pnr", "PNR10");
+                    assertThat(first).doesNotContainKeys("id", "canceled", "name");
                 });
     }
 
+    @Test
+    void history_inSmile_keepsCursorHeader() {
+        BookingHistoryItem b = new BookingHistoryItem("b-1", "PNR10", "A", "e@example.com", "f-1",
+                LocalDateTime.of(2030, 1, 1, 9, 0), List.of("S1"), false, null);
+        when(flightService.historyPage("e@example.com", null, null, null, null, null))
+                .thenReturn(Mono.just(new SearchPage<>(List.of(b), "c2")));
+
+        byte[] body = binaryClient().get()
+                .uri("/api/flight/booking/history?email=e@example.com")
+                .accept(CodecConfig.SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfig.SMILE)
+                .expectHeader().valueEquals(FlightController.NEXT_CURSOR_HEADER, "c2")
+                .expectBody().returnResult().getResponseBody();
+
+        JsonNode rows = SmileMapper.builder().build().readTree(body);
+        assertThat(rows.size()).isEqualTo(1);
+        assertThat(rows.get(0).get("pnr").asString()).isEqualTo("PNR10");
+        assertThat(rows.get(0).get("journeyDate").asString()).isEqualTo("2030-01-01T09:00:00");
+        assertThat(rows.get(0).get("status").asString()).isEqualTo("ACTIVE");
+    }
+
+    @Test
+    void history_filtersAndCursor_arePassedThrough_andNextCursorInHeader() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 2, 1, 0, 0);
+        BookingHistoryItem b = new BookingHistoryItem("b-1", "PNR10", "A", "e@example.com", "f-1",
+                from.plusDays(3), List.of("S1"), false, null);
+        when(flightService.historyPage("e@example.com", "active", from, to, 1, "c1"))
+                .thenReturn(Mono.just(new SearchPage<>(List.of(b), "c2")));
+
+        webClient.get()
+                .uri("/api/flight/booking/history?email=e@example.com&status=active"
+                        + "&from=2030-01-01T00:00:00&to=2030-02-01T00:00:00&limit=1&cursor=c1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(FlightController.NEXT_CURSOR_HEADER, "c2")
+                .expectBodyList(Map.class)
+                .value(rows -> assertThat(rows.get(0)).containsEntry("status", "ACTIVE"));
+    }
+
+    @Test
+    void history_ndjson_streamsRows() {
+        BookingHistoryItem b1 = new BookingHistoryItem("b-1", "PNR1", "A", "e@example.com", "f-1",
+                LocalDateTime.of(2030, 1, 2, 0, 0), List.of("S1"), false, null);
+        BookingHistoryItem b2 = new BookingHistoryItem("b-2", "PNR2", "A", "e@example.com", "f-1",
+                LocalDateTime.of(2030, 1, 1, 0, 0), List.of("S2"), false, null);
+        when(flightService.history("e@example.com", null, null, null, null, null)).thenReturn(Flux.just(b1, b2));
+
+        webClient.get()
+                .uri("/api/flight/booking/history?email=e@example.com")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> assertThat(body.lines().toList()).hasSize(2).first().asString().contains("PNR1"));
+    }
+
     @Test
     void cancel_requiresHeaderAndBody_and_ownerMatch() {
         // success flow
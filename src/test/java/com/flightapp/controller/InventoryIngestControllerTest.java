@@ -0,0 +1,77 @@
+package com.flightapp.controller;
+
+import com.flightapp.dto.InventoryIngestResult;
+import com.flightapp.dto.InventoryIngestResult.Status;
+import com.flightapp.repository.InventoryRepository;
+import com.flightapp.service.InventoryIngestService;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class InventoryIngestControllerTest {
+
+    private static final String VALID = "{\"airline\":\"Indigo\",\"flightNumber\":\"IN1\",\"origin\":\"HYD\","
+            + "\"destination\":\"BLR\",\"departure\":\"2030-01-01T10:00:00\",\"arrival\":\"2030-01-01T12:00:00\","
+            + "\"totalSeats\":30,\"price\":4000.0}";
+    private static final String INVALID = "{\"airline\":\"Indigo\",\"flightNumber\":\"IN2\",\"origin\":\"HYD\","
+            + "\"destination\":\"BLR\",\"departure\":\"2030-01-01T10:00:00\",\"arrival\":\"2030-01-01T08:00:00\","
+            + "\"totalSeats\":30,\"price\":4000.0}";
+
+    InventoryRepository inventoryRepository;
+    WebTestClient webClient;
+
+    @BeforeEach
+    void setup() {
+        inventoryRepository = mock(InventoryRepository.class);
+        when(inventoryRepository.insertUnordered(anyList())).thenReturn(Mono.just(Map.of()));
+        InventoryIngestService service = new InventoryIngestService(inventoryRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(), event -> { },
+                100, Duration.ofMillis(50), 2);
+        webClient = WebTestClient.bindToController(new InventoryIngestController(service)).build();
+    }
+
+    @Test
+    void bulkAdd_ndjsonUpload_streamsNdjsonReport() {
+        var results = webClient.post()
+                .uri("/api/flight/airline/inventory/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(VALID + "\n" + INVALID + "\n" + VALID + "\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(InventoryIngestResult.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(results).extracting(InventoryIngestResult::status)
+                .containsExactly(Status.CREATED, Status.REJECTED, Status.CREATED);
+        assertThat(results.get(1).error()).isEqualTo("Arrival must be after departure");
+        verify(inventoryRepository).insertUnordered(argThat(list -> list.size() == 2));
+    }
+
+    @Test
+    void bulkAdd_jsonArrayUpload_returnsJsonArray() {
+        webClient.post()
+                .uri("/api/flight/airline/inventory/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue("[" + VALID + "," + INVALID + "]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InventoryIngestResult.class)
+                .value(results -> assertThat(results).extracting(InventoryIngestResult::index)
+                        .containsExactly(0L, 1L));
+    }
+}
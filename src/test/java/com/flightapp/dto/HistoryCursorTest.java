@@ -0,0 +1,29 @@
+package com.flightapp.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCursorTest {
+
+    @Test
+    void cursor_roundTrips() {
+        BookingHistoryItem item = new BookingHistoryItem("65f0c0ffee", "PNR1", "A", "e@example.com", "f-1",
+                LocalDateTime.of(2030, 5, 1, 9, 30), List.of("S1"), false, null);
+
+        HistoryCursor back = HistoryCursor.decode(HistoryCursor.after(item).encode());
+
+        assertThat(back).isEqualTo(new HistoryCursor(item.journeyDate(), "65f0c0ffee"));
+    }
+
+    @Test
+    void garbageCursor_isRejected() {
+        assertThatThrownBy(() -> HistoryCursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid history cursor");
+    }
+}
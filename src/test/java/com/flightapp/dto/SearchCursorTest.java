@@ -0,0 +1,55 @@
+package com.flightapp.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchCursorTest {
+
+    @Test
+    void departureCursor_roundTrips() {
+        LocalDateTime dep = LocalDateTime.of(2030, 5, 1, 9, 30);
+        SearchCursor cursor = SearchCursor.after(SearchSort.DEPARTURE, dep, 4500.0, "65f0c0ffee");
+
+        SearchCursor back = SearchCursor.decode(cursor.encode(), SearchSort.DEPARTURE);
+
+        assertThat(back).isEqualTo(cursor);
+        assertThat(back.value()).isEqualTo(dep);
+    }
+
+    @Test
+    void priceCursor_roundTrips() {
+        SearchCursor cursor = SearchCursor.after(SearchSort.PRICE, LocalDateTime.now(), 4500.5, "id|with|bars");
+
+        SearchCursor back = SearchCursor.decode(cursor.encode(), SearchSort.PRICE);
+
+        assertThat(back.value()).isEqualTo(4500.5);
+        assertThat(back.id()).isEqualTo("id|with|bars");
+    }
+
+    @Test
+    void cursorForOtherSort_isRejected() {
+        String token = SearchCursor.after(SearchSort.PRICE, LocalDateTime.now(), 1.0, "x").encode();
+
+        assertThatThrownBy(() -> SearchCursor.decode(token, SearchSort.DEPARTURE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("sort order");
+    }
+
+    @Test
+    void garbageCursor_isRejected() {
+        assertThatThrownBy(() -> SearchCursor.decode("not-a-cursor", SearchSort.DEPARTURE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid search cursor");
+    }
+
+    @Test
+    void sortBy_acceptsFieldNamesCaseInsensitively() {
+        assertThat(SearchSort.from(null)).isEqualTo(SearchSort.DEPARTURE);
+        assertThat(SearchSort.from("Price")).isEqualTo(SearchSort.PRICE);
+        assertThatThrownBy(() -> SearchSort.from("duration")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
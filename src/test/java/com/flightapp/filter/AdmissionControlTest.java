@@ -0,0 +1,184 @@
+package com.flightapp.filter;
+
+import com.flightapp.filter.AdmissionControl.Permit;
+import com.flightapp.filter.AdmissionControl.Rejected;
+import com.flightapp.filter.AdmissionControl.Route;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlTest {
+
+    MockEnvironment env;
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setup() {
+        env = new MockEnvironment()
+                .withProperty("flight.admission.search.max-limit", "2")
+                .withProperty("flight.admission.search.queue", "1");
+        registry = new SimpleMeterRegistry();
+    }
+
+    private AdmissionControl control(int maxConcurrency, Duration maxWait) {
+        return new AdmissionControl(env, registry, true, maxConcurrency, maxWait, Duration.ofSeconds(2));
+    }
+
+    /** Subscribes without blocking; the permit shows up in the reference once granted. */
+    private static AtomicReference<Permit> waitFor(AdmissionControl control, Route route) {
+        AtomicReference<Permit> granted = new AtomicReference<>();
+        control.acquire(route).subscribe(granted::set);
+        return granted;
+    }
+
+    @Test
+    void routeLimit_thenQueue_thenRejectedWith429() {
+        AdmissionControl control = control(100, Duration.ofSeconds(10));
+        Permit first = control.acquire(Route.SEARCH).block();
+        control.acquire(Route.SEARCH).block();
+
+        AtomicReference<Permit> queued = waitFor(control, Route.SEARCH);
+        StepVerifier.create(control.acquire(Route.SEARCH))
+                .expectErrorSatisfies(err -> {
+                    assertThat(err).isInstanceOf(Rejected.class);
+                    assertThat(((Rejected) err).status()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                    assertThat(((Rejected) err).retryAfter()).isEqualTo(Duration.ofSeconds(2));
+                })
+                .verify();
+        assertThat(queued.get()).isNull();
+        // other routes are not affected by search's limit
+        assertThat(control.acquire(Route.BOOKING).block()).isNotNull();
+
+        first.release(0);
+
+        assertThat(queued.get()).isNotNull();
+        assertThat(registry.get(AdmissionControl.REJECTED).tag("route", "search").tag("reason", "queue_full")
+                .counter().count()).isEqualTo(1);
+        assertThat(registry.get(AdmissionControl.IN_FLIGHT).tag("route", "search").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void freedSlotGoesToQueuedBookingsFirst_andNewSearchesDoNotJumpTheQueue() {
+        AdmissionControl control = control(2, Duration.ofSeconds(10));
+        Permit s1 = control.acquire(Route.SEARCH).block();
+        Permit s2 = control.acquire(Route.LOOKUP).block();
+
+        AtomicReference<Permit> search = waitFor(control, Route.SEARCH);
+        AtomicReference<Permit> booking = waitFor(control, Route.BOOKING);
+
+        s1.release(0);
+        assertThat(booking.get()).isNotNull();
+        assertThat(search.get()).isNull();
+
+        booking.get().release(0);
+        // a search arriving now queues behind the one already waiting
+        AtomicReference<Permit> late = waitFor(control, Route.SEARCH);
+        assertThat(search.get()).isNotNull();
+        assertThat(late.get()).isNull();
+
+        s2.release(0);
+        assertThat(late.get()).isNotNull();
+    }
+
+    @Test
+    void waitingPastMaxWait_isRejectedWith503_andFreesTheQueueSlot() {
+        AdmissionControl control = control(1, Duration.ofMillis(50));
+        Permit running = control.acquire(Route.SEARCH).block();
+
+        StepVerifier.create(control.acquire(Route.SEARCH))
+                .expectErrorSatisfies(err ->
+                        assertThat(((Rejected) err).status()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE))
+                .verify(Duration.ofSeconds(5));
+
+        running.release(0);
+        assertThat(control.acquire(Route.SEARCH).block()).isNotNull();
+        assertThat(registry.get(AdmissionControl.REJECTED).tag("route", "search").tag("reason", "timeout")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledWaiter_leavesNoSlotBehind() {
+        AdmissionControl control = control(1, Duration.ofSeconds(10));
+        Permit running = control.acquire(Route.BOOKING).block();
+        Disposable gaveUp = control.acquire(Route.BOOKING).subscribe();
+
+        gaveUp.dispose();
+        running.release(0);
+
+        assertThat(control.acquire(Route.BOOKING).block()).isNotNull();
+        assertThat(registry.get(AdmissionControl.QUEUED).tag("route", "booking").gauge().value()).isZero();
+    }
+
+    @Test
+    void slowBookings_shrinkSearchFirst_andFastSearchesGrowItBack() {
+        env.withProperty("flight.admission.search.max-limit", "4")
+                .withProperty("flight.admission.admin.max-limit", "1");
+        AdmissionControl control = control(100, Duration.ofSeconds(10));
+        long slow = Duration.ofSeconds(1).toNanos();
+
+        control.acquire(Route.BOOKING).block().release(slow);
+
+        assertThat(control.limit(Route.SEARCH)).isEqualTo(3);
+        assertThat(control.limit(Route.BOOKING)).isEqualTo(256);
+        assertThat(registry.get(AdmissionControl.LIMIT).tag("route", "search").gauge().value()).isLessThan(4);
+
+        for (int round = 0; round < 10 && control.limit(Route.SEARCH) < 4; round++) {
+            List<Permit> busy = new ArrayList<>();
+            for (int i = 0; i < control.limit(Route.SEARCH); i++) {
+                busy.add(control.acquire(Route.SEARCH).block());
+            }
+            busy.forEach(permit -> permit.release(Duration.ofMillis(5).toNanos()));
+        }
+        assertThat(control.limit(Route.SEARCH)).isEqualTo(4);
+    }
+
+    @Test
+    void classify_putsRoutesInTheirClass() {
+        assertThat(AdmissionFilter.classify(HttpMethod.POST, "/api/flight/booking/f-1")).isEqualTo(Route.BOOKING);
+        assertThat(AdmissionFilter.classify(HttpMethod.DELETE, "/api/flight/booking/cancel/PNR1")).isEqualTo(Route.BOOKING);
+        assertThat(AdmissionFilter.classify(HttpMethod.POST, "/api/flight/booking/hold/t/confirm")).isEqualTo(Route.BOOKING);
+        assertThat(AdmissionFilter.classify(HttpMethod.GET, "/api/flight/booking/history")).isEqualTo(Route.LOOKUP);
+        assertThat(AdmissionFilter.classify(HttpMethod.GET, "/api/flight/ticket/PNR1")).isEqualTo(Route.LOOKUP);
+        assertThat(AdmissionFilter.classify(HttpMethod.GET, "/api/flight/airline/inventory/f-1/seats")).isEqualTo(Route.LOOKUP);
+        assertThat(AdmissionFilter.classify(HttpMethod.POST, "/api/flight/search/summary")).isEqualTo(Route.SEARCH);
+        assertThat(AdmissionFilter.classify(HttpMethod.POST, "/api/flight/airline/inventory/bulk")).isEqualTo(Route.ADMIN);
+        assertThat(AdmissionFilter.classify(HttpMethod.GET, "/api/flight/airline/inventory/f-1/seats/stream")).isNull();
+        assertThat(AdmissionFilter.classify(HttpMethod.GET, "/actuator/health")).isNull();
+    }
+
+    @Test
+    void filter_answersRejectedRequestsWithStatusRetryAfterAndError() {
+        env.withProperty("flight.admission.search.queue", "0");
+        AdmissionControl control = control(100, Duration.ofSeconds(10));
+        AdmissionFilter filter = new AdmissionFilter(control);
+        control.acquire(Route.SEARCH).block();
+        control.acquire(Route.SEARCH).block();
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/flight/search"));
+        filter.filter(exchange, ex -> Mono.error(new AssertionError("must not run"))).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(exchange.getResponse().getHeaders().getFirst("Retry-After")).isEqualTo("2");
+        assertThat(exchange.getResponse().getBodyAsString().block()).contains("\"error\"");
+
+        MockServerWebExchange booking = MockServerWebExchange.from(MockServerHttpRequest.post("/api/flight/booking/f-1"));
+        filter.filter(booking, ex -> Mono.empty()).block();
+        assertThat(booking.getResponse().getStatusCode()).isNull();
+        assertThat(registry.get(AdmissionControl.IN_FLIGHT).tag("route", "booking").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,102 @@
+package com.flightapp.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+class BookingTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2030, 1, 1, 6, 30);
+
+    /**
+     * Every field is filled through reflection, so a field added to the booking or to one of its nested types
+     * fails here until {@link Booking#copy()} copies it.
+     */
+    @Test
+    void copy_keepsEveryField_andSharesNothingMutable() throws ReflectiveOperationException {
+        Booking original = filled(Booking.class);
+
+        Booking copy = original.copy();
+
+        assertThat(copy).isEqualTo(original);
+        assertSharesNothing(original, copy, "booking");
+    }
+
+    @Test
+    void copy_keepsMissingListsMissing() {
+        Booking original = new Booking();
+        original.setPnr("ABC123");
+
+        assertThat(original.copy()).isEqualTo(original);
+    }
+
+    private static <T> T filled(Class<T> type) throws ReflectiveOperationException {
+        T value = type.getDeclaredConstructor().newInstance();
+        for (Field field : fields(type)) {
+            field.set(value, valueFor(field));
+        }
+        return value;
+    }
+
+    private static Object valueFor(Field field) throws ReflectiveOperationException {
+        Class<?> type = field.getType();
+        if (type == String.class) return field.getName() + "-value";
+        if (type == boolean.class || type == Boolean.class) return !(Boolean) defaultOf(field);
+        if (type == int.class || type == Integer.class) return 42;
+        if (type == LocalDateTime.class) return TIME.plusMinutes(field.getName().length());
+        if (type.isEnum()) return type.getEnumConstants()[type.getEnumConstants().length - 1];
+        if (type == List.class) {
+            Class<?> element = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            List<Object> list = new ArrayList<>();
+            list.add(element == String.class ? field.getName() + "-1" : filled(element));
+            list.add(element == String.class ? field.getName() + "-2" : filled(element));
+            return list;
+        }
+        return fail("No test value for %s %s: fill it in and make sure Booking.copy() copies it", type, field);
+    }
+
+    /** The value a new instance starts with, so the filled one always differs from it. */
+    private static Object defaultOf(Field field) throws ReflectiveOperationException {
+        Object fresh = field.getDeclaringClass().getDeclaredConstructor().newInstance();
+        Object value = field.get(fresh);
+        return value == null ? Boolean.FALSE : value;
+    }
+
+    private static void assertSharesNothing(Object original, Object copy, String path)
+            throws ReflectiveOperationException {
+        for (Field field : fields(original.getClass())) {
+            Object from = field.get(original);
+            Object to = field.get(copy);
+            if (from instanceof List<?> list) {
+                assertThat(to).as(path + "." + field.getName()).isNotSameAs(from);
+                for (int i = 0; i < list.size(); i++) {
+                    Object element = list.get(i);
+                    if (!(element instanceof String)) {
+                        Object copied = ((List<?>) to).get(i);
+                        assertThat(copied).as(path + "." + field.getName() + "[" + i + "]").isNotSameAs(element);
+                        assertSharesNothing(element, copied, path + "." + field.getName() + "[" + i + "]");
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<Field> fields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,93 @@
+package com.flightapp.model;
+
+import com.flightapp.config.SeatMapConverters;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeatMapTest {
+
+    @Test
+    void allAvailable_hasExactlyCapacitySeats() {
+        SeatMap map = SeatMap.allAvailable(70);
+
+        assertThat(map.availableCount()).isEqualTo(70);
+        assertThat(map.isAvailable("S1")).isTrue();
+        assertThat(map.isAvailable("S70")).isTrue();
+        assertThat(map.isAvailable("S71")).isFalse();
+        assertThat(map.toLabels()).hasSize(70).startsWith("S1", "S2").endsWith("S70");
+    }
+
+    @Test
+    void claim_isAllOrNothing() {
+        SeatMap map = SeatMap.allAvailable(10);
+
+        assertThat(map.claim(List.of("S1", "S2"))).isTrue();
+        assertThat(map.claim(List.of("S2", "S3"))).isFalse();
+
+        assertThat(map.isAvailable("S3")).isTrue();
+        assertThat(map.availableCount()).isEqualTo(8);
+    }
+
+    @Test
+    void release_ignoresSeatsOutsideCapacity() {
+        SeatMap map = SeatMap.allAvailable(10);
+        map.claim(List.of("S4"));
+
+        map.release(List.of("S4", "S11", "9A"));
+
+        assertThat(map).isEqualTo(SeatMap.allAvailable(10));
+    }
+
+    @Test
+    void indexOf_rejectsNonSeatLabels() {
+        assertThat(SeatMap.indexOf("S1")).isZero();
+        assertThat(SeatMap.indexOf("S0")).isEqualTo(-1);
+        assertThat(SeatMap.indexOf("12A")).isEqualTo(-1);
+        assertThat(SeatMap.indexOf("S99999999999")).isEqualTo(-1);
+        assertThat(SeatMap.bitsByWord(List.of("S1", "bogus"))).isNull();
+    }
+
+    @Test
+    void fromLabels_roundTripsLegacyList() {
+        List<String> legacy = List.of("S2", "S65", "S130");
+
+        SeatMap map = SeatMap.fromLabels(130, legacy);
+
+        assertThat(map.toLabels()).containsExactlyElementsOf(legacy);
+        assertThat(SeatMap.bitsByWord(legacy)).containsOnlyKeys(0, 1, 2);
+    }
+
+    @Test
+    void converter_roundTripsThroughBson() {
+        SeatMap map = SeatMap.allAvailable(180);
+        map.claim(List.of("S5", "S64", "S65", "S180"));
+
+        Document stored = new SeatMapConverters.SeatMapWriter().convert(map);
+        SeatMap back = new SeatMapConverters.SeatMapReader().convert(stored);
+
+        assertThat(stored.getInteger(SeatMapConverters.AVAILABLE)).isEqualTo(176);
+        assertThat(back).isEqualTo(map);
+    }
+
+    @Test
+    void bitmap_isFarSmallerThanLegacyListForWideBody() {
+        List<String> legacy = IntStream.rangeClosed(1, 450).mapToObj(i -> "S" + i).toList();
+
+        int listBytes = bsonSize(new Document("availableSeats", legacy));
+        int bitmapBytes = bsonSize(new Document("seatMap",
+                new SeatMapConverters.SeatMapWriter().convert(SeatMap.fromLabels(450, legacy))));
+
+        assertThat(bitmapBytes).isLessThan(listBytes / 30);
+    }
+
+    private static int bsonSize(Document doc) {
+        return new RawBsonDocument(doc, new DocumentCodec()).getByteBuffer().remaining();
+    }
+}
@@ -0,0 +1,123 @@
+package com.flightapp.repository;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.SearchCursor;
+import com.flightapp.dto.SearchSort;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Keyset pages over flights that tie on the sort field. The query shape is checked always; paging through a
+ * real collection uses {@code mongodb://localhost:27017} (or {@code -Dmongo.it.uri}) and is skipped when no
+ * server answers.
+ */
+class InventoryRepositoryCustomImplTest {
+
+    private static final String DATABASE = "flightdb_page_it";
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    static MongoClient client;
+    static ReactiveMongoTemplate mongoTemplate;
+    static InventoryRepositoryCustomImpl inventories;
+
+    @BeforeAll
+    static void connect() {
+        String uri = System.getProperty("mongo.it.uri",
+                "mongodb://localhost:27017/?serverSelectionTimeoutMS=1000&connectTimeoutMS=1000");
+        client = MongoClients.create(uri);
+        try {
+            Mono.from(client.getDatabase("admin").runCommand(new Document("ping", 1))).block(Duration.ofSeconds(3));
+        } catch (RuntimeException e) {
+            return;
+        }
+        SimpleReactiveMongoDatabaseFactory factory = new SimpleReactiveMongoDatabaseFactory(client, DATABASE);
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(new MongoConfig().mongoCustomConversions());
+        converter.afterPropertiesSet();
+        mongoTemplate = new ReactiveMongoTemplate(factory, converter);
+        mongoTemplate.dropCollection(AirlineInventory.class).block();
+        inventories = new InventoryRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @AfterAll
+    static void cleanup() {
+        if (mongoTemplate != null) {
+            mongoTemplate.dropCollection(AirlineInventory.class).block();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void pageQuery_breaksTiesOnTheStoredId() {
+        String id = new ObjectId().toHexString();
+        Query query = InventoryRepositoryCustomImpl.pageQuery("HYD", "BLR", DAY, DAY.plusDays(1), SearchSort.PRICE,
+                SearchCursor.after(SearchSort.PRICE, null, 4000, id), 10);
+
+        Document tieBreak = query.getQueryObject().getList("$and", Document.class).get(1)
+                .getList("$or", Document.class).get(1);
+        assertThat(tieBreak).doesNotContainKey("id");
+        assertThat(tieBreak.get("_id", Document.class)).containsEntry("$gt", new ObjectId(id));
+        assertThat(query.getSortObject()).containsEntry("price", 1).containsEntry("_id", 1);
+    }
+
+    @Test
+    void summaryPages_overFlightsWithTheSameDepartureAndPrice_returnEachFlightOnce() {
+        assumeTrue(mongoTemplate != null, "no mongod reachable, skipping paging against Mongo");
+        for (int i = 0; i < 7; i++) {
+            AirlineInventory inv = new AirlineInventory();
+            inv.setAirline("Indigo");
+            inv.setFlightNumber("IN" + i);
+            inv.setOrigin("HYD");
+            inv.setDestination("BLR");
+            inv.setDeparture(DAY.plusHours(9));
+            inv.setArrival(DAY.plusHours(10));
+            inv.setTotalSeats(30);
+            inv.setPrice(4000);
+            inv.setSeatMap(SeatMap.allAvailable(30));
+            mongoTemplate.insert(inv).block();
+        }
+
+        for (SearchSort sort : SearchSort.values()) {
+            Function<FlightSummary, SearchCursor> cursorOf = last -> SearchCursor.after(sort, last.getDeparture(),
+                    last.getPrice(), last.getId());
+            List<String> seen = new ArrayList<>();
+            SearchCursor after = null;
+            List<FlightSummary> page;
+            do {
+                page = inventories.findSummaryPage("HYD", "BLR", DAY, DAY.plusDays(1), sort, after, 3)
+                        .collectList().block();
+                page.forEach(summary -> seen.add(summary.getFlightNumber()));
+                after = page.isEmpty() ? null : cursorOf.apply(page.get(page.size() - 1));
+            } while (page.size() == 3);
+
+            assertThat(seen).as(sort.name()).hasSize(7).doesNotHaveDuplicates();
+        }
+    }
+}
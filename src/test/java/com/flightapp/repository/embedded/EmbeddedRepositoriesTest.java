@@ -0,0 +1,292 @@
+package com.flightapp.repository.embedded;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.BookingHistoryItem;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.dto.SearchCursor;
+import com.flightapp.dto.SearchSort;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.PendingRelease;
+import com.flightapp.model.SeatHold;
+import com.flightapp.model.SeatMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** The embedded repositories must answer like the Mongo ones for everything the services rely on. */
+class EmbeddedRepositoriesTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    EmbeddedStore store;
+    EmbeddedInventoryRepository inventories;
+    EmbeddedBookingRepository bookings;
+    EmbeddedSeatHoldRepository holds;
+
+    @BeforeEach
+    void setup() throws IOException {
+        store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        inventories = new EmbeddedInventoryRepository(store);
+        bookings = new EmbeddedBookingRepository(store);
+        holds = new EmbeddedSeatHoldRepository(store);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.destroy();
+    }
+
+    private AirlineInventory flight(String flightNumber, int hour, double price) {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setAirline("Indigo");
+        inv.setFlightNumber(flightNumber);
+        inv.setOrigin("HYD");
+        inv.setDestination("BLR");
+        inv.setDeparture(DAY.plusHours(hour));
+        inv.setArrival(DAY.plusHours(hour + 1));
+        inv.setTotalSeats(30);
+        inv.setPrice(price);
+        inv.setSeatMap(SeatMap.allAvailable(30));
+        return inventories.save(inv).block();
+    }
+
+    private Booking booking(String pnr, String email, int day, boolean canceled) {
+        Booking b = new Booking();
+        b.setPnr(pnr);
+        b.setEmail(email);
+        b.setName("Agent");
+        b.setFlightId("f-1");
+        b.setSeatNumbers(List.of("S1"));
+        b.setJourneyDate(DAY.plusDays(day));
+        b.setCanceled(canceled);
+        return bookings.save(b).block();
+    }
+
+    @Test
+    void save_assignsIdAndReturnsCopiesOnRead() {
+        AirlineInventory saved = flight("IN1", 10, 4000);
+        assertThat(saved.getId()).hasSize(24);
+
+        saved.setPrice(1);
+        assertThat(inventories.findById(saved.getId()).block().getPrice()).isEqualTo(4000);
+    }
+
+    @Test
+    void save_duplicatePnr_failsLikeTheUniqueIndex() {
+        booking("ABC123", "a@x.com", 1, false);
+
+        Booking other = new Booking();
+        other.setPnr("ABC123");
+        StepVerifier.create(bookings.save(other))
+                .expectErrorSatisfies(err -> assertThat(err).isInstanceOf(DuplicateKeyException.class)
+                        .hasMessageContaining(Booking.PNR_INDEX))
+                .verify();
+
+        // saving the same booking again is an update, not a duplicate
+        Booking existing = bookings.findByPnr("ABC123").block();
+        existing.setCanceled(true);
+        StepVerifier.create(bookings.save(existing)).expectNextCount(1).verifyComplete();
+        assertThat(bookings.count().block()).isEqualTo(1);
+    }
+
+    @Test
+    void pendingReleases_areFoundThroughTheIndex_untilRemoved_andAfterReopen() throws IOException {
+        booking("ABC123", "a@x.com", 1, false);
+        Booking changed = booking("DEF456", "a@x.com", 2, false);
+        PendingRelease first = PendingRelease.of(List.of("S1"), DAY);
+        PendingRelease second = PendingRelease.of(List.of("S2"), DAY);
+        changed.setPendingReleases(new ArrayList<>(List.of(first, second)));
+        bookings.save(changed).block();
+
+        assertThat(bookings.findWithPendingReleases().collectList().block())
+                .extracting(Booking::getPnr).containsExactly("DEF456");
+        assertThat(bookings.findWithPendingReleases("f-1").collectList().block())
+                .extracting(Booking::getPnr).containsExactly("DEF456");
+        assertThat(bookings.findWithPendingReleases("f-2").collectList().block()).isEmpty();
+        assertThat(bookings.removeReleases(Map.of(changed.getId(), List.of(first.getReleaseId()))).block())
+                .isEqualTo(1);
+        assertThat(bookings.findWithPendingReleases().collectList().block()).singleElement()
+                .satisfies(b -> assertThat(b.getPendingReleases()).extracting(PendingRelease::getReleaseId)
+                        .containsExactly(second.getReleaseId()));
+
+        store.destroy();
+        store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        bookings = new EmbeddedBookingRepository(store);
+        assertThat(bookings.findWithPendingReleases().collectList().block()).hasSize(1);
+        assertThat(bookings.findWithPendingReleases("f-1").collectList().block()).hasSize(1);
+
+        bookings.removeReleases(Map.of(changed.getId(), List.of(second.getReleaseId()))).block();
+        assertThat(bookings.findWithPendingReleases().collectList().block()).isEmpty();
+        assertThat(bookings.findWithPendingReleases("f-1").collectList().block()).isEmpty();
+    }
+
+    @Test
+    void findHistory_caseInsensitiveNewestFirst_withCursorAndFilters() {
+        booking("P1", "Agent@x.com", 1, false);
+        booking("P2", "agent@x.com", 3, true);
+        booking("P3", "AGENT@X.COM", 2, false);
+        booking("P4", "other@x.com", 2, false);
+
+        List<BookingHistoryItem> first = bookings.findHistory("agent@X.com", null, null, null, null, 2)
+                .collectList().block();
+        assertThat(first).extracting(BookingHistoryItem::pnr).containsExactly("P2", "P3");
+
+        HistoryCursor cursor = HistoryCursor.after(first.get(1));
+        assertThat(bookings.findHistory("agent@x.com", null, null, null, cursor, 2).collectList().block())
+                .extracting(BookingHistoryItem::pnr).containsExactly("P1");
+        assertThat(bookings.findHistory("agent@x.com", false, null, null, null, 0).collectList().block())
+                .extracting(BookingHistoryItem::pnr).containsExactly("P3", "P1");
+        assertThat(bookings.findHistory("agent@x.com", null, DAY.plusDays(2), DAY.plusDays(3), null, 0)
+                .collectList().block())
+                .extracting(BookingHistoryItem::pnr).containsExactly("P3");
+        assertThat(bookings.findByEmail("AGENT@x.com").collectList().block()).hasSize(3);
+    }
+
+    @Test
+    void findPage_byDepartureAndByPrice_followCursors() {
+        AirlineInventory early = flight("IN1", 8, 5000);
+        flight("IN2", 12, 3000);
+        AirlineInventory late = flight("IN3", 18, 4000);
+        flight("IN4", 30, 1000);
+
+        assertThat(inventories.findPage("HYD", "BLR", DAY, DAY.plusDays(1), SearchSort.DEPARTURE,
+                SearchCursor.after(SearchSort.DEPARTURE, early.getDeparture(), 0, early.getId()), 5)
+                .collectList().block())
+                .extracting(AirlineInventory::getFlightNumber).containsExactly("IN2", "IN3");
+        assertThat(inventories.findSummaryPage("HYD", "BLR", DAY, DAY.plusDays(1), SearchSort.PRICE, null, 2)
+                .collectList().block())
+                .extracting(FlightSummary::getFlightNumber).containsExactly("IN2", "IN3");
+        assertThat(inventories.findSummaryPage("HYD", "BLR", DAY, DAY.plusDays(1), SearchSort.PRICE,
+                SearchCursor.after(SearchSort.PRICE, null, late.getPrice(), late.getId()), 2).collectList().block())
+                .extracting(FlightSummary::getFlightNumber).containsExactly("IN1");
+        assertThat(inventories.findSummaries("HYD", "BLR", DAY, DAY.plusDays(1)).collectList().block())
+                .extracting(FlightSummary::getAvailableSeats).containsExactly(30, 30, 30);
+    }
+
+    @Test
+    void findSummaryPage_flightsTiedOnDepartureAndPrice_areEachReturnedOnce() {
+        for (int i = 0; i < 5; i++) {
+            flight("IN" + i, 9, 4000);
+        }
+        for (SearchSort sort : SearchSort.values()) {
+            List<FlightSummary> first = inventories.findSummaryPage("HYD", "BLR", DAY, DAY.plusDays(1), sort, null, 3)
+                    .collectList().block();
+            FlightSummary last = first.get(2);
+            List<FlightSummary> second = inventories.findSummaryPage("HYD", "BLR", DAY, DAY.plusDays(1), sort,
+                    SearchCursor.after(sort, last.getDeparture(), last.getPrice(), last.getId()), 3)
+                    .collectList().block();
+
+            assertThat(Stream.concat(first.stream(), second.stream()).map(FlightSummary::getFlightNumber))
+                    .as(sort.name()).hasSize(5).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    void claimSeats_allOrNothing_andOnlyBeforeDeparture() {
+        AirlineInventory inv = flight("IN1", 10, 4000);
+
+        AirlineInventory claimed = inventories.claimSeats(inv.getId(), List.of("S1", "S2"), DAY).block();
+        assertThat(claimed.getFlightNumber()).isEqualTo("IN1");
+        assertThat(claimed.getSeatMap()).isNull();
+
+        assertThat(inventories.claimSeats(inv.getId(), List.of("S2", "S3"), DAY).block()).isNull();
+        assertThat(inventories.claimSeats(inv.getId(), List.of("S3"), DAY.plusDays(1)).block()).isNull();
+        assertThat(inventories.claimSeats(inv.getId(), List.of("X1"), DAY).block()).isNull();
+        assertThat(inventories.findById(inv.getId()).block().getSeatMap().availableCount()).isEqualTo(28);
+        assertThat(inventories.findSummaries("HYD", "BLR", DAY, DAY.plusDays(1)).blockFirst().getAvailableSeats())
+                .isEqualTo(28);
+    }
+
+    @Test
+    void releaseSeats_reportsWhetherAnythingChanged() {
+        AirlineInventory inv = flight("IN1", 10, 4000);
+        inventories.claimSeats(inv.getId(), List.of("S1"), DAY).block();
+
+        assertThat(inventories.releaseSeats(inv.getId(), List.of("S1", "S2")).block()).isTrue();
+        assertThat(inventories.releaseSeats(inv.getId(), List.of("S1")).block()).isFalse();
+        assertThat(inventories.releaseSeats("missing", List.of("S1")).block()).isFalse();
+    }
+
+    @Test
+    void insertUnordered_reportsDuplicatesAndInsertsTheRest() {
+        AirlineInventory existing = flight("IN1", 10, 4000);
+        AirlineInventory fresh = new AirlineInventory();
+        fresh.setId("65f0c0ffee65f0c0ffee0001");
+        fresh.setOrigin("HYD");
+        fresh.setDestination("BLR");
+        fresh.setDeparture(DAY.plusHours(20));
+
+        Map<Integer, String> errors = inventories.insertUnordered(List.of(existing, fresh)).block();
+
+        assertThat(errors).containsOnlyKeys(0);
+        assertThat(errors.get(0)).contains("duplicate key");
+        assertThat(inventories.count().block()).isEqualTo(2);
+    }
+
+    private SeatHold hold(String id, int expiresInMinutes) {
+        SeatHold h = new SeatHold();
+        h.setId(id);
+        h.setFlightId("f-1");
+        h.setEmail("a@example.com");
+        h.setSeatNumbers(List.of("S1"));
+        h.setCreatedAt(DAY);
+        h.setExpiresAt(DAY.plusMinutes(expiresInMinutes));
+        return holds.save(h).block();
+    }
+
+    @Test
+    void seatHolds_takenOnceEitherLiveOrExpired_andFoundExpiredEarliestFirst() {
+        hold("h1", 5);
+        hold("h2", 1);
+        hold("h3", 30);
+        hold("h4", 30);
+        LocalDateTime now = DAY.plusMinutes(10);
+
+        assertThat(holds.findExpired(now, 10).collectList().block())
+                .extracting(SeatHold::getId).containsExactly("h2", "h1");
+        assertThat(holds.findExpired(now, 1).collectList().block())
+                .extracting(SeatHold::getId).containsExactly("h2");
+
+        assertThat(holds.takeLive("h1", now).block()).isNull();
+        assertThat(holds.takeExpired("h3", now).block()).isNull();
+        assertThat(holds.takeExpired("h1", now).block())
+                .satisfies(h -> assertThat(h.isReleasing()).isTrue());
+        // the sweep finds a hold it marked again until it is deleted
+        assertThat(holds.takeExpired("h1", now).block().getSeatNumbers()).containsExactly("S1");
+
+        assertThat(holds.takeLive("h3", now).block().getId()).isEqualTo("h3");
+        assertThat(holds.takeLive("h3", now).block()).isNull();
+        assertThat(holds.releaseLive("h4", now).block()).satisfies(h -> assertThat(h.isReleasing()).isTrue());
+        assertThat(holds.releaseLive("h4", now).block()).isNull();
+        assertThat(holds.takeLive("h4", now).block()).isNull();
+
+        assertThat(holds.findByFlightId("f-1").collectList().block()).extracting(SeatHold::getId)
+                .containsExactlyInAnyOrder("h1", "h2", "h4");
+        // a hold given up expires right away, so the sweep retries its release
+        assertThat(holds.findExpired(now, 10).collectList().block())
+                .extracting(SeatHold::getId).containsExactly("h2", "h1", "h4");
+    }
+}
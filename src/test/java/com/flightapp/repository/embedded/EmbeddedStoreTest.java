@@ -0,0 +1,184 @@
+package com.flightapp.repository.embedded;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.SeatMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A crash is simulated by abandoning a store without {@code destroy()} and opening a new one on the same
+ * directory: whatever reached the journal file must come back, a half-written record must not.
+ */
+class EmbeddedStoreTest {
+
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+    @TempDir
+    Path dir;
+
+    private EmbeddedStore open() throws IOException {
+        EmbeddedStore store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        return store;
+    }
+
+    private static AirlineInventory flight(String flightNumber, int seats) {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setAirline("Indigo");
+        inv.setFlightNumber(flightNumber);
+        inv.setOrigin("HYD");
+        inv.setDestination("BLR");
+        inv.setDeparture(DEPARTURE);
+        inv.setArrival(DEPARTURE.plusHours(1));
+        inv.setTotalSeats(seats);
+        inv.setPrice(4500.0);
+        inv.setSeatMap(SeatMap.allAvailable(seats));
+        return inv;
+    }
+
+    private static Booking booking(String pnr, String flightId, String... seats) {
+        Booking b = new Booking();
+        b.setPnr(pnr);
+        b.setFlightId(flightId);
+        b.setEmail("Agent@Example.com");
+        b.setName("Agent");
+        b.setSeatNumbers(List.of(seats));
+        b.setJourneyDate(DEPARTURE);
+        b.setBookedAt(DEPARTURE.minusDays(1));
+        return b;
+    }
+
+    private Path journal() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("journal-")).findFirst().orElseThrow();
+        }
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    void crash_everyJournaledChangeIsRecovered_withItsIndexes() throws IOException {
+        EmbeddedStore store = open();
+        var inventories = new EmbeddedInventoryRepository(store);
+        var bookings = new EmbeddedBookingRepository(store);
+        AirlineInventory kept = inventories.save(flight("IN1", 30)).block();
+        AirlineInventory dropped = inventories.save(flight("IN2", 30)).block();
+        inventories.claimSeats(kept.getId(), List.of("S1", "S2"), DEPARTURE.minusDays(1)).block();
+        inventories.deleteById(dropped.getId()).block();
+        bookings.save(booking("ABC123", kept.getId(), "S1", "S2")).block();
+
+        // no destroy(): the process died
+        EmbeddedStore recovered = open();
+        var inventoriesAfter = new EmbeddedInventoryRepository(recovered);
+        var bookingsAfter = new EmbeddedBookingRepository(recovered);
+
+        assertThat(inventoriesAfter.findById(dropped.getId()).block()).isNull();
+        AirlineInventory flight = inventoriesAfter.findById(kept.getId()).block();
+        assertThat(flight.getSeatMap().isAvailable("S1")).isFalse();
+        assertThat(flight.getSeatMap().availableCount()).isEqualTo(28);
+        assertThat(inventoriesAfter.findByOriginAndDestinationAndDepartureBetween("HYD", "BLR",
+                DEPARTURE.minusDays(1), DEPARTURE.plusDays(1)).collectList().block())
+                .extracting(AirlineInventory::getFlightNumber).containsExactly("IN1");
+        assertThat(bookingsAfter.findByPnr("ABC123").block().getSeatNumbers()).containsExactly("S1", "S2");
+        assertThat(bookingsAfter.findByEmail("agent@example.com").collectList().block()).hasSize(1);
+    }
+
+    @Test
+    void crash_tornRecordAtTheEnd_isDroppedAndTheJournalKeepsWorking() throws IOException {
+        EmbeddedStore store = open();
+        var inventories = new EmbeddedInventoryRepository(store);
+        String id = inventories.save(flight("IN1", 30)).block().getId();
+        inventories.claimSeats(id, List.of("S1"), DEPARTURE.minusDays(1)).block();
+        Path journal = journal();
+        long complete = Files.size(journal);
+
+        // the next claim only got half way to disk
+        inventories.claimSeats(id, List.of("S2"), DEPARTURE.minusDays(1)).block();
+        byte[] bytes = Files.readAllBytes(journal);
+        Files.write(journal, Arrays.copyOf(bytes, (int) complete + (bytes.length - (int) complete) / 2));
+
+        EmbeddedStore recovered = open();
+        var after = new EmbeddedInventoryRepository(recovered);
+        SeatMap seats = after.findById(id).block().getSeatMap();
+        assertThat(seats.isAvailable("S1")).isFalse();
+        assertThat(seats.isAvailable("S2")).isTrue();
+        assertThat(Files.size(journal)).isEqualTo(complete);
+
+        // appends after the truncation are read back by the next recovery
+        after.claimSeats(id, List.of("S3"), DEPARTURE.minusDays(1)).block();
+        var again = new EmbeddedInventoryRepository(open());
+        assertThat(again.findById(id).block().getSeatMap().availableCount()).isEqualTo(28);
+    }
+
+    @Test
+    void crash_garbageAfterTheLastRecord_isDropped() throws IOException {
+        EmbeddedStore store = open();
+        var bookings = new EmbeddedBookingRepository(store);
+        bookings.save(booking("ABC123", "f-1", "S1")).block();
+        Files.write(journal(), new byte[] {0, 0, 0, 42, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+
+        var after = new EmbeddedBookingRepository(open());
+
+        assertThat(after.findByPnr("ABC123").block()).isNotNull();
+        assertThat(after.count().block()).isEqualTo(1);
+    }
+
+    @Test
+    void crash_afterSnapshot_recoversSnapshotPlusJournalTail() throws IOException {
+        EmbeddedStore store = open();
+        var inventories = new EmbeddedInventoryRepository(store);
+        String id = inventories.save(flight("IN1", 30)).block().getId();
+        inventories.claimSeats(id, List.of("S1"), DEPARTURE.minusDays(1)).block();
+        store.snapshot();
+        inventories.claimSeats(id, List.of("S2"), DEPARTURE.minusDays(1)).block();
+        inventories.save(flight("IN2", 30)).block();
+        // a snapshot that never finished
+        Files.write(dir.resolve("snapshot-00000002.bson.tmp"), new byte[] {1, 2, 3});
+
+        var after = new EmbeddedInventoryRepository(open());
+
+        assertThat(after.findById(id).block().getSeatMap().availableCount()).isEqualTo(28);
+        assertThat(after.count().block()).isEqualTo(2);
+        assertThat(files()).containsExactly("journal-00000001.log", "snapshot-00000001.bson");
+    }
+
+    @Test
+    void cleanShutdown_writesASnapshotAndStartsAnEmptyJournal() throws IOException {
+        EmbeddedStore store = open();
+        var bookings = new EmbeddedBookingRepository(store);
+        bookings.save(booking("ABC123", "f-1", "S1")).block();
+        bookings.save(booking("XYZ789", "f-1", "S2")).block();
+        bookings.deleteById(bookings.findByPnr("XYZ789").block().getId()).block();
+        store.destroy();
+
+        assertThat(files()).containsExactly("journal-00000001.log", "snapshot-00000001.bson");
+        assertThat(Files.size(dir.resolve("journal-00000001.log"))).isZero();
+
+        EmbeddedStore reopened = open();
+        var after = new EmbeddedBookingRepository(reopened);
+        assertThat(after.findByPnr("ABC123").block()).isNotNull();
+        assertThat(after.findByPnr("XYZ789").block()).isNull();
+        reopened.destroy();
+        // nothing changed, so no new generation
+        assertThat(files()).containsExactly("journal-00000001.log", "snapshot-00000001.bson");
+    }
+}
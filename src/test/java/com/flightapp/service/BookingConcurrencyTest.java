@@ -0,0 +1,223 @@
+package com.flightapp.service;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.controller.FlightControllerFixture;
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.exception.GlobalErrorHandler;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.Passenger;
+import com.flightapp.repository.BookingRepository;
+import com.flightapp.repository.InventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedIdempotencyRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Fires many parallel bookings at one flight through the HTTP layer. The inventory stub applies each
+ * claim atomically, the same guarantee a single conditional Mongo update gives.
+ */
+class BookingConcurrencyTest {
+
+    private static final int SEATS = 100;
+    private static final int REQUESTS = 300;
+
+    InventoryRepository inventoryRepo;
+    BookingRepository bookingRepo;
+    WebTestClient webClient;
+    FlightServiceImpl svc;
+
+    @TempDir
+    Path dir;
+
+    final Set<String> freeSeats = new HashSet<>();
+    final List<Booking> saved = new java.util.concurrent.CopyOnWriteArrayList<>();
+    final AtomicInteger inventoryCalls = new AtomicInteger();
+    final AtomicInteger bookingCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        for (int i = 1; i <= SEATS; i++) freeSeats.add("S" + i);
+
+        AirlineInventory flight = new AirlineInventory();
+        flight.setId("f-1");
+        flight.setDeparture(LocalDateTime.now().plusDays(3));
+
+        inventoryRepo = mock(InventoryRepository.class);
+        bookingRepo = mock(BookingRepository.class);
+
+        when(inventoryRepo.claimSeats(eq("f-1"), any(), any())).thenAnswer(a -> {
+            inventoryCalls.incrementAndGet();
+            Collection<String> wanted = a.getArgument(1);
+            synchronized (freeSeats) {
+                if (!freeSeats.containsAll(wanted)) return Mono.empty();
+                freeSeats.removeAll(wanted);
+            }
+            return Mono.just(flight);
+        });
+        when(inventoryRepo.findById("f-1")).thenAnswer(a -> {
+            inventoryCalls.incrementAndGet();
+            return Mono.just(flight);
+        });
+        when(bookingRepo.save(any())).thenAnswer(a -> {
+            bookingCalls.incrementAndGet();
+            Booking b = a.getArgument(0);
+            saved.add(b);
+            return Mono.just(b);
+        });
+
+        svc = FlightServiceFixture.plain(inventoryRepo, bookingRepo);
+        webClient = WebTestClient.bindToController(FlightControllerFixture.plain(svc))
+                .controllerAdvice(new GlobalErrorHandler())
+                .build();
+    }
+
+    @Test
+    void parallelBookings_neverDoubleSellASeat() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            pool.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                int seats = rnd.nextInt(1, 3);
+                List<String> wanted = rnd.ints(1, SEATS + 1).distinct().limit(seats).mapToObj(n -> "S" + n).toList();
+                BookingRequest req = new BookingRequest();
+                req.setName("User");
+                req.setEmail("u@example.com");
+                req.setSeatNumbers(wanted);
+                req.setPassengers(wanted.stream().map(s -> new Passenger()).toList());
+
+                start.await();
+                int status = webClient.post().uri("/api/flight/booking/f-1")
+                        .bodyValue(req)
+                        .exchange()
+                        .returnResult(Void.class)
+                        .getStatus().value();
+                if (status == 201) created.incrementAndGet();
+                else if (status == 400) rejected.incrementAndGet();
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(created.get() + rejected.get()).isEqualTo(REQUESTS);
+        assertThat(saved).hasSize(created.get());
+
+        Set<String> sold = new HashSet<>();
+        int soldCount = 0;
+        for (Booking b : saved) {
+            sold.addAll(b.getSeatNumbers());
+            soldCount += b.getSeatNumbers().size();
+        }
+        assertThat(sold).as("no seat appears in two bookings").hasSize(soldCount);
+        assertThat(sold).doesNotContainAnyElementsOf(freeSeats);
+        assertThat(sold.size() + freeSeats.size()).isEqualTo(SEATS);
+
+        // one conditional claim per attempt, plus one diagnostic read only for rejected ones
+        assertThat(inventoryCalls.get()).isEqualTo(REQUESTS + rejected.get());
+        assertThat(bookingCalls.get()).isEqualTo(created.get());
+        verify(inventoryRepo, never()).save(any());
+    }
+
+    @Test
+    void sameIdempotencyKey_50ParallelRetriesOnTwoNodes_bookOnce() throws Exception {
+        EmbeddedStore store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        // two nodes: separate in-memory layers, one shared collection
+        EmbeddedIdempotencyRepository shared = new EmbeddedIdempotencyRepository(store);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        List<WebTestClient> nodes = List.of(node(shared, registry), node(shared, registry));
+        // slow enough that every duplicate arrives while the first one is still running
+        doAnswer(a -> {
+            bookingCalls.incrementAndGet();
+            Booking b = a.getArgument(0);
+            saved.add(b);
+            return Mono.just(b).delayElement(Duration.ofMillis(200));
+        }).when(bookingRepo).save(any());
+
+        BookingRequest req = new BookingRequest();
+        req.setName("User");
+        req.setEmail("u@example.com");
+        req.setSeatNumbers(List.of("S1", "S2"));
+        req.setPassengers(List.of(new Passenger(), new Passenger()));
+
+        int retries = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(retries);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<String> pnrs = ConcurrentHashMap.newKeySet();
+        AtomicInteger created = new AtomicInteger();
+        for (int i = 0; i < retries; i++) {
+            WebTestClient client = nodes.get(i % 2);
+            pool.submit(() -> {
+                start.await();
+                Booking booking = client.post().uri("/api/flight/booking/f-1")
+                        .header("Idempotency-Key", "retry-1")
+                        .bodyValue(req)
+                        .exchange()
+                        .expectStatus().isCreated()
+                        .expectBody(Booking.class).returnResult().getResponseBody();
+                pnrs.add(booking.getPnr());
+                created.incrementAndGet();
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(created.get()).isEqualTo(retries);
+        assertThat(pnrs).hasSize(1);
+        assertThat(saved).hasSize(1);
+        assertThat(inventoryCalls.get()).isEqualTo(1);
+        assertThat(freeSeats).hasSize(SEATS - 2);
+        assertThat(registry.get(BookingMetrics.IDEMPOTENT_REPLAYS).counter().count()).isEqualTo(retries - 1);
+
+        // a different request under the same key is refused
+        req.setSeatNumbers(List.of("S3", "S4"));
+        nodes.get(0).post().uri("/api/flight/booking/f-1")
+                .header("Idempotency-Key", "retry-1")
+                .bodyValue(req)
+                .exchange()
+                .expectStatus().isBadRequest();
+        assertThat(saved).hasSize(1);
+        store.destroy();
+    }
+
+    private WebTestClient node(EmbeddedIdempotencyRepository shared, SimpleMeterRegistry registry) {
+        IdempotencyStore idempotency = new IdempotencyStore(shared, new BookingMetrics(registry), 1000,
+                Duration.ofHours(1), Duration.ofMinutes(2), Duration.ofSeconds(30));
+        return WebTestClient.bindToController(FlightControllerFixture.on(svc).idempotency(idempotency).build())
+                .controllerAdvice(new GlobalErrorHandler())
+                .build();
+    }
+}
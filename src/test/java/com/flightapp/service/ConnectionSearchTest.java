@@ -0,0 +1,210 @@
+package com.flightapp.service;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.dto.Itinerary;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.event.FlightsAdded;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.embedded.EmbeddedBookingRepository;
+import com.flightapp.repository.embedded.EmbeddedInventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import com.flightapp.service.ConnectionSearch.Rank;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Connection search over the graph built from the embedded store and kept current by the service's events. */
+class ConnectionSearchTest {
+
+    private static final String EMAIL = "agent@example.com";
+    private static final LocalDateTime DAY = LocalDate.now().plusDays(10).atStartOfDay();
+
+    @TempDir
+    Path dir;
+
+    EmbeddedStore store;
+    EmbeddedInventoryRepository inventories;
+    ConnectionSearch connections;
+    FlightServiceImpl svc;
+
+    @BeforeEach
+    void setup() throws IOException {
+        store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        inventories = new EmbeddedInventoryRepository(store);
+        // no periodic rebuild; tests call rebuild() themselves
+        connections = search(32);
+        svc = FlightServiceFixture.on(inventories, new EmbeddedBookingRepository(store))
+                .events(event -> {
+                    if (event instanceof FlightInventoryChanged changed) {
+                        connections.onInventoryChanged(changed);
+                    }
+                })
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.destroy();
+    }
+
+    private ConnectionSearch search(int fanOut) {
+        return new ConnectionSearch(inventories, true, Duration.ofMinutes(45), Duration.ofHours(6), fanOut, 4,
+                Duration.ZERO);
+    }
+
+    private static AirlineInventory newFlight(String route, LocalDateTime departure, int minutes, double price,
+                                              int seats) {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setAirline("Indigo");
+        inv.setFlightNumber("IN" + route.charAt(0) + route.charAt(4) + departure.getHour());
+        inv.setOrigin(route.substring(0, 3));
+        inv.setDestination(route.substring(4));
+        inv.setDeparture(departure);
+        inv.setArrival(departure.plusMinutes(minutes));
+        inv.setTotalSeats(seats);
+        inv.setPrice(price);
+        inv.setSeatMap(SeatMap.allAvailable(seats));
+        return inv;
+    }
+
+    private AirlineInventory flight(String route, LocalDateTime departure, int minutes, double price) {
+        return svc.addInventory(newFlight(route, departure, minutes, price, 30)).block();
+    }
+
+    private List<Itinerary> search(String origin, String destination, int maxStops, int passengers, Rank rank) {
+        return connections.search(origin, destination, DAY, DAY.plusDays(1), maxStops, passengers, rank, 20)
+                .collectList().block();
+    }
+
+    private static List<String> routes(List<Itinerary> trips) {
+        return trips.stream()
+                .map(trip -> trip.legs().get(0).getOrigin() + trip.legs().stream()
+                        .map(leg -> "-" + leg.getDestination() + "@" + leg.getDeparture().getHour())
+                        .reduce("", String::concat))
+                .toList();
+    }
+
+    @Test
+    void connectionsKeepToTheLayoverWindow_andRankByDuration() {
+        flight("HYD-BLR", DAY.plusHours(8), 90, 6000);
+        flight("HYD-DEL", DAY.plusHours(6), 90, 2000);
+        flight("DEL-BLR", DAY.plusHours(8), 150, 1500);  // 30 minutes after landing: too tight
+        flight("DEL-BLR", DAY.plusHours(9), 150, 2500);
+        flight("DEL-BLR", DAY.plusHours(14), 150, 1000); // 6.5 hours after landing: too long
+
+        List<Itinerary> trips = search("HYD", "BLR", 1, 1, Rank.DURATION);
+        assertThat(routes(trips)).containsExactly("HYD-BLR@8", "HYD-DEL@6-BLR@9");
+        Itinerary connection = trips.get(1);
+        assertThat(connection.stops()).isEqualTo(1);
+        assertThat(connection.durationMinutes()).isEqualTo(330);
+        assertThat(connection.price()).isEqualTo(4500.0);
+        assertThat(connection.departure()).isEqualTo(DAY.plusHours(6));
+        assertThat(connection.arrival()).isEqualTo(DAY.plusHours(11).plusMinutes(30));
+
+        assertThat(routes(search("HYD", "BLR", 0, 1, Rank.DURATION))).containsExactly("HYD-BLR@8");
+        assertThat(routes(search("HYD", "BLR", 1, 1, Rank.PRICE))).containsExactly("HYD-DEL@6-BLR@9", "HYD-BLR@8");
+    }
+
+    @Test
+    void twoStops_skipLoopsAndFollowAtMostFanOutOnwardFlights() {
+        flight("HYD-MAA", DAY.plusHours(6), 60, 1000);
+        flight("MAA-HYD", DAY.plusHours(7).plusMinutes(45), 60, 500);
+        flight("MAA-DEL", DAY.plusHours(8), 150, 1000);
+        flight("MAA-GOI", DAY.plusHours(9), 90, 800);
+        flight("DEL-BLR", DAY.plusHours(12), 150, 1000);
+        flight("GOI-BLR", DAY.plusHours(12), 60, 900);
+        flight("HYD-BLR", DAY.plusHours(13), 90, 1000);
+
+        // back to HYD and on to BLR would be a loop
+        assertThat(routes(search("HYD", "BLR", 2, 1, Rank.PRICE)))
+                .containsExactly("HYD-BLR@13", "HYD-MAA@6-GOI@9-BLR@12", "HYD-MAA@6-DEL@8-BLR@12");
+        assertThat(routes(search("HYD", "BLR", 1, 1, Rank.PRICE))).containsExactly("HYD-BLR@13");
+
+        // one onward flight per connecting airport: the earliest out of MAA that is not the loop
+        connections = search(1);
+        connections.rebuild().block();
+        assertThat(routes(search("HYD", "BLR", 2, 1, Rank.PRICE)))
+                .containsExactly("HYD-BLR@13", "HYD-MAA@6-DEL@8-BLR@12");
+    }
+
+    @Test
+    void soldOutLegsDropOut_andNewFlightsJoin() {
+        flight("HYD-DEL", DAY.plusHours(6), 90, 2000);
+        AirlineInventory onward = svc.addInventory(newFlight("DEL-BLR", DAY.plusHours(9), 150, 2500, 2)).block();
+        assertThat(search("HYD", "BLR", 1, 2, Rank.DURATION)).hasSize(1)
+                .allSatisfy(trip -> assertThat(trip.availableSeats()).isEqualTo(2));
+
+        BookingRequest req = new BookingRequest();
+        req.setName("Agent");
+        req.setEmail(EMAIL);
+        req.setSeatNumbers(List.of("S1"));
+        req.setPassengers(Stream.generate(Passenger::new).limit(1).toList());
+        svc.book(onward.getId(), req).block();
+        assertThat(search("HYD", "BLR", 1, 2, Rank.DURATION)).isEmpty();
+        assertThat(search("HYD", "BLR", 1, 1, Rank.DURATION)).singleElement()
+                .satisfies(trip -> assertThat(trip.legs()).extracting(FlightSummary::getAvailableSeats)
+                        .containsExactly(30, 1));
+
+        flight("DEL-BLR", DAY.plusHours(10), 150, 2600);
+        assertThat(routes(search("HYD", "BLR", 1, 2, Rank.DURATION))).containsExactly("HYD-DEL@6-BLR@10");
+    }
+
+    @Test
+    void rebuild_readsTheInventoriesWithoutDepartedFlights() {
+        inventories.save(newFlight("HYD-DEL", DAY.plusHours(6), 90, 2000, 30)).block();
+        inventories.save(newFlight("DEL-BLR", DAY.plusHours(9), 150, 2500, 30)).block();
+        inventories.save(newFlight("DEL-BLR", LocalDateTime.now().minusHours(2), 150, 2500, 30)).block();
+        assertThat(search("HYD", "BLR", 1, 1, Rank.DURATION)).isEmpty();
+
+        assertThat(connections.rebuild().block()).isEqualTo(2);
+        assertThat(routes(search("HYD", "BLR", 1, 1, Rank.DURATION))).containsExactly("HYD-DEL@6-BLR@9");
+    }
+
+    @Test
+    void windowStartingInThePast_leavesOutFlightsThatDepartedSinceTheLastRebuild() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        AirlineInventory departed = inventories.save(newFlight("HYD-BLR", now.minusMinutes(30), 90, 1000, 30)).block();
+        AirlineInventory later = inventories.save(newFlight("HYD-BLR", now.plusHours(3), 90, 3000, 30)).block();
+        connections.onFlightsAdded(new FlightsAdded(List.of(departed, later)));
+
+        assertThat(connections.search("HYD", "BLR", now.minusDays(1), now.plusDays(1), 0, 1, Rank.PRICE, 20)
+                .collectList().block())
+                .singleElement().satisfies(trip -> assertThat(trip.departure()).isEqualTo(later.getDeparture()));
+        StepVerifier.create(connections.search("HYD", "BLR", now.minusDays(1), now.minusHours(1), 0, 1,
+                        Rank.PRICE, 20))
+                .verifyComplete();
+    }
+
+    @Test
+    void rejectsBadRequests_andReportsWhenDisabled() {
+        StepVerifier.create(connections.search("HYD", "hyd", DAY, DAY.plusDays(1), 1, 1, Rank.DURATION, 20))
+                .expectErrorMessage(ConnectionSearch.ERR_ORIGIN_DEST_SAME).verify();
+        StepVerifier.create(connections.search("HYD", "BLR", DAY, DAY, 1, 1, Rank.DURATION, 20))
+                .expectErrorMessage(ConnectionSearch.ERR_WINDOW).verify();
+        StepVerifier.create(connections.search("HYD", "BLR", DAY, DAY.plusDays(1), 3, 1, Rank.DURATION, 20))
+                .expectErrorMessage(ConnectionSearch.ERR_STOPS).verify();
+        StepVerifier.create(ConnectionSearch.disabled().search("HYD", "BLR", DAY, DAY.plusDays(1), 1, 1,
+                        Rank.DURATION, 20))
+                .expectErrorMessage(ConnectionSearch.ERR_DISABLED).verify();
+        assertThat(Rank.from("Price")).isEqualTo(Rank.PRICE);
+        assertThat(Rank.from(null)).isEqualTo(Rank.DURATION);
+    }
+}
@@ -0,0 +1,183 @@
+package com.flightapp.service;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.dto.FareDay;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.embedded.EmbeddedBookingRepository;
+import com.flightapp.repository.embedded.EmbeddedInventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Fare calendar on the embedded store, with the service's events invalidating cached months. */
+class FareCalendarTest {
+
+    private static final String EMAIL = "agent@example.com";
+    private static final YearMonth MONTH = YearMonth.now().plusMonths(2);
+    private static final LocalDateTime FIRST = MONTH.atDay(1).atStartOfDay();
+
+    @TempDir
+    Path dir;
+
+    EmbeddedStore store;
+    EmbeddedInventoryRepository inventories;
+    FareCalendar fares;
+    FlightServiceImpl svc;
+
+    @BeforeEach
+    void setup() throws IOException {
+        store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        inventories = new EmbeddedInventoryRepository(store);
+        fares = new FareCalendar(inventories, 100, Duration.ofHours(1));
+        svc = FlightServiceFixture.on(inventories, new EmbeddedBookingRepository(store))
+                .events(event -> {
+                    if (event instanceof FlightInventoryChanged changed) {
+                        fares.onInventoryChanged(changed);
+                    }
+                })
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.destroy();
+    }
+
+    private AirlineInventory flight(String route, LocalDateTime departure, double price, int seats) {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setAirline("Indigo");
+        inv.setFlightNumber("IN" + departure.getHour());
+        inv.setOrigin(route.substring(0, 3));
+        inv.setDestination(route.substring(4));
+        inv.setDeparture(departure);
+        inv.setArrival(departure.plusMinutes(90));
+        inv.setTotalSeats(seats);
+        inv.setPrice(price);
+        inv.setSeatMap(SeatMap.allAvailable(seats));
+        return svc.addInventory(inv).block();
+    }
+
+    private void book(AirlineInventory flight, String... seats) {
+        BookingRequest req = new BookingRequest();
+        req.setName("Agent");
+        req.setEmail(EMAIL);
+        req.setSeatNumbers(List.of(seats));
+        req.setPassengers(Stream.generate(Passenger::new).limit(seats.length).toList());
+        svc.book(flight.getId(), req).block();
+    }
+
+    private List<FareDay> month() {
+        return fares.month("HYD", "BLR", MONTH).collectList().block();
+    }
+
+    @Test
+    void month_cheapestOpenFarePerDay_untilTheDaySellsOut() {
+        AirlineInventory cheap = flight("HYD-BLR", FIRST, 3500, 1);
+        flight("HYD-BLR", FIRST.plusHours(9), 5000, 30);
+        AirlineInventory last = flight("HYD-BLR", FIRST.plusDays(4).plusHours(7), 4100, 1);
+        flight("HYD-BLR", FIRST.plusMonths(1), 1000, 30);
+        flight("HYD-BLR", FIRST.minusMinutes(1), 1000, 30);
+        flight("HYD-DEL", FIRST.plusHours(8), 1000, 30);
+        LocalDate first = FIRST.toLocalDate();
+
+        assertThat(month()).containsExactly(
+                new FareDay(first, 3500, true),
+                new FareDay(first.plusDays(4), 4100, true));
+
+        book(cheap, "S1");
+        book(last, "S1");
+        assertThat(month()).containsExactly(
+                new FareDay(first, 5000, true),
+                new FareDay(first.plusDays(4), 4100, false));
+        assertThat(fares.stats().misses()).isEqualTo(2);
+    }
+
+    @Test
+    void seatChangesThatCannotMoveTheFares_keepTheMonthCached() {
+        flight("HYD-BLR", FIRST.plusHours(6), 3500, 30);
+        AirlineInventory dear = flight("HYD-BLR", FIRST.plusHours(9), 5000, 30);
+        month();
+
+        book(dear, "S1", "S2");
+        month();
+        assertThat(fares.stats()).extracting(FareCalendar.Stats::misses, FareCalendar.Stats::hits,
+                FareCalendar.Stats::invalidations).containsExactly(1L, 1L, 0L);
+
+        // a new flight, even a dear one, always drops the month
+        flight("HYD-BLR", FIRST.plusDays(2), 9000, 30);
+        assertThat(month()).hasSize(2);
+        assertThat(fares.stats().invalidations()).isEqualTo(1);
+        assertThat(fares.stats().misses()).isEqualTo(2);
+    }
+
+    @Test
+    void releaseWithoutTheFlight_dropsOnlyTheMonthOfThatFlight() {
+        AirlineInventory flight = flight("HYD-BLR", FIRST.plusHours(6), 3500, 30);
+        flight("HYD-DEL", FIRST.plusHours(6), 3500, 30);
+        month();
+        fares.month("HYD", "DEL", MONTH).collectList().block();
+        fares.month("HYD", "BLR", MONTH.plusMonths(1)).collectList().block();
+
+        fares.onInventoryChanged(new FlightInventoryChanged(flight.getId(), null, List.of(), List.of("S1")));
+
+        assertThat(fares.stats().invalidations()).isEqualTo(1);
+        assertThat(fares.stats().size()).isEqualTo(2);
+        month();
+        assertThat(fares.stats().misses()).isEqualTo(4);
+    }
+
+    @Test
+    void month_readsNothingUntilSubscribed() {
+        flight("HYD-BLR", FIRST.plusDays(3).plusHours(9), 4000, 10);
+
+        fares.month("HYD", "BLR", MONTH);
+        assertThat(fares.stats().misses()).isZero();
+        assertThat(fares.stats().size()).isZero();
+
+        assertThat(month()).hasSize(1);
+        assertThat(fares.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void mayChange_claimsOnTheCheapestOpenFlightAndReleasesThatCanReopen() {
+        LocalDate day = FIRST.toLocalDate();
+        List<FareDay> open = List.of(new FareDay(day, 4000, true));
+        List<FareDay> soldOut = List.of(new FareDay(day, 4000, false));
+
+        assertThat(FareCalendar.mayChange(open, at(FIRST, 4000), true, false)).isTrue();
+        assertThat(FareCalendar.mayChange(open, at(FIRST, 4500), true, false)).isFalse();
+        assertThat(FareCalendar.mayChange(open, at(FIRST, 3000), false, true)).isTrue();
+        assertThat(FareCalendar.mayChange(open, at(FIRST, 4000), false, true)).isFalse();
+        assertThat(FareCalendar.mayChange(soldOut, at(FIRST, 6000), false, true)).isTrue();
+        // a day the cached month does not have
+        assertThat(FareCalendar.mayChange(open, at(FIRST.plusDays(1), 6000), true, false)).isTrue();
+    }
+
+    private static AirlineInventory at(LocalDateTime departure, double price) {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setOrigin("HYD");
+        inv.setDestination("BLR");
+        inv.setDeparture(departure);
+        inv.setPrice(price);
+        return inv;
+    }
+}
@@ -0,0 +1,94 @@
+package com.flightapp.service;
+
+import com.flightapp.repository.BookingRepository;
+import com.flightapp.repository.InventoryRepository;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Builds a {@link FlightServiceImpl} for tests and benchmarks. Collaborators left unset are the ones the
+ * service runs with when the feature is off: seats claimed against the inventory documents, no caches, holds
+ * or route-day summaries, events dropped, and seat releases applied directly.
+ */
+public final class FlightServiceFixture {
+
+    private final InventoryRepository inventoryRepository;
+    private final BookingRepository bookingRepository;
+    private SeatAllocator seatAllocator;
+    private SearchCache searchCache = SearchCache.disabled();
+    private PnrCache pnrCache = PnrCache.disabled();
+    private ApplicationEventPublisher events = event -> { };
+    private BookingMetrics metrics = BookingMetrics.disabled();
+    private SeatHolds seatHolds = SeatHolds.disabled();
+    private RouteDaySummaries routeDays = RouteDaySummaries.disabled();
+    private SeatReleases seatReleases;
+    private boolean outboxEnabled = true;
+
+    private FlightServiceFixture(InventoryRepository inventoryRepository, BookingRepository bookingRepository) {
+        this.inventoryRepository = inventoryRepository;
+        this.bookingRepository = bookingRepository;
+    }
+
+    public static FlightServiceFixture on(InventoryRepository inventoryRepository,
+                                          BookingRepository bookingRepository) {
+        return new FlightServiceFixture(inventoryRepository, bookingRepository);
+    }
+
+    /** The service with every optional collaborator off. */
+    public static FlightServiceImpl plain(InventoryRepository inventoryRepository,
+                                          BookingRepository bookingRepository) {
+        return on(inventoryRepository, bookingRepository).build();
+    }
+
+    public FlightServiceFixture seatAllocator(SeatAllocator seatAllocator) {
+        this.seatAllocator = seatAllocator;
+        return this;
+    }
+
+    public FlightServiceFixture searchCache(SearchCache searchCache) {
+        this.searchCache = searchCache;
+        return this;
+    }
+
+    public FlightServiceFixture pnrCache(PnrCache pnrCache) {
+        this.pnrCache = pnrCache;
+        return this;
+    }
+
+    public FlightServiceFixture events(ApplicationEventPublisher events) {
+        this.events = events;
+        return this;
+    }
+
+    public FlightServiceFixture metrics(BookingMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public FlightServiceFixture seatHolds(SeatHolds seatHolds) {
+        this.seatHolds = seatHolds;
+        return this;
+    }
+
+    public FlightServiceFixture routeDays(RouteDaySummaries routeDays) {
+        this.routeDays = routeDays;
+        return this;
+    }
+
+    public FlightServiceFixture seatReleases(SeatReleases seatReleases) {
+        this.seatReleases = seatReleases;
+        return this;
+    }
+
+    public FlightServiceFixture outboxEnabled(boolean outboxEnabled) {
+        this.outboxEnabled = outboxEnabled;
+        return this;
+    }
+
+    public FlightServiceImpl build() {
+        SeatAllocator allocator = seatAllocator != null ? seatAllocator : new MongoSeatAllocator(inventoryRepository);
+        SeatReleases releases = seatReleases != null ? seatReleases
+                : SeatReleases.direct(allocator, bookingRepository, events);
+        return new FlightServiceImpl(inventoryRepository, bookingRepository, allocator, searchCache, pnrCache, events,
+                metrics, seatHolds, routeDays, releases, outboxEnabled);
+    }
+}
@@ -3,19 +3,34 @@ package com.flightapp.service;
 import com.flightapp.model.AirlineInventory;
 import com.flightapp.model.Booking;
 import com.flightapp.model.Passenger;
+import com.flightapp.dto.BookingHistoryItem;
 import com.flightapp.dto.BookingRequest;
 import com.flightapp.dto.BookingUpdateRequest;
+import com.flightapp.dto.HistoryCursor;
+import com.flightapp.dto.SearchCursor;
+import com.flightapp.dto.SearchPage;
+import com.flightapp.dto.SearchSort;
+import com.flightapp.event.FlightInventoryChanged;
 import com.flightapp.repository.InventoryRepository;
 import com.flightapp.repository.BookingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.lang.reflect.Field;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,7 +45,7 @@ class FlightServiceImplTest {
     void setup() {
         inventoryRepo = mock(InventoryRepository.class);
         bookingRepo = mock(BookingRepository.class);
-        svc = new FlightServiceImpl(inventoryRepo, bookingRepo);
+        svc = FlightServiceFixture.plain(inventoryRepo, bookingRepo);
     }
 
     private AirlineInventory sampleInventory() {
@@ -52,8 +67,7 @@ class FlightServiceImplTest {
     void book_success_reservesSeatsAndSavesBooking() {
         AirlineInventory inv = sampleInventory();
 
-        when(inventoryRepo.findById("f-1")).thenReturn(Mono.just(inv));
-        when(inventoryRepo.save(any())).thenReturn(Mono.just(inv));
+        when(inventoryRepo.claimSeats(eq("f-1"), eq(List.of("S1")), any())).thenReturn(Mono.just(inv));
         when(bookingRepo.save(any())).thenAnswer(a -> Mono.just(a.getArgument(0)));
 
         BookingRequest req = new BookingRequest();
@@ -71,13 +85,32 @@ class FlightServiceImplTest {
                 })
                 .verifyComplete();
 
-        verify(inventoryRepo).save(any());
+        verify(inventoryRepo, never()).findById(anyString());
+        verify(inventoryRepo, never()).save(any());
         verify(bookingRepo).save(any());
     }
 
+    @Test
+    void book_publishesInventoryChange() {
+        AirlineInventory inv = sampleInventory();
+        ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+        svc = FlightServiceFixture.on(inventoryRepo, bookingRepo).events(events).build();
+        when(inventoryRepo.claimSeats(eq("f-1"), eq(List.of("S1")), any())).thenReturn(Mono.just(inv));
+        when(bookingRepo.save(any())).thenAnswer(a -> Mono.just(a.getArgument(0)));
+
+        BookingRequest req = new BookingRequest();
+        req.setPassengers(List.of(new Passenger()));
+        req.setSeatNumbers(List.of("S1"));
+
+        StepVerifier.create(svc.book("f-1", req)).expectNextCount(1).verifyComplete();
+
+        verify(events).publishEvent(new FlightInventoryChanged("f-1", inv, List.of("S1"), List.of()));
+    }
+
     @Test
     void book_seatUnavailable_throws() {
         AirlineInventory inv = sampleInventory();
+        when(inventoryRepo.claimSeats(eq("f-1"), any(), any())).thenReturn(Mono.empty());
         when(inventoryRepo.findById("f-1")).thenReturn(Mono.just(inv));
 
         BookingRequest req = new BookingRequest();
@@ -94,6 +127,234 @@ class FlightServiceImplTest {
         verify(bookingRepo, never()).save(any());
     }
 
+    @Test
+    void book_unknownFlight_throwsNotFound() {
+        when(inventoryRepo.claimSeats(eq("nope"), any(), any())).thenReturn(Mono.empty());
+        when(inventoryRepo.findById("nope")).thenReturn(Mono.empty());
+
+        BookingRequest req = new BookingRequest();
+        req.setPassengers(List.of(new Passenger()));
+        req.setSeatNumbers(List.of("S1"));
+
+        StepVerifier.create(svc.book("nope", req))
+                .expectErrorMatches(err -> err instanceof IllegalArgumentException &&
+                        err.getMessage().contains("Flight not found"))
+                .verify();
+    }
+
+    @Test
+    void book_bookingSaveFails_releasesClaimedSeatsOnceTheBookingIsNotStored() {
+        AirlineInventory inv = sampleInventory();
+        when(inventoryRepo.claimSeats(eq("f-1"), any(), any())).thenReturn(Mono.just(inv));
+        when(inventoryRepo.releaseSeats("f-1", List.of("S1"))).thenReturn(Mono.just(true));
+        when(bookingRepo.save(any())).thenReturn(Mono.error(new RuntimeException("write failed")));
+        when(bookingRepo.findByPnr(any())).thenReturn(Mono.empty());
+
+        BookingRequest req = new BookingRequest();
+        req.setPassengers(List.of(new Passenger()));
+        req.setSeatNumbers(List.of("S1"));
+
+        StepVerifier.create(svc.book("f-1", req))
+                .expectErrorMessage("write failed")
+                .verify();
+
+        verify(inventoryRepo).releaseSeats("f-1", List.of("S1"));
+    }
+
+    @Test
+    void book_saveTimesOutAfterTheBookingLanded_keepsTheSeatsAndReturnsIt() {
+        AirlineInventory inv = sampleInventory();
+        when(inventoryRepo.claimSeats(eq("f-1"), any(), any())).thenReturn(Mono.just(inv));
+        Map<String, Booking> stored = new ConcurrentHashMap<>();
+        when(bookingRepo.save(any())).thenAnswer(a -> {
+            Booking b = a.getArgument(0);
+            stored.put(b.getPnr(), b);
+            return Mono.error(new TimeoutException("no reply"));
+        });
+        when(bookingRepo.findByPnr(any())).thenAnswer(a -> Mono.justOrEmpty(stored.get(a.<String>getArgument(0))));
+
+        BookingRequest req = new BookingRequest();
+        req.setPassengers(List.of(new Passenger()));
+        req.setSeatNumbers(List.of("S1"));
+
+        StepVerifier.create(svc.book("f-1", req))
+                .assertNext(b -> assertTrue(stored.containsKey(b.getPnr())))
+                .verifyComplete();
+        verify(inventoryRepo, never()).releaseSeats(any(), any());
+    }
+
+    @Test
+    void book_saveFailsAndTheBookingCannotBeReadBack_keepsTheSeatsTaken() {
+        AirlineInventory inv = sampleInventory();
+        when(inventoryRepo.claimSeats(eq("f-1"), any(), any())).thenReturn(Mono.just(inv));
+        when(bookingRepo.save(any())).thenReturn(Mono.error(new RuntimeException("connection reset")));
+        when(bookingRepo.findByPnr(any())).thenReturn(Mono.error(new RuntimeException("no primary")));
+
+        BookingRequest req = new BookingRequest();
+        req.setPassengers(List.of(new Passenger()));
+        req.setSeatNumbers(List.of("S1"));
+
+        StepVerifier.create(svc.book("f-1", req))
+                .expectErrorMessage("connection reset")
+                .verify();
+        verify(inventoryRepo, never()).releaseSeats(any(), any());
+    }
+
+    @Test
+    void book_pnrCollision_retriesWithNewPnr() {
+        AirlineInventory inv = sampleInventory();
+        when(inventoryRepo.claimSeats(eq("f-1"), any(), any())).thenReturn(Mono.just(inv));
+        List<String> attempts = new ArrayList<>();
+        when(bookingRepo.save(any())).thenAnswer(a -> {
+            Booking b = a.getArgument(0);
+            attempts.add(b.getPnr());
+            return attempts.size() < 3
+                    ? Mono.error(new DuplicateKeyException("E11000 duplicate key error index: " + Booking.PNR_INDEX))
+                    : Mono.just(b);
+        });
+
+        BookingRequest req = new BookingRequest();
+        req.setPassengers(List.of(new Passenger()));
+        req.setSeatNumbers(List.of("S1"));
+
+        StepVerifier.create(svc.book("f-1", req))
+                .assertNext(b -> assertEquals(attempts.get(2), b.getPnr()))
+                .verifyComplete();
+
+        assertEquals(3, attempts.stream().distinct().count());
+        verify(inventoryRepo, never()).releaseSeats(any(), any());
+    }
+
+    @Test
+    void book_otherDuplicateKey_isNotRetried() {
+        AirlineInventory inv = sampleInventory();
+        when(inventoryRepo.claimSeats(eq("f-1"), any(), any())).thenReturn(Mono.just(inv));
+        when(inventoryRepo.releaseSeats("f-1", List.of("S1"))).thenReturn(Mono.just(true));
+        when(bookingRepo.save(any()))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error index: _id_")));
+
+        BookingRequest req = new BookingRequest();
+        req.setPassengers(List.of(new Passenger()));
+        req.setSeatNumbers(List.of("S1"));
+
+        StepVerifier.create(svc.book("f-1", req))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+
+        verify(bookingRepo, times(1)).save(any());
+        verify(inventoryRepo).releaseSeats("f-1", List.of("S1"));
+    }
+
+    @Test
+    void book_duplicateSeats_rejectedBeforeClaim() {
+        BookingRequest req = new BookingRequest();
+        req.setPassengers(List.of(new Passenger(), new Passenger()));
+        req.setSeatNumbers(List.of("S1", "S1"));
+
+        StepVerifier.create(svc.book("f-1", req))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verifyNoInteractions(inventoryRepo);
+    }
+
+    @Test
+    void searchPage_fetchesOneExtraRowToDetectNextPage() {
+        AirlineInventory a = sampleInventory();
+        AirlineInventory b = sampleInventory();
+        b.setId("f-2");
+        b.setDeparture(a.getDeparture().plusHours(1));
+        AirlineInventory c = sampleInventory();
+        c.setId("f-3");
+        when(inventoryRepo.findPage(eq("HYD"), eq("BLR"), any(), any(), eq(SearchSort.DEPARTURE), isNull(), eq(3)))
+                .thenReturn(Flux.just(a, b, c));
+
+        LocalDateTime now = LocalDateTime.now();
+        SearchPage<AirlineInventory> page = svc.searchPage("HYD", "BLR", now, now.plusDays(5), null, 2, null).block();
+
+        assertEquals(2, page.items().size());
+        SearchCursor next = SearchCursor.decode(page.nextCursor(), SearchSort.DEPARTURE);
+        assertEquals("f-2", next.id());
+        assertEquals(b.getDeparture(), next.value());
+    }
+
+    @Test
+    void searchPage_lastPage_hasNoCursor_andPassesDecodedCursor() {
+        SearchCursor after = SearchCursor.after(SearchSort.PRICE, null, 1000.0, "f-1");
+        when(inventoryRepo.findPage(any(), any(), any(), any(), eq(SearchSort.PRICE), eq(after), eq(51)))
+                .thenReturn(Flux.just(sampleInventory()));
+
+        LocalDateTime now = LocalDateTime.now();
+        StepVerifier.create(svc.searchPage("HYD", "BLR", now, now.plusDays(5), "price", null, after.encode()))
+                .assertNext(page -> {
+                    assertEquals(1, page.items().size());
+                    assertNull(page.nextCursor());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void searchPage_badCursor_errors() {
+        LocalDateTime now = LocalDateTime.now();
+        StepVerifier.create(svc.searchPage("HYD", "BLR", now, now.plusDays(5), null, 10, "%%%"))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    private static BookingHistoryItem historyItem(String id, LocalDateTime journeyDate) {
+        return new BookingHistoryItem(id, "PNR-" + id, "A", "e@example.com", "f-1", journeyDate, List.of("S1"),
+                false, null);
+    }
+
+    @Test
+    void historyPage_filtersByStatus_andReturnsCursorOfLastRow() {
+        LocalDateTime day = LocalDateTime.of(2030, 1, 10, 9, 0);
+        when(bookingRepo.findHistory(eq("e@example.com"), eq(true), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(Flux.just(historyItem("b-3", day), historyItem("b-2", day), historyItem("b-1", day.minusDays(1))));
+
+        SearchPage<BookingHistoryItem> page = svc.historyPage("e@example.com", "cancelled", null, null, 2, null).block();
+
+        assertEquals(2, page.items().size());
+        assertEquals(new HistoryCursor(day, "b-2"), HistoryCursor.decode(page.nextCursor()));
+    }
+
+    @Test
+    void historyPage_passesDecodedCursorAndDateRange() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusMonths(1);
+        HistoryCursor after = new HistoryCursor(from.plusDays(5), "b-9");
+        when(bookingRepo.findHistory("e@example.com", false, from, to, after, 51))
+                .thenReturn(Flux.just(historyItem("b-8", from.plusDays(4))));
+
+        StepVerifier.create(svc.historyPage("e@example.com", "ACTIVE", from, to, null, after.encode()))
+                .assertNext(page -> {
+                    assertEquals(1, page.items().size());
+                    assertNull(page.nextCursor());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void historyPage_unknownStatusOrOversizedLimit_rejected() {
+        StepVerifier.create(svc.historyPage("e@example.com", "pending", null, null, null, null))
+                .expectErrorMessage("Status must be ACTIVE or CANCELLED")
+                .verify();
+        StepVerifier.create(svc.historyPage("e@example.com", null, null, null, 500, null))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verify(bookingRepo, never()).findHistory(any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void history_stream_isUnboundedByDefault() {
+        when(bookingRepo.findHistory("e@example.com", null, null, null, null, 0))
+                .thenReturn(Flux.range(0, 1000).map(i -> historyItem("b-" + i, LocalDateTime.of(2030, 1, 1, 0, 0))));
+
+        StepVerifier.create(svc.history("e@example.com", null, null, null, null, null))
+                .expectNextCount(1000)
+                .verifyComplete();
+    }
+
     @Test
     void cancel_success_marksCanceled() {
         Booking b = new Booking();
@@ -113,6 +374,48 @@ class FlightServiceImplTest {
         assertTrue(cap.getValue().isCanceled());
     }
 
+    @Test
+    void cancel_isVisibleToCachedTicketLookupAsSoonAsItReturns() {
+        svc = FlightServiceFixture.on(inventoryRepo, bookingRepo)
+                .pnrCache(new PnrCache(100, java.time.Duration.ofMinutes(5), java.time.Duration.ZERO))
+                .build();
+        Map<String, Booking> stored = new ConcurrentHashMap<>();
+        Booking b = new Booking();
+        b.setPnr("PNR1");
+        b.setEmail("u@example.com");
+        b.setJourneyDate(LocalDateTime.now().plusDays(3));
+        stored.put("PNR1", b);
+        // the repository hands out copies, like documents read from Mongo
+        when(bookingRepo.findByPnr("PNR1")).thenAnswer(a -> Mono.justOrEmpty(copy(stored.get("PNR1"))));
+        when(bookingRepo.save(any())).thenAnswer(a -> {
+            Booking saved = copy(a.getArgument(0));
+            stored.put(saved.getPnr(), saved);
+            return Mono.just(copy(saved));
+        });
+
+        assertFalse(svc.findByPnr("PNR1").block().isCanceled());
+
+        svc.cancelByPnrAndEmail("PNR1", "u@example.com").block();
+
+        Booking ticket = svc.findByPnr("PNR1").block();
+        assertTrue(ticket.isCanceled());
+        assertNotNull(ticket.getCanceledAt());
+        // one read for the first ticket lookup, one inside cancel; the second lookup never hit the repository
+        verify(bookingRepo, times(2)).findByPnr("PNR1");
+    }
+
+    private static Booking copy(Booking source) {
+        if (source == null) return null;
+        Booking b = new Booking();
+        b.setId(source.getId());
+        b.setPnr(source.getPnr());
+        b.setEmail(source.getEmail());
+        b.setJourneyDate(source.getJourneyDate());
+        b.setCanceled(source.isCanceled());
+        b.setCanceledAt(source.getCanceledAt());
+        return b;
+    }
+
     @Test
     void cancel_alreadyCancelled_errors() {
         Booking b = new Booking();
@@ -169,10 +472,10 @@ class FlightServiceImplTest {
         when(bookingRepo.findByPnr("PNR4")).thenReturn(Mono.just(existing));
 
         AirlineInventory inv = sampleInventory();
-        inv.setId("f-1");
-        inv.setAvailableSeats(new ArrayList<>(List.of("S2","S3"))); // S1 currently booked
-        when(inventoryRepo.findById("f-1")).thenReturn(Mono.just(inv));
-        when(inventoryRepo.save(any())).thenAnswer(a -> Mono.just(a.getArgument(0)));
+        when(inventoryRepo.claimSeats(eq("f-1"), eq(List.of("S2")), any())).thenReturn(Mono.just(inv));
+        when(inventoryRepo.releaseSeatsOnce(eq("f-1"), eq(List.of("S1")), any())).thenReturn(Mono.just(inv));
+        when(bookingRepo.removeReleases(any())).thenReturn(Mono.just(1L));
+        when(inventoryRepo.forgetReleases(eq("f-1"), any())).thenReturn(Mono.just(false));
         when(bookingRepo.save(any())).thenAnswer(a -> Mono.just(a.getArgument(0)));
 
         BookingUpdateRequest req = new BookingUpdateRequest();
@@ -184,7 +487,98 @@ class FlightServiceImplTest {
                 .assertNext(b -> assertTrue(b.getSeatNumbers().contains("S2")))
                 .verifyComplete();
 
-        verify(inventoryRepo).save(any());
+        verify(inventoryRepo).claimSeats(eq("f-1"), eq(List.of("S2")), any());
+        verify(inventoryRepo).releaseSeatsOnce(eq("f-1"), eq(List.of("S1")), any());
+        verify(bookingRepo).removeReleases(any());
+        verify(inventoryRepo, never()).save(any());
         verify(bookingRepo).save(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void update_seatChange_takenSeat_errorsAndKeepsBooking() {
+        Booking existing = new Booking();
+        existing.setPnr("PNR5");
+        existing.setEmail("owner@example.com");
+        existing.setCanceled(false);
+        existing.setJourneyDate(LocalDateTime.now().plusDays(5));
+        existing.setSeatNumbers(new ArrayList<>(List.of("S1")));
+        existing.setFlightId("f-1");
+
+        when(bookingRepo.findByPnr("PNR5")).thenReturn(Mono.just(existing));
+        when(inventoryRepo.claimSeats(eq("f-1"), eq(List.of("S3")), any())).thenReturn(Mono.empty());
+        when(inventoryRepo.findById("f-1")).thenReturn(Mono.just(sampleInventory()));
+
+        BookingUpdateRequest req = new BookingUpdateRequest();
+        req.setEmail("owner@example.com");
+        req.setSeatNumbers(List.of("S3"));
+
+        StepVerifier.create(svc.updateBooking("PNR5", req))
+                .expectErrorMatches(err -> err instanceof IllegalStateException &&
+                        err.getMessage().contains("One or more requested seats are not available"))
+                .verify();
+
+        verify(inventoryRepo, never()).releaseSeats(any(), any());
+        verify(bookingRepo, never()).save(any());
+    }
+
+    private static double outcomes(SimpleMeterRegistry registry, String operation, String outcome) {
+        return registry.get(BookingMetrics.OUTCOMES).tag("operation", operation).tag("outcome", outcome)
+                .counter().count();
+    }
+
+    @Test
+    void metrics_countOutcomesByRule_seatConflictsAndPnrRetries() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        svc = FlightServiceFixture.on(inventoryRepo, bookingRepo).metrics(new BookingMetrics(registry)).build();
+        AirlineInventory inv = sampleInventory();
+        when(inventoryRepo.claimSeats(eq("f-1"), eq(List.of("S1")), any())).thenReturn(Mono.just(inv));
+        when(inventoryRepo.claimSeats(eq("f-1"), eq(List.of("S2")), any())).thenReturn(Mono.empty());
+        when(inventoryRepo.findById("f-1")).thenReturn(Mono.just(inv));
+        List<String> attempts = new ArrayList<>();
+        when(bookingRepo.save(any())).thenAnswer(a -> {
+            attempts.add(((Booking) a.getArgument(0)).getPnr());
+            return attempts.size() < 3
+                    ? Mono.error(new DuplicateKeyException("E11000 duplicate key error index: " + Booking.PNR_INDEX))
+                    : Mono.just(a.getArgument(0));
+        });
+        when(bookingRepo.findByPnr("NOPE")).thenReturn(Mono.empty());
+        when(bookingRepo.findByPnr("BROKEN")).thenReturn(Mono.error(new IllegalMonitorStateException("driver")));
+
+        BookingRequest req = new BookingRequest();
+        req.setPassengers(List.of(new Passenger()));
+        req.setSeatNumbers(List.of("S1"));
+        StepVerifier.create(svc.book("f-1", req)).expectNextCount(1).verifyComplete();
+        req.setSeatNumbers(List.of("S2"));
+        StepVerifier.create(svc.book("f-1", req)).expectError(IllegalStateException.class).verify();
+        req.setSeatNumbers(List.of("S2", "S2"));
+        StepVerifier.create(svc.book("f-1", req)).expectError(IllegalArgumentException.class).verify();
+        StepVerifier.create(svc.cancelByPnrAndEmail("NOPE", "u@example.com")).expectError().verify();
+        StepVerifier.create(svc.cancelByPnrAndEmail("BROKEN", "u@example.com")).expectError().verify();
+
+        assertEquals(1, outcomes(registry, BookingMetrics.BOOK, BookingMetrics.SUCCESS));
+        assertEquals(1, outcomes(registry, BookingMetrics.BOOK, "seat_unavailable"));
+        assertEquals(1, outcomes(registry, BookingMetrics.BOOK, "duplicate_seats"));
+        assertEquals(1, outcomes(registry, BookingMetrics.CANCEL, "pnr_not_found"));
+        assertEquals(1, outcomes(registry, BookingMetrics.CANCEL, BookingMetrics.UNEXPECTED));
+        assertEquals(1, registry.get(BookingMetrics.SEAT_CONFLICTS).tag("operation", "book").counter().count());
+        assertEquals(2, registry.get(BookingMetrics.PNR_RETRIES).counter().count());
+    }
+
+    @Test
+    void outcomeOf_mapsEveryRuleToItsConstantName() throws IllegalAccessException {
+        // the outcome map is written out by hand: a constant missing from it would be counted as unexpected
+        for (Field field : FlightServiceImpl.class.getDeclaredFields()) {
+            if (field.getName().startsWith("ERR_")) {
+                field.setAccessible(true);
+                assertEquals(field.getName().substring(4).toLowerCase(Locale.ROOT),
+                        FlightServiceImpl.outcomeOf(new IllegalStateException((String) field.get(null))), field.getName());
+            }
+        }
+        assertEquals("seat_unavailable", FlightServiceImpl.outcomeOf(
+                new IllegalStateException("Some selected seats are unavailable")));
+        assertEquals("update_window", FlightServiceImpl.outcomeOf(
+                new IllegalStateException("Updates are not allowed within 24 hours of the journey")));
+        assertEquals(BookingMetrics.UNEXPECTED, FlightServiceImpl.outcomeOf(new RuntimeException("boom")));
+        assertEquals(BookingMetrics.UNEXPECTED, FlightServiceImpl.outcomeOf(new RuntimeException()));
+    }
+}
@@ -0,0 +1,218 @@
+package com.flightapp.service;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.model.Booking;
+import com.flightapp.model.IdempotencyRecord;
+import com.flightapp.repository.embedded.EmbeddedIdempotencyRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyStoreTest {
+
+    @TempDir
+    Path dir;
+
+    EmbeddedStore store;
+    EmbeddedIdempotencyRepository repository;
+    IdempotencyStore idempotency;
+    final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setup() throws IOException {
+        store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        repository = new EmbeddedIdempotencyRepository(store);
+        idempotency = node();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.destroy();
+    }
+
+    private IdempotencyStore node() {
+        return node(Duration.ofMinutes(2));
+    }
+
+    private IdempotencyStore node(Duration lease) {
+        return new IdempotencyStore(repository, BookingMetrics.disabled(), 100, Duration.ofHours(1), lease,
+                Duration.ofSeconds(5));
+    }
+
+    private Mono<Booking> booking(String pnr) {
+        return Mono.fromSupplier(() -> {
+            runs.incrementAndGet();
+            Booking b = new Booking();
+            b.setPnr(pnr);
+            return b;
+        });
+    }
+
+    @Test
+    void sameKey_runsOnce_andReplaysTheBooking() {
+        String fp = IdempotencyStore.fingerprint("f-1", "req");
+
+        StepVerifier.create(idempotency.execute("book", "k1", fp, () -> booking("PNR1")))
+                .assertNext(b -> assertThat(b.getPnr()).isEqualTo("PNR1"))
+                .verifyComplete();
+        StepVerifier.create(idempotency.execute("book", "k1", fp, () -> booking("PNR2")))
+                .assertNext(b -> assertThat(b.getPnr()).isEqualTo("PNR1"))
+                .verifyComplete();
+        // a fresh node has only the stored record
+        StepVerifier.create(node().execute("book", "k1", fp, () -> booking("PNR3")))
+                .assertNext(b -> assertThat(b.getPnr()).isEqualTo("PNR1"))
+                .verifyComplete();
+
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(repository.findById("book:k1").block().isCompleted()).isTrue();
+    }
+
+    @Test
+    void keysAreScopedByOperation_andNullKeyAlwaysRuns() {
+        String fp = IdempotencyStore.fingerprint("x");
+
+        idempotency.execute("book", "k1", fp, () -> booking("PNR1")).block();
+        idempotency.execute("update", "k1", fp, () -> booking("PNR2")).block();
+        idempotency.execute("book", null, fp, () -> booking("PNR3")).block();
+        idempotency.execute("book", null, fp, () -> booking("PNR4")).block();
+
+        assertThat(runs.get()).isEqualTo(4);
+    }
+
+    @Test
+    void businessErrorsAreReplayed_unexpectedOnesRunAgain() {
+        String fp = IdempotencyStore.fingerprint("p");
+        Mono<Booking> rejected = Mono.defer(() -> {
+            runs.incrementAndGet();
+            return Mono.error(new IllegalStateException("Some selected seats are unavailable"));
+        });
+
+        StepVerifier.create(idempotency.execute("book", "k1", fp, () -> rejected))
+                .expectErrorMatches(err -> err instanceof IllegalStateException
+                        && err.getMessage().equals("Some selected seats are unavailable"))
+                .verify();
+        StepVerifier.create(node().execute("book", "k1", fp, () -> booking("PNR1")))
+                .expectError(IllegalStateException.class)
+                .verify();
+        assertThat(runs.get()).isEqualTo(1);
+
+        StepVerifier.create(idempotency.execute("book", "k2", fp, () -> Mono.error(new RuntimeException("timeout"))))
+                .expectErrorMessage("timeout")
+                .verify();
+        assertThat(repository.findById("book:k2").block()).isNull();
+        StepVerifier.create(idempotency.execute("book", "k2", fp, () -> booking("PNR2")))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // an IllegalStateException the service does not raise itself, e.g. from a driver, is not an answer
+        StepVerifier.create(idempotency.execute("book", "k3", fp,
+                        () -> Mono.error(new IllegalStateException("state should be: open"))))
+                .expectErrorMessage("state should be: open")
+                .verify();
+        assertThat(repository.findById("book:k3").block()).isNull();
+    }
+
+    @Test
+    void claimOfANodeThatDied_holdsTheKeyOnlyForTheLease_andTheResultIsKeptForTheTtl() throws InterruptedException {
+        String fp = IdempotencyStore.fingerprint("crash");
+        // the first node claims the key and never finishes
+        CountDownLatch claimed = new CountDownLatch(1);
+        node(Duration.ofMillis(200)).execute("book", "k1", fp, () -> {
+            runs.incrementAndGet();
+            claimed.countDown();
+            return Mono.never();
+        }).subscribe();
+        assertThat(claimed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(repository.findById("book:k1").block().getExpiresAt())
+                .isBefore(LocalDateTime.now().plusSeconds(1));
+
+        StepVerifier.create(node(Duration.ofMillis(200)).execute("book", "k1", fp, () -> booking("PNR1")))
+                .assertNext(b -> assertThat(b.getPnr()).isEqualTo("PNR1"))
+                .verifyComplete();
+
+        assertThat(runs.get()).isEqualTo(2);
+        IdempotencyRecord record = repository.findById("book:k1").block();
+        assertThat(record.isCompleted()).isTrue();
+        assertThat(record.getExpiresAt()).isAfter(LocalDateTime.now().plusMinutes(59));
+    }
+
+    @Test
+    void emptyOutcome_isReplayedAsEmpty() {
+        String fp = IdempotencyStore.fingerprint("PNR1", "u@example.com");
+
+        StepVerifier.create(idempotency.execute("cancel", "k1", fp, Mono::empty)).verifyComplete();
+        StepVerifier.create(node().execute("cancel", "k1", fp, () -> booking("X"))).verifyComplete();
+
+        assertThat(runs.get()).isZero();
+    }
+
+    @Test
+    void sameKeyDifferentRequest_isRejected() {
+        idempotency.execute("book", "k1", IdempotencyStore.fingerprint("a"), () -> booking("PNR1")).block();
+
+        StepVerifier.create(idempotency.execute("book", "k1", IdempotencyStore.fingerprint("b"), () -> booking("PNR2")))
+                .expectErrorMessage(IdempotencyStore.ERR_KEY_REUSED)
+                .verify();
+        StepVerifier.create(node().execute("book", "k1", IdempotencyStore.fingerprint("b"), () -> booking("PNR2")))
+                .expectErrorMessage(IdempotencyStore.ERR_KEY_REUSED)
+                .verify();
+        StepVerifier.create(idempotency.execute("book", " ", IdempotencyStore.fingerprint("a"), () -> booking("PNR2")))
+                .expectErrorMessage(IdempotencyStore.ERR_KEY_INVALID)
+                .verify();
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void duplicateOnAnotherNode_waitsForTheRunningRequest() {
+        String fp = IdempotencyStore.fingerprint("slow");
+        Sinks.One<Booking> result = Sinks.one();
+        Mono<Booking> first = idempotency.execute("book", "k1", fp, () -> {
+            runs.incrementAndGet();
+            return result.asMono();
+        });
+
+        Mono<Booking> retry = node().execute("book", "k1", fp, () -> booking("PNR2"));
+        Booking done = new Booking();
+        done.setPnr("PNR1");
+
+        StepVerifier.create(retry)
+                .then(() -> result.tryEmitValue(done))
+                .assertNext(b -> assertThat(b.getPnr()).isEqualTo("PNR1"))
+                .verifyComplete();
+        StepVerifier.create(first).expectNextCount(1).verifyComplete();
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredRecord_isReplacedByTheNextClaim() {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord old = new IdempotencyRecord();
+        old.setId("book:k1");
+        old.setFingerprint("other");
+        old.setCompleted(true);
+        old.setExpiresAt(now.minusMinutes(1));
+        repository.save(old).block();
+
+        StepVerifier.create(idempotency.execute("book", "k1", IdempotencyStore.fingerprint("a"), () -> booking("PNR1")))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertThat(repository.findById("book:k1").block().getBooking().getPnr()).isEqualTo("PNR1");
+    }
+}
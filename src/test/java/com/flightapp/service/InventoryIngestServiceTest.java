@@ -0,0 +1,166 @@
+package com.flightapp.service;
+
+import com.flightapp.dto.InventoryIngestResult;
+import com.flightapp.dto.InventoryIngestResult.Status;
+import com.flightapp.dto.InventoryRequest;
+import com.flightapp.event.FlightsAdded;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.repository.InventoryRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class InventoryIngestServiceTest {
+
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+    InventoryRepository inventoryRepository;
+    ApplicationEventPublisher events;
+    InventoryIngestService service;
+
+    @BeforeEach
+    void setup() {
+        inventoryRepository = mock(InventoryRepository.class);
+        events = mock(ApplicationEventPublisher.class);
+        service = service(3, 2);
+    }
+
+    private InventoryIngestService service(int batchSize, int concurrency) {
+        return new InventoryIngestService(inventoryRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(), events,
+                batchSize, Duration.ofMillis(50), concurrency);
+    }
+
+    static InventoryRequest request(String flightNumber) {
+        InventoryRequest r = new InventoryRequest();
+        r.setAirline("Indigo");
+        r.setFlightNumber(flightNumber);
+        r.setOrigin("HYD");
+        r.setDestination("BLR");
+        r.setDeparture(DEPARTURE);
+        r.setArrival(DEPARTURE.plusHours(2));
+        r.setTotalSeats(30);
+        r.setPrice(4000.0);
+        return r;
+    }
+
+    @Test
+    void ingest_insertsValidRecords_andReportsEachInUploadOrder() {
+        when(inventoryRepository.insertUnordered(anyList())).thenReturn(Mono.just(Map.of()));
+
+        InventoryRequest missingAirline = request("IN2");
+        missingAirline.setAirline("");
+        InventoryRequest sameRoute = request("IN4");
+        sameRoute.setDestination("HYD");
+
+        StepVerifier.create(service.ingest(Flux.just(request("IN1"), missingAirline, request("IN3"), sameRoute,
+                        request("IN5"))).collectList())
+                .assertNext(results -> {
+                    assertThat(results).extracting(InventoryIngestResult::index).containsExactly(0L, 1L, 2L, 3L, 4L);
+                    assertThat(results).extracting(InventoryIngestResult::status).containsExactly(
+                            Status.CREATED, Status.REJECTED, Status.CREATED, Status.REJECTED, Status.CREATED);
+                    assertThat(results.get(1).error()).isEqualTo("airline must not be blank");
+                    assertThat(results.get(3).error()).isEqualTo("Origin and destination cannot be the same");
+                    assertThat(results.get(0).flightId()).isNotBlank();
+                })
+                .verifyComplete();
+
+        // batches of 3 records: [IN1, bad, IN3] and [bad, IN5]
+        verify(inventoryRepository, times(2)).insertUnordered(anyList());
+        verify(events, times(2)).publishEvent(any(FlightsAdded.class));
+    }
+
+    @Test
+    void ingest_insertedFlightsGetFullSeatMaps() {
+        List<AirlineInventory> written = new ArrayList<>();
+        when(inventoryRepository.insertUnordered(anyList())).thenAnswer(inv -> {
+            written.addAll(inv.getArgument(0));
+            return Mono.just(Map.of());
+        });
+
+        StepVerifier.create(service.ingest(Flux.just(request("IN1"))))
+                .expectNextMatches(r -> r.status() == Status.CREATED)
+                .verifyComplete();
+
+        assertThat(written).hasSize(1);
+        assertThat(written.get(0).getId()).isNotNull();
+        assertThat(written.get(0).getSeatMap().availableCount()).isEqualTo(30);
+    }
+
+    @Test
+    void ingest_writeErrorsOnlyFailTheirOwnRecords() {
+        // position 1 among the valid records of the batch, i.e. upload index 2
+        when(inventoryRepository.insertUnordered(anyList())).thenReturn(Mono.just(Map.of(1, "duplicate key")));
+        InventoryRequest invalid = request("IN2");
+        invalid.setTotalSeats(0);
+
+        StepVerifier.create(service.ingest(Flux.just(request("IN1"), invalid, request("IN3"))).collectList())
+                .assertNext(results -> {
+                    assertThat(results).extracting(InventoryIngestResult::status)
+                            .containsExactly(Status.CREATED, Status.REJECTED, Status.FAILED);
+                    assertThat(results.get(2).error()).isEqualTo("duplicate key");
+                })
+                .verifyComplete();
+
+        verify(events).publishEvent(argThat((Object e) -> e instanceof FlightsAdded added
+                && added.flights().size() == 1 && added.flights().get(0).getFlightNumber().equals("IN1")));
+    }
+
+    @Test
+    void ingest_failedBatch_doesNotStopLaterBatches() {
+        when(inventoryRepository.insertUnordered(anyList()))
+                .thenReturn(Mono.error(new RuntimeException("connection reset")))
+                .thenReturn(Mono.just(Map.of()));
+
+        StepVerifier.create(service.ingest(Flux.range(1, 6).map(i -> request("IN" + i))).collectList())
+                .assertNext(results -> assertThat(results).extracting(InventoryIngestResult::status)
+                        .containsExactly(Status.FAILED, Status.FAILED, Status.FAILED,
+                                Status.CREATED, Status.CREATED, Status.CREATED))
+                .verifyComplete();
+    }
+
+    @Test
+    void ingest_largeUpload_keepsBoundedNumberOfRecordsInFlight() {
+        int batchSize = 500;
+        int concurrency = 4;
+        service = service(batchSize, concurrency);
+        AtomicInteger concurrentBatches = new AtomicInteger();
+        AtomicInteger maxConcurrentBatches = new AtomicInteger();
+        when(inventoryRepository.insertUnordered(anyList())).thenAnswer(inv -> Mono.delay(Duration.ofMillis(1))
+                .doOnSubscribe(s -> maxConcurrentBatches.accumulateAndGet(concurrentBatches.incrementAndGet(), Math::max))
+                .doOnTerminate(concurrentBatches::decrementAndGet)
+                .thenReturn(Map.<Integer, String>of()));
+
+        AtomicLong produced = new AtomicLong();
+        AtomicLong reported = new AtomicLong();
+        AtomicLong maxInFlight = new AtomicLong();
+        Flux<InventoryRequest> upload = Flux.range(0, 20_000)
+                .map(i -> request("IN" + i))
+                .doOnNext(r -> maxInFlight.accumulateAndGet(produced.incrementAndGet() - reported.get(), Math::max));
+
+        StepVerifier.create(service.ingest(upload).doOnNext(r -> reported.incrementAndGet()).count())
+                .expectNext(20_000L)
+                .verifyComplete();
+
+        assertThat(maxConcurrentBatches.get()).isLessThanOrEqualTo(concurrency);
+        // batches being written plus the batch being filled and the buffer's own prefetch, not the upload size
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo((long) batchSize * (concurrency + 4));
+    }
+}
@@ -0,0 +1,246 @@
+package com.flightapp.service;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.dto.BookingUpdateRequest;
+import com.flightapp.event.BookingLifecycleEvent;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.OutboxEntry;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.embedded.EmbeddedBookingRepository;
+import com.flightapp.repository.embedded.EmbeddedInventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedOutboxCursorRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** The booking outbox on the embedded store: events written by the service and drained by the relay. */
+class OutboxRelayTest {
+
+    private static final String EMAIL = "agent@example.com";
+
+    @TempDir
+    Path dir;
+
+    EmbeddedStore store;
+    EmbeddedInventoryRepository inventories;
+    EmbeddedBookingRepository bookings;
+    EmbeddedOutboxCursorRepository cursors;
+    // fails the next removal of delivered events, as if the relay stopped right after recording the batch
+    AtomicBoolean failRemoval = new AtomicBoolean();
+    AtomicBoolean failDelivery = new AtomicBoolean();
+    List<BookingLifecycleEvent> received = new CopyOnWriteArrayList<>();
+    BookingEventSink collecting = batch -> failDelivery.getAndSet(false)
+            ? Mono.error(new IllegalStateException("sink down"))
+            : Mono.fromRunnable(() -> received.addAll(batch));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    FlightServiceImpl svc;
+
+    @BeforeEach
+    void setup() throws IOException {
+        store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.resolve("store").toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        inventories = new EmbeddedInventoryRepository(store);
+        bookings = new EmbeddedBookingRepository(store) {
+            @Override
+            public Mono<Long> removeEvents(Map<String, ? extends Collection<String>> eventIdsByBooking) {
+                return failRemoval.getAndSet(false) ? Mono.error(new IllegalStateException("relay stopped"))
+                        : super.removeEvents(eventIdsByBooking);
+            }
+        };
+        cursors = new EmbeddedOutboxCursorRepository(store);
+        svc = FlightServiceFixture.plain(inventories, bookings);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.destroy();
+    }
+
+    private OutboxRelay relay(BookingEventSink sink, int batchSize, Duration settle) {
+        return new OutboxRelay(bookings, cursors, sink, registry, false, Duration.ZERO, batchSize, settle);
+    }
+
+    private AirlineInventory flight() {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setAirline("Indigo");
+        inv.setFlightNumber("IN7");
+        inv.setOrigin("HYD");
+        inv.setDestination("BLR");
+        inv.setDeparture(LocalDateTime.now().plusDays(3));
+        inv.setArrival(inv.getDeparture().plusMinutes(90));
+        inv.setTotalSeats(60);
+        inv.setPrice(4000);
+        inv.setSeatMap(SeatMap.allAvailable(60));
+        return svc.addInventory(inv).block();
+    }
+
+    private Booking book(AirlineInventory flight, String... seats) {
+        BookingRequest req = new BookingRequest();
+        req.setName("Agent");
+        req.setEmail(EMAIL);
+        req.setSeatNumbers(List.of(seats));
+        req.setPassengers(Stream.generate(Passenger::new).limit(seats.length).toList());
+        return svc.book(flight.getId(), req).block();
+    }
+
+    private Booking changeSeats(Booking booking, String... seats) {
+        BookingUpdateRequest req = new BookingUpdateRequest();
+        req.setEmail(EMAIL);
+        req.setSeatNumbers(List.of(seats));
+        req.setPassengers(Stream.generate(Passenger::new).limit(seats.length).toList());
+        return svc.updateBooking(booking.getPnr(), req).block();
+    }
+
+    private List<OutboxEntry> outbox(Booking booking) {
+        List<OutboxEntry> outbox = bookings.findByPnr(booking.getPnr()).block().getOutbox();
+        return outbox == null ? List.of() : outbox;
+    }
+
+    @Test
+    void bookUpdateAndCancel_areRelayedInOrder_thenLeaveTheOutbox() {
+        AirlineInventory flight = flight();
+        Booking booking = book(flight, "S1", "S2");
+        changeSeats(booking, "S3");
+        svc.cancelByPnrAndEmail(booking.getPnr(), EMAIL).block();
+        assertThat(outbox(booking)).extracting(OutboxEntry::getType).containsExactly(
+                OutboxEntry.Type.BOOKED, OutboxEntry.Type.UPDATED, OutboxEntry.Type.CANCELLED);
+
+        OutboxRelay relay = relay(collecting, 500, Duration.ZERO);
+        assertThat(relay.drain().block()).isEqualTo(3);
+
+        assertThat(received).extracting(BookingLifecycleEvent::type).containsExactly(
+                OutboxEntry.Type.BOOKED, OutboxEntry.Type.UPDATED, OutboxEntry.Type.CANCELLED);
+        assertThat(received).extracting(BookingLifecycleEvent::seatNumbers).containsExactly(
+                List.of("S1", "S2"), List.of("S3"), List.of("S3"));
+        assertThat(received).allSatisfy(event -> {
+            assertThat(event.pnr()).isEqualTo(booking.getPnr());
+            assertThat(event.flightId()).isEqualTo(flight.getId());
+        });
+        assertThat(outbox(booking)).isEmpty();
+        assertThat(relay.resumeToken().block()).isEqualTo(received.get(2).id());
+        assertThat(relay.drain().block()).isZero();
+
+        assertThat(registry.get(OutboxRelay.EVENTS).counter().count()).isEqualTo(3);
+        assertThat(registry.get(OutboxRelay.BATCHES).timer().count()).isEqualTo(1);
+        assertThat(registry.get(OutboxRelay.DELIVERY_LAG).timer().count()).isEqualTo(3);
+        assertThat(registry.get(OutboxRelay.PENDING_AGE).gauge().value()).isZero();
+    }
+
+    @Test
+    void truncatedReads_stillDeliverEveryEventOnceInIdOrder() {
+        AirlineInventory flight = flight();
+        List<Booking> booked = IntStream.range(0, 6).mapToObj(i -> book(flight, SeatMap.labelOf(i))).toList();
+        // the first booking now holds both the oldest and the newest event
+        changeSeats(booked.get(0), "S40");
+        changeSeats(booked.get(3), "S41");
+
+        OutboxRelay relay = relay(collecting, 2, Duration.ZERO);
+        assertThat(relay.drain().block()).isEqualTo(8);
+
+        assertThat(received).extracting(BookingLifecycleEvent::id)
+                .doesNotHaveDuplicates()
+                .isSortedAccordingTo(Comparator.naturalOrder());
+        assertThat(received.get(7).bookingId()).isEqualTo(booked.get(3).getId());
+        assertThat(registry.get(OutboxRelay.BATCHES).timer().count()).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void failedDelivery_handsTheSameEventsOverAgain() {
+        AirlineInventory flight = flight();
+        Booking booking = book(flight, "S1");
+        OutboxRelay relay = relay(collecting, 500, Duration.ZERO);
+
+        failDelivery.set(true);
+        assertThatThrownBy(() -> relay.relayBatch().block()).hasMessageContaining("sink down");
+        assertThat(outbox(booking)).hasSize(1);
+        assertThat(relay.resumeToken().block()).isNull();
+
+        assertThat(relay.drain().block()).isEqualTo(1);
+        assertThat(received).singleElement().satisfies(event ->
+                assertThat(event.id()).isEqualTo(booking.getOutbox().get(0).getEventId()));
+        assertThat(registry.get(OutboxRelay.FAILURES).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void acceptedBatchNotYetRemoved_isNotSentAgain() {
+        AirlineInventory flight = flight();
+        Booking first = book(flight, "S1");
+        OutboxRelay relay = relay(collecting, 500, Duration.ZERO);
+
+        failRemoval.set(true);
+        assertThatThrownBy(() -> relay.relayBatch().block()).hasMessageContaining("relay stopped");
+        assertThat(received).hasSize(1);
+        assertThat(outbox(first)).hasSize(1);
+
+        Booking second = book(flight, "S2");
+        assertThat(relay.drain().block()).isEqualTo(1);
+
+        assertThat(received).extracting(BookingLifecycleEvent::pnr).containsExactly(first.getPnr(), second.getPnr());
+        assertThat(outbox(first)).isEmpty();
+        assertThat(outbox(second)).isEmpty();
+    }
+
+    @Test
+    void eventsYoungerThanTheSettleDelay_wait() {
+        AirlineInventory flight = flight();
+        Booking booking = book(flight, "S1");
+
+        OutboxRelay relay = relay(collecting, 500, Duration.ofHours(1));
+        assertThat(relay.drain().block()).isZero();
+
+        assertThat(received).isEmpty();
+        assertThat(outbox(booking)).hasSize(1);
+        assertThat(registry.get(OutboxRelay.PENDING_AGE).gauge().value()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    void outboxOff_recordsNoEvents() {
+        AirlineInventory flight = flight();
+        svc = FlightServiceFixture.on(inventories, bookings).outboxEnabled(false).build();
+        Booking booking = book(flight, "S1", "S2");
+        changeSeats(booking, "S3");
+        svc.cancelByPnrAndEmail(booking.getPnr(), EMAIL).block();
+
+        assertThat(outbox(booking)).isEmpty();
+    }
+
+    @Test
+    void fileSink_appendsOneJsonLinePerEvent() throws IOException {
+        AirlineInventory flight = flight();
+        Booking booking = book(flight, "S1");
+        svc.cancelByPnrAndEmail(booking.getPnr(), EMAIL).block();
+        Path file = dir.resolve("events").resolve("outbox.ndjson");
+
+        assertThat(relay(new FileEventSink(file), 500, Duration.ZERO).drain().block()).isEqualTo(2);
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("\"type\":\"BOOKED\"", booking.getPnr());
+        assertThat(lines.get(1)).contains("\"type\":\"CANCELLED\"", booking.getPnr());
+    }
+}
@@ -0,0 +1,149 @@
+package com.flightapp.service;
+
+import com.flightapp.model.Booking;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PnrCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private static Booking booking(String pnr) {
+        Booking b = new Booking();
+        b.setPnr(pnr);
+        return b;
+    }
+
+    private Mono<Booking> load(String pnr) {
+        loads.incrementAndGet();
+        return pnr.startsWith("X") ? Mono.empty() : Mono.just(booking(pnr));
+    }
+
+    @Test
+    void repeatedLookup_isServedFromCache() {
+        PnrCache cache = new PnrCache(100, Duration.ofMinutes(5), Duration.ZERO);
+
+        cache.get("ABC123", this::load).block();
+        StepVerifier.create(cache.get("ABC123", this::load))
+                .assertNext(b -> assertThat(b.getPnr()).isEqualTo("ABC123"))
+                .verifyComplete();
+
+        assertThat(loads).hasValue(1);
+        PnrCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.size()).isEqualTo(1);
+        assertThat(stats.hitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void concurrentMisses_shareOneLoad() {
+        PnrCache cache = new PnrCache(100, Duration.ofMinutes(5), Duration.ZERO);
+        Sinks.One<Booking> pending = Sinks.one();
+
+        List<Mono<Booking>> callers = java.util.stream.IntStream.range(0, 10)
+                .mapToObj(i -> cache.get("ABC123", pnr -> {
+                    loads.incrementAndGet();
+                    return pending.asMono();
+                }))
+                .toList();
+        CompletableFuture<List<Booking>> served = Flux.merge(callers).collectList().toFuture();
+        pending.tryEmitValue(booking("ABC123"));
+
+        assertThat(served.join()).hasSize(10);
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().coalesced()).isEqualTo(9);
+    }
+
+    @Test
+    void unknownPnr_isNotRemembered_whenNegativeCachingIsOff() {
+        PnrCache cache = new PnrCache(100, Duration.ofMinutes(5), Duration.ZERO);
+
+        StepVerifier.create(cache.get("X00000", this::load)).verifyComplete();
+        StepVerifier.create(cache.get("X00000", this::load)).verifyComplete();
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats().size()).isZero();
+    }
+
+    @Test
+    void unknownPnr_isRemembered_forNegativeTtl() throws InterruptedException {
+        PnrCache cache = new PnrCache(100, Duration.ofMinutes(5), Duration.ofMillis(100));
+
+        StepVerifier.create(cache.get("X00000", this::load)).verifyComplete();
+        StepVerifier.create(cache.get("X00000", this::load)).verifyComplete();
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().negativeHits()).isEqualTo(1);
+
+        Thread.sleep(200);
+        StepVerifier.create(cache.get("X00000", this::load)).verifyComplete();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void put_replacesCachedBooking_andFailedLoadsAreNotCached() {
+        PnrCache cache = new PnrCache(100, Duration.ofMinutes(5), Duration.ofMinutes(5));
+        StepVerifier.create(cache.get("ABC123", pnr -> Mono.error(new IllegalStateException("down"))))
+                .expectError()
+                .verify();
+
+        cache.get("ABC123", this::load).block();
+        Booking canceled = booking("ABC123");
+        canceled.setCanceled(true);
+        cache.put(canceled);
+
+        StepVerifier.create(cache.get("ABC123", this::load))
+                .assertNext(b -> assertThat(b.isCanceled()).isTrue())
+                .verifyComplete();
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().writes()).isEqualTo(1);
+
+        cache.invalidate("ABC123");
+        cache.get("ABC123", this::load).block();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void disabledCache_alwaysLoads() {
+        PnrCache cache = PnrCache.disabled();
+
+        cache.get("ABC123", this::load).block();
+        cache.get("ABC123", this::load).block();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void lookupWaitsForSubscription_andEveryCallerGetsItsOwnCopy() {
+        PnrCache cache = new PnrCache(100, Duration.ofMinutes(5), Duration.ZERO);
+
+        Mono<Booking> notSubscribed = cache.get("ABC123", this::load);
+        assertThat(loads).hasValue(0);
+        assertThat(cache.stats().misses()).isZero();
+
+        Booking first = notSubscribed.block();
+        first.setCanceled(true);
+        Booking saved = booking("ABC123");
+        saved.setSeatNumbers(new ArrayList<>(List.of("S2")));
+        cache.put(saved);
+        saved.getSeatNumbers().add("S3");
+
+        Booking second = cache.get("ABC123", this::load).block();
+        assertThat(second.isCanceled()).isFalse();
+        assertThat(second.getSeatNumbers()).containsExactly("S2");
+        second.getSeatNumbers().add("S4");
+        assertThat(cache.get("ABC123", this::load).block().getSeatNumbers()).containsExactly("S2");
+        assertThat(loads).hasValue(1);
+    }
+}
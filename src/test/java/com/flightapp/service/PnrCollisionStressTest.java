@@ -0,0 +1,76 @@
+package com.flightapp.service;
+
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.Passenger;
+import com.flightapp.repository.BookingRepository;
+import com.flightapp.repository.InventoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Books in parallel against a booking store whose unique index only looks at the last three PNR
+ * characters, so collisions that are rare in production happen constantly here.
+ */
+class PnrCollisionStressTest {
+
+    private static final int BOOKINGS = 2_000;
+
+    @Test
+    void parallelBookings_alwaysEndWithUniquePnrs() {
+        AirlineInventory flight = new AirlineInventory();
+        flight.setId("f-1");
+        flight.setDeparture(LocalDateTime.now().plusDays(3));
+
+        InventoryRepository inventoryRepo = mock(InventoryRepository.class);
+        when(inventoryRepo.claimSeats(eq("f-1"), any(), any())).thenReturn(Mono.just(flight));
+
+        Map<String, Booking> index = new ConcurrentHashMap<>();
+        AtomicInteger collisions = new AtomicInteger();
+        BookingRepository bookingRepo = mock(BookingRepository.class);
+        when(bookingRepo.save(any())).thenAnswer(a -> {
+            Booking b = a.getArgument(0);
+            String key = b.getPnr().substring(3);
+            if (index.putIfAbsent(key, b) != null) {
+                collisions.incrementAndGet();
+                return Mono.error(new DuplicateKeyException("E11000 duplicate key error index: " + Booking.PNR_INDEX));
+            }
+            return Mono.just(b);
+        });
+
+        FlightServiceImpl svc = FlightServiceFixture.plain(inventoryRepo, bookingRepo);
+
+        List<Booking> booked = Flux.range(0, BOOKINGS)
+                .parallel(16)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> {
+                    BookingRequest req = new BookingRequest();
+                    req.setPassengers(List.of(new Passenger()));
+                    req.setSeatNumbers(List.of("S1"));
+                    return svc.book("f-1", req);
+                })
+                .sequential()
+                .collectList()
+                .block();
+
+        assertThat(booked).hasSize(BOOKINGS);
+        assertThat(booked).extracting(Booking::getPnr).doesNotHaveDuplicates();
+        assertThat(index).hasSize(BOOKINGS);
+        assertThat(collisions.get()).as("the stress setup must actually collide").isPositive();
+        verify(inventoryRepo, never()).releaseSeats(any(), any());
+    }
+}
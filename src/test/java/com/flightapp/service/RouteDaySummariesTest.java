@@ -0,0 +1,312 @@
+package com.flightapp.service;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.dto.BookingUpdateRequest;
+import com.flightapp.dto.CalendarDay;
+import com.flightapp.dto.FlightSummary;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.event.FlightsAdded;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.RouteDaySummary;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.embedded.EmbeddedBookingRepository;
+import com.flightapp.repository.embedded.EmbeddedInventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedRouteDayRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import com.flightapp.service.RouteDaySummaries.Report;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Route-day summaries on the embedded store, kept current by the service's events and checked against the inventories. */
+class RouteDaySummariesTest {
+
+    private static final String EMAIL = "agent@example.com";
+    private static final LocalDateTime DAY = LocalDate.now().plusDays(10).atStartOfDay();
+
+    @TempDir
+    Path dir;
+
+    EmbeddedStore store;
+    EmbeddedInventoryRepository inventories;
+    EmbeddedRouteDayRepository routeDays;
+    RouteDaySummaries summaries;
+    FlightServiceImpl svc;
+
+    @BeforeEach
+    void setup() throws IOException {
+        store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        inventories = new EmbeddedInventoryRepository(store);
+        routeDays = new EmbeddedRouteDayRepository(store);
+        // no periodic check (tests call reconcile() themselves), only the build of the empty collection
+        summaries = new RouteDaySummaries(routeDays, inventories, SearchCache.disabled(), true, Duration.ZERO);
+        summaries.afterPropertiesSet();
+        svc = FlightServiceFixture.on(inventories, new EmbeddedBookingRepository(store))
+                .events(event -> {
+                    if (event instanceof FlightInventoryChanged changed) {
+                        summaries.onInventoryChanged(changed);
+                    }
+                })
+                .routeDays(summaries)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        summaries.destroy();
+        store.destroy();
+    }
+
+    private static AirlineInventory newFlight(String route, LocalDateTime departure, double price, int seats) {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setAirline("Indigo");
+        inv.setFlightNumber("IN" + departure.getHour());
+        inv.setOrigin(route.substring(0, 3));
+        inv.setDestination(route.substring(4));
+        inv.setDeparture(departure);
+        inv.setArrival(departure.plusMinutes(90));
+        inv.setTotalSeats(seats);
+        inv.setPrice(price);
+        inv.setSeatMap(SeatMap.allAvailable(seats));
+        return inv;
+    }
+
+    private AirlineInventory flight(String route, LocalDateTime departure, double price, int seats) {
+        return svc.addInventory(newFlight(route, departure, price, seats)).block();
+    }
+
+    private Booking book(String flightId, String... seats) {
+        BookingRequest req = new BookingRequest();
+        req.setName("Agent");
+        req.setEmail(EMAIL);
+        req.setSeatNumbers(List.of(seats));
+        req.setPassengers(Stream.generate(Passenger::new).limit(seats.length).toList());
+        return svc.book(flightId, req).block();
+    }
+
+    private static BookingUpdateRequest seatChange(String... seats) {
+        BookingUpdateRequest req = new BookingUpdateRequest();
+        req.setEmail(EMAIL);
+        req.setSeatNumbers(List.of(seats));
+        req.setPassengers(Stream.generate(Passenger::new).limit(seats.length).toList());
+        return req;
+    }
+
+    /** Summary writes run after the change that triggered them; an empty write queued behind them waits them out. */
+    private void summaryWritesDone() {
+        store.writeAsync(() -> null).block();
+    }
+
+    private List<CalendarDay> calendar(FlightService service) {
+        summaryWritesDone();
+        return service.calendar("HYD", "BLR", DAY.toLocalDate(), DAY.toLocalDate().plusDays(6)).collectList().block();
+    }
+
+    private List<FlightSummary> searchBoth(LocalDateTime from, LocalDateTime to) {
+        summaryWritesDone();
+        List<FlightSummary> fromDays = summaries.search("HYD", "BLR", from, to).collectList().block();
+        assertThat(fromDays).isEqualTo(inventories.findSummaries("HYD", "BLR", from, to).collectList().block());
+        return fromDays;
+    }
+
+    @Test
+    void bookingsAndSeatChanges_keepDayTotalsAndCheapestOpenFareCurrent() {
+        AirlineInventory early = flight("HYD-BLR", DAY.plusHours(6), 5000, 30);
+        AirlineInventory cheap = flight("HYD-BLR", DAY.plusHours(9), 3500, 2);
+        flight("HYD-BLR", DAY.plusHours(21), 4200, 30);
+        flight("HYD-BLR", DAY.plusDays(1).plusHours(7), 3900, 30);
+        flight("HYD-DEL", DAY.plusHours(8), 2000, 30);
+        LocalDate day = DAY.toLocalDate();
+
+        assertThat(calendar(svc)).containsExactly(
+                new CalendarDay(day, 3, 62, 62, 3500.0),
+                new CalendarDay(day.plusDays(1), 1, 30, 30, 3900.0));
+
+        Booking soldOut = book(cheap.getId(), "S1", "S2");
+        assertThat(calendar(svc).get(0)).isEqualTo(new CalendarDay(day, 3, 62, 60, 4200.0));
+
+        book(early.getId(), "S5");
+        svc.updateBooking(soldOut.getPnr(), seatChange("S1")).block();
+        assertThat(calendar(svc).get(0)).isEqualTo(new CalendarDay(day, 3, 62, 60, 3500.0));
+
+        // summary searches answer exactly like the projection of the inventories
+        assertThat(searchBoth(DAY.plusHours(5), DAY.plusDays(1).plusHours(8)))
+                .extracting(FlightSummary::getAvailableSeats).containsExactly(29, 1, 30, 30);
+        assertThat(searchBoth(DAY.plusHours(7), DAY.plusHours(21))).hasSize(1);
+        assertThat(svc.searchSummaries("HYD", "BLR", DAY, DAY.plusDays(2)).collectList().block()).hasSize(4);
+        assertThat(summaries.reconcile(false).block().isClean()).isTrue();
+    }
+
+    @Test
+    void bulkLoadedFlights_arePutIntoTheirDays() {
+        List<AirlineInventory> batch = Stream.of(6, 13, 30).map(hour -> {
+            AirlineInventory inv = newFlight("HYD-BLR", DAY.plusHours(hour), 3000 + hour, 180);
+            inv.setId(new ObjectId().toHexString());
+            return inv;
+        }).toList();
+        inventories.insertUnordered(batch).block();
+
+        summaries.onFlightsAdded(new FlightsAdded(batch));
+
+        assertThat(calendar(svc)).containsExactly(
+                new CalendarDay(DAY.toLocalDate(), 2, 360, 360, 3006.0),
+                new CalendarDay(DAY.toLocalDate().plusDays(1), 1, 180, 180, 3030.0));
+        assertThat(summaries.reconcile(false).block().isClean()).isTrue();
+    }
+
+    @Test
+    void reconcile_findsMissingDriftedAndStaleDays_andRepairsThem() {
+        AirlineInventory first = flight("HYD-BLR", DAY.plusHours(6), 5000, 30);
+        flight("HYD-BLR", DAY.plusDays(1).plusHours(6), 5000, 30);
+        flight("BLR-HYD", DAY.plusHours(10), 4000, 30);
+
+        // a seat change that never happened, a lost write, and a flight that is gone
+        routeDays.adjustSeats(first.getId(), -3).block();
+        routeDays.deleteById(RouteDaySummary.idOf("BLR", "HYD", DAY.toLocalDate())).block();
+        AirlineInventory gone = newFlight("HYD-BLR", DAY.plusDays(5), 3000, 30);
+        gone.setId("gone");
+        routeDays.putFlights(List.of(gone)).block();
+
+        Report found = summaries.reconcile(false).block();
+        assertThat(found).isEqualTo(new Report(3, 3, 1, 1, 1, false));
+        // a check alone changes nothing
+        assertThat(summaries.reconcile(false).block()).isEqualTo(found);
+
+        assertThat(summaries.reconcile(true).block()).isEqualTo(new Report(3, 3, 1, 1, 1, true));
+        assertThat(summaries.reconcile(false).block()).isEqualTo(new Report(3, 3, 0, 0, 0, false));
+        assertThat(calendar(svc)).extracting(CalendarDay::availableSeats).containsExactly(30, 30);
+    }
+
+    @Test
+    void repairOfAnEmptyCollection_rebuildsEveryDay() {
+        for (int day = 0; day < 5; day++) {
+            flight("HYD-BLR", DAY.plusDays(day).plusHours(6), 4000 + day, 30);
+            flight("HYD-BLR", DAY.plusDays(day).plusHours(18), 3000 + day, 30);
+        }
+        book(searchBoth(DAY, DAY.plusDays(1)).get(1).getId(), "S1", "S2", "S3");
+        List<CalendarDay> before = calendar(svc);
+
+        routeDays.deleteAll().block();
+        assertThat(calendar(svc)).isEmpty();
+
+        assertThat(summaries.reconcile(true).block()).isEqualTo(new Report(5, 10, 5, 0, 0, true));
+        assertThat(calendar(svc)).isEqualTo(before);
+        assertThat(searchBoth(DAY, DAY.plusDays(7))).hasSize(10);
+    }
+
+    @Test
+    void untilTheSummariesAreBuilt_searchesAndTheCalendarReadTheInventories() {
+        flight("HYD-BLR", DAY.plusHours(6), 5000, 30);
+        flight("HYD-BLR", DAY.plusDays(1).plusHours(6), 4000, 30);
+        List<CalendarDay> expected = calendar(svc);
+        // a node whose first build has not finished, over a collection that lost its days
+        routeDays.deleteAll().block();
+        RouteDaySummaries building = new RouteDaySummaries(routeDays, inventories, SearchCache.disabled(), true,
+                Duration.ZERO);
+        FlightServiceImpl node = FlightServiceFixture.on(inventories, new EmbeddedBookingRepository(store))
+                .routeDays(building)
+                .build();
+
+        assertThat(building.ready()).isFalse();
+        assertThat(calendar(node)).isEqualTo(expected);
+        assertThat(node.searchSummaries("HYD", "BLR", DAY, DAY.plusDays(2)).collectList().block()).hasSize(2);
+
+        building.reconcile(true).block();
+        assertThat(building.ready()).isTrue();
+        assertThat(calendar(node)).isEqualTo(expected);
+    }
+
+    @Test
+    void calendarWithoutSummaries_isComputedFromInventories_andRangeIsBounded() {
+        flight("HYD-BLR", DAY, 5000, 30);
+        flight("HYD-BLR", DAY.plusHours(12), 4500, 30);
+        flight("HYD-BLR", DAY.plusDays(1).plusHours(23).plusMinutes(59), 4000, 30);
+        flight("HYD-BLR", DAY.minusMinutes(1), 1000, 30);
+        FlightServiceImpl withoutSummaries = FlightServiceFixture.plain(inventories, new EmbeddedBookingRepository(store));
+
+        assertThat(calendar(withoutSummaries)).isEqualTo(calendar(svc)).hasSize(2)
+                .first().extracting(CalendarDay::flights).isEqualTo(2);
+
+        LocalDate from = DAY.toLocalDate();
+        assertThat(svc.calendar("HYD", "BLR", from, from.plusDays(91)).collectList().block()).hasSize(2);
+        StepVerifier.create(svc.calendar("HYD", "BLR", from, from.plusDays(92)))
+                .expectErrorMessage("Calendar range must be 1 to 92 days")
+                .verify();
+        StepVerifier.create(svc.calendar("HYD", "BLR", from, from.minusDays(1)))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    record Cost(long documents, long bytes) {
+        Cost plus(Cost other) {
+            return new Cost(documents + other.documents, bytes + other.bytes);
+        }
+    }
+
+    private Cost cost(String collection, Flux<String> ids) {
+        Map<String, Document> stored = store.documents(collection);
+        return ids.map(id -> new Cost(1, new RawBsonDocument(stored.get(id), new DocumentCodec())
+                        .getByteBuffer().remaining()))
+                .reduce(new Cost(0, 0), Cost::plus)
+                .block();
+    }
+
+    /**
+     * Two weeks of schedules on two routes, 16 flights a day on HYD-BLR. A route search has to read every
+     * flight document of the window (the seat count is not in the index); the summaries are one document per
+     * day. Bytes are the stored BSON sizes of the documents read. RouteDayBenchmark measures a full year.
+     */
+    @Test
+    void weekSearch_readsOneSummaryPerDayInsteadOfEveryFlight() {
+        LocalDate start = DAY.toLocalDate();
+        List<AirlineInventory> flights = new ArrayList<>();
+        for (String route : List.of("HYD-BLR", "BLR-HYD")) {
+            int perDay = route.equals("HYD-BLR") ? 16 : 6;
+            for (int day = 0; day < 14; day++) {
+                for (int i = 0; i < perDay; i++) {
+                    AirlineInventory inv = newFlight(route, start.plusDays(day).atTime(5 + i, 0), 3000 + 50 * i, 180);
+                    inv.setId(new ObjectId().toHexString());
+                    flights.add(inv);
+                }
+            }
+        }
+        inventories.insertUnordered(flights).block();
+        summaries.onFlightsAdded(new FlightsAdded(flights));
+        summaryWritesDone();
+        assertThat(summaries.reconcile(false).block()).isEqualTo(new Report(28, flights.size(), 0, 0, 0, false));
+
+        LocalDate from = start.plusWeeks(1);
+        Cost fromInventories = cost("inventories", inventories.findSummaries("HYD", "BLR",
+                from.atStartOfDay().minusSeconds(1), from.plusDays(7).atStartOfDay()).map(FlightSummary::getId));
+        Cost fromDays = cost("routeDays",
+                routeDays.findDays("HYD", "BLR", from, from.plusDays(6), true).map(RouteDaySummary::getId));
+
+        assertThat(fromInventories.documents()).isEqualTo(7 * 16);
+        assertThat(fromDays.documents()).isEqualTo(7);
+        assertThat(fromDays.bytes()).isLessThan(fromInventories.bytes());
+    }
+}
@@ -0,0 +1,158 @@
+package com.flightapp.service;
+
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.event.FlightsAdded;
+import com.flightapp.model.AirlineInventory;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchCacheTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private static final SearchCache.Key KEY = new SearchCache.Key("HYD", "BLR", FROM, FROM.plusDays(7));
+
+    private final SearchCache cache = new SearchCache(100, Duration.ofMinutes(5));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private AirlineInventory flight(String id, LocalDateTime departure) {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setId(id);
+        inv.setOrigin("HYD");
+        inv.setDestination("BLR");
+        inv.setDeparture(departure);
+        return inv;
+    }
+
+    private Flux<AirlineInventory> load() {
+        loads.incrementAndGet();
+        return Flux.just(flight("f-1", FROM.plusDays(1)));
+    }
+
+    @Test
+    void secondSearch_isServedFromCache() {
+        StepVerifier.create(cache.get(KEY, this::load)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(KEY, this::load)).expectNextCount(1).verifyComplete();
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().hits()).isEqualTo(1);
+        assertThat(cache.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentMisses_shareOneQuery() {
+        Sinks.One<AirlineInventory> pending = Sinks.one();
+        AtomicInteger queries = new AtomicInteger();
+
+        List<Flux<AirlineInventory>> callers = java.util.stream.IntStream.range(0, 20)
+                .mapToObj(i -> cache.get(KEY, () -> {
+                    queries.incrementAndGet();
+                    return pending.asMono().flux();
+                }))
+                .toList();
+        CompletableFuture<List<AirlineInventory>> served = Flux.merge(callers).collectList().toFuture();
+        pending.tryEmitValue(flight("f-1", FROM.plusDays(1)));
+
+        assertThat(served.join()).hasSize(20);
+        assertThat(queries).hasValue(1);
+        assertThat(cache.stats().coalesced()).isEqualTo(19);
+    }
+
+    @Test
+    void failedQuery_isNotCached() {
+        StepVerifier.create(cache.get(KEY, () -> Flux.error(new IllegalStateException("down"))))
+                .expectError()
+                .verify();
+        StepVerifier.create(cache.get(KEY, this::load)).expectNextCount(1).verifyComplete();
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void inventoryChange_dropsOnlyWindowsCoveringTheFlight() {
+        SearchCache.Key later = new SearchCache.Key("HYD", "BLR", FROM.plusDays(10), FROM.plusDays(20));
+        cache.get(KEY, this::load).blockLast();
+        cache.get(later, this::load).blockLast();
+
+        cache.onInventoryChanged(FlightInventoryChanged.added(flight("f-2", FROM.plusDays(2))));
+
+        cache.get(KEY, this::load).blockLast();
+        cache.get(later, this::load).blockLast();
+        assertThat(loads).hasValue(3);
+        assertThat(cache.stats().invalidations()).isEqualTo(1);
+    }
+
+    @Test
+    void bulkAdd_dropsWindowsCoveringAnyFlightOfTheBatch() {
+        SearchCache.Key later = new SearchCache.Key("HYD", "BLR", FROM.plusDays(10), FROM.plusDays(20));
+        SearchCache.Key otherRoute = new SearchCache.Key("DEL", "BOM", FROM, FROM.plusDays(7));
+        cache.get(KEY, this::load).blockLast();
+        cache.get(later, this::load).blockLast();
+        cache.get(otherRoute, this::load).blockLast();
+
+        AirlineInventory elsewhere = flight("f-3", FROM.plusDays(30));
+        cache.onFlightsAdded(new FlightsAdded(List.of(flight("f-2", FROM.plusDays(12)), elsewhere)));
+
+        cache.get(KEY, this::load).blockLast();
+        cache.get(later, this::load).blockLast();
+        cache.get(otherRoute, this::load).blockLast();
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void changeWithoutFlightDetails_dropsEntriesListingIt() {
+        cache.get(KEY, this::load).blockLast();
+
+        cache.onInventoryChanged(new FlightInventoryChanged("f-1", null, List.of(), List.of("S1")));
+
+        cache.get(KEY, this::load).blockLast();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void changeWithoutFlightDetails_duringALoad_keepsThatLoadOutOfTheCache() {
+        Sinks.One<AirlineInventory> pending = Sinks.one();
+        CompletableFuture<List<AirlineInventory>> inFlight = cache.get(KEY, () -> {
+            loads.incrementAndGet();
+            return pending.asMono().flux();
+        }).collectList().toFuture();
+
+        cache.onInventoryChanged(new FlightInventoryChanged("f-1", null, List.of(), List.of("S1")));
+        pending.tryEmitValue(flight("f-1", FROM.plusDays(1)));
+
+        assertThat(inFlight.join()).hasSize(1);
+        cache.get(KEY, this::load).blockLast();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void disabledCache_alwaysQueries() {
+        SearchCache off = SearchCache.disabled();
+
+        off.get(KEY, this::load).blockLast();
+        off.get(KEY, this::load).blockLast();
+
+        assertThat(loads).hasValue(2);
+        assertThat(off.stats().size()).isZero();
+    }
+
+    @Test
+    void searchWaitsForSubscription() {
+        Flux<AirlineInventory> notSubscribed = cache.get(KEY, this::load);
+        assertThat(loads).hasValue(0);
+        assertThat(cache.stats().misses()).isZero();
+
+        notSubscribed.blockLast();
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().misses()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,273 @@
+package com.flightapp.service;
+
+import com.flightapp.dto.SeatAvailabilityUpdate;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.SeatMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SeatAvailabilityStreamTest {
+
+    private static final String FLIGHT = "f-1";
+    private static final int SEATS = 180;
+
+    SeatAllocator allocator;
+    SeatAvailabilityStream stream;
+
+    @BeforeEach
+    void setup() {
+        allocator = mock(SeatAllocator.class);
+        when(allocator.snapshot(FLIGHT)).thenAnswer(inv -> Mono.just(SeatMap.allAvailable(SEATS)));
+        when(allocator.snapshot("unknown")).thenReturn(Mono.empty());
+        stream = new SeatAvailabilityStream(allocator, 10_000, Duration.ZERO, SeatAvailabilityStream.SOURCE_EVENTS);
+    }
+
+    private void change(List<String> claimed, List<String> released) {
+        stream.onInventoryChanged(new FlightInventoryChanged(FLIGHT, null, claimed, released));
+    }
+
+    private void awaitPublished(long count) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (stream.stats().published() < count) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+
+    /** Requests nothing on its own; the test decides when it reads. */
+    static final class Reader extends BaseSubscriber<SeatAvailabilityUpdate> {
+        final List<SeatAvailabilityUpdate> received = new CopyOnWriteArrayList<>();
+        final long initial;
+
+        Reader(long initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(initial);
+        }
+
+        @Override
+        protected void hookOnNext(SeatAvailabilityUpdate update) {
+            received.add(update);
+        }
+    }
+
+    @Test
+    void snapshotFirst_thenDeltasOfBookingsAndReleases() {
+        StepVerifier.create(stream.subscribe(FLIGHT))
+                .assertNext(first -> {
+                    assertThat(first.snapshot()).isTrue();
+                    assertThat(first.available()).hasSize(SEATS).startsWith("S1", "S2");
+                })
+                .then(() -> change(List.of("S1", "S2"), List.of()))
+                .assertNext(delta -> {
+                    assertThat(delta.snapshot()).isFalse();
+                    assertThat(delta.version()).isEqualTo(1);
+                    assertThat(delta.taken()).containsExactly("S1", "S2");
+                    assertThat(delta.available()).isEmpty();
+                })
+                .then(() -> change(List.of("S3"), List.of("S1")))
+                .assertNext(delta -> {
+                    assertThat(delta.available()).containsExactly("S1");
+                    assertThat(delta.taken()).containsExactly("S3");
+                })
+                .thenCancel()
+                .verify();
+
+        assertThat(stream.stats().hotFlights()).isZero();
+        assertThat(stream.stats().subscribers()).isZero();
+    }
+
+    @Test
+    void slowSubscriber_getsOneNetDelta_boundedBySeatCount() {
+        Reader slow = new Reader(1);
+        stream.subscribe(FLIGHT).subscribe(slow);
+        assertThat(slow.received).singleElement().matches(SeatAvailabilityUpdate::snapshot);
+
+        // every seat taken and given back many times while the subscriber does not read
+        Random random = new Random(7);
+        SeatMap expected = SeatMap.allAvailable(SEATS);
+        for (int i = 0; i < 2_000; i++) {
+            String seat = SeatMap.labelOf(random.nextInt(SEATS));
+            if (expected.isAvailable(seat)) {
+                expected.claim(List.of(seat));
+                change(List.of(seat), List.of());
+            } else {
+                expected.release(List.of(seat));
+                change(List.of(), List.of(seat));
+            }
+        }
+        awaitPublished(2_000);
+        assertThat(slow.received).hasSize(1);
+
+        slow.request(1);
+
+        SeatAvailabilityUpdate delta = slow.received.get(1);
+        assertThat(delta.version()).isEqualTo(2_000);
+        assertThat(delta.available().size() + delta.taken().size()).isLessThanOrEqualTo(SEATS);
+        SeatMap seen = SeatMap.allAvailable(SEATS);
+        seen.release(delta.available());
+        delta.taken().forEach(seat -> seen.claim(List.of(seat)));
+        assertThat(seen).isEqualTo(expected);
+        assertThat(stream.stats().conflated()).isGreaterThan(1_000);
+        slow.dispose();
+    }
+
+    @Test
+    void changesWhileTheSnapshotLoads_areFoldedIntoIt() {
+        Sinks.One<SeatMap> loading = Sinks.one();
+        when(allocator.snapshot(FLIGHT)).thenReturn(loading.asMono());
+
+        StepVerifier.create(stream.subscribe(FLIGHT))
+                .then(() -> {
+                    change(List.of("S5"), List.of());
+                    awaitPublished(1);
+                    // the seat map was read before the booking landed
+                    loading.tryEmitValue(SeatMap.allAvailable(SEATS));
+                })
+                .assertNext(first -> {
+                    assertThat(first.snapshot()).isTrue();
+                    assertThat(first.version()).isEqualTo(1);
+                    assertThat(first.available()).hasSize(SEATS - 1).doesNotContain("S5");
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void thousandsOfSubscribers_fastOnesSeeEveryChange_slowOnesStayBounded() {
+        int subscribers = 5_000;
+        List<Reader> fast = new ArrayList<>();
+        List<Reader> slow = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            Reader reader = new Reader(i % 2 == 0 ? Long.MAX_VALUE : 1);
+            (i % 2 == 0 ? fast : slow).add(reader);
+            stream.subscribe(FLIGHT).subscribe(reader);
+        }
+        assertThat(stream.stats()).isEqualTo(new SeatAvailabilityStream.Stats(1, subscribers, 0, 0));
+
+        for (int i = 0; i < SEATS; i++) {
+            change(List.of(SeatMap.labelOf(i)), List.of());
+        }
+        awaitPublished(SEATS);
+
+        for (Reader reader : fast) {
+            assertThat(reader.received).hasSize(1 + SEATS);
+            assertThat(reader.received.get(SEATS).version()).isEqualTo(SEATS);
+        }
+        for (Reader reader : slow) {
+            assertThat(reader.received).hasSize(1);
+            reader.request(5);
+            // everything that happened in between arrives as one delta, and nothing more is queued
+            assertThat(reader.received).hasSize(2);
+            assertThat(reader.received.get(1).taken()).hasSize(SEATS);
+        }
+
+        fast.forEach(BaseSubscriber::dispose);
+        slow.forEach(BaseSubscriber::dispose);
+        assertThat(stream.stats().hotFlights()).isZero();
+        assertThat(stream.stats().subscribers()).isZero();
+    }
+
+    @Test
+    void changesOfFlightsNobodyWatches_areDropped() {
+        change(List.of("S1"), List.of());
+        FlightInventoryChanged added = FlightInventoryChanged.added(new AirlineInventory());
+        stream.onInventoryChanged(added);
+
+        assertThat(stream.stats().published()).isZero();
+        assertThat(stream.stats().hotFlights()).isZero();
+    }
+
+    @Test
+    void unknownFlight_completes_andFullNodeRejectsNewStreams() {
+        StepVerifier.create(stream.subscribe("unknown")).verifyComplete();
+        assertThat(stream.stats().hotFlights()).isZero();
+
+        stream = new SeatAvailabilityStream(allocator, 1, Duration.ZERO, SeatAvailabilityStream.SOURCE_EVENTS);
+        Reader first = new Reader(Long.MAX_VALUE);
+        stream.subscribe(FLIGHT).subscribe(first);
+
+        assertThat(stream.full()).isTrue();
+        StepVerifier.create(stream.subscribe(FLIGHT))
+                .expectErrorMessage(SeatAvailabilityStream.ERR_TOO_MANY)
+                .verify();
+        first.dispose();
+        assertThat(stream.full()).isFalse();
+
+        StepVerifier.create(SeatAvailabilityStream.disabled().subscribe(FLIGHT))
+                .expectErrorMessage(SeatAvailabilityStream.ERR_DISABLED)
+                .verify();
+    }
+
+    @Test
+    void changeFeed_publishesSeatMapDifferences_andIgnoresLocalEvents() {
+        stream = new SeatAvailabilityStream(allocator, 10, Duration.ZERO, SeatAvailabilityStream.SOURCE_CHANGE_STREAM);
+        SeatMap first = SeatMap.allAvailable(SEATS);
+        first.claim(List.of("S1"));
+        SeatMap second = first.copy();
+        second.release(List.of("S1"));
+        second.claim(List.of("S70", "S180"));
+
+        StepVerifier.create(stream.subscribe(FLIGHT))
+                .expectNextMatches(SeatAvailabilityUpdate::snapshot)
+                .then(() -> {
+                    change(List.of("S9"), List.of());
+                    stream.onSeatMap(FLIGHT, first);
+                })
+                // nothing to compare the first document with: every seat's state
+                .assertNext(delta -> {
+                    assertThat(delta.taken()).containsExactly("S1");
+                    assertThat(delta.available()).hasSize(SEATS - 1);
+                })
+                .then(() -> stream.onSeatMap(FLIGHT, second))
+                .assertNext(delta -> {
+                    assertThat(delta.available()).containsExactly("S1");
+                    assertThat(delta.taken()).containsExactly("S70", "S180");
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void resync_afterTheChangeFeedLostChanges_publishesWhatWasMissed() {
+        stream = new SeatAvailabilityStream(allocator, 10, Duration.ZERO, SeatAvailabilityStream.SOURCE_CHANGE_STREAM);
+        SeatMap seen = SeatMap.allAvailable(SEATS);
+        SeatMap missed = seen.copy();
+        missed.claim(List.of("S5", "S6"));
+
+        StepVerifier.create(stream.subscribe(FLIGHT))
+                .expectNextMatches(SeatAvailabilityUpdate::snapshot)
+                .then(() -> stream.onSeatMap(FLIGHT, seen))
+                .expectNextCount(1)
+                .then(() -> {
+                    when(allocator.snapshot(FLIGHT)).thenReturn(Mono.just(missed));
+                    stream.resync().block();
+                })
+                .assertNext(delta -> {
+                    assertThat(delta.taken()).containsExactly("S5", "S6");
+                    assertThat(delta.available()).isEmpty();
+                })
+                .thenCancel()
+                .verify();
+    }
+}
@@ -0,0 +1,314 @@
+package com.flightapp.service;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.HoldConfirmRequest;
+import com.flightapp.dto.SeatHoldRequest;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.SeatHold;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.embedded.EmbeddedBookingRepository;
+import com.flightapp.repository.embedded.EmbeddedInventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedSeatHoldRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Hold, confirm, release and expiry end to end on the embedded store, with the Mongo-style allocator. */
+class SeatHoldsTest {
+
+    private static final String EMAIL = "agent@example.com";
+
+    @TempDir
+    Path dir;
+
+    EmbeddedStore store;
+    EmbeddedInventoryRepository inventories;
+    EmbeddedBookingRepository bookings;
+    EmbeddedSeatHoldRepository holdRepo;
+    SimpleMeterRegistry registry;
+    SeatHolds holds;
+    FlightServiceImpl svc;
+    final List<Object> events = new CopyOnWriteArrayList<>();
+    // the next releases that fail, as if the flight could not be reached
+    final AtomicInteger failingReleases = new AtomicInteger();
+    // fails the next booking write, as if the store went away between taking a hold and booking it
+    final AtomicBoolean failBookingSave = new AtomicBoolean();
+    String flightId;
+
+    @BeforeEach
+    void setup() throws IOException {
+        store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        inventories = new EmbeddedInventoryRepository(store);
+        bookings = new EmbeddedBookingRepository(store) {
+            @Override
+            public <S extends Booking> Mono<S> save(S booking) {
+                return failBookingSave.getAndSet(false) ? Mono.error(new IllegalStateException("store down"))
+                        : super.save(booking);
+            }
+        };
+        registry = new SimpleMeterRegistry();
+        BookingMetrics metrics = new BookingMetrics(registry);
+        MongoSeatAllocator seats = new MongoSeatAllocator(inventories);
+        SeatAllocator allocator = new SeatAllocator() {
+            @Override
+            public Mono<AirlineInventory> claim(String flightId, Collection<String> labels, LocalDateTime now) {
+                return seats.claim(flightId, labels, now);
+            }
+
+            @Override
+            public Mono<Boolean> release(String flightId, Collection<String> labels) {
+                return seats.release(flightId, labels);
+            }
+
+            @Override
+            public Mono<Released> releaseOnce(String flightId, Map<String, ? extends Collection<String>> byRelease) {
+                return failingReleases.getAndUpdate(n -> Math.max(0, n - 1)) > 0
+                        ? Mono.error(new IllegalStateException("flight unreachable"))
+                        : seats.releaseOnce(flightId, byRelease);
+            }
+
+            @Override
+            public Mono<SeatMap> snapshot(String flightId) {
+                return seats.snapshot(flightId);
+            }
+        };
+        // the sweeper is not started; tests drive expire() with a clock of their own
+        holdRepo = new EmbeddedSeatHoldRepository(store);
+        holds = new SeatHolds(holdRepo, allocator, events::add, metrics,
+                Duration.ofMinutes(10), Duration.ofSeconds(1));
+        svc = FlightServiceFixture.on(inventories, bookings)
+                .seatAllocator(allocator)
+                .events(events::add)
+                .metrics(metrics)
+                .seatHolds(holds)
+                .build();
+
+        AirlineInventory inv = new AirlineInventory();
+        inv.setFlightNumber("IN1");
+        inv.setDeparture(LocalDateTime.now().plusDays(3));
+        inv.setTotalSeats(10);
+        inv.setSeatMap(SeatMap.allAvailable(10));
+        flightId = inventories.save(inv).block().getId();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.destroy();
+    }
+
+    private static SeatHoldRequest holdRequest(String email, String... seats) {
+        SeatHoldRequest req = new SeatHoldRequest();
+        req.setEmail(email);
+        req.setSeatNumbers(List.of(seats));
+        return req;
+    }
+
+    private static HoldConfirmRequest confirmRequest(String email, int passengers) {
+        HoldConfirmRequest req = new HoldConfirmRequest();
+        req.setName("Agent");
+        req.setEmail(email);
+        req.setPassengers(Stream.generate(Passenger::new).limit(passengers).toList());
+        return req;
+    }
+
+    private int available() {
+        return inventories.findById(flightId).block().getSeatMap().availableCount();
+    }
+
+    @Test
+    void hold_claimsSeats_andConfirmBooksThemOnce() {
+        SeatHold hold = svc.holdSeats(flightId, holdRequest(EMAIL, "S1", "S2")).block();
+
+        assertThat(hold.getId()).isNotBlank();
+        assertThat(hold.getExpiresAt()).isAfter(LocalDateTime.now().plusMinutes(9));
+        assertThat(available()).isEqualTo(8);
+        assertThat(events).singleElement()
+                .isInstanceOfSatisfying(FlightInventoryChanged.class, e -> {
+                    assertThat(e.flightId()).isEqualTo(flightId);
+                    assertThat(e.claimed()).containsExactly("S1", "S2");
+                });
+        StepVerifier.create(svc.holdSeats(flightId, holdRequest("other@example.com", "S2", "S3")))
+                .expectErrorMatches(err -> err instanceof IllegalStateException
+                        && err.getMessage().contains("unavailable"))
+                .verify();
+
+        Booking booking = svc.confirmHold(hold.getId(), confirmRequest(EMAIL, 2)).block();
+
+        assertThat(booking.getPnr()).isNotBlank();
+        assertThat(booking.getSeatNumbers()).containsExactly("S1", "S2");
+        assertThat(booking.getFlightId()).isEqualTo(flightId);
+        assertThat(available()).isEqualTo(8);
+        StepVerifier.create(svc.confirmHold(hold.getId(), confirmRequest(EMAIL, 2)))
+                .expectErrorMatches(err -> err instanceof IllegalArgumentException
+                        && err.getMessage().equals("Hold not found or expired"))
+                .verify();
+        assertThat(bookings.count().block()).isEqualTo(1);
+    }
+
+    @Test
+    void confirm_rejectsOtherUsersAndWrongPassengerCount_withoutLosingTheHold() {
+        SeatHold hold = svc.holdSeats(flightId, holdRequest(EMAIL, "S1", "S2")).block();
+
+        StepVerifier.create(svc.confirmHold(hold.getId(), confirmRequest("thief@example.com", 2)))
+                .expectErrorMatches(err -> err instanceof IllegalStateException
+                        && err.getMessage().equals("Only the holder can use this hold"))
+                .verify();
+        StepVerifier.create(svc.releaseHold(hold.getId(), "thief@example.com"))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(svc.confirmHold(hold.getId(), confirmRequest(EMAIL, 1)))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        StepVerifier.create(svc.confirmHold(hold.getId(), confirmRequest(EMAIL.toUpperCase(), 2)))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void release_givesSeatsBack() {
+        SeatHold hold = svc.holdSeats(flightId, holdRequest(EMAIL, "S1")).block();
+
+        StepVerifier.create(svc.releaseHold(hold.getId(), EMAIL)).verifyComplete();
+
+        assertThat(available()).isEqualTo(10);
+        assertThat(events).last().isInstanceOfSatisfying(FlightInventoryChanged.class, e -> {
+            assertThat(e.flight().getId()).isEqualTo(flightId);
+            assertThat(e.released()).containsExactly("S1");
+        });
+        assertThat(holdRepo.count().block()).isZero();
+        StepVerifier.create(svc.releaseHold(hold.getId(), EMAIL))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void failedRelease_keepsTheHold_andTheSweepReleasesItOnce() {
+        SeatHold hold = svc.holdSeats(flightId, holdRequest(EMAIL, "S1")).block();
+        failingReleases.set(1);
+
+        StepVerifier.create(svc.releaseHold(hold.getId(), EMAIL))
+                .expectErrorMessage("flight unreachable")
+                .verify();
+        assertThat(available()).isEqualTo(9);
+        assertThat(holdRepo.findById(hold.getId()).block().isReleasing()).isTrue();
+        StepVerifier.create(svc.confirmHold(hold.getId(), confirmRequest(EMAIL, 1)))
+                .expectErrorMessage("Hold not found or expired")
+                .verify();
+
+        // marked releasing, it is retried on the next sweep instead of waiting out its ttl
+        assertThat(holds.expire(LocalDateTime.now()).block()).isEqualTo(1);
+        assertThat(holdRepo.findById(hold.getId()).block()).isNull();
+        assertThat(available()).isEqualTo(10);
+
+        // the same release replayed after the seat was held again leaves it taken
+        svc.holdSeats(flightId, holdRequest(EMAIL, "S1")).block();
+        holds.release(hold).block();
+        assertThat(available()).isEqualTo(9);
+    }
+
+    @Test
+    void confirmWhoseBookingFails_givesTheSeatsBack_orLeavesThemToTheSweep() {
+        SeatHold released = svc.holdSeats(flightId, holdRequest(EMAIL, "S1")).block();
+        SeatHold stuck = svc.holdSeats(flightId, holdRequest(EMAIL, "S2")).block();
+
+        failBookingSave.set(true);
+        StepVerifier.create(svc.confirmHold(released.getId(), confirmRequest(EMAIL, 1)))
+                .expectErrorMessage("store down")
+                .verify();
+        assertThat(holdRepo.findById(released.getId()).block()).isNull();
+        assertThat(available()).isEqualTo(9);
+
+        failBookingSave.set(true);
+        failingReleases.set(1);
+        StepVerifier.create(svc.confirmHold(stuck.getId(), confirmRequest(EMAIL, 1)))
+                .expectErrorMessage("store down")
+                .verify();
+        assertThat(holdRepo.findById(stuck.getId()).block().isReleasing()).isTrue();
+        assertThat(available()).isEqualTo(9);
+        StepVerifier.create(svc.confirmHold(stuck.getId(), confirmRequest(EMAIL, 1)))
+                .expectErrorMessage("Hold not found or expired")
+                .verify();
+
+        assertThat(holds.expire(LocalDateTime.now()).block()).isEqualTo(1);
+        assertThat(holdRepo.count().block()).isZero();
+        assertThat(available()).isEqualTo(10);
+        assertThat(bookings.count().block()).isZero();
+    }
+
+    @Test
+    void expire_releasesOnlyExpiredHolds_andConfirmAfterwardsFails() {
+        SeatHold hold = svc.holdSeats(flightId, holdRequest(EMAIL, "S1")).block();
+        svc.holdSeats(flightId, holdRequest(EMAIL, "S2")).block();
+
+        assertThat(holds.expire(LocalDateTime.now()).block()).isZero();
+        assertThat(holds.expire(LocalDateTime.now().plusMinutes(11)).block()).isEqualTo(2);
+
+        assertThat(available()).isEqualTo(10);
+        assertThat(registry.get(BookingMetrics.HOLDS_EXPIRED).counter().count()).isEqualTo(2);
+        StepVerifier.create(svc.confirmHold(hold.getId(), confirmRequest(EMAIL, 1)))
+                .expectErrorMatches(err -> err.getMessage().equals("Hold not found or expired"))
+                .verify();
+        assertThat(holds.expire(LocalDateTime.now().plusMinutes(11)).block()).isZero();
+    }
+
+    @Test
+    void confirmRacingExpiry_exactlyOneWins_andSeatsMatchTheWinner() {
+        for (int i = 0; i < 50; i++) {
+            SeatHold hold = svc.holdSeats(flightId, holdRequest(EMAIL, "S1")).block();
+
+            // the sweep's clock is past the expiry, the confirming node's is not
+            Mono<Booking> confirm = svc.confirmHold(hold.getId(), confirmRequest(EMAIL, 1))
+                    .onErrorResume(IllegalArgumentException.class, err -> Mono.empty())
+                    .subscribeOn(Schedulers.parallel());
+            Mono<Integer> expire = holds.expire(LocalDateTime.now().plusMinutes(11))
+                    .subscribeOn(Schedulers.parallel());
+            var result = Mono.zip(confirm.map(List::of).defaultIfEmpty(List.of()), expire).block();
+
+            boolean booked = !result.getT1().isEmpty();
+            boolean expired = result.getT2() == 1;
+            assertThat(booked).isNotEqualTo(expired);
+            assertThat(available()).isEqualTo(booked ? 9 : 10);
+            if (booked) {
+                bookings.deleteById(result.getT1().get(0).getId()).block();
+                inventories.releaseSeats(flightId, List.of("S1")).block();
+            }
+        }
+    }
+
+    @Test
+    void disabled_rejectsHolds() {
+        svc = FlightServiceFixture.plain(inventories, bookings);
+
+        StepVerifier.create(svc.holdSeats(flightId, holdRequest(EMAIL, "S1")))
+                .expectErrorMatches(err -> err instanceof IllegalStateException
+                        && err.getMessage().equals("Seat holds are disabled"))
+                .verify();
+        assertThat(available()).isEqualTo(10);
+    }
+}
@@ -0,0 +1,211 @@
+package com.flightapp.service;
+
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.PendingRelease;
+import com.flightapp.model.SeatHold;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.BookingRepository;
+import com.flightapp.repository.InventoryRepository;
+import com.flightapp.repository.SeatHoldRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SeatInventoryEngineTest {
+
+    InventoryRepository inventoryRepo;
+    BookingRepository bookingRepo;
+    SeatHoldRepository holdRepo;
+    SeatInventoryEngine engine;
+
+    @BeforeEach
+    void setup() {
+        inventoryRepo = mock(InventoryRepository.class);
+        bookingRepo = mock(BookingRepository.class);
+        holdRepo = mock(SeatHoldRepository.class);
+        engine = new SeatInventoryEngine(inventoryRepo, bookingRepo, holdRepo, Duration.ofHours(1), Duration.ofHours(1));
+
+        AirlineInventory inv = new AirlineInventory();
+        inv.setId("f-1");
+        inv.setTotalSeats(10);
+        inv.setDeparture(LocalDateTime.now().plusDays(2));
+        inv.setSeatMap(SeatMap.allAvailable(10));
+        when(inventoryRepo.findById("f-1")).thenReturn(Mono.just(inv));
+        when(inventoryRepo.findById("missing")).thenReturn(Mono.empty());
+
+        Booking active = new Booking();
+        active.setSeatNumbers(List.of("S1", "S2"));
+        when(bookingRepo.findByFlightIdAndCanceledFalse("f-1")).thenReturn(Flux.just(active));
+        when(holdRepo.findByFlightId(any())).thenReturn(Flux.empty());
+        when(bookingRepo.findWithPendingReleases(any())).thenReturn(Flux.empty());
+        when(inventoryRepo.saveSeatMaps(any())).thenAnswer(a -> Mono.just(((Map<?, ?>) a.getArgument(0)).size()));
+    }
+
+    @Test
+    void load_keepsSeatsOfHoldsClaimed() {
+        SeatHold hold = new SeatHold();
+        hold.setSeatNumbers(List.of("S5"));
+        when(holdRepo.findByFlightId("f-1")).thenReturn(Flux.just(hold));
+
+        StepVerifier.create(engine.snapshot("f-1"))
+                .assertNext(map -> {
+                    assertThat(map.availableCount()).isEqualTo(7);
+                    assertThat(map.isAvailable("S5")).isFalse();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void load_recoversSeatsFromActiveBookings() {
+        StepVerifier.create(engine.snapshot("f-1"))
+                .assertNext(map -> {
+                    assertThat(map.availableCount()).isEqualTo(8);
+                    assertThat(map.isAvailable("S1")).isFalse();
+                    assertThat(map.isAvailable("S3")).isTrue();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void claim_takenSeat_isEmpty_andFlightLoadedOnce() {
+        StepVerifier.create(engine.claim("f-1", List.of("S3"), LocalDateTime.now()))
+                .assertNext(inv -> assertThat(inv.getId()).isEqualTo("f-1"))
+                .verifyComplete();
+        StepVerifier.create(engine.claim("f-1", List.of("S3", "S4"), LocalDateTime.now()))
+                .verifyComplete();
+        StepVerifier.create(engine.snapshot("f-1"))
+                .assertNext(map -> assertThat(map.isAvailable("S4")).isTrue())
+                .verifyComplete();
+
+        verify(inventoryRepo, times(1)).findById("f-1");
+    }
+
+    @Test
+    void claim_unknownOrDepartedFlight_isEmpty() {
+        StepVerifier.create(engine.claim("missing", List.of("S3"), LocalDateTime.now())).verifyComplete();
+        StepVerifier.create(engine.claim("f-1", List.of("S3"), LocalDateTime.now().plusDays(3))).verifyComplete();
+    }
+
+    @Test
+    void parallelClaims_neverHandOutASeatTwice() {
+        Long granted = Flux.range(0, 200)
+                .flatMap(i -> engine.claim("f-1", List.of("S" + (3 + i % 8)), LocalDateTime.now())
+                        .subscribeOn(Schedulers.parallel()))
+                .count()
+                .block();
+
+        assertThat(granted).isEqualTo(8);
+        assertThat(engine.snapshot("f-1").block().availableCount()).isZero();
+    }
+
+    @Test
+    void release_isIdempotent() {
+        StepVerifier.create(engine.release("f-1", List.of("S1"))).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.release("f-1", List.of("S1"))).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    void releaseOnce_completesOnlyAfterTheFlightIsFlushed() {
+        Mono<SeatAllocator.Released> released = engine.releaseOnce("f-1", Map.of(new ObjectId().toHexString(),
+                List.of("S1"))).cache();
+        released.subscribe();
+
+        StepVerifier.create(released).expectSubscription().expectNoEvent(Duration.ofMillis(50)).thenCancel().verify();
+        doReturn(Mono.error(new RuntimeException("down"))).when(inventoryRepo).saveSeatMaps(any());
+        StepVerifier.create(engine.flush()).expectError().verify();
+        StepVerifier.create(released).expectSubscription().expectNoEvent(Duration.ofMillis(50)).thenCancel().verify();
+
+        doReturn(Mono.just(1)).when(inventoryRepo).saveSeatMaps(any());
+        StepVerifier.create(engine.flush()).expectNext(1).verifyComplete();
+        StepVerifier.create(released)
+                .assertNext(outcome -> assertThat(outcome.seats()).containsExactly("S1"))
+                .verifyComplete();
+    }
+
+    @Test
+    void releaseStillPendingOnABooking_isTakenAsAppliedOnLoad() {
+        String releaseId = new ObjectId().toHexString();
+        Booking changed = new Booking();
+        changed.setFlightId("f-1");
+        changed.setPendingReleases(List.of(PendingRelease.of(List.of("S3"), LocalDateTime.now())));
+        changed.getPendingReleases().get(0).setReleaseId(releaseId);
+        when(bookingRepo.findWithPendingReleases("f-1")).thenReturn(Flux.just(changed));
+        engine.claim("f-1", List.of("S3"), LocalDateTime.now()).block();
+        engine.flush().block();
+
+        StepVerifier.create(engine.releaseOnce("f-1", Map.of(releaseId, List.of("S3"))))
+                .assertNext(outcome -> assertThat(outcome.seats()).isEmpty())
+                .verifyComplete();
+        assertThat(engine.snapshot("f-1").block().isAvailable("S3")).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void flush_writesChangedFlightsOnceInABatch() {
+        engine.claim("f-1", List.of("S5"), LocalDateTime.now()).block();
+        engine.claim("f-1", List.of("S6"), LocalDateTime.now()).block();
+
+        StepVerifier.create(engine.flush()).expectNext(1).verifyComplete();
+        StepVerifier.create(engine.flush()).expectNext(0).verifyComplete();
+
+        ArgumentCaptor<Map<String, SeatMap>> cap = ArgumentCaptor.forClass(Map.class);
+        verify(inventoryRepo, times(1)).saveSeatMaps(cap.capture());
+        assertThat(cap.getValue().get("f-1").availableCount()).isEqualTo(6);
+    }
+
+    @Test
+    void flush_failure_keepsFlightDirty() {
+        engine.claim("f-1", List.of("S5"), LocalDateTime.now()).block();
+        doReturn(Mono.error(new RuntimeException("down"))).when(inventoryRepo).saveSeatMaps(any());
+
+        StepVerifier.create(engine.flush()).expectError().verify();
+
+        doReturn(Mono.just(1)).when(inventoryRepo).saveSeatMaps(any());
+        StepVerifier.create(engine.flush()).expectNext(1).verifyComplete();
+    }
+
+    @Test
+    void evict_dropsDepartedFlightsOnceWritten_andTheNextRequestLoadsThemAgain() {
+        engine.claim("f-1", List.of("S5"), LocalDateTime.now()).block();
+        LocalDateTime afterDeparture = LocalDateTime.now().plusDays(3);
+
+        assertThat(engine.evict(afterDeparture)).isZero();
+        engine.flush().block();
+        assertThat(engine.evict(LocalDateTime.now())).isZero();
+        assertThat(engine.evict(afterDeparture)).isEqualTo(1);
+        assertThat(engine.loadedFlights()).isZero();
+
+        StepVerifier.create(engine.snapshot("f-1"))
+                .assertNext(map -> assertThat(map.availableCount()).isEqualTo(8))
+                .verifyComplete();
+        verify(inventoryRepo, times(2)).findById("f-1");
+    }
+
+    @Test
+    void evict_dropsFlightsUntouchedForTheIdleTime() throws InterruptedException {
+        SeatInventoryEngine idle = new SeatInventoryEngine(inventoryRepo, bookingRepo, holdRepo, Duration.ofHours(1),
+                Duration.ofMillis(20));
+        idle.claim("f-1", List.of("S5"), LocalDateTime.now()).block();
+        idle.flush().block();
+        assertThat(idle.evict(LocalDateTime.now())).isZero();
+
+        Thread.sleep(50);
+        assertThat(idle.evict(LocalDateTime.now())).isEqualTo(1);
+        assertThat(idle.loadedFlights()).isZero();
+    }
+}
@@ -0,0 +1,280 @@
+package com.flightapp.service;
+
+import com.flightapp.config.MongoConfig;
+import com.flightapp.dto.BookingRequest;
+import com.flightapp.dto.BookingUpdateRequest;
+import com.flightapp.event.FlightInventoryChanged;
+import com.flightapp.model.AirlineInventory;
+import com.flightapp.model.Booking;
+import com.flightapp.model.Passenger;
+import com.flightapp.model.PendingRelease;
+import com.flightapp.model.SeatMap;
+import com.flightapp.repository.embedded.EmbeddedBookingRepository;
+import com.flightapp.repository.embedded.EmbeddedInventoryRepository;
+import com.flightapp.repository.embedded.EmbeddedStore;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Seat releases on the embedded store, with the booking service submitting cancellations and seat changes. */
+class SeatReleasesTest {
+
+    private static final String EMAIL = "agent@example.com";
+    private static final int SEATS = 180;
+
+    @TempDir
+    Path dir;
+
+    EmbeddedStore store;
+    EmbeddedInventoryRepository inventories;
+    EmbeddedBookingRepository bookings;
+    List<FlightInventoryChanged> changes = new CopyOnWriteArrayList<>();
+    // runs once after the next release is applied, which then fails as if its reply had been lost
+    AtomicReference<Mono<?>> lostReply = new AtomicReference<>();
+    // releases that fail outright before reaching the flight
+    AtomicInteger failingReleases = new AtomicInteger();
+    SeatReleases releases;
+    FlightServiceImpl svc;
+
+    @BeforeEach
+    void setup() throws IOException {
+        store = new EmbeddedStore(new MongoConfig().mongoCustomConversions(), dir.toString(),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.afterPropertiesSet();
+        inventories = new EmbeddedInventoryRepository(store);
+        bookings = new EmbeddedBookingRepository(store);
+        MongoSeatAllocator seats = new MongoSeatAllocator(inventories);
+        SeatAllocator flaky = new SeatAllocator() {
+            @Override
+            public Mono<AirlineInventory> claim(String flightId, Collection<String> labels, LocalDateTime now) {
+                return seats.claim(flightId, labels, now);
+            }
+
+            @Override
+            public Mono<Boolean> release(String flightId, Collection<String> labels) {
+                return seats.release(flightId, labels);
+            }
+
+            @Override
+            public Mono<Released> releaseOnce(String flightId, Map<String, ? extends Collection<String>> byRelease) {
+                if (failingReleases.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    return Mono.error(new IllegalStateException("flight unreachable"));
+                }
+                Mono<?> meanwhile = lostReply.getAndSet(null);
+                Mono<Released> applied = seats.releaseOnce(flightId, byRelease);
+                return meanwhile == null ? applied
+                        : applied.then(meanwhile).then(Mono.error(new IllegalStateException("reply lost")));
+            }
+
+            @Override
+            public Mono<SeatMap> snapshot(String flightId) {
+                return seats.snapshot(flightId);
+            }
+        };
+        releases = new SeatReleases(flaky, bookings, event -> {
+            if (event instanceof FlightInventoryChanged changed && !changed.released().isEmpty()) {
+                changes.add(changed);
+            }
+        }, Duration.ofMillis(50), 500, 8, 5, Duration.ofMillis(10), Duration.ZERO);
+        releases.afterPropertiesSet();
+        svc = FlightServiceFixture.on(inventories, bookings).seatAllocator(flaky).seatReleases(releases).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        releases.destroy();
+        store.destroy();
+    }
+
+    private AirlineInventory flight() {
+        return flight(SEATS);
+    }
+
+    private AirlineInventory flight(int seats) {
+        AirlineInventory inv = new AirlineInventory();
+        inv.setAirline("Indigo");
+        inv.setFlightNumber("IN7");
+        inv.setOrigin("HYD");
+        inv.setDestination("BLR");
+        inv.setDeparture(LocalDateTime.now().plusDays(3));
+        inv.setArrival(inv.getDeparture().plusMinutes(90));
+        inv.setTotalSeats(seats);
+        inv.setPrice(4000);
+        inv.setSeatMap(SeatMap.allAvailable(seats));
+        return svc.addInventory(inv).block();
+    }
+
+    private static BookingRequest request(String... seats) {
+        BookingRequest req = new BookingRequest();
+        req.setName("Agent");
+        req.setEmail(EMAIL);
+        req.setSeatNumbers(List.of(seats));
+        req.setPassengers(Stream.generate(Passenger::new).limit(seats.length).toList());
+        return req;
+    }
+
+    private Booking book(AirlineInventory flight, String... seats) {
+        return svc.book(flight.getId(), request(seats)).block();
+    }
+
+    private SeatMap seatMap(AirlineInventory flight) {
+        return inventories.findById(flight.getId()).block().getSeatMap();
+    }
+
+    @Test
+    void massCancellation_onOneFlight_isAppliedInAFewBatches_andFreesEverySeatOnce() {
+        AirlineInventory flight = flight();
+        List<Booking> burst = IntStream.range(0, SEATS / 2)
+                .mapToObj(i -> book(flight, SeatMap.labelOf(2 * i), SeatMap.labelOf(2 * i + 1)))
+                .toList();
+        assertThat(seatMap(flight).availableCount()).isZero();
+
+        Flux.fromIterable(burst)
+                .flatMap(b -> svc.cancelByPnrAndEmail(b.getPnr(), EMAIL).subscribeOn(Schedulers.parallel()), 64)
+                .blockLast(Duration.ofSeconds(30));
+
+        assertThat(seatMap(flight).availableCount()).isEqualTo(SEATS);
+        assertThat(releases.stats().submitted()).isEqualTo(burst.size());
+        assertThat(releases.stats().batches()).isLessThan(burst.size() / 5);
+        assertThat(changes.stream().flatMap(change -> change.released().stream()))
+                .hasSize(SEATS).doesNotHaveDuplicates();
+        assertThat(bookings.findWithPendingReleases().collectList().block()).isEmpty();
+    }
+
+    @Test
+    void retriedBatch_whoseWriteWentThrough_doesNotFreeASeatSoldAgain() {
+        AirlineInventory flight = flight();
+        Booking first = book(flight, "S1", "S2");
+        List<Booking> resold = new CopyOnWriteArrayList<>();
+        lostReply.set(svc.book(flight.getId(), request("S1")).doOnNext(resold::add));
+
+        svc.cancelByPnrAndEmail(first.getPnr(), EMAIL).block(Duration.ofSeconds(10));
+
+        assertThat(resold).hasSize(1);
+        assertThat(releases.stats().retries()).isEqualTo(1);
+        assertThat(seatMap(flight).isAvailable("S1")).isFalse();
+        assertThat(seatMap(flight).isAvailable("S2")).isTrue();
+        assertThat(bookings.findWithPendingReleases().collectList().block()).isEmpty();
+
+        // recovery submitting the same cancellation again is just as harmless
+        Booking stored = bookings.findByPnr(first.getPnr()).block();
+        PendingRelease again = PendingRelease.of(List.of("S1", "S2"), stored.getCanceledAt());
+        again.setReleaseId(inventories.findById(flight.getId()).block().getRecentReleases().get(0));
+        stored.setPendingReleases(List.of(again));
+        bookings.save(stored).block();
+        assertThat(releases.recover(LocalDateTime.now().plusMinutes(1)).block()).isEqualTo(1);
+        assertThat(seatMap(flight).isAvailable("S1")).isFalse();
+        assertThat(bookings.findWithPendingReleases().collectList().block()).isEmpty();
+    }
+
+    @Test
+    void seatReducingUpdate_releasesTheSeatsGivenUp() {
+        AirlineInventory flight = flight();
+        Booking booking = book(flight, "S1", "S2", "S3");
+
+        BookingUpdateRequest req = new BookingUpdateRequest();
+        req.setEmail(EMAIL);
+        req.setSeatNumbers(List.of("S2"));
+        req.setPassengers(List.of(new Passenger()));
+        svc.updateBooking(booking.getPnr(), req).block();
+
+        SeatMap seats = seatMap(flight);
+        assertThat(seats.isAvailable("S1")).isTrue();
+        assertThat(seats.isAvailable("S2")).isFalse();
+        assertThat(seats.isAvailable("S3")).isTrue();
+        assertThat(changes).singleElement().satisfies(change ->
+                assertThat(change.released()).containsExactlyInAnyOrder("S1", "S3"));
+    }
+
+    @Test
+    void seatChangeWhoseReleaseRunsOutOfRetries_staysPending_andIsRecovered() {
+        AirlineInventory flight = flight();
+        Booking booking = book(flight, "S1", "S2");
+        failingReleases.set(5);
+
+        BookingUpdateRequest req = new BookingUpdateRequest();
+        req.setEmail(EMAIL);
+        req.setSeatNumbers(List.of("S2"));
+        req.setPassengers(List.of(new Passenger()));
+        svc.updateBooking(booking.getPnr(), req).block();
+
+        assertThat(seatMap(flight).isAvailable("S1")).isFalse();
+        assertThat(releases.stats().failed()).isEqualTo(1);
+        assertThat(bookings.findWithPendingReleases().collectList().block()).singleElement()
+                .satisfies(pending -> assertThat(pending.getPendingReleases()).singleElement()
+                        .satisfies(release -> assertThat(release.getSeatNumbers()).containsExactly("S1")));
+
+        assertThat(releases.recover(LocalDateTime.now().plusMinutes(1)).block()).isEqualTo(1);
+        assertThat(seatMap(flight).isAvailable("S1")).isTrue();
+        assertThat(seatMap(flight).isAvailable("S2")).isFalse();
+        assertThat(bookings.findWithPendingReleases().collectList().block()).isEmpty();
+    }
+
+    @Test
+    void recoveredRelease_afterAFullWidebodyOfReleases_doesNotFreeASeatSoldAgain() {
+        int seats = 320;
+        AirlineInventory flight = flight(seats);
+        List<Booking> burst = IntStream.range(0, seats).mapToObj(i -> book(flight, SeatMap.labelOf(i))).toList();
+        svc.cancelByPnrAndEmail(burst.get(0).getPnr(), EMAIL).block();
+        String firstRelease = inventories.findById(flight.getId()).block().getRecentReleases().get(0);
+        Flux.fromIterable(burst.subList(1, seats))
+                .flatMap(b -> svc.cancelByPnrAndEmail(b.getPnr(), EMAIL).subscribeOn(Schedulers.parallel()), 64)
+                .blockLast(Duration.ofSeconds(60));
+        book(flight, SeatMap.labelOf(0));
+
+        // the first cancellation's removal from its booking was lost: recovery replays it after the resale
+        Booking first = bookings.findByPnr(burst.get(0).getPnr()).block();
+        PendingRelease again = PendingRelease.of(List.of(SeatMap.labelOf(0)), first.getCanceledAt());
+        again.setReleaseId(firstRelease);
+        first.setPendingReleases(List.of(again));
+        bookings.save(first).block();
+        assertThat(releases.recover(LocalDateTime.now().plusMinutes(1)).block()).isEqualTo(1);
+
+        assertThat(seatMap(flight).isAvailable(SeatMap.labelOf(0))).isFalse();
+        assertThat(bookings.findWithPendingReleases().collectList().block()).isEmpty();
+    }
+
+    @Test
+    void releasePendingPastTheReplayLimit_isNotReplayed_andOldIdsAreForgotten() {
+        AirlineInventory flight = flight();
+        Booking booking = book(flight, "S1");
+        LocalDateTime longAgo = LocalDateTime.now().minus(AirlineInventory.RELEASE_MEMORY).minusDays(1);
+        String oldId = new ObjectId(Date.from(longAgo.atZone(ZoneId.systemDefault()).toInstant())).toHexString();
+        inventories.releaseSeatsOnce(flight.getId(), List.of(), List.of(oldId)).block();
+
+        PendingRelease stale = PendingRelease.of(List.of("S1"), longAgo);
+        stale.setReleaseId(oldId);
+        booking.setPendingReleases(List.of(stale));
+        bookings.save(booking).block();
+        assertThat(releases.recover(LocalDateTime.now().plusMinutes(1)).block()).isZero();
+        assertThat(releases.stats().expired()).isEqualTo(1);
+        assertThat(seatMap(flight).isAvailable("S1")).isFalse();
+
+        // the next release that frees seats drops ids older than the flight's memory
+        svc.cancelByPnrAndEmail(book(flight, "S2").getPnr(), EMAIL).block();
+        assertThat(inventories.findById(flight.getId()).block().getRecentReleases())
+                .hasSize(1).doesNotContain(oldId);
+    }
+}
@@ -1,6 +1,12 @@
 package com.flightapp.util;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class PnrGeneratorTest {
@@ -16,4 +22,27 @@ class PnrGeneratorTest {
                 .isEqualTo(pnr.toUpperCase())
                 .hasSizeGreaterThanOrEqualTo(6);
     }
-}
\ No newline at end of file
+
+    @Test
+    void encode_coversTheWholeCodeSpace() {
+        assertThat(PnrGenerator.encode(0)).isEqualTo("AAAAAA");
+        assertThat(PnrGenerator.encode(35)).isEqualTo("AAAAA9");
+        assertThat(PnrGenerator.encode(PnrGenerator.CODES - 1)).isEqualTo("999999");
+    }
+
+    @Test
+    void generate_acrossThreads_collidesNoMoreThanUniformDraws() {
+        int draws = 1_600_000;
+        Set<String> seen = ConcurrentHashMap.newKeySet(draws);
+        AtomicInteger collisions = new AtomicInteger();
+
+        IntStream.range(0, draws).parallel().forEach(i -> {
+            if (!seen.add(PnrGenerator.generate())) {
+                collisions.incrementAndGet();
+            }
+        });
+
+        // birthday bound n^2 / 2N is about 588; threads sharing a seed would show far more
+        assertThat(collisions.get()).isBetween(400, 800);
+    }
+}